@@ -0,0 +1,10 @@
+-include= ~../cnf/resources/bnd/feature.props
+symbolicName=com.ibm.websphere.appserver.sessionDatabase-1.0
+visibility=public
+IBM-ShortName: sessionDatabase-1.0
+Subsystem-Name: Database Session Persistence
+-features=com.ibm.websphere.appserver.servlet-3.1, \
+ com.ibm.websphere.appserver.jdbc-4.1; ibm.tolerates:=4.2
+-bundles=com.ibm.ws.session.db
+kind=ga
+edition=core
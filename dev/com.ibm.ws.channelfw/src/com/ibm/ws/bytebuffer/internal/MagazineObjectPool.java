@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.bytebuffer.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.websphere.channelfw.osgi.CHFWBundle;
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.wsspi.channelfw.objectpool.ObjectDestroyer;
+import com.ibm.wsspi.channelfw.objectpool.ObjectFactory;
+
+/**
+ * Object pool that caches entries per thread in fixed size magazines, in the
+ * manner of a slab allocator. Each thread holds a loaded and a previous
+ * magazine and gets from and puts to them without locking. Only when both
+ * are empty (on get) or both are full (on put) does the thread exchange a
+ * whole magazine with the shared depot, so the depot lock is taken at most
+ * once per magazine worth of operations.
+ */
+public class MagazineObjectPool {
+    /** Depot magazines unused for this long are destroyed, if cleanUpOld is set */
+    private static final long IDLE_TIMEOUT = 60000L;
+    /** Longs between allocation counters, so that each is on its own cache line */
+    private static final int STRIPE_PADDING = 8;
+    /** Number of allocation counters, a power of two */
+    private static final int STRIPES = stripes();
+
+    private static final TraceComponent tc = Tr.register(MagazineObjectPool.class,
+                                                         MessageConstants.WSBB_TRACE_NAME,
+                                                         MessageConstants.WSBB_BUNDLE);
+
+    private final int magazineSize;
+    private final ObjectFactory factory;
+    private final ObjectDestroyer destroyer;
+    private final boolean cleanUpOld;
+    private final ThreadLocal<ThreadCache> threadCaches = new ThreadLocal<ThreadCache>();
+
+    /** Guards the depot arrays and the depot statistics */
+    private final Object depotLock = new Object() {};
+    /** Full magazines, oldest first */
+    private final Magazine[] fullMagazines;
+    private int fullCount = 0;
+    private final Magazine[] emptyMagazines;
+    private int emptyCount = 0;
+
+    /** Gets, counted by each thread on one of the stripes so threads rarely share a counter */
+    private final AtomicLongArray allocations = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private long refills = 0L;
+    private long returns = 0L;
+    private final AtomicLong misses = new AtomicLong();
+
+    /** In use entries, only when leak detection tracking is on */
+    private final ConcurrentHashMap<Object, Object> inUseTable;
+
+    /**
+     * Create a magazine pool.
+     *
+     * @param localPoolSize number of entries each thread may cache
+     * @param globalPoolSize number of entries the shared depot may hold
+     * @param fact factory to create new entries
+     * @param dest optional destroyer for entries that are discarded
+     * @param tracking whether to keep a table of in use entries
+     * @param cleanUpOld whether to discard idle depot entries
+     */
+    public MagazineObjectPool(int localPoolSize, int globalPoolSize, ObjectFactory fact, ObjectDestroyer dest, boolean tracking, boolean cleanUpOld) {
+        // each thread holds two magazines, so a magazine is half of the local depth
+        this.magazineSize = Math.max(1, localPoolSize / 2);
+        int depotSize = Math.max(1, globalPoolSize / this.magazineSize);
+        this.fullMagazines = new Magazine[depotSize];
+        this.emptyMagazines = new Magazine[depotSize];
+        this.factory = fact;
+        this.destroyer = dest;
+        this.cleanUpOld = cleanUpOld;
+        this.inUseTable = tracking ? new ConcurrentHashMap<Object, Object>() : null;
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Object Pool " + this + " created, magazine size: " + this.magazineSize + ", depot size: " + depotSize);
+        }
+    }
+
+    /**
+     * Take an entry from the pool, creating a new one if none is cached.
+     *
+     * @return Object
+     */
+    public Object get() {
+        ThreadCache cache = getThreadCache();
+        this.allocations.incrementAndGet(cache.stripe);
+
+        Object ret = cache.loaded.pop();
+        if (ret == null) {
+            if (cache.previous.count > 0) {
+                cache.swap();
+            } else {
+                exchangeEmpty(cache);
+            }
+            ret = cache.loaded.pop();
+        }
+
+        if (ret == null) {
+            this.misses.incrementAndGet();
+            ret = this.factory.create();
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, "Object Pool " + this + " couldn't obtain object from either the thread magazines or the depot, new object created");
+            }
+        }
+
+        if (this.inUseTable != null) {
+            this.inUseTable.put(ret, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Return an entry to the pool.
+     *
+     * @param o
+     */
+    public void put(Object o) {
+        if (null == o) {
+            throw new NullPointerException();
+        }
+        if (this.inUseTable != null) {
+            this.inUseTable.remove(o);
+        }
+
+        ThreadCache cache = getThreadCache();
+        if (cache.loaded.push(o)) {
+            return;
+        }
+        if (cache.previous.count == 0) {
+            cache.swap();
+        } else {
+            exchangeFull(cache);
+        }
+        cache.loaded.push(o);
+    }
+
+    /**
+     * Both thread magazines are empty; trade the previous one for a full
+     * magazine from the depot, if there is one.
+     */
+    private void exchangeEmpty(ThreadCache cache) {
+        synchronized (this.depotLock) {
+            if (this.fullCount > 0) {
+                Magazine full = this.fullMagazines[--this.fullCount];
+                this.fullMagazines[this.fullCount] = null;
+                if (this.emptyCount < this.emptyMagazines.length) {
+                    this.emptyMagazines[this.emptyCount++] = cache.previous;
+                }
+                cache.previous = cache.loaded;
+                cache.loaded = full;
+                this.refills++;
+            }
+        }
+    }
+
+    /**
+     * Both thread magazines are full; hand the previous one to the depot and
+     * load an empty one. If the depot is full, the previous magazine's entries
+     * are discarded instead.
+     */
+    private void exchangeFull(ThreadCache cache) {
+        Magazine full = cache.previous;
+        Magazine empty = null;
+        Magazine[] idle = null;
+        long now = CHFWBundle.getApproxTime();
+        synchronized (this.depotLock) {
+            if (this.fullCount < this.fullMagazines.length) {
+                full.timeFreed = now;
+                this.fullMagazines[this.fullCount++] = full;
+                full = null;
+                if (this.emptyCount > 0) {
+                    empty = this.emptyMagazines[--this.emptyCount];
+                    this.emptyMagazines[this.emptyCount] = null;
+                }
+                this.returns++;
+            }
+            if (this.cleanUpOld) {
+                idle = removeIdle(now);
+            }
+        }
+
+        if (full != null) {
+            // depot is full, drop these entries and reuse the magazine
+            discard(full);
+            empty = full;
+        } else if (empty == null) {
+            empty = new Magazine(this.magazineSize);
+        }
+        cache.previous = cache.loaded;
+        cache.loaded = empty;
+
+        if (idle != null) {
+            for (Magazine m : idle) {
+                discard(m);
+            }
+        }
+    }
+
+    /**
+     * Remove the depot magazines that have been unused past the idle timeout.
+     * Caller must hold the depot lock.
+     */
+    private Magazine[] removeIdle(long now) {
+        int stale = 0;
+        while (stale < this.fullCount && now > this.fullMagazines[stale].timeFreed + IDLE_TIMEOUT) {
+            stale++;
+        }
+        if (stale == 0) {
+            return null;
+        }
+        Magazine[] idle = new Magazine[stale];
+        System.arraycopy(this.fullMagazines, 0, idle, 0, stale);
+        System.arraycopy(this.fullMagazines, stale, this.fullMagazines, 0, this.fullCount - stale);
+        for (int i = this.fullCount - stale; i < this.fullCount; i++) {
+            this.fullMagazines[i] = null;
+        }
+        this.fullCount -= stale;
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Object Pool " + this + " discarding " + stale + " idle magazines");
+        }
+        return idle;
+    }
+
+    /**
+     * Empty the magazine, destroying its entries if a destroyer was provided.
+     */
+    private void discard(Magazine m) {
+        for (int i = 0; i < m.count; i++) {
+            if (this.destroyer != null) {
+                this.destroyer.destroy(m.rounds[i]);
+            }
+            m.rounds[i] = null;
+        }
+        m.count = 0;
+    }
+
+    private static int stripes() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int n = 1;
+        while (n < cpus * 2 && n < 64) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    private ThreadCache getThreadCache() {
+        ThreadCache cache = this.threadCaches.get();
+        if (cache == null) {
+            int stripe = (this.nextStripe.getAndIncrement() & (STRIPES - 1)) * STRIPE_PADDING;
+            cache = new ThreadCache(this.magazineSize, stripe);
+            this.threadCaches.set(cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Return the current thread's cached entries to the depot, for when the
+     * thread is going away.
+     */
+    public void purgeThreadLocal() {
+        ThreadCache cache = this.threadCaches.get();
+        if (cache == null) {
+            return;
+        }
+        this.threadCaches.remove();
+        Magazine[] leftover = new Magazine[] { cache.loaded, cache.previous };
+        synchronized (this.depotLock) {
+            for (int i = 0; i < leftover.length; i++) {
+                if (leftover[i].count > 0 && this.fullCount < this.fullMagazines.length) {
+                    leftover[i].timeFreed = CHFWBundle.getApproxTime();
+                    this.fullMagazines[this.fullCount++] = leftover[i];
+                    leftover[i] = null;
+                }
+            }
+        }
+        for (Magazine m : leftover) {
+            if (m != null) {
+                discard(m);
+            }
+        }
+    }
+
+    /**
+     * Query the statistics of this pool.
+     *
+     * @return long[] allocations, misses, magazine refills from the depot, magazine returns to the depot
+     */
+    public long[] getStatistics() {
+        // misses first, so that a get counted between the reads cannot make them exceed the allocations
+        long missCount = this.misses.get();
+        long allocationCount = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            allocationCount += this.allocations.get(i * STRIPE_PADDING);
+        }
+        synchronized (this.depotLock) {
+            return new long[] { allocationCount, missCount, this.refills, this.returns };
+        }
+    }
+
+    /**
+     * @return Object[] the entries currently in use, if tracking is on
+     */
+    public Object[] getInUseTable() {
+        return this.inUseTable == null ? new Object[0] : this.inUseTable.keySet().toArray();
+    }
+
+    /**
+     * Remove the entry from the in use table before the normal release would.
+     *
+     * @param o
+     */
+    public void removeFromInUse(Object o) {
+        if (null == o) {
+            throw new NullPointerException();
+        }
+        if (this.inUseTable != null) {
+            this.inUseTable.remove(o);
+        }
+    }
+
+    /**
+     * A fixed size stack of pooled entries.
+     */
+    private static final class Magazine {
+        final Object[] rounds;
+        int count = 0;
+        long timeFreed = 0L;
+
+        Magazine(int size) {
+            this.rounds = new Object[size];
+        }
+
+        Object pop() {
+            if (this.count == 0) {
+                return null;
+            }
+            Object o = this.rounds[--this.count];
+            this.rounds[this.count] = null;
+            return o;
+        }
+
+        boolean push(Object o) {
+            if (this.count == this.rounds.length) {
+                return false;
+            }
+            this.rounds[this.count++] = o;
+            return true;
+        }
+    }
+
+    /**
+     * The pair of magazines owned by one thread.
+     */
+    private static final class ThreadCache {
+        Magazine loaded;
+        Magazine previous;
+        /** index of the allocation counter of this thread */
+        final int stripe;
+
+        ThreadCache(int magazineSize, int stripe) {
+            this.loaded = new Magazine(magazineSize);
+            this.previous = new Magazine(magazineSize);
+            this.stripe = stripe;
+        }
+
+        void swap() {
+            Magazine m = this.loaded;
+            this.loaded = this.previous;
+            this.previous = m;
+        }
+    }
+}
@@ -35,5 +35,9 @@ public interface MessageConstants {
     String CONFIG_VALUE_NUMBER_EXCEPTION = "CONFIG_VALUE_NUMBER_EXCEPTION";
     /** Reference to the NLS message for a pool config mismatch */
     String POOL_MISMATCH = "POOL_MISMATCH";
+    /** Reference to the NLS message for a sampled buffer that was not released */
+    String POSSIBLE_BUFFER_LEAK = "POSSIBLE_BUFFER_LEAK";
+    /** Reference to the NLS message for a sampled buffer that was collected without being released */
+    String BUFFER_LEAKED = "BUFFER_LEAKED";
 
 }
@@ -60,6 +60,9 @@ public class PooledWsByteBufferImpl extends WsByteBufferImpl {
     /** allWsByteBuffers is only used if leak detection is on */
     private Hashtable<WsByteBuffer, WsByteBuffer> allWsByteBuffers = null;
 
+    /** only set if this allocation was sampled for leak detection */
+    transient volatile WsByteBufferPoolManagerImpl.SampledAllocation sampledAllocation = null;
+
     /**
      * Constructor.
      */
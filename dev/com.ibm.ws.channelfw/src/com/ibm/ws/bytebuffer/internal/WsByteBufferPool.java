@@ -14,7 +14,6 @@ import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.wsspi.channelfw.objectpool.ObjectDestroyer;
 import com.ibm.wsspi.channelfw.objectpool.ObjectFactory;
-import com.ibm.wsspi.channelfw.objectpool.TwoTierObjectPool;
 
 /**
  * A Pool of WsByteBuffers. The size of the entries and the pool depth are
@@ -24,9 +23,14 @@ public class WsByteBufferPool {
     private int intEntrySize;
     private int globalPoolSize;
     private int localThreadPoolSize;
-    private TwoTierObjectPool pool = null;
+    private final boolean isDirectPool;
+    private MagazineObjectPool pool = null;
     private WsByteBufferFactory wsbbFactory = null;
 
+    // previous statistics snapshot, for the allocation rate
+    private long lastAllocations = 0L;
+    private long lastStatsTime = System.currentTimeMillis();
+
     int intUniqueCounter = 0;
 
     private static final TraceComponent tc = Tr.register(WsByteBufferPool.class,
@@ -49,6 +53,7 @@ public class WsByteBufferPool {
         this.intEntrySize = entrySizeIn;
         this.globalPoolSize = _globalPoolSize;
         this.localThreadPoolSize = _localPoolSize;
+        this.isDirectPool = isDirectPool;
         if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
             Tr.event(tc, "Creating : " +
                          this.toString() +
@@ -59,13 +64,9 @@ public class WsByteBufferPool {
         this.wsbbFactory = new WsByteBufferFactory();
 
         if (isDirectPool) {
-            this.pool = new TwoTierObjectPool(localThreadPoolSize, globalPoolSize, wsbbFactory, wsbbFactory, tracking);
+            this.pool = new MagazineObjectPool(localThreadPoolSize, globalPoolSize, wsbbFactory, wsbbFactory, tracking, cleanUpOld);
         } else {
-            this.pool = new TwoTierObjectPool(localThreadPoolSize, globalPoolSize, wsbbFactory, null, tracking);
-        }
-
-        if (!cleanUpOld) {
-            this.pool.doNotCleanUpOld();
+            this.pool = new MagazineObjectPool(localThreadPoolSize, globalPoolSize, wsbbFactory, null, tracking, cleanUpOld);
         }
     }
 
@@ -150,6 +151,22 @@ public class WsByteBufferPool {
         this.pool.removeFromInUse(buffer);
     }
 
+    /**
+     * Return a snapshot of the statistics of this pool. The allocation rate
+     * covers the time since the previous snapshot.
+     *
+     * @return WsByteBufferPoolStats
+     */
+    public synchronized WsByteBufferPoolStats getStatistics() {
+        long[] stats = this.pool.getStatistics();
+        long now = System.currentTimeMillis();
+        long elapsed = now - this.lastStatsTime;
+        double rate = elapsed > 0 ? (stats[0] - this.lastAllocations) * 1000.0 / elapsed : 0.0;
+        this.lastAllocations = stats[0];
+        this.lastStatsTime = now;
+        return new WsByteBufferPoolStats(this.intEntrySize, this.isDirectPool, stats[0], rate, stats[1], stats[2], stats[3]);
+    }
+
     /**
      * Return a customized toString.
      * 
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.bytebuffer.internal;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Exposes the statistics of the WsByteBuffer pools.
+ */
+@Component(service = WsByteBufferPoolMXBean.class,
+           immediate = true,
+           configurationPolicy = ConfigurationPolicy.IGNORE,
+           property = { "jmx.objectname=" + WsByteBufferPoolMXBean.OBJECT_NAME,
+                        "service.vendor=IBM" })
+public class WsByteBufferPoolMBeanImpl implements WsByteBufferPoolMXBean {
+
+    private volatile ByteBufferConfiguration config;
+
+    @Reference
+    protected void setByteBufferConfiguration(ByteBufferConfiguration bbConfig) {
+        this.config = bbConfig;
+    }
+
+    protected void unsetByteBufferConfiguration(ByteBufferConfiguration bbConfig) {
+        this.config = null;
+    }
+
+    /**
+     * @return the pool manager, or null if a custom pool manager is in use
+     */
+    private WsByteBufferPoolManagerImpl getManager() {
+        ByteBufferConfiguration bbConfig = this.config;
+        Object mgr = bbConfig == null ? null : bbConfig.getBufferManager();
+        return mgr instanceof WsByteBufferPoolManagerImpl ? (WsByteBufferPoolManagerImpl) mgr : null;
+    }
+
+    @Override
+    public WsByteBufferPoolStats[] getPoolStatistics() {
+        WsByteBufferPoolManagerImpl mgr = getManager();
+        return mgr == null ? new WsByteBufferPoolStats[0] : mgr.getPoolStatistics();
+    }
+
+    @Override
+    public int getLeakSampleRate() {
+        WsByteBufferPoolManagerImpl mgr = getManager();
+        return mgr == null ? 0 : mgr.getLeakSampleRate();
+    }
+
+    @Override
+    public long getSuspectedLeakCount() {
+        WsByteBufferPoolManagerImpl mgr = getManager();
+        return mgr == null ? 0L : mgr.getSuspectedLeakCount();
+    }
+}
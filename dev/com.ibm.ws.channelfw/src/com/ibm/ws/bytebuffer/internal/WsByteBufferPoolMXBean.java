@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.bytebuffer.internal;
+
+/**
+ * Management interface for the MBean "WebSphere:type=ByteBufferPool,name=WsByteBufferPoolManager",
+ * which reports the allocation rate and hit ratio of each WsByteBuffer pool.
+ */
+public interface WsByteBufferPoolMXBean {
+    String OBJECT_NAME = "WebSphere:type=ByteBufferPool,name=WsByteBufferPoolManager";
+
+    /**
+     * @return statistics of each heap pool then each direct pool, from smallest to largest entry size.
+     *         Allocation rates cover the time since the previous call.
+     */
+    WsByteBufferPoolStats[] getPoolStatistics();
+
+    /**
+     * @return the 1 in N rate at which pooled allocations are sampled for leak detection, or 0 if off.
+     */
+    int getLeakSampleRate();
+
+    /**
+     * @return the number of sampled buffers reported as possible leaks.
+     */
+    long getSuspectedLeakCount();
+}
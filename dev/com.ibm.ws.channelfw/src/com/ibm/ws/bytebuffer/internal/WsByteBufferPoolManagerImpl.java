@@ -13,6 +13,10 @@ package com.ibm.ws.bytebuffer.internal;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Date;
@@ -21,6 +25,9 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.ibm.websphere.ras.Tr;
@@ -60,6 +67,8 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
     private static int CONFIG_DEFAULT = -1;
     private static int MEMORY_LEAK_INTERVAL_MIN = 5;
     private static int MEMORY_LEAK_INTERVAL_MAX = 3600; // in seconds
+    private static int MEMORY_LEAK_SAMPLE_INTERVAL_DEFAULT = 60000; // in milliseconds
+    private static int MAX_SAMPLED_BUFFERS = 1000;
     private static int VALIDATE_OK = 0;
     private static int VALIDATE_ERROR = 1;
 
@@ -82,6 +91,7 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
 
     private static final String MEM_LEAK_INTERVAL = "memoryLeakDetectionInterval";
     private static final String MEM_LEAK_FILE = "memoryLeakOutputFile";
+    private static final String MEM_LEAK_SAMPLE_RATE = "memoryLeakSampleRate";
     private static final String TRUSTED_USERS = "trustedUsers";
     private static final String POOL_SIZES = "poolSizes";
     private static final String POOL_DEPTHS = "poolDepths";
@@ -94,6 +104,14 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
     private String leakDetectionOutput = null;
     private final Object leakDetectionSyncObject = new Object() {};
 
+    // sampled leak detection, 1 in leakSampleRate pooled allocations records its stack
+    private int leakSampleRate = 0;
+    private long leakSampleInterval = MEMORY_LEAK_SAMPLE_INTERVAL_DEFAULT;
+    private final AtomicLong nextSampleScan = new AtomicLong();
+    private final ConcurrentHashMap<SampledAllocation, Boolean> sampledBuffers = new ConcurrentHashMap<SampledAllocation, Boolean>();
+    private final ReferenceQueue<PooledWsByteBufferImpl> collectedSamples = new ReferenceQueue<PooledWsByteBufferImpl>();
+    private final AtomicLong suspectedLeaks = new AtomicLong();
+
     protected boolean cleanUpOld = false;
 
     /**
@@ -111,6 +129,7 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
 
         int result = VALIDATE_OK;
         int leakInterval = -1;
+        int sampleRate = 0;
         String leakFile = "";
         int[] sizes = null;
         int[] depths = null;
@@ -154,6 +173,12 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
                     continue;
                 }
 
+                if (key.equalsIgnoreCase(MEM_LEAK_SAMPLE_RATE)) {
+                    sampleRate = MetatypeUtils.parseInteger(CONFIG_ALIAS, MEM_LEAK_SAMPLE_RATE, value, sampleRate);
+                    result = (sampleRate < 0) ? VALIDATE_ERROR : VALIDATE_OK;
+                    continue;
+                }
+
                 if (key.equalsIgnoreCase(TRUSTED_USERS)) {
                     // convert and check
                     this.trustedUsers = MetatypeUtils.parseBoolean(CONFIG_ALIAS, MEM_LEAK_INTERVAL, value, this.trustedUsers);
@@ -195,7 +220,17 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
             throw e;
         }
 
-        if (leakInterval != -1) {
+        if (sampleRate > 0) {
+            // sampling replaces the tracking of every buffer; the interval, if
+            // set, is how long a sampled buffer may stay unreleased
+            this.leakSampleRate = sampleRate;
+            if (leakInterval != -1) {
+                this.leakSampleInterval = leakInterval;
+            }
+            if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                Tr.event(tc, "Sampling 1 in " + this.leakSampleRate + " allocations for leaks, interval " + this.leakSampleInterval);
+            }
+        } else if (leakInterval != -1) {
             if (leakFile != null && 0 != leakFile.length()) {
                 try {
                     setLeakDetectionSettings(leakInterval, leakFile);
@@ -496,6 +531,10 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
                 // capacity if they want to use any possible extra space
                 pooledWSBB.limit(entrySize);
 
+                if (this.leakSampleRate > 0 && ThreadLocalRandom.current().nextInt(this.leakSampleRate) == 0) {
+                    sampleAllocation(pooledWSBB);
+                }
+
                 if ((TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
                         || trackingBuffers()) {
 
@@ -618,6 +657,13 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
      * @param pool
      */
     public void release(PooledWsByteBufferImpl buffer, boolean isDirectPool, WsByteBufferPool pool) {
+        SampledAllocation sample = buffer.sampledAllocation;
+        if (sample != null) {
+            buffer.sampledAllocation = null;
+            this.sampledBuffers.remove(sample);
+            // a released buffer is no longer a leak candidate once it is collected
+            sample.clear();
+        }
         pool.release(buffer, buffer.getID());
     }
 
@@ -935,6 +981,143 @@ public class WsByteBufferPoolManagerImpl implements WsByteBufferPoolManager {
         }
     }
 
+    /**
+     * Record the allocation stack of a sampled buffer, and report any earlier
+     * samples that have not been released within the leak sample interval.
+     * The check runs at most once per interval, on a sampled allocation. No
+     * new samples are taken while MAX_SAMPLED_BUFFERS are outstanding.
+     *
+     * @param buffer
+     */
+    private void sampleAllocation(PooledWsByteBufferImpl buffer) {
+        long now = System.currentTimeMillis();
+        reportCollectedSamples(now);
+        if (this.sampledBuffers.size() < MAX_SAMPLED_BUFFERS) {
+            SampledAllocation sample = new SampledAllocation(buffer, now, this.collectedSamples);
+            buffer.sampledAllocation = sample;
+            this.sampledBuffers.put(sample, Boolean.TRUE);
+        }
+
+        long next = this.nextSampleScan.get();
+        if (now >= next && this.nextSampleScan.compareAndSet(next, now + this.leakSampleInterval)) {
+            checkSampledBuffers(now);
+        }
+    }
+
+    /**
+     * Report the sampled buffers that have been garbage collected without
+     * being released, then any that have been outstanding for longer than
+     * the leak sample interval.
+     *
+     * @param now
+     */
+    void checkSampledBuffers(long now) {
+        reportCollectedSamples(now);
+        for (SampledAllocation sample : this.sampledBuffers.keySet()) {
+            if (!sample.reported && (now - sample.time) > this.leakSampleInterval) {
+                sample.reported = true;
+                this.suspectedLeaks.incrementAndGet();
+                Tr.warning(tc, MessageConstants.POSSIBLE_BUFFER_LEAK,
+                           new Object[] { sample.id, sample.pool, (now - sample.time) / 1000, sample.getStack() });
+            }
+        }
+    }
+
+    /**
+     * Drop the records of sampled buffers that were garbage collected without
+     * being released. Each of those is a leak; it is reported unless it was
+     * already reported while it was outstanding.
+     *
+     * @param now
+     */
+    private void reportCollectedSamples(long now) {
+        SampledAllocation sample;
+        while ((sample = (SampledAllocation) this.collectedSamples.poll()) != null) {
+            if (this.sampledBuffers.remove(sample) != null && !sample.reported) {
+                sample.reported = true;
+                this.suspectedLeaks.incrementAndGet();
+                Tr.warning(tc, MessageConstants.BUFFER_LEAKED,
+                           new Object[] { sample.id, sample.pool, (now - sample.time) / 1000, sample.getStack() });
+            }
+        }
+    }
+
+    /**
+     * Query the number of sampled buffers that are still outstanding.
+     *
+     * @return int
+     */
+    int getSampledBufferCount() {
+        return this.sampledBuffers.size();
+    }
+
+    /**
+     * The record of a sampled allocation. The buffer is only weakly
+     * referenced, so a buffer that is dropped without being released can
+     * still be collected, and its record is then queued for reporting.
+     */
+    static final class SampledAllocation extends WeakReference<PooledWsByteBufferImpl> {
+        /** ID of the buffer */
+        final Object id;
+        /** pool the buffer came from */
+        final WsByteBufferPool pool;
+        /** when the buffer was allocated */
+        final long time;
+        /** allocation stack */
+        final Throwable allocation;
+        /** whether this allocation has been reported as a leak */
+        volatile boolean reported = false;
+
+        SampledAllocation(PooledWsByteBufferImpl buffer, long time, ReferenceQueue<PooledWsByteBufferImpl> queue) {
+            super(buffer, queue);
+            this.id = buffer.getID();
+            this.pool = buffer.pool;
+            this.time = time;
+            this.allocation = new Throwable("WsByteBuffer allocation");
+        }
+
+        String getStack() {
+            StringWriter stack = new StringWriter();
+            this.allocation.printStackTrace(new PrintWriter(stack));
+            return stack.toString();
+        }
+    }
+
+    /**
+     * Query the 1 in N rate at which pooled allocations are sampled for leak
+     * detection, or 0 if sampling is off.
+     *
+     * @return int
+     */
+    public int getLeakSampleRate() {
+        return this.leakSampleRate;
+    }
+
+    /**
+     * Query the number of sampled buffers that have been reported as possible
+     * leaks.
+     *
+     * @return long
+     */
+    public long getSuspectedLeakCount() {
+        return this.suspectedLeaks.get();
+    }
+
+    /**
+     * Query the statistics of each pool, heap pools first, then direct pools,
+     * each from smallest to largest entry size.
+     *
+     * @return WsByteBufferPoolStats[]
+     */
+    public WsByteBufferPoolStats[] getPoolStatistics() {
+        WsByteBufferPoolStats[] stats = new WsByteBufferPoolStats[this.poolSizes.length * 2];
+        for (int i = 0; i < this.poolSizes.length; i++) {
+            stats[i] = this.pools[i].getStatistics();
+            stats[this.poolSizes.length + i] = this.poolsDirect[i].getStatistics();
+        }
+        return stats;
+    }
+
     private String fillOutStackTrace(String starter, StackTraceElement[] _ste) {
         StringBuilder sb = new StringBuilder(starter);
 
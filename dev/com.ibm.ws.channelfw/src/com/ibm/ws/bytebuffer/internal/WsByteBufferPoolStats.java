@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.bytebuffer.internal;
+
+/**
+ * Snapshot of the statistics of one WsByteBuffer pool.
+ */
+public class WsByteBufferPoolStats {
+    private final int entrySize;
+    private final boolean direct;
+    private final long allocations;
+    private final double allocationRate;
+    private final long misses;
+    private final long magazineRefills;
+    private final long magazineReturns;
+
+    public WsByteBufferPoolStats(int entrySize, boolean direct, long allocations, double allocationRate,
+                                 long misses, long magazineRefills, long magazineReturns) {
+        this.entrySize = entrySize;
+        this.direct = direct;
+        this.allocations = allocations;
+        this.allocationRate = allocationRate;
+        this.misses = misses;
+        this.magazineRefills = magazineRefills;
+        this.magazineReturns = magazineReturns;
+    }
+
+    /**
+     * @return the size of the buffers in the pool.
+     */
+    public int getEntrySize() {
+        return this.entrySize;
+    }
+
+    /**
+     * @return whether the pool holds direct buffers.
+     */
+    public boolean isDirect() {
+        return this.direct;
+    }
+
+    /**
+     * @return the number of buffers allocated from the pool.
+     */
+    public long getAllocations() {
+        return this.allocations;
+    }
+
+    /**
+     * @return buffers allocated per second since the previous snapshot of this pool.
+     */
+    public double getAllocationRate() {
+        return this.allocationRate;
+    }
+
+    /**
+     * @return fraction of allocations that were satisfied by a pooled buffer, or 1 if there were none.
+     */
+    public double getHitRatio() {
+        return this.allocations == 0 ? 1.0 : 1.0 - Math.min(1.0, (double) this.misses / this.allocations);
+    }
+
+    /**
+     * @return the number of allocations that had to create a new buffer.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * @return the number of full magazines that threads took from the shared depot.
+     */
+    public long getMagazineRefills() {
+        return this.magazineRefills;
+    }
+
+    /**
+     * @return the number of full magazines that threads gave back to the shared depot.
+     */
+    public long getMagazineReturns() {
+        return this.magazineReturns;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(this.direct ? "direct " : "heap ").append(this.entrySize);
+        sb.append(": allocations=").append(this.allocations);
+        sb.append(" rate=").append(Math.round(this.allocationRate)).append("/s");
+        sb.append(" hitRatio=").append(getHitRatio());
+        sb.append(" misses=").append(this.misses);
+        sb.append(" refills=").append(this.magazineRefills);
+        sb.append(" returns=").append(this.magazineReturns);
+        return sb.toString();
+    }
+}
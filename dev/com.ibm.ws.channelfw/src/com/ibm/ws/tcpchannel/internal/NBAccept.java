@@ -11,12 +11,14 @@
 package com.ibm.ws.tcpchannel.internal;
 
 import java.io.IOException;
+import java.net.ServerSocket;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.ws.ffdc.FFDCFilter;
+import com.ibm.wsspi.channelfw.exception.ChannelException;
 
 /**
  * Class to handle the non-blocking accept work.
@@ -32,6 +34,8 @@ public class NBAccept {
     private boolean waitToAccept = false;
 
     protected Map<TCPPort, NBAcceptChannelSelector> endPointToAccept = null;
+    /** accept selectors, one per listening socket, for end points with acceptor shards */
+    protected Map<TCPPort, NBAcceptChannelSelector[]> endPointToShards = null;
 
     /**
      * Constructor.
@@ -44,6 +48,7 @@ public class NBAccept {
         }
 
         this.endPointToAccept = new HashMap<TCPPort, NBAcceptChannelSelector>();
+        this.endPointToShards = new HashMap<TCPPort, NBAcceptChannelSelector[]>();
         this.dedicatedAcceptThread = config.getAcceptThread();
         this.waitToAccept = config.getWaitToAccept();
 
@@ -71,8 +76,11 @@ public class NBAccept {
         synchronized (this) {
 
             EndPointActionInfo work = new EndPointActionInfo(REGISTER_ENDPOINT, endPoint, workSync);
+            ServerSocket[] serverSockets = endPoint.getServerSockets();
 
-            if ((!dedicatedAcceptThread) && (!waitToAccept)) {
+            if (serverSockets.length > 1) {
+                registerShards(endPoint, serverSockets);
+            } else if ((!dedicatedAcceptThread) && (!waitToAccept)) {
                 if (sharedAccept == null) {
                     sharedAccept = new NBAcceptChannelSelector(waitToAccept);
                     sharedThread = new Thread(sharedAccept);
@@ -126,6 +134,71 @@ public class NBAccept {
         }
     }
 
+    /**
+     * Register each of the listening sockets of an end point with its own
+     * dedicated accept selector. Connections accepted by each shard are assigned
+     * to the read/write selectors of that shard.
+     * 
+     * @param endPoint
+     * @param serverSockets
+     * @throws IOException
+     */
+    private void registerShards(TCPPort endPoint, ServerSocket[] serverSockets) throws IOException {
+        WorkQueueManager[] shardWQMs = new WorkQueueManager[serverSockets.length];
+        if (endPoint.getTCPChannel() instanceof NioTCPChannel) {
+            try {
+                for (int i = 0; i < serverSockets.length; i++) {
+                    shardWQMs[i] = NioTCPChannel.getShardWorkQueueManager(i);
+                }
+            } catch (ChannelException ce) {
+                throw new IOException(ce.getMessage(), ce);
+            }
+        }
+
+        NBAcceptChannelSelector[] shards = new NBAcceptChannelSelector[serverSockets.length];
+        for (int i = 0; i < serverSockets.length; i++) {
+            shards[i] = new NBAcceptChannelSelector(waitToAccept, shardWQMs[i]);
+            Thread shardThread = new Thread(shards[i]);
+
+            shardThread.setName("Dedicated TCPChannel NonBlocking Accept Thread:" + endPoint.getListenPort() + " shard " + i);
+            // all TCPChannel Thread should be daemon threads
+            shardThread.setDaemon(true);
+            shardThread.start();
+
+            EndPointActionInfo work = new EndPointActionInfo(REGISTER_ENDPOINT, endPoint, serverSockets[i], workSync);
+            synchronized (workSync) {
+                if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                    Tr.event(this, tc, "Passing register to shard " + i + " selector; " + serverSockets[i]);
+                }
+                try {
+                    shards[i].addWork(work);
+                    workSync.wait();
+                } catch (InterruptedException x) {
+                    // nothing to do
+                }
+            } // end-sync
+        }
+        endPointToShards.put(endPoint, shards);
+    }
+
+    /**
+     * Query the number of connections accepted by each acceptor shard of an end point.
+     * 
+     * @param endPoint
+     * @return long[], or null if the end point is not sharded
+     */
+    public synchronized long[] getShardAcceptCounts(TCPPort endPoint) {
+        NBAcceptChannelSelector[] shards = endPointToShards.get(endPoint);
+        if (null == shards) {
+            return null;
+        }
+        long[] counts = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            counts[i] = shards[i].getAcceptCount();
+        }
+        return counts;
+    }
+
     /**
      * Removes an end point from the set of end points that we
      * are accepting connections on. This has the effect of removing
@@ -142,9 +215,34 @@ public class NBAccept {
         }
 
         synchronized (this) {
+            NBAcceptChannelSelector[] shards = endPointToShards.remove(endPoint);
             NBAcceptChannelSelector accept = endPointToAccept.get(endPoint);
 
-            if (accept != null) {
+            if (shards != null) {
+                ServerSocket[] serverSockets = endPoint.getServerSockets();
+                for (int i = 0; i < shards.length; i++) {
+                    // PK44756 - prevent hang on System.exit by accept selector
+                    if (3100 <= shards[i].numExceptions) {
+                        if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                            Tr.event(tc, "Ignoring removePort call for shard " + i + " on fatal selector/system.exit path");
+                        }
+                        continue;
+                    }
+                    EndPointActionInfo work = new EndPointActionInfo(REMOVE_ENDPOINT, endPoint, serverSockets[i], workSync);
+
+                    synchronized (workSync) {
+                        if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                            Tr.event(this, tc, "Passing remove to shard " + i + " selector; " + serverSockets[i]);
+                        }
+                        shards[i].addWork(work);
+                        try {
+                            workSync.wait();
+                        } catch (InterruptedException x) {
+                            // nothing to do
+                        }
+                    } // end-sync
+                }
+            } else if (accept != null) {
                 // PK44756 - prevent hang on System.exit by accept selector
                 if (3100 <= accept.numExceptions) {
                     if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
@@ -193,11 +291,17 @@ public class NBAccept {
     protected static class EndPointActionInfo {
         protected int action;
         protected TCPPort endPoint;
+        protected ServerSocket serverSocket;
         Object syncObject = null;
 
         EndPointActionInfo(int _action, TCPPort _endPoint, Object _syncObject) {
+            this(_action, _endPoint, _endPoint.getServerSocket(), _syncObject);
+        }
+
+        EndPointActionInfo(int _action, TCPPort _endPoint, ServerSocket _serverSocket, Object _syncObject) {
             this.action = _action;
             this.endPoint = _endPoint;
+            this.serverSocket = _serverSocket;
             this.syncObject = _syncObject;
         }
     }
@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ibm.websphere.channelfw.osgi.CHFWBundle;
 import com.ibm.websphere.ras.Tr;
@@ -59,14 +60,32 @@ public class NBAcceptChannelSelector extends ChannelSelector implements FFDCSelf
 
     private boolean checkStartup = false;
 
+    /** Number of connections accepted and handed to the channel */
+    private final AtomicLong acceptCount = new AtomicLong(0);
+    /** Read/write selectors of the acceptor shard, or null to use those of the channel */
+    private final WorkQueueManager workQueueManager;
+
     /**
      * Constructor.
      * 
      * @throws IOException
      */
     public NBAcceptChannelSelector(boolean argCheckStartup) throws IOException {
+        this(argCheckStartup, null);
+    }
+
+    /**
+     * Constructor for the accept selector of an acceptor shard.
+     * 
+     * @param argCheckStartup
+     * @param shardWorkQueueManager read/write selectors to assign new connections to,
+     *            or null to use those of the channel
+     * @throws IOException
+     */
+    public NBAcceptChannelSelector(boolean argCheckStartup, WorkQueueManager shardWorkQueueManager) throws IOException {
         super(false);
         this.checkStartup = argCheckStartup;
+        this.workQueueManager = shardWorkQueueManager;
         this.selectorTimeout = TCPFactoryConfiguration.getChannelSelectorIdleTimeout();
         if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
             Tr.event(this, tc, "Created Accept selector: " + this);
@@ -112,7 +131,7 @@ public class NBAcceptChannelSelector extends ChannelSelector implements FFDCSelf
 
             if (work.action == NBAccept.REGISTER_ENDPOINT) {
                 try {
-                    ServerSocket serverSocket = work.endPoint.getServerSocket();
+                    ServerSocket serverSocket = work.serverSocket;
                     // Configure all inbound channels to be non-blocking
                     serverSocket.getChannel().configureBlocking(false);
 
@@ -135,7 +154,7 @@ public class NBAcceptChannelSelector extends ChannelSelector implements FFDCSelf
 
             } else if (work.action == NBAccept.REMOVE_ENDPOINT) {
                 try {
-                    ServerSocket serverSocket = work.endPoint.getServerSocket();
+                    ServerSocket serverSocket = work.serverSocket;
                     if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
                         Tr.event(this, tc, "Removing: " + serverSocket);
                     }
@@ -172,6 +191,15 @@ public class NBAcceptChannelSelector extends ChannelSelector implements FFDCSelf
         return this.usageCount;
     }
 
+    /**
+     * Query the number of connections this selector has accepted.
+     * 
+     * @return long
+     */
+    protected long getAcceptCount() {
+        return this.acceptCount.get();
+    }
+
     /*
      * @see com.ibm.ws.tcpchannel.internal.ChannelSelector#channelSelectorClose()
      */
@@ -336,6 +364,10 @@ public class NBAcceptChannelSelector extends ChannelSelector implements FFDCSelf
                     closeSocketChannel(sc);
                     continue;
                 }
+                if (null != this.workQueueManager && ioSocket instanceof NioSocketIOChannel) {
+                    ((NioSocketIOChannel) ioSocket).setWorkQueueManager(this.workQueueManager);
+                }
+                this.acceptCount.incrementAndGet();
                 endPoint.processNewConnection(ioSocket);
 
             } catch (CancelledKeyException cke) {
@@ -454,6 +486,8 @@ public class NBAcceptChannelSelector extends ChannelSelector implements FFDCSelf
         rc.add(Thread.currentThread().getName());
         rc.add("selectorTimeout: " + this.selectorTimeout);
         rc.add("usageCount: " + this.usageCount);
+        rc.add("acceptCount: " + this.acceptCount.get());
+        rc.add("workQueueManager: " + this.workQueueManager);
         rc.add("quit: " + this.quit);
         rc.add("waitingToQuit: " + this.waitingToQuit);
         rc.add("firstErrorTime: " + this.firstErrorTime + "=" + new Date(this.firstErrorTime));
@@ -31,6 +31,8 @@ public class NioSocketIOChannel extends SocketIOChannel {
 
     private ChannelSelector channelSelectorRead = null;
     private ChannelSelector channelSelectorWrite = null;
+    /** work queue manager of the acceptor shard that accepted this connection, if any */
+    private WorkQueueManager workQueueManager = null;
 
     /**
      * Constructor.
@@ -55,6 +57,29 @@ public class NioSocketIOChannel extends SocketIOChannel {
         return channel.register(sel, ops, att);
     }
 
+    /**
+     * Assign the read/write selectors of an acceptor shard to this connection.
+     * 
+     * @param wqm
+     */
+    protected void setWorkQueueManager(WorkQueueManager wqm) {
+        this.workQueueManager = wqm;
+    }
+
+    /**
+     * Query the work queue manager that handles the read and write selectors
+     * for this connection. This is the manager of the acceptor shard that
+     * accepted the connection, or else the one shared by the channel.
+     * 
+     * @return WorkQueueManager
+     */
+    protected WorkQueueManager getWorkQueueManager() {
+        if (null != this.workQueueManager) {
+            return this.workQueueManager;
+        }
+        return ((NioTCPChannel) this.tcpChannel).getWorkQueueManager();
+    }
+
     protected void setChannelSelectorRead(ChannelSelector sr) {
         this.channelSelectorRead = sr;
     }
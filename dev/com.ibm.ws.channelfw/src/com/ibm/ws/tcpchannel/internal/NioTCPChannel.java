@@ -26,6 +26,18 @@ public class NioTCPChannel extends TCPChannel {
 
     private static WorkQueueManager workQueueManager = null;
 
+    /** read/write selectors for acceptor shards 1 to N-1, shard 0 uses the shared workQueueManager */
+    private static final WorkQueueManager[] shardWorkQueueManagers = new WorkQueueManager[ValidateUtils.ACCEPTOR_SHARDS_MAX];
+
+    /** terminates the shared work queue manager along with those of the acceptor shards */
+    private static final ChannelTermination termination = new ChannelTermination() {
+        @Override
+        public void terminate() {
+            workQueueManager.terminate();
+            terminateShardWorkQueueManagers();
+        }
+    };
+
     private static final TraceComponent tc = Tr.register(NioTCPChannel.class, TCPChannelMessageConstants.TCP_TRACE_NAME, TCPChannelMessageConstants.TCP_BUNDLE);
 
     /**
@@ -58,7 +70,7 @@ public class NioTCPChannel extends TCPChannel {
         if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
             Tr.exit(tc, "setup");
         }
-        return getWorkQueueManager();
+        return termination;
     }
 
     /**
@@ -70,6 +82,41 @@ public class NioTCPChannel extends TCPChannel {
         return workQueueManager;
     }
 
+    /**
+     * Returns the WorkQueueManager whose read and write selectors handle the
+     * connections accepted by the given acceptor shard, creating it on first use.
+     * Shards with the same index share a manager across listening ports.
+     * 
+     * @param shard
+     * @return WorkQueueManager
+     * @throws ChannelException
+     */
+    protected static WorkQueueManager getShardWorkQueueManager(int shard) throws ChannelException {
+        if (shard == 0) {
+            return workQueueManager;
+        }
+        synchronized (shardWorkQueueManagers) {
+            WorkQueueManager wqm = shardWorkQueueManagers[shard];
+            if (wqm == null) {
+                wqm = new WorkQueueManager();
+                wqm.startSelectors(true);
+                shardWorkQueueManagers[shard] = wqm;
+            }
+            return wqm;
+        }
+    }
+
+    private static void terminateShardWorkQueueManagers() {
+        synchronized (shardWorkQueueManagers) {
+            for (int i = 0; i < shardWorkQueueManagers.length; i++) {
+                if (shardWorkQueueManagers[i] != null) {
+                    shardWorkQueueManagers[i].terminate();
+                    shardWorkQueueManagers[i] = null;
+                }
+            }
+        }
+    }
+
     // LIDB3618-2 add method
     public SocketIOChannel createOutboundSocketIOChannel() throws IOException {
         SocketChannel channel = SocketChannel.open();
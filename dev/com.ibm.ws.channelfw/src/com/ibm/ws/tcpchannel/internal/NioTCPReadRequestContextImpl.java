@@ -60,7 +60,7 @@ public class NioTCPReadRequestContextImpl extends TCPReadRequestContextImpl {
                 this.blockWait.simpleWait();
 
                 if (this.blockingIOError == null) {
-                    vc = ((NioTCPChannel) getTCPConnLink().getTCPChannel()).getWorkQueueManager().processWork(this, 1);
+                    vc = ((NioSocketIOChannel) getTCPConnLink().getSocketIOChannel()).getWorkQueueManager().processWork(this, 1);
                 } else {
                     break;
                 }
@@ -115,7 +115,7 @@ public class NioTCPReadRequestContextImpl extends TCPReadRequestContextImpl {
      */
     @Override
     public VirtualConnection processAsyncReadRequest() {
-        return ((NioTCPChannel) getTCPConnLink().getTCPChannel()).getWorkQueueManager().processWork(this, 0);
+        return ((NioSocketIOChannel) getTCPConnLink().getSocketIOChannel()).getWorkQueueManager().processWork(this, 0);
     }
 
     /*
@@ -62,7 +62,7 @@ public class NioTCPWriteRequestContextImpl extends TCPWriteRequestContextImpl {
                 this.blockWait.simpleWait();
 
                 if (this.blockingIOError == null) {
-                    vc = ((NioTCPChannel) getTCPConnLink().getTCPChannel()).getWorkQueueManager().processWork(this, 1);
+                    vc = ((NioSocketIOChannel) getTCPConnLink().getSocketIOChannel()).getWorkQueueManager().processWork(this, 1);
                 } else {
                     break;
                 }
@@ -99,7 +99,7 @@ public class NioTCPWriteRequestContextImpl extends TCPWriteRequestContextImpl {
      */
     @Override
     public VirtualConnection processAsyncWriteRequest() {
-        return ((NioTCPChannel) getTCPConnLink().getTCPChannel()).getWorkQueueManager().processWork(this, 0);
+        return ((NioSocketIOChannel) getTCPConnLink().getSocketIOChannel()).getWorkQueueManager().processWork(this, 0);
     }
 
     /*
@@ -92,6 +92,8 @@ public abstract class TCPChannel implements InboundChannel, OutboundChannel, FFD
     protected final AtomicLong totalPartialSyncWrites = new AtomicLong(0);
     protected final AtomicLong totalConnections = new AtomicLong(0);
     protected final AtomicLong maxConcurrentConnections = new AtomicLong(0);
+    private long[] lastShardAcceptCounts = null;
+    private long lastShardAcceptTime = 0L;
 
     /**
      * Constructor.
@@ -473,6 +475,15 @@ public abstract class TCPChannel implements InboundChannel, OutboundChannel, FFD
         String[] rc = new String[1 + configFFDC.length];
         rc[0] = "TCP Channel: " + getExternalName();
         System.arraycopy(configFFDC, 0, rc, 1, configFFDC.length);
+        long[] shardAcceptCounts = getShardAcceptCounts();
+        if (null != shardAcceptCounts) {
+            String[] shardFFDC = new String[rc.length + shardAcceptCounts.length];
+            System.arraycopy(rc, 0, shardFFDC, 0, rc.length);
+            for (int i = 0; i < shardAcceptCounts.length; i++) {
+                shardFFDC[rc.length + i] = "acceptor shard " + i + " accepted=" + shardAcceptCounts[i];
+            }
+            rc = shardFFDC;
+        }
         return rc;
     }
 
@@ -644,10 +655,37 @@ public abstract class TCPChannel implements InboundChannel, OutboundChannel, FFD
         AccessController.doPrivileged(privThread);
     }
 
+    /**
+     * Query the number of connections accepted by each acceptor shard of this channel.
+     * 
+     * @return long[], or null if the listening port is not sharded
+     */
+    protected long[] getShardAcceptCounts() {
+        if (null == acceptReqProcessor || null == this.endPoint || !this.config.isInbound()) {
+            return null;
+        }
+        return acceptReqProcessor.getShardAcceptCounts(this.endPoint);
+    }
+
     protected void dumpStatistics() {
         if (getConfig().isInbound()) {
             System.out.println("Statistics for TCP inbound channel " + getExternalName() + " (port " + getConfig().getPort() + ")");
             System.out.println("   Total connections accepted: " + this.totalConnections);
+            long[] shardAcceptCounts = getShardAcceptCounts();
+            if (null != shardAcceptCounts) {
+                long now = System.currentTimeMillis();
+                long elapsed = now - this.lastShardAcceptTime;
+                for (int i = 0; i < shardAcceptCounts.length; i++) {
+                    long delta = shardAcceptCounts[i];
+                    if (null != this.lastShardAcceptCounts && i < this.lastShardAcceptCounts.length) {
+                        delta -= this.lastShardAcceptCounts[i];
+                    }
+                    String rate = (this.lastShardAcceptTime == 0L || elapsed <= 0) ? "n/a" : String.valueOf(delta * 1000L / elapsed) + "/sec";
+                    System.out.println("   Connections accepted by shard " + i + ": " + shardAcceptCounts[i] + " (rate " + rate + ")");
+                }
+                this.lastShardAcceptCounts = shardAcceptCounts;
+                this.lastShardAcceptTime = now;
+            }
         } else {
             System.out.println("Statistics for TCP outbound channel " + getExternalName());
             System.out.println("   Total connects processed: " + this.totalConnections);
@@ -38,6 +38,7 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
     protected static final String DIRECT_BUFFS = "allocateBuffersDirect";
     protected static final String ACCEPT_THREAD = "acceptThread";
     protected static final String WAIT_TO_ACCEPT = "waitToAccept";
+    protected static final String ACCEPTOR_SHARDS = "acceptorShards";
     protected static final String COMM_OPTION = "commOption";
     protected static final String DUMP_STATS_INTERVAL = "dumpStatsInterval";
     protected static final String GROUPNAME = "workGroup";
@@ -77,6 +78,7 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
     private int sendBufferSize = -1;
     private boolean acceptThread = false;
     private boolean waitToAccept = false;
+    private int acceptorShards = 1;
     private int dumpStatsInterval = 0;
     private String endPointName = null;
 
@@ -316,6 +318,16 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
                         continue;
                     }
 
+                    if (key.equalsIgnoreCase(ACCEPTOR_SHARDS)) {
+                        // convert and check
+                        keyType = ValidateUtils.KEY_TYPE_INT;
+                        minValue = ValidateUtils.ACCEPTOR_SHARDS_MIN;
+                        maxValue = ValidateUtils.ACCEPTOR_SHARDS_MAX;
+                        this.acceptorShards = convertIntegerValue(value);
+                        result = ValidateUtils.testAcceptorShards(this.acceptorShards);
+                        continue;
+                    }
+
                     if (key.equalsIgnoreCase(DIRECT_BUFFS)) {
                         // convert and check
                         keyType = ValidateUtils.KEY_TYPE_BOOLEAN;
@@ -719,6 +731,16 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
                     continue;
                 }
 
+                if (key.equalsIgnoreCase(ACCEPTOR_SHARDS)) {
+                    // convert and check
+                    keyType = ValidateUtils.KEY_TYPE_INT;
+                    oldValue = this.acceptorShards;
+                    if (convertIntegerValue(value) != oldValue) {
+                        result = ValidateUtils.VALIDATE_NOT_EQUAL;
+                    }
+                    continue;
+                }
+
                 if (key.equalsIgnoreCase(DIRECT_BUFFS)) {
                     // convert and check
                     keyType = ValidateUtils.KEY_TYPE_BOOLEAN;
@@ -1052,6 +1074,7 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
             Tr.debug(tc, NAME_INC_LIST + ": " + debugStringArray(getHostNameIncludeList()));
             Tr.debug(tc, BACKLOG + ": " + getListenBacklog());
             Tr.debug(tc, NEW_BUFF_SIZE + ": " + getNewConnectionBufferSize());
+            Tr.debug(tc, ACCEPTOR_SHARDS + ": " + getAcceptorShards());
             Tr.debug(tc, CASE_INSENSITIVE_HOSTNAMES + ": " + getCaseInsensitiveHostnames());
         } else {
             // outbound specific values
@@ -1082,6 +1105,7 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
             output.add(NAME_INC_LIST + "=" + debugStringArray(this.hostNameIncludeList));
             output.add(BACKLOG + "=" + this.listenBacklog);
             output.add(NEW_BUFF_SIZE + "=" + this.newConnectionBufferSize);
+            output.add(ACCEPTOR_SHARDS + "=" + this.acceptorShards);
         } else {
             // outbound
         }
@@ -1173,4 +1197,16 @@ public class TCPChannelConfiguration implements TCPConfigConstants, FFDCSelfIntr
         return this.waitToAccept;
     }
 
+    /**
+     * Query the number of listening sockets to bind to the port with SO_REUSEPORT.
+     * Each of these sockets has its own accept selector and its own set of
+     * read/write selectors, so that accept and I/O work for the connections
+     * accepted on one socket stays on that shard.
+     * 
+     * @return int (1 means a single listening socket, which is the default)
+     */
+    protected int getAcceptorShards() {
+        return this.acceptorShards;
+    }
+
 }
@@ -57,6 +57,8 @@ public interface TCPChannelMessageConstants {
     String LOCAL_HOST_UNRESOLVED = "LOCAL_HOST_UNRESOLVED";
     /** Msg when a port has stopped accepting traffic due to an error */
     String PORT_NOT_ACCEPTING = "PORT_NOT_ACCEPTING";
+    /** Msg when the listening socket of a port cannot be sharded */
+    String ACCEPTOR_SHARDS_NOT_SUPPORTED = "ACCEPTOR_SHARDS_NOT_SUPPORTED";
 
     /** Config key is not valid */
     String CONFIG_KEY_NOT_VALID = "CONFIG_KEY_NOT_VALID";
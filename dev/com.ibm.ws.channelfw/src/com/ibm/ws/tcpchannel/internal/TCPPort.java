@@ -15,6 +15,8 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.Map;
@@ -41,12 +43,17 @@ import com.ibm.wsspi.tcpchannel.TCPRequestContext;
 public class TCPPort {
     private TCPChannel tcpChannel = null;
     private ServerSocket serverSocket = null;
+    /** additional listening sockets bound to the same port, when acceptorShards is greater than 1 */
+    private ServerSocket[] shardSockets = null;
     protected InboundVirtualConnectionFactory vcf = null;
     private TCPReadCompletedCallback cc = null;
     private int listenPort = 0;
 
     private static final TraceComponent tc = Tr.register(TCPPort.class, TCPChannelMessageConstants.TCP_TRACE_NAME, TCPChannelMessageConstants.TCP_BUNDLE);
 
+    /** SO_REUSEPORT socket option, or null if the JVM does not provide it (it was added in Java 9) */
+    static final SocketOption<Boolean> SO_REUSEPORT = getReusePortOption();
+
     /**
      * Constructor.
      *
@@ -74,6 +81,138 @@ public class TCPPort {
         return this.serverSocket;
     }
 
+    /**
+     * Returns all of the listening sockets associated with this end point.
+     * The first is the same as {@link #getServerSocket()}, and any others are
+     * bound to the same port with SO_REUSEPORT, one per acceptor shard.
+     *
+     * @return ServerSocket[]
+     */
+    protected synchronized ServerSocket[] getServerSockets() {
+        if (this.shardSockets == null) {
+            return new ServerSocket[] { this.serverSocket };
+        }
+        ServerSocket[] sockets = new ServerSocket[1 + this.shardSockets.length];
+        sockets[0] = this.serverSocket;
+        System.arraycopy(this.shardSockets, 0, sockets, 1, this.shardSockets.length);
+        return sockets;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> getReusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (Exception e) {
+            // no FFDC, the option is not available on this JVM
+            return null;
+        }
+    }
+
+    /**
+     * Check whether SO_REUSEPORT can be enabled on a server socket.
+     *
+     * @param socket
+     * @return boolean
+     */
+    private static boolean isReusePortSupported(ServerSocket socket) {
+        ServerSocketChannel channel = socket.getChannel();
+        return SO_REUSEPORT != null && channel != null && channel.supportedOptions().contains(SO_REUSEPORT);
+    }
+
+    /**
+     * Attempt to enable SO_REUSEPORT on an unbound server socket.
+     *
+     * @param socket
+     * @return boolean - true if the option was enabled
+     */
+    private static boolean setReusePort(ServerSocket socket) {
+        if (!isReusePortSupported(socket)) {
+            return false;
+        }
+        ServerSocketChannel channel = socket.getChannel();
+        try {
+            channel.setOption(SO_REUSEPORT, Boolean.TRUE);
+            return true;
+        } catch (IOException ioe) {
+            // no FFDC
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, "Unable to set SO_REUSEPORT: " + ioe);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Set the configured receive buffer size on a server socket, if one is configured.
+     *
+     * @param socket
+     * @throws IOException
+     */
+    private void setReceiveBufferSize(ServerSocket socket) throws IOException {
+        TCPChannelConfiguration channelConfig = this.tcpChannel.getConfig();
+        if ((channelConfig.getReceiveBufferSize() >= TCPConfigConstants.RECEIVE_BUFFER_SIZE_MIN)
+            && (channelConfig.getReceiveBufferSize() <= TCPConfigConstants.RECEIVE_BUFFER_SIZE_MAX)) {
+            socket.setReceiveBufferSize(channelConfig.getReceiveBufferSize());
+        }
+    }
+
+    /**
+     * Replace the primary listening socket with one listening socket per acceptor
+     * shard, all bound to the address of the primary socket with SO_REUSEPORT.
+     * The primary socket is bound without SO_REUSEPORT first, so that a port
+     * another server is listening on fails the bind instead of being shared with
+     * it. If any of the shard sockets cannot be bound, all of them are closed and
+     * a single listening socket without SO_REUSEPORT is bound again.
+     *
+     * @param address
+     * @param shards
+     * @throws IOException if the single listening socket cannot be bound again
+     */
+    private void bindShardSockets(InetSocketAddress address, int shards) throws IOException {
+        TCPChannelConfiguration channelConfig = this.tcpChannel.getConfig();
+        boolean reuseAddress = this.serverSocket.getReuseAddress();
+        ServerSocket[] sockets = new ServerSocket[shards];
+        closeServerSocket();
+        try {
+            for (int i = 0; i < sockets.length; i++) {
+                sockets[i] = openServerSocket();
+                if (!setReusePort(sockets[i])) {
+                    throw new IOException("SO_REUSEPORT could not be set on shard " + i);
+                }
+                setReceiveBufferSize(sockets[i]);
+                sockets[i].setReuseAddress(reuseAddress);
+                sockets[i].bind(address, channelConfig.getListenBacklog());
+            }
+        } catch (IOException ioe) {
+            // no FFDC
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, "Shard ServerSocket bind failed, using a single listening socket; " + ioe);
+            }
+            for (ServerSocket socket : sockets) {
+                if (socket != null) {
+                    try {
+                        socket.close();
+                    } catch (IOException closeioe) {
+                        // no FFDC
+                    }
+                }
+            }
+            Tr.warning(tc, TCPChannelMessageConstants.ACCEPTOR_SHARDS_NOT_SUPPORTED,
+                       new Object[] { channelConfig.getChannelData().getExternalName(), String.valueOf(shards), String.valueOf(this.listenPort) });
+            this.serverSocket = openServerSocket();
+            setReceiveBufferSize(this.serverSocket);
+            this.serverSocket.setReuseAddress(reuseAddress);
+            this.serverSocket.bind(address, channelConfig.getListenBacklog());
+            return;
+        }
+        this.serverSocket = sockets[0];
+        this.shardSockets = new ServerSocket[shards - 1];
+        System.arraycopy(sockets, 1, this.shardSockets, 0, shards - 1);
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Bound " + shards + " listening sockets with SO_REUSEPORT to " + address);
+        }
+    }
+
     /**
      * Attempt a socket bind to the input address with the given re-use option
      * flag.
@@ -153,11 +292,18 @@ public class TCPPort {
 
                 // receieve buffer size for accepted sockets is set on serverSocket,
                 // send buffer size is set on individual sockets
-
-                if ((channelConfig.getReceiveBufferSize() >= TCPConfigConstants.RECEIVE_BUFFER_SIZE_MIN)
-                    && (channelConfig.getReceiveBufferSize() <= TCPConfigConstants.RECEIVE_BUFFER_SIZE_MAX)) {
-                    serverSocket.setReceiveBufferSize(channelConfig.getReceiveBufferSize());
+                setReceiveBufferSize(serverSocket);
+
+                // each acceptor shard binds its own listening socket to the port,
+                // which requires SO_REUSEPORT on all of them. They replace the
+                // primary socket once it has been bound without SO_REUSEPORT.
+                int shards = channelConfig.getAcceptorShards();
+                if (shards > 1 && !isReusePortSupported(serverSocket)) {
+                    Tr.warning(tc, TCPChannelMessageConstants.ACCEPTOR_SHARDS_NOT_SUPPORTED,
+                               new Object[] { channelConfig.getChannelData().getExternalName(), String.valueOf(shards), String.valueOf(channelConfig.getPort()) });
+                    shards = 1;
                 }
+
                 if (!channelConfig.getSoReuseAddress()) {
                     //Forced re-use==false custom property
                     try {
@@ -233,7 +379,19 @@ public class TCPPort {
                 if (bindError == null) {
                     // listen port can be different than config port if configed port is '0'
                     listenPort = serverSocket.getLocalPort();
-                } else {
+                    if (shards > 1) {
+                        try {
+                            bindShardSockets(new InetSocketAddress(socketAddress.getAddress(), listenPort), shards);
+                        } catch (IOException ioe) {
+                            // no FFDC
+                            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                                Tr.debug(tc, "ServerSocket bind failed after the shard sockets were closed: " + ioe.getMessage());
+                            }
+                            bindError = ioe;
+                        }
+                    }
+                }
+                if (bindError != null) {
                     String displayableHostName = channelConfig.getDisplayableHostname();
                     Tr.error(tc, TCPChannelMessageConstants.BIND_ERROR,
                              new Object[] { channelConfig.getChannelData().getExternalName(), displayableHostName, String.valueOf(channelConfig.getPort()) });
@@ -308,6 +466,18 @@ public class TCPPort {
         }
         closeServerSocket();
         this.serverSocket = null;
+        if (null != this.shardSockets) {
+            for (ServerSocket socket : this.shardSockets) {
+                try {
+                    socket.close();
+                } catch (IOException ioe) {
+                    if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                        Tr.debug(tc, "IOExeption on shard ServerSocket.close " + ioe.getMessage());
+                    }
+                }
+            }
+            this.shardSockets = null;
+        }
     }
 
     /**
@@ -67,6 +67,9 @@ public class ValidateUtils implements TCPConfigConstants {
     protected static final int DUMP_STATS_INTERVAL_MIN = 0;
     protected static final int DUMP_STATS_INTERVAL_MAX = 3600;
 
+    protected static final int ACCEPTOR_SHARDS_MIN = 1;
+    protected static final int ACCEPTOR_SHARDS_MAX = 64;
+
     /**
      * Test the input value against the allowed min and max.
      * 
@@ -487,6 +490,16 @@ public class ValidateUtils implements TCPConfigConstants {
         return testStringAsInt(value, DUMP_STATS_INTERVAL_MIN, DUMP_STATS_INTERVAL_MAX);
     }
 
+    /**
+     * Test the acceptor shards configuration.
+     * 
+     * @param value
+     * @return int
+     */
+    public static int testAcceptorShards(int value) {
+        return testInt(value, ACCEPTOR_SHARDS_MIN, ACCEPTOR_SHARDS_MAX);
+    }
+
     /**
      * Test the IP filter configuration values.
      * 
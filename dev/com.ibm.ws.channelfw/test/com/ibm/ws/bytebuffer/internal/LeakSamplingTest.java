@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.bytebuffer.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import test.common.SharedOutputManager;
+
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.bytebuffer.WsByteBufferPoolManager.DirectByteBufferHelper;
+
+/**
+ * Test the sampled leak detection of the WsByteBuffer pools.
+ */
+public class LeakSamplingTest {
+    private static SharedOutputManager outputMgr;
+
+    /**
+     * Capture stdout/stderr output to the manager.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        outputMgr = SharedOutputManager.getInstance();
+        outputMgr.captureStreams();
+    }
+
+    /**
+     * Final teardown work when class is exiting.
+     *
+     * @throws Exception
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        // Make stdout and stderr "normal"
+        outputMgr.restoreStreams();
+    }
+
+    /**
+     * Individual teardown after each test.
+     *
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        // Clear the output generated after each method invocation
+        outputMgr.resetStreams();
+    }
+
+    private WsByteBufferPoolManagerImpl createManager() throws Exception {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put("memoryLeakSampleRate", "1");
+        return new WsByteBufferPoolManagerImpl(new AtomicReference<DirectByteBufferHelper>(), props);
+    }
+
+    /**
+     * A sampled buffer that is released is forgotten, one that is held past
+     * the interval is reported once.
+     */
+    @Test
+    public void testOutstandingBuffer() {
+        try {
+            WsByteBufferPoolManagerImpl mgr = createManager();
+            assertEquals(1, mgr.getLeakSampleRate());
+
+            WsByteBuffer released = mgr.allocate(1024);
+            WsByteBuffer held = mgr.allocate(1024);
+            assertEquals(2, mgr.getSampledBufferCount());
+            released.release();
+            assertEquals(1, mgr.getSampledBufferCount());
+
+            long later = System.currentTimeMillis() + 10 * 60 * 1000L;
+            mgr.checkSampledBuffers(later);
+            assertEquals(1, mgr.getSuspectedLeakCount());
+            mgr.checkSampledBuffers(later);
+            assertEquals(1, mgr.getSuspectedLeakCount());
+
+            held.release();
+            assertEquals(0, mgr.getSampledBufferCount());
+        } catch (Throwable t) {
+            outputMgr.failWithThrowable("testOutstandingBuffer", t);
+        }
+    }
+
+    /**
+     * A sampled buffer that is dropped without being released must not be
+     * kept alive by the sampler; once collected it is reported as a leak and
+     * its record is discarded.
+     */
+    @Test
+    public void testCollectedBuffer() {
+        try {
+            WsByteBufferPoolManagerImpl mgr = createManager();
+            mgr.allocate(1024);
+            assertEquals(1, mgr.getSampledBufferCount());
+
+            long end = System.currentTimeMillis() + 30000L;
+            while (mgr.getSampledBufferCount() > 0 && System.currentTimeMillis() < end) {
+                System.gc();
+                Thread.sleep(50);
+                mgr.checkSampledBuffers(System.currentTimeMillis());
+            }
+            assertEquals(0, mgr.getSampledBufferCount());
+            assertEquals(1, mgr.getSuspectedLeakCount());
+            assertTrue(outputMgr.checkForMessages("CWWKO0605W"));
+        } catch (Throwable t) {
+            outputMgr.failWithThrowable("testCollectedBuffer", t);
+        }
+    }
+}
@@ -36,10 +36,13 @@ import org.junit.Test;
 
 import test.common.SharedOutputManager;
 
+import com.ibm.ws.bytebuffer.internal.MagazineObjectPool;
 import com.ibm.ws.bytebuffer.internal.WsByteBufferPoolManagerImpl;
+import com.ibm.ws.bytebuffer.internal.WsByteBufferPoolStats;
 import com.ibm.wsspi.bytebuffer.WsByteBuffer;
 import com.ibm.wsspi.bytebuffer.WsByteBufferPoolManager;
 import com.ibm.wsspi.channelfw.ChannelFrameworkFactory;
+import com.ibm.wsspi.channelfw.objectpool.ObjectFactory;
 
 /**
  * Test the WsByteBuffer interface.
@@ -615,4 +618,65 @@ public class ByteBufferTest {
             outputMgr.failWithThrowable("testEquals", t);
         }
     }
+
+    /**
+     * Test that entries released on one thread flow through the depot of the
+     * magazine pool to another thread, and the pool statistics.
+     */
+    @Test
+    public void testMagazinePool() {
+        try {
+            // local depth 4 gives magazines of 2, global depth 8 gives a depot of 4 magazines
+            final MagazineObjectPool pool = new MagazineObjectPool(4, 8, new ObjectFactory() {
+                @Override
+                public Object create() {
+                    return new Object();
+                }
+            }, null, false, false);
+
+            Object[] entries = new Object[10];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = pool.get();
+            }
+            for (int i = 0; i < entries.length; i++) {
+                pool.put(entries[i]);
+            }
+            // 4 stay in this thread's magazines, the other 6 go to the depot
+            long[] stats = pool.getStatistics();
+            assertEquals(10, stats[0]);
+            assertEquals(10, stats[1]);
+            assertEquals(0, stats[2]);
+            assertEquals(3, stats[3]);
+
+            Thread t = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 6; i++) {
+                        pool.get();
+                    }
+                }
+            };
+            t.start();
+            t.join();
+
+            stats = pool.getStatistics();
+            assertEquals(16, stats[0]);
+            assertEquals(10, stats[1]);
+            assertEquals(3, stats[2]);
+            assertEquals(0.375, new WsByteBufferPoolStats(32, false, stats[0], 0.0, stats[1], stats[2], stats[3]).getHitRatio(), 0.0001);
+
+            WsByteBufferPoolManagerImpl mgr = (WsByteBufferPoolManagerImpl) ChannelFrameworkFactory.getBufferManager();
+            WsByteBuffer buffer = mgr.allocate(1024);
+            buffer.release();
+            boolean found = false;
+            for (WsByteBufferPoolStats poolStats : mgr.getPoolStatistics()) {
+                if (!poolStats.isDirect() && poolStats.getEntrySize() == 1024) {
+                    found = poolStats.getAllocations() > 0;
+                }
+            }
+            assertTrue(found);
+        } catch (Throwable t) {
+            outputMgr.failWithThrowable("testMagazinePool", t);
+        }
+    }
 }
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.tcpchannel.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import test.common.SharedOutputManager;
+
+import com.ibm.websphere.channelfw.ChannelData;
+import com.ibm.wsspi.channelfw.exception.RetryableChannelException;
+import com.ibm.wsspi.tcpchannel.TCPConfigConstants;
+
+/**
+ * Test the binding of the listening sockets of the acceptor shards.
+ */
+public class TCPPortTest {
+    private static SharedOutputManager outputMgr;
+
+    private final List<TCPPort> ports = new ArrayList<TCPPort>();
+    private int port;
+
+    /**
+     * Capture stdout/stderr output to the manager.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        outputMgr = SharedOutputManager.getInstance();
+        outputMgr.captureStreams();
+    }
+
+    /**
+     * Final teardown work when class is exiting.
+     *
+     * @throws Exception
+     */
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        // Make stdout and stderr "normal"
+        outputMgr.restoreStreams();
+    }
+
+    /**
+     * Find a free port, and skip the tests if this JVM cannot set SO_REUSEPORT.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            Assume.assumeTrue(TCPPort.SO_REUSEPORT != null && channel.supportedOptions().contains(TCPPort.SO_REUSEPORT));
+            channel.socket().bind(new InetSocketAddress("localhost", 0));
+            port = channel.socket().getLocalPort();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Individual teardown after each test.
+     */
+    @After
+    public void tearDown() {
+        for (TCPPort tcpPort : ports) {
+            tcpPort.destroyServerSocket();
+        }
+        outputMgr.resetStreams();
+    }
+
+    private TCPPort newPort(int shards) throws Exception {
+        final Map<Object, Object> properties = new HashMap<Object, Object>();
+        properties.put(TCPConfigConstants.HOST_NAME, "localhost");
+        properties.put(TCPConfigConstants.PORT, String.valueOf(port));
+        properties.put(TCPChannelConfiguration.ACCEPTOR_SHARDS, String.valueOf(shards));
+        ChannelData data = (ChannelData) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ChannelData.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("isInbound")) {
+                    return Boolean.TRUE;
+                }
+                if (method.getName().equals("getPropertyBag")) {
+                    return properties;
+                }
+                if (method.getName().equals("getExternalName") || method.getName().equals("getName")) {
+                    return "TCPPortTest";
+                }
+                return null;
+            }
+        });
+        final TCPChannelConfiguration tcpConfig = new TCPChannelConfiguration(data);
+        TCPPort tcpPort = new TCPPort(new NioTCPChannel() {
+            @Override
+            public TCPChannelConfiguration getConfig() {
+                return tcpConfig;
+            }
+        }, null);
+        ports.add(tcpPort);
+        return tcpPort;
+    }
+
+    private static boolean reusePort(ServerSocket socket) throws IOException {
+        return socket.getChannel().getOption(TCPPort.SO_REUSEPORT).booleanValue();
+    }
+
+    /**
+     * Binds a socket with SO_REUSEPORT to the test port.
+     *
+     * @return true if the bind worked
+     */
+    private boolean coBind() throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.setOption(TCPPort.SO_REUSEPORT, Boolean.TRUE);
+            channel.socket().bind(new InetSocketAddress("localhost", port));
+            return true;
+        } catch (IOException ioe) {
+            return false;
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testShards() throws Exception {
+        TCPPort tcpPort = newPort(3);
+        tcpPort.initServerSocket();
+        ServerSocket[] sockets = tcpPort.getServerSockets();
+        assertEquals(3, sockets.length);
+        assertTrue(sockets[0] == tcpPort.getServerSocket());
+        for (ServerSocket socket : sockets) {
+            assertTrue(socket.isBound());
+            assertEquals(port, socket.getLocalPort());
+            assertTrue(reusePort(socket));
+        }
+        assertEquals(port, tcpPort.getListenPort());
+    }
+
+    @Test
+    public void testSingleSocket() throws Exception {
+        TCPPort tcpPort = newPort(1);
+        tcpPort.initServerSocket();
+        assertEquals(1, tcpPort.getServerSockets().length);
+        assertFalse(reusePort(tcpPort.getServerSocket()));
+        assertFalse(coBind());
+    }
+
+    @Test
+    public void testPortInUse() throws Exception {
+        newPort(2).initServerSocket();
+        // the second server must not share the port through SO_REUSEPORT
+        TCPPort second = newPort(2);
+        try {
+            second.initServerSocket();
+            fail("a second server was bound to port " + port);
+        } catch (RetryableChannelException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testShardFallback() throws Exception {
+        final int[] opened = new int[1];
+        final TCPPort base = newPort(3);
+        TCPPort tcpPort = new TCPPort(base.getTCPChannel(), null) {
+            @Override
+            protected ServerSocket openServerSocket() throws IOException {
+                // the primary socket, then the first shard, then a socket without SO_REUSEPORT
+                if (++opened[0] == 3) {
+                    return new ServerSocket();
+                }
+                return super.openServerSocket();
+            }
+        };
+        ports.add(tcpPort);
+        tcpPort.initServerSocket();
+        assertEquals(1, tcpPort.getServerSockets().length);
+        ServerSocket socket = tcpPort.getServerSocket();
+        assertTrue(socket.isBound());
+        assertEquals(port, socket.getLocalPort());
+        // the single socket left after the fallback does not let anyone share the port
+        assertFalse(reusePort(socket));
+        assertFalse(coBind());
+    }
+}
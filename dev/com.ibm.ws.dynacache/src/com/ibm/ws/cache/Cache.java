@@ -100,7 +100,7 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
      * This is an index to the entries for random access given a cache id. The key is the cache id that is unique within
      * the server. The value is the entry.
      */
-    private NonSyncHashtable entryHashtable = null;
+    private EntryTable entryHashtable = null;
 
     /**
      * This is the default value for the priority.
@@ -129,12 +129,16 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
     // -------------------------------------------------
     private CacheEntry.LRUHead lruBuckets[] = null;
     private int lruTop = 0;
+    // used in place of the LRU buckets when sampled eviction is configured
+    private SampledEviction sampledEviction = null;
     // -------------------------------------------------
 
     private int cacheSizeLimit = 0; // memory cache size + overflow buffer size if disk offload enabled
 
     private boolean displayedLRUMessage = false;
 
+    private static final int MAX_SAMPLED_EVICTION_ATTEMPTS = 4;
+
     /* refcount leak detection code */
     transient private volatile Map<Object, String> refCountLeakMap = new ConcurrentHashMap<Object, String>();
     private long lastTimeCheck = 0;
@@ -192,6 +196,10 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
         // Create a CacheEntry pool
         // --------------------------------------------------------
         int poolSize = Math.min(1000, cacheConfig.cacheSize / 10);
+        if (cacheConfig.sampledEviction) {
+            // hits read entries without pinning them, so an entry must never be reused for another id
+            poolSize = 0;
+        }
         cacheEntryPool = CacheEntry.createCacheEntryPool(this, poolSize);
         // --------------------------------------------------------
 
@@ -208,7 +216,16 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
         // --------------------------------------------------------
         // Setup tables for cache entries, templates and dependencies
         // --------------------------------------------------------
-        entryHashtable = new NonSyncHashtable(cacheConfig.cacheSize);
+        if (cacheConfig.sampledEviction) {
+            ConcurrentEntryTable concurrentEntryTable = new ConcurrentEntryTable(cacheConfig.cacheSize);
+            sampledEviction = new SampledEviction(concurrentEntryTable, cacheConfig.evictionSampleSize, cacheConfig.cacheSize);
+            entryHashtable = concurrentEntryTable;
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, "Cache() cacheName=" + cacheName + " uses sampled eviction, evictionSampleSize=" + cacheConfig.evictionSampleSize);
+            }
+        } else {
+            entryHashtable = new NonSyncHashtable(cacheConfig.cacheSize);
+        }
         increaseCacheSizeInBytes(ObjectSizer.FASTHASHTABLE_INITIAL_OVERHEAD + ObjectSizer.FASTHASHTABLE_INITIAL_PER_ENTRY_OVERHEAD
                                  * cacheConfig.cacheSize, "EHT");
 
@@ -242,7 +259,11 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
             // -------------------------------------
             // swapToDisk is true
             // -------------------------------------
-            diskCache = new CacheOnDisk(cacheConfig, this);
+            if (cacheConfig.diskCacheSegmentLog) {
+                diskCache = new SegmentLogOnDisk(cacheConfig, this);
+            } else {
+                diskCache = new CacheOnDisk(cacheConfig, this);
+            }
             // -------------------------------------
             // swapToDisk may change to "false" due
             // to CacheOnDisk unrecoverable error.
@@ -508,6 +529,13 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
     // Monitor informs the method whether or not it should
     // track cache hits in PMI
     private CacheEntry getCacheEntry(Object id, boolean askPermission, boolean ignoreCounting, String _missTemplate, boolean incRefCount) {
+        return getCacheEntry(id, askPermission, ignoreCounting, _missTemplate, incRefCount, incRefCount);
+    }
+
+    // updateLru may be true without incRefCount only with sampled eviction,
+    // which records hits on entries that are not pinned
+    private CacheEntry getCacheEntry(Object id, boolean askPermission, boolean ignoreCounting, String _missTemplate, boolean incRefCount,
+                                     boolean updateLru) {
         CacheEntry cacheEntry;
 
         CachePerf cachePerf = null;
@@ -517,7 +545,7 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
 
         // updateLruLocation only if getCacheEntry is
         // called from CacheHook.java or CommandCache.java
-        if (incRefCount) {
+        if (updateLru) {
             cacheEntry = getCacheEntry(id, incRefCount);
         } else {
             cacheEntry = (CacheEntry) entryHashtable.get(id);
@@ -641,7 +669,11 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
         if (null != cacheEntry && incRefCount)
             cacheEntry.incRefCount();
         if (cacheEntry != null && !cacheEntry.pendingRemoval && !cacheEntry.removeWhenUnpinned) {
-            updateLruLocation(cacheEntry);
+            if (sampledEviction != null) {
+                sampledEviction.accessed(cacheEntry);
+            } else {
+                updateLruLocation(cacheEntry);
+            }
             if (cacheEntry.inactivity > 0) {
                 timeLimitDaemon.valueWasAccessed(this, cacheEntry.id, cacheEntry.expirationTime, cacheEntry.inactivity);
             }
@@ -734,7 +766,9 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
                     oldEntry.returnToPool();
                 } else if (oldEntry.removeWhenUnpinned == false) {
                     oldEntry.removeWhenUnpinned = true;
-                    oldEntry.lruHead.remove(oldEntry);
+                    if (oldEntry.lruHead != null) {
+                        oldEntry.lruHead.remove(oldEntry);
+                    }
                 }
                 writeToDiskDirectly(cacheEntry, cause, source);
                 return cacheEntry;
@@ -766,7 +800,9 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
                 entryHashtable.put(cacheEntry.id, newEntry);
                 if (oldEntry.removeWhenUnpinned == false) {
                     oldEntry.removeWhenUnpinned = true;
-                    oldEntry.lruHead.remove(oldEntry);
+                    if (oldEntry.lruHead != null) {
+                        oldEntry.lruHead.remove(oldEntry);
+                    }
                 }
             }
             removeInvalidationInfo(oldEntry);
@@ -966,6 +1002,10 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
      * used to update an entry's location in the LRU
      */
     private synchronized final void updateLruLocation(CacheEntry cacheEntry) {
+        if (sampledEviction != null) {
+            sampledEviction.written(cacheEntry);
+            return;
+        }
         if (cacheEntry.lruHead == null) {
             int lruBucket = (lruTop + cacheEntry.priority) % lruBuckets.length;
             cacheEntry.lruHead = lruBuckets[lruBucket];
@@ -1403,10 +1443,19 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
 
         Object value = null;
         if (id != null) {
-            CacheEntry cacheEntry = getCacheEntry(id, askPermission, ignoreCounting, template, INCREMENT_REFF_COUNT);
-            if (cacheEntry != null) { /* Fix introduced for ST */
-                value = cacheEntry.getValue();
-                cacheEntry.finish();
+            if (sampledEviction != null) {
+                // the value is read without pinning the entry or taking the cache lock;
+                // entries are not pooled, so one removed meanwhile reads as a miss
+                CacheEntry cacheEntry = getCacheEntry(id, askPermission, ignoreCounting, template, !INCREMENT_REFF_COUNT, true);
+                if (cacheEntry != null) {
+                    value = cacheEntry.getValue();
+                }
+            } else {
+                CacheEntry cacheEntry = getCacheEntry(id, askPermission, ignoreCounting, template, INCREMENT_REFF_COUNT);
+                if (cacheEntry != null) { /* Fix introduced for ST */
+                    value = cacheEntry.getValue();
+                    cacheEntry.finish();
+                }
             }
         }
         return value;
@@ -1843,7 +1892,9 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
                 cacheEntry.returnToPool();
             } else if (cacheEntry.removeWhenUnpinned == false) {
                 cacheEntry.removeWhenUnpinned = true;
-                cacheEntry.lruHead.remove(cacheEntry);
+                if (cacheEntry.lruHead != null) {
+                    cacheEntry.lruHead.remove(cacheEntry);
+                }
             }
         }
         if (allocateCE) {
@@ -2411,6 +2462,9 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
      */
     @Override
     public synchronized FreeLruEntryResult freeLruEntry() {
+        if (sampledEviction != null) {
+            return freeSampledEntry();
+        }
         FreeLruEntryResult result = new FreeLruEntryResult();
         CacheEntry cacheEntry = null;
         int endTop = (lruTop + lruBuckets.length - 1) % lruBuckets.length;
@@ -2420,48 +2474,11 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
                 while (it.hasNext()) {
                     cacheEntry = (CacheEntry) it.next();
                     if (cacheEntry.getRefCount() == 0) {
-                        Object id = cacheEntry.id;
-                        if (id != null) {
-                            result.success = false;
-                            if (isCacheSizeInMBEnabled()) {
-                                result.bytesRemoved = cacheEntry.getObjectSize();
-                            }
-
-                            if (swapToDisk && cacheEntry.persistToDisk) {
-                                LruToDiskResult toDiskResult = lruToDisk(cacheEntry);
-                                if (tc.isDebugEnabled())
-                                    Tr.debug(tc, toDiskResult.toString());
-                                if (toDiskResult.result != HTODDynacache.DISK_EXCEPTION && toDiskResult.result != HTODDynacache.OTHER_EXCEPTION
-                                    && toDiskResult.result != HTODDynacache.SERIALIZATION_EXCEPTION)
-                                    result.success = true;
-                            } else {
-                                // Display this message only once if the disk offload feature is disabled
-                                // DYNA1070I=DYNA1070I: Cache instance \"{0}\" is full and has reached the maximum
-                                // configured size of {1} entries.
-                                // Space on the JVM heap for new entries will now be made by evicting existing cache
-                                // entries using the LRU algorithm.
-                                // Please consider enabling the disk offload feature for the cache instance to prevent
-                                // the discard of cache entries
-                                // from memory.
-                                if (swapToDisk == false && displayedLRUMessage == false) {
-                                    Tr.audit(tc, "DYNA1070I", new Object[] { cacheName, new Integer(cacheConfig.cacheSize) });
-                                    displayedLRUMessage = true;
-                                }
-
-                                if (shouldInvalidate(id)) {
-                                    result.success = internalInvalidateById(id, CachePerf.LRU, CachePerf.LOCAL, FIRE_INVALIDATION_LISTENER);
-                                }
-
-                                if (false == cacheConfig.filterLRUInvalidation && true == result.success) {
-                                    invalidateById(id, CachePerf.LRU, CachePerf.LOCAL, false, !InvalidateByIdEvent.INVOKE_INTERNAL_INVALIDATE_BY_ID);
-                                }
-                            }
-                            if (true == result.success) {
-                                if (tc.isDebugEnabled()) {
-                                    Tr.exit(tc, "return freeLruEntry() true");
-                                }
-                                return result;
+                        if (cacheEntry.id != null && evict(cacheEntry, result)) {
+                            if (tc.isDebugEnabled()) {
+                                Tr.exit(tc, "return freeLruEntry() true");
                             }
+                            return result;
                         }
                     }
                 }
@@ -2487,6 +2504,68 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
         return result;
     }
 
+    /**
+     * Remove the entry picked by sampling from memory. If disk caching is enabled write the entry to disk
+     */
+    private FreeLruEntryResult freeSampledEntry() {
+        FreeLruEntryResult result = new FreeLruEntryResult();
+        // a victim may stay, e.g. when a PreInvalidationListener vetoes it, so look at a few samples
+        for (int i = 0; i < MAX_SAMPLED_EVICTION_ATTEMPTS; i++) {
+            CacheEntry cacheEntry = sampledEviction.selectVictim();
+            if (cacheEntry == null) {
+                break;
+            }
+            if (evict(cacheEntry, result)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evict an entry that is not pinned from memory, writing it to disk if disk caching is enabled.
+     * 
+     * @return true if the entry was evicted
+     */
+    private boolean evict(CacheEntry cacheEntry, FreeLruEntryResult result) {
+        Object id = cacheEntry.id;
+        result.success = false;
+        if (isCacheSizeInMBEnabled()) {
+            result.bytesRemoved = cacheEntry.getObjectSize();
+        }
+
+        if (swapToDisk && cacheEntry.persistToDisk) {
+            LruToDiskResult toDiskResult = lruToDisk(cacheEntry);
+            if (tc.isDebugEnabled())
+                Tr.debug(tc, toDiskResult.toString());
+            if (toDiskResult.result != HTODDynacache.DISK_EXCEPTION && toDiskResult.result != HTODDynacache.OTHER_EXCEPTION
+                && toDiskResult.result != HTODDynacache.SERIALIZATION_EXCEPTION)
+                result.success = true;
+        } else {
+            // Display this message only once if the disk offload feature is disabled
+            // DYNA1070I=DYNA1070I: Cache instance \"{0}\" is full and has reached the maximum
+            // configured size of {1} entries.
+            // Space on the JVM heap for new entries will now be made by evicting existing cache
+            // entries using the LRU algorithm.
+            // Please consider enabling the disk offload feature for the cache instance to prevent
+            // the discard of cache entries
+            // from memory.
+            if (swapToDisk == false && displayedLRUMessage == false) {
+                Tr.audit(tc, "DYNA1070I", new Object[] { cacheName, new Integer(cacheConfig.cacheSize) });
+                displayedLRUMessage = true;
+            }
+
+            if (shouldInvalidate(id)) {
+                result.success = internalInvalidateById(id, CachePerf.LRU, CachePerf.LOCAL, FIRE_INVALIDATION_LISTENER);
+            }
+
+            if (false == cacheConfig.filterLRUInvalidation && true == result.success) {
+                invalidateById(id, CachePerf.LRU, CachePerf.LOCAL, false, !InvalidateByIdEvent.INVOKE_INTERNAL_INVALIDATE_BY_ID);
+            }
+        }
+        return result.success;
+    }
+
     private boolean shouldInvalidate(Object id) {
 
         boolean shouldInvalidate = true;
@@ -2532,7 +2611,9 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
         // No write to disk if loadedFromDisk is true. It is because
         // the cache is already in the disk.
         if (!cacheEntry.loadedFromDisk) {
-            ((CacheOnDisk) diskCache).htod.diskCacheException = null;
+            if (diskCache instanceof CacheOnDisk) {
+                ((CacheOnDisk) diskCache).htod.diskCacheException = null;
+            }
             if (!cacheEntry.prepareForSerialization()) {
                 // a msg was logged during the above call
                 discard = true;
@@ -2922,29 +3003,31 @@ public class Cache extends DCacheBase implements com.ibm.websphere.cache.CacheLo
                 if (diskCache.writeAuxiliaryDepTables() == HTODDynacache.DISK_EXCEPTION)
                     return;
                 StringBuffer message = new StringBuffer();
-                CacheOnDisk cacheOnDisk = (CacheOnDisk) diskCache;
                 message.append(" numOfEntriesFlushToDisk=");
                 message.append(numOffload);
                 message.append(" numOfBytesFlushToDisk=");
                 message.append(cacheStatisticsListener.getObjectsWriteToDiskSizeCount() - lastWriteObjectSize);
                 message.append(" timeElapsedEntriesFlushToDisk=");
                 message.append(TimeUnit.NANOSECONDS.toMillis(time2 - time1));
-                message.append(" numDepIdsInAuxTable=");
-                message.append(cacheOnDisk.htod.numDepIdsInAuxTable);
-                message.append(" numCacheIdsInDepIdAuxTable=");
-                message.append(cacheOnDisk.htod.numCacheIdsInDepIdAuxTable);
-                message.append(" numTemplatesInAuxTable=");
-                message.append(cacheOnDisk.htod.numTemplatesInAuxTable);
-                message.append(" numCacheIdsInTemplateAuxTable=");
-                message.append(cacheOnDisk.htod.numCacheIdsInTemplateAuxTable);
-                message.append(" timeElapsedWriteAuxTables=");
-                message.append(cacheOnDisk.htod.timeElapsedWriteAuxTables);
-                int numExplicitBufferFlushToDisk = cacheOnDisk.htod.numExplicitBufferLimitOnStop;
-                if (numExplicitBufferFlushToDisk > 0) {
-                    message.append(" numExplicitBufferFlushToDisk=");
-                    message.append(numExplicitBufferFlushToDisk);
-                    message.append(" explicitBufferLimitOnStop=");
-                    message.append(cacheOnDisk.explicitBufferLimitOnStop);
+                if (diskCache instanceof CacheOnDisk) {
+                    CacheOnDisk cacheOnDisk = (CacheOnDisk) diskCache;
+                    message.append(" numDepIdsInAuxTable=");
+                    message.append(cacheOnDisk.htod.numDepIdsInAuxTable);
+                    message.append(" numCacheIdsInDepIdAuxTable=");
+                    message.append(cacheOnDisk.htod.numCacheIdsInDepIdAuxTable);
+                    message.append(" numTemplatesInAuxTable=");
+                    message.append(cacheOnDisk.htod.numTemplatesInAuxTable);
+                    message.append(" numCacheIdsInTemplateAuxTable=");
+                    message.append(cacheOnDisk.htod.numCacheIdsInTemplateAuxTable);
+                    message.append(" timeElapsedWriteAuxTables=");
+                    message.append(cacheOnDisk.htod.timeElapsedWriteAuxTables);
+                    int numExplicitBufferFlushToDisk = cacheOnDisk.htod.numExplicitBufferLimitOnStop;
+                    if (numExplicitBufferFlushToDisk > 0) {
+                        message.append(" numExplicitBufferFlushToDisk=");
+                        message.append(numExplicitBufferFlushToDisk);
+                        message.append(" explicitBufferLimitOnStop=");
+                        message.append(cacheOnDisk.explicitBufferLimitOnStop);
+                    }
                 }
                 Tr.info(tc, "DYNA0073I", new Object[] { cacheName, message.toString() });
                 diskCache.close(CacheOnDisk.DELETE_IN_PROGRESS_FILE);
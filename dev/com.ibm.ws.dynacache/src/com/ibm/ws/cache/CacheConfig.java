@@ -60,6 +60,9 @@ public class CacheConfig implements DCacheConfig, Cloneable {
     public static final String DISKCACHE_SIZE = "com.ibm.ws.cache.CacheConfig.diskCacheSize";
     public static final String DISKCACHE_SIZE_GB = "com.ibm.ws.cache.CacheConfig.diskCacheSizeInGB";
     public static final String DISKCACHE_ENTRY_SIZE_MB = "com.ibm.ws.cache.CacheConfig.diskCacheEntrySizeInMB";
+    public static final String DISKCACHE_SEGMENT_LOG = "com.ibm.ws.cache.CacheConfig.diskCacheSegmentLog";
+    public static final String DISKCACHE_SEGMENT_SIZE_MB = "com.ibm.ws.cache.CacheConfig.diskCacheSegmentSizeInMB";
+    public static final String DISKCACHE_COMPACTION_THRESHOLD = "com.ibm.ws.cache.CacheConfig.diskCacheCompactionThreshold";
     public static final String USE_SERVER_CLASSLOADER = "com.ibm.ws.cache.CacheConfig.useServerClassLoader";
     public static final String DISKCACHE_EXPLICIT_BUFFER_LIMIT_ON_STOP = "com.ibm.ws.cache.CacheConfig.explicitBufferLimitOnStop";
     public static final String DISABLE_STORE_COOKIES = "com.ibm.ws.cache.CacheConfig.disableStoreCookies";
@@ -92,6 +95,8 @@ public class CacheConfig implements DCacheConfig, Cloneable {
     public static final String CACHE_ENTRY_REF_COUNT_TRACKING = "com.ibm.ws.cache.CacheConfig.refCountTracking";
     public static final String ENABLE_INTER_CELL_INVALIDATION = "com.ibm.ws.cache.CacheConfig.enableInterCellInvalidation";
     public static final String ALWAYS_SYNCHRONIZE_ON_GETS = "com.ibm.ws.cache.CacheConfig.alwaysSynchronizeOnGets";
+    public static final String SAMPLED_EVICTION = "com.ibm.ws.cache.CacheConfig.sampledEviction";
+    public static final String EVICTION_SAMPLE_SIZE = "com.ibm.ws.cache.CacheConfig.evictionSampleSize";
     public static final String FILTERED_STATUS_CODES = "com.ibm.ws.cache.CacheConfig.filteredStatusCodes";
     public static final String IGNORE_CACHEABLE_COMMAND_SERIALIZATION_EXCEPTION = "com.ibm.ws.cache.CacheConfig.ignoreCacheableCommandDeserializationException";
     public static final String DISK_DEPENDENCY_CACHE_INDEX_ENABLED = "com.ibm.ws.cache.CacheConfig.htodDependencyCacheIndexEnabled";
@@ -123,6 +128,7 @@ public class CacheConfig implements DCacheConfig, Cloneable {
 
     // Define for default value
     public static final int DEFAULT_DISABLE_CACHE_SIZE_MB = -1;
+    public static final int DEFAULT_EVICTION_SAMPLE_SIZE = 8;
     public static final int DEFAULT_DISKCACHE_PERFORMANCE_LEVEL = BALANCED;
     public static final int DEFAULT_DISKCACHE_EVICTION_POLICY = EVICTION_NONE;
     public static final boolean DEFAULT_DISKCACHE_DELAY_OFFLOAD = true;
@@ -135,6 +141,8 @@ public class CacheConfig implements DCacheConfig, Cloneable {
     public static final int DEFAULT_DISKCACHE_SIZE = 0;
     public static final int DEFAULT_DISKCACHE_SIZE_GB = 0;
     public static final int DEFAULT_DISKCACHE_ENTRY_SIZE_MB = 0;
+    public static final int DEFAULT_DISKCACHE_SEGMENT_SIZE_MB = 64;
+    public static final int DEFAULT_DISKCACHE_COMPACTION_THRESHOLD = 50; // unit in percent
     public static final int DEFAULT_DISKCACHE_POOL_ENTRY_LIFE = 1000 * 60 * 5; // Life is five minutes
     public static final int DEFAULT_EXPLICIT_BUFFER_LIMIT_ON_STOP = 0; // explicit buffer limit on stop
     public static final int DEFAULT_ENTRY_WINDOW = 50; // PK32201 and PK35824 DRS (2% or 50 entries) batching fix
@@ -164,6 +172,10 @@ public class CacheConfig implements DCacheConfig, Cloneable {
     public static final int MIN_DISKCACHE_SIZE_GB = 3;
     public static final int MAX_DISKCACHE_ENTRY_SIZE_MB = Integer.MAX_VALUE;
     public static final int MIN_DISKCACHE_ENTRY_SIZE_MB = 0;
+    public static final int MAX_DISKCACHE_SEGMENT_SIZE_MB = 1024;
+    public static final int MIN_DISKCACHE_SEGMENT_SIZE_MB = 1;
+    public static final int MAX_DISKCACHE_COMPACTION_THRESHOLD = 90; // unit in percent
+    public static final int MIN_DISKCACHE_COMPACTION_THRESHOLD = 10; // unit in percent
     public static final int MAX_HIGH_THRESHOLD = 100; // unit in percent
     public static final int MIN_HIGH_THRESHOLD = 1; // unit in percent
     public static final int MAX_LOW_THRESHOLD = 100; // unit in percent
@@ -248,6 +260,11 @@ public class CacheConfig implements DCacheConfig, Cloneable {
     int diskCacheHighThreshold = DEFAULT_HIGH_THRESHOLD;
     int diskCacheLowThreshold = DEFAULT_LOW_THRESHOLD;
 
+    // true means entries are offloaded to a log of memory mapped segments in place of the hashtable on disk
+    boolean diskCacheSegmentLog = false;
+    int diskCacheSegmentSizeInMB = DEFAULT_DISKCACHE_SEGMENT_SIZE_MB;
+    int diskCacheCompactionThreshold = DEFAULT_DISKCACHE_COMPACTION_THRESHOLD; // percent of dead bytes in a segment
+
     // -------------------------------------------------
     // Config settings - External Cache Groups
     // -------------------------------------------------
@@ -325,6 +342,9 @@ public class CacheConfig implements DCacheConfig, Cloneable {
     boolean alwaysTriggerCommandInvalidations = false;
     boolean alwaysSynchronizeOnGets = false;
     boolean ignoreCacheableCommandDeserializationException = false;
+    // true means the memory cache evicts by sampling and serves hits without the cache lock
+    boolean sampledEviction = false;
+    int evictionSampleSize = DEFAULT_EVICTION_SAMPLE_SIZE;
 
     String disableStoreCookies = "none";
     boolean cacheInstanceStoreCookies = true;
@@ -446,6 +466,9 @@ public class CacheConfig implements DCacheConfig, Cloneable {
         diskCacheEvictionPolicy = config.diskCacheEvictionPolicy;
         diskCacheHighThreshold = config.diskCacheHighThreshold;
         diskCacheLowThreshold = config.diskCacheLowThreshold;
+        diskCacheSegmentLog = config.diskCacheSegmentLog;
+        diskCacheSegmentSizeInMB = config.diskCacheSegmentSizeInMB;
+        diskCacheCompactionThreshold = config.diskCacheCompactionThreshold;
         htodDelayOffloadEntriesLimit = config.htodDelayOffloadEntriesLimit;
         htodDelayOffloadDepIdBuckets = config.htodDelayOffloadDepIdBuckets;
         htodDelayOffloadTemplateBuckets = config.htodDelayOffloadTemplateBuckets;
@@ -866,6 +889,26 @@ public class CacheConfig implements DCacheConfig, Cloneable {
         this.alwaysSynchronizeOnGets = alwaysSynchronizeOnGets;
     }
 
+    public boolean isSampledEviction() {
+        return sampledEviction;
+    }
+
+    public int getEvictionSampleSize() {
+        return evictionSampleSize;
+    }
+
+    public boolean isDiskCacheSegmentLog() {
+        return diskCacheSegmentLog;
+    }
+
+    public int getDiskCacheSegmentSizeInMB() {
+        return diskCacheSegmentSizeInMB;
+    }
+
+    public int getDiskCacheCompactionThreshold() {
+        return diskCacheCompactionThreshold;
+    }
+
     @Override
     public int[] getFilteredStatusCodes() {
         return statusCodesArray;
@@ -999,7 +1042,8 @@ public class CacheConfig implements DCacheConfig, Cloneable {
                + disableTemplateInvalidation + ", disableTemplatesSupport=" + disableTemplatesSupport + ", diskCacheEntrySizeInMB="
                + diskCacheEntrySizeInMB + ", diskCacheEvictionPolicy=" + diskCacheEvictionPolicy + ", diskCacheHighThreshold="
                + diskCacheHighThreshold + ", diskCacheLowThreshold=" + diskCacheLowThreshold + ", diskCachePerformanceLevel="
-               + diskCachePerformanceLevel + ", diskCacheSize=" + diskCacheSize + ", diskCacheSizeInGB=" + diskCacheSizeInGB + ", diskHashBuckets="
+               + diskCachePerformanceLevel + ", diskCacheSize=" + diskCacheSize + ", diskCacheSizeInGB=" + diskCacheSizeInGB + ", diskCacheSegmentLog=" + diskCacheSegmentLog
+               + ", diskCacheSegmentSizeInMB=" + diskCacheSegmentSizeInMB + ", diskCacheCompactionThreshold=" + diskCacheCompactionThreshold + ", diskHashBuckets="
                + diskHashBuckets + ", diskOffloadLocation=" + diskOffloadLocation + ", htodCleanupFrequency=" + htodCleanupFrequency
                + ", htodCleanupHour=" + htodCleanupHour + ", htodDataHashtableSize=" + htodDataHashtableSize + ", htodDelayOffload="
                + htodDelayOffload + ", htodDelayOffloadDepIdBuckets=" + htodDelayOffloadDepIdBuckets + ", htodDelayOffloadEntriesLimit="
@@ -1016,6 +1060,7 @@ public class CacheConfig implements DCacheConfig, Cloneable {
                + ignoreCacheableCommandDeserializationException + ", ignoreValueInInvalidationEvent=" + ignoreValueInInvalidationEvent
                + ", jspCachePriority=" + jspCachePriority + ", memoryCacheHighThreshold=" + memoryCacheHighThreshold + ", memoryCacheLowThreshold="
                + memoryCacheLowThreshold + ", memoryCacheSizeInMB=" + memoryCacheSizeInMB + ", refCountTracking=" + refCountTracking
+               + ", sampledEviction=" + sampledEviction + ", evictionSampleSize=" + evictionSampleSize
                + ", serverServerName=" + serverServerName + ", statusCodesArray=" + Arrays.toString(statusCodesArray) + ", tempDir=" + tempDir
                + ", batchUpdateInterval=" + batchUpdateInterval + ", batchUpdateMilliseconds=" + batchUpdateMilliseconds
                + ", timeGranularityInSeconds=" + timeGranularityInSeconds + ", maxTimeLimitInSeconds=" + maxTimeLimitInSeconds
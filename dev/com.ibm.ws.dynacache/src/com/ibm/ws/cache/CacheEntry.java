@@ -254,6 +254,8 @@ public class CacheEntry implements com.ibm.websphere.cache.CacheEntry, Invalidat
     transient protected LRUHead lruHead;
     transient protected CacheEntry _previous = null;
     transient protected CacheEntry _next = null;
+    // stamp of the last write or hit, used instead of the LRU variables by sampled eviction
+    transient protected volatile long accessStamp = 0;
 
     transient protected boolean loadedFromDisk = false;
     transient protected boolean skipValueSerialized = false;
@@ -823,6 +825,7 @@ public class CacheEntry implements com.ibm.websphere.cache.CacheEntry, Invalidat
         isOverflowEntry = false;
         lruEvicted = false;
         lruHead = null;
+        accessStamp = 0;
         useByteBuffer = false;
         aliasList = EMPTY_OBJECT_ARRAY;
         serializedAliasList = null;
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.websphere.ras.annotation.Trivial;
+
+/**
+ * The entry table of a cache that uses sampled eviction.
+ * <ul>
+ * <li>It is backed by a ConcurrentHashMap, so that cache hits can look up
+ * entries without holding the cache lock while the table is changed under it.
+ * <li>Its enumerations and iterators are weakly consistent. They never throw
+ * ConcurrentModificationException, which lets the eviction sampler keep one
+ * iterator across calls as the hand of a clock.
+ * </ul>
+ * Changes are still made while holding the cache lock, as they are for a
+ * NonSyncHashtable.
+ */
+class ConcurrentEntryTable implements EntryTable {
+
+    private final ConcurrentHashMap<Object, Object> map;
+
+    /**
+     * Constructs a new, empty table with the specified capacity.
+     *
+     * @param capacity the initial capacity of the table.
+     */
+    ConcurrentEntryTable(int capacity) {
+        map = new ConcurrentHashMap<Object, Object>(Math.max(16, capacity));
+    }
+
+    @Override
+    @Trivial
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public Enumeration keys() {
+        return Collections.enumeration(map.keySet());
+    }
+
+    @Override
+    public Enumeration elements() {
+        return Collections.enumeration(map.values());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return map.containsValue(value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        return map.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public String toString() {
+        return map.toString();
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the mappings of the table,
+     * including those of aliases.
+     */
+    Iterator<Map.Entry<Object, Object>> entryIterator() {
+        return map.entrySet().iterator();
+    }
+}
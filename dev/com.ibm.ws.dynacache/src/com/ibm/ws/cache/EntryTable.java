@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import java.util.Enumeration;
+
+/**
+ * The table of cache ids and aliases to cache entries of a memory cache.
+ * It is a NonSyncHashtable, or a ConcurrentEntryTable when the cache uses
+ * sampled eviction.
+ */
+interface EntryTable {
+
+    int size();
+
+    boolean isEmpty();
+
+    Enumeration keys();
+
+    Enumeration elements();
+
+    boolean contains(Object value);
+
+    boolean containsKey(Object key);
+
+    Object get(Object key);
+
+    Object put(Object key, Object value);
+
+    Object remove(Object key);
+
+    void clear();
+}
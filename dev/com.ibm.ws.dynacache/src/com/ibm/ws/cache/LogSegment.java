@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.ws.cache.util.SerializationUtility;
+
+/**
+ * One memory mapped file of the segment log of a {@link SegmentLogOnDisk}.
+ * <p>
+ * A segment is a fixed size file that records are only ever appended to. A
+ * record holds the serialized cache id, the serialized cache entry and the
+ * serialized cache value, or the cache id and the cache id it is an alias of,
+ * or only the cache id when it marks the removal of the id (a tombstone).
+ * <p>
+ * When the segment is full it is sealed: a footer with the key, location and
+ * expiration time of each record is written after the last record, and a
+ * trailer at the end of the file points to the footer. At startup the index is
+ * rebuilt from the footers, without reading the records themselves.
+ * <p>
+ * The file layout is:
+ *
+ * <pre>
+ * header  : magic(4) version(4) sequence(8) state(4) reserved(4)
+ * record  : length(4) type(1) expiration(8) validatorExpiration(8) valueHashcode(4)
+ *           keyLength(4) entryLength(4) valueLength(4) key entry value
+ * footer  : for each record offset(4) length(4) type(1) expiration(8)
+ *           validatorExpiration(8) valueHashcode(4) keyLength(4) key
+ * trailer : footerOffset(4) footerCount(4) magic(8)
+ * </pre>
+ *
+ * Segments are not thread safe. The segment log guards them with its lock.
+ */
+class LogSegment {
+
+    private static TraceComponent tc = Tr.register(LogSegment.class, "WebSphere Dynamic Cache", "com.ibm.ws.cache.resources.dynacache");
+
+    static final int MAGIC = 0x44594e4c;
+    static final int VERSION = 1;
+    static final long TRAILER_MAGIC = 0x44594e4c464f4f54L;
+
+    static final int HEADER_SIZE = 24;
+    static final int TRAILER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 37;
+    static final int FOOTER_ENTRY_SIZE = 33;
+
+    private static final int STATE_OFFSET = 16;
+    private static final int EXPIRATION_OFFSET = 5;
+    private static final int VALIDATOR_EXPIRATION_OFFSET = 13;
+    private static final int KEY_LENGTH_OFFSET = 25;
+
+    // record types
+    static final byte ENTRY = 1;
+    static final byte ALIAS = 2;
+    static final byte TOMBSTONE = 3;
+    static final byte ALIAS_TOMBSTONE = 4;
+
+    // segment states
+    static final int FREE = 0;
+    static final int ACTIVE = 1;
+    static final int SEALED = 2;
+
+    final File file;
+    final int capacity;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+
+    long sequence;
+    int state;
+    int writePosition = HEADER_SIZE;
+    // bytes of records the index still refers to
+    long liveBytes = 0;
+    // set while the compactor moves the live records out of this segment
+    boolean compacting = false;
+    // the records in the order they were appended, written to the footer on seal
+    final List<Record> records = new ArrayList<Record>();
+    private int footerSize = 0;
+    private boolean closed = false;
+
+    private LogSegment(File file, RandomAccessFile raf, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.raf = raf;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a segment file of the given size and makes it the active segment.
+     */
+    static LogSegment create(File file, int capacity, long sequence) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(capacity);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            LogSegment segment = new LogSegment(file, raf, buffer, capacity);
+            segment.activate(sequence);
+            return segment;
+        } catch (IOException ex) {
+            raf.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens an existing segment file. The records of a sealed segment are then
+     * read from its footer with {@link #readFooter(String)}.
+     */
+    static LogSegment open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long length = raf.length();
+            if (length < HEADER_SIZE + TRAILER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("The segment file " + file + " has an invalid length " + length);
+            }
+            int capacity = (int) length;
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("The file " + file + " is not a disk cache segment");
+            }
+            LogSegment segment = new LogSegment(file, raf, buffer, capacity);
+            segment.sequence = buffer.getLong(8);
+            segment.state = buffer.getInt(STATE_OFFSET);
+            return segment;
+        } catch (IOException ex) {
+            raf.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of bytes a record with the given parts takes in a segment.
+     */
+    static int recordLength(int keyLength, int entryLength, int valueLength) {
+        return RECORD_HEADER_SIZE + keyLength + entryLength + valueLength;
+    }
+
+    /**
+     * Returns true if a record of the given length fits in an empty segment of the given capacity.
+     */
+    static boolean fitsEmpty(int capacity, int length, int keyLength) {
+        return (long) HEADER_SIZE + length + FOOTER_ENTRY_SIZE + keyLength + TRAILER_SIZE <= capacity;
+    }
+
+    /**
+     * Returns true if a record of the given length still fits in the segment,
+     * while leaving the given number of bytes free.
+     */
+    boolean hasRoom(int length, int keyLength, int reserve) {
+        return (long) writePosition + length + footerSize + FOOTER_ENTRY_SIZE + keyLength + TRAILER_SIZE + reserve <= capacity;
+    }
+
+    /**
+     * Returns the number of bytes of the records appended to the segment.
+     */
+    int usedBytes() {
+        return writePosition - HEADER_SIZE;
+    }
+
+    /**
+     * Returns the percentage of the appended bytes that the index no longer refers to.
+     */
+    int deadPercentage() {
+        int used = usedBytes();
+        if (used <= 0) {
+            return 0;
+        }
+        return (int) ((used - liveBytes) * 100 / used);
+    }
+
+    /**
+     * Appends a record to the segment. The caller checks {@link #hasRoom} first.
+     */
+    Record append(byte type, Object id, byte[] key, byte[] entry, byte[] value, long expirationTime, long validatorExpirationTime, int valueHashcode) {
+        int entryLength = entry == null ? 0 : entry.length;
+        int valueLength = value == null ? 0 : value.length;
+        int length = recordLength(key.length, entryLength, valueLength);
+        ByteBuffer out = buffer.duplicate();
+        out.position(writePosition);
+        out.putInt(length);
+        out.put(type);
+        out.putLong(expirationTime);
+        out.putLong(validatorExpirationTime);
+        out.putInt(valueHashcode);
+        out.putInt(key.length);
+        out.putInt(entryLength);
+        out.putInt(valueLength);
+        out.put(key);
+        if (entry != null) {
+            out.put(entry);
+        }
+        if (value != null) {
+            out.put(value);
+        }
+        return added(new Record(this, writePosition, length, type, id, key, expirationTime, validatorExpirationTime, valueHashcode));
+    }
+
+    /**
+     * Appends a copy of a record of another segment, with new expiration times.
+     * The caller checks {@link #hasRoom} first.
+     */
+    Record append(Record from, long expirationTime, long validatorExpirationTime) {
+        byte[] data = from.segment.read(from.offset, from.length);
+        ByteBuffer patch = ByteBuffer.wrap(data);
+        patch.putLong(EXPIRATION_OFFSET, expirationTime);
+        patch.putLong(VALIDATOR_EXPIRATION_OFFSET, validatorExpirationTime);
+        ByteBuffer out = buffer.duplicate();
+        out.position(writePosition);
+        out.put(data);
+        Record record = new Record(this, writePosition, from.length, from.type, from.id, from.key, expirationTime, validatorExpirationTime, from.valueHashcode);
+        record.target = from.target;
+        return added(record);
+    }
+
+    private Record added(Record record) {
+        writePosition += record.length;
+        footerSize += FOOTER_ENTRY_SIZE + record.key.length;
+        if (record.type == ENTRY || record.type == ALIAS) {
+            liveBytes += record.length;
+        }
+        records.add(record);
+        return record;
+    }
+
+    byte[] read(int offset, int length) {
+        byte[] data = new byte[length];
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset);
+        in.get(data);
+        return data;
+    }
+
+    /**
+     * Reads the serialized cache entry of an entry record, or the serialized
+     * cache id of an alias record.
+     */
+    byte[] readEntry(Record record) {
+        int keyLength = buffer.getInt(record.offset + KEY_LENGTH_OFFSET);
+        int entryLength = buffer.getInt(record.offset + KEY_LENGTH_OFFSET + 4);
+        return read(record.offset + RECORD_HEADER_SIZE + keyLength, entryLength);
+    }
+
+    /**
+     * Reads the serialized cache value of an entry record.
+     */
+    byte[] readValue(Record record) {
+        int keyLength = buffer.getInt(record.offset + KEY_LENGTH_OFFSET);
+        int entryLength = buffer.getInt(record.offset + KEY_LENGTH_OFFSET + 4);
+        int valueLength = buffer.getInt(record.offset + KEY_LENGTH_OFFSET + 8);
+        return read(record.offset + RECORD_HEADER_SIZE + keyLength + entryLength, valueLength);
+    }
+
+    /**
+     * Writes the footer and the trailer and marks the segment sealed, after
+     * which nothing is appended to it.
+     */
+    void seal() {
+        ByteBuffer out = buffer.duplicate();
+        out.position(writePosition);
+        for (Record record : records) {
+            out.putInt(record.offset);
+            out.putInt(record.length);
+            out.put(record.type);
+            out.putLong(record.expirationTime);
+            out.putLong(record.validatorExpirationTime);
+            out.putInt(record.valueHashcode);
+            out.putInt(record.key.length);
+            out.put(record.key);
+        }
+        out.position(capacity - TRAILER_SIZE);
+        out.putInt(writePosition);
+        out.putInt(records.size());
+        out.putLong(TRAILER_MAGIC);
+        setState(SEALED);
+        buffer.force();
+    }
+
+    /**
+     * Reads the records of a sealed segment from its footer, and the cache id
+     * of each alias record.
+     *
+     * @throws IOException if the segment was not sealed or its footer is not valid.
+     */
+    List<Record> readFooter(String cacheName) throws IOException, ClassNotFoundException {
+        if (state != SEALED || buffer.getLong(capacity - 8) != TRAILER_MAGIC) {
+            throw new IOException("The segment file " + file + " was not sealed");
+        }
+        int footerOffset = buffer.getInt(capacity - TRAILER_SIZE);
+        int count = buffer.getInt(capacity - TRAILER_SIZE + 4);
+        if (footerOffset < HEADER_SIZE || footerOffset > capacity - TRAILER_SIZE || count < 0) {
+            throw new IOException("The segment file " + file + " has an invalid footer");
+        }
+        ByteBuffer in = buffer.duplicate();
+        in.position(footerOffset);
+        in.limit(capacity - TRAILER_SIZE);
+        for (int i = 0; i < count; i++) {
+            int offset = in.getInt();
+            int length = in.getInt();
+            byte type = in.get();
+            long expirationTime = in.getLong();
+            long validatorExpirationTime = in.getLong();
+            int valueHashcode = in.getInt();
+            byte[] key = new byte[in.getInt()];
+            in.get(key);
+            if (offset < HEADER_SIZE || offset + length > footerOffset) {
+                throw new IOException("The segment file " + file + " has an invalid footer entry at " + offset);
+            }
+            Object id = SerializationUtility.deserialize(key, cacheName);
+            Record record = new Record(this, offset, length, type, id, key, expirationTime, validatorExpirationTime, valueHashcode);
+            if (type == ALIAS) {
+                record.target = SerializationUtility.deserialize(readEntry(record), cacheName);
+            }
+            if (type == ENTRY || type == ALIAS) {
+                liveBytes += length;
+            }
+            records.add(record);
+            footerSize += FOOTER_ENTRY_SIZE + key.length;
+        }
+        writePosition = footerOffset;
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "readFooter() file=" + file + " sequence=" + sequence + " records=" + count);
+        }
+        return records;
+    }
+
+    /**
+     * Makes an empty segment the active segment under a new sequence number.
+     */
+    void activate(long sequence) {
+        this.sequence = sequence;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, sequence);
+        buffer.putLong(capacity - 8, 0);
+        setState(ACTIVE);
+    }
+
+    /**
+     * Drops all records of the segment so that it can be activated again.
+     */
+    void free() {
+        records.clear();
+        writePosition = HEADER_SIZE;
+        footerSize = 0;
+        liveBytes = 0;
+        compacting = false;
+        buffer.putLong(capacity - 8, 0);
+        setState(FREE);
+    }
+
+    private void setState(int state) {
+        this.state = state;
+        buffer.putInt(STATE_OFFSET, state);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file and releases the mapping. Nothing may be read from the
+     * segment afterwards. Closing a closed segment does nothing.
+     */
+    void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+        } finally {
+            try {
+                raf.close();
+            } finally {
+                unmap(buffer);
+            }
+        }
+    }
+
+    /**
+     * Releases a mapping right away instead of when the buffer is garbage collected,
+     * because a file that is still mapped cannot be deleted on Windows. If the JVM
+     * offers no way to do so, the mapping is left to the garbage collector.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        AccessController.doPrivileged(new PrivilegedAction<Object>() {
+            @Override
+            public Object run() {
+                try {
+                    Class<?> unsafeClass = Class.forName("sun.misc.Unsafe", true, ClassLoader.getSystemClassLoader());
+                    Method invokeCleaner = null;
+                    try {
+                        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                    } catch (NoSuchMethodException ex) {
+                        // Java 8 has no Unsafe.invokeCleaner, the cleaner of the buffer is used instead
+                    }
+                    if (invokeCleaner != null) {
+                        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                        theUnsafe.setAccessible(true);
+                        invokeCleaner.invoke(theUnsafe.get(null), buffer);
+                    } else {
+                        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                        cleanerMethod.setAccessible(true);
+                        Object cleaner = cleanerMethod.invoke(buffer);
+                        if (cleaner != null) {
+                            cleaner.getClass().getMethod("clean").invoke(cleaner);
+                        }
+                    }
+                } catch (Throwable t) {
+                    if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                        Tr.debug(tc, "unmap() the mapping is released when the buffer is garbage collected: " + t);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "LogSegment[" + file.getName() + " sequence=" + sequence + " state=" + state + " used=" + usedBytes() + " live=" + liveBytes + "]";
+    }
+
+    /**
+     * The location and metadata of a record, which the index of the segment log
+     * maps the cache id to.
+     */
+    static final class Record {
+        final LogSegment segment;
+        final int offset;
+        final int length;
+        final byte type;
+        final Object id;
+        final byte[] key;
+        final long expirationTime;
+        final long validatorExpirationTime;
+        final int valueHashcode;
+        // the cache id of an alias
+        Object target;
+
+        Record(LogSegment segment, int offset, int length, byte type, Object id, byte[] key, long expirationTime, long validatorExpirationTime, int valueHashcode) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+            this.id = id;
+            this.key = key;
+            this.expirationTime = expirationTime;
+            this.validatorExpirationTime = validatorExpirationTime;
+            this.valueHashcode = valueHashcode;
+        }
+
+        boolean isExpired(long now) {
+            return expirationTime > 0 && expirationTime <= now;
+        }
+    }
+}
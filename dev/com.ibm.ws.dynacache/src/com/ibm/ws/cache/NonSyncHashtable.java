@@ -44,7 +44,7 @@ class NonSyncHashtableEntry implements Serializable {
  *     <li>It is not Serializable or Cloneable. 
  * </ul>
  */
-public class NonSyncHashtable implements Serializable {
+public class NonSyncHashtable implements Serializable, EntryTable {
     private static final long serialVersionUID = 1342185474L;
 
    /**
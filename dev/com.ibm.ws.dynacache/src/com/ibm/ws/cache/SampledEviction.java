@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+
+/**
+ * Picks the entries a cache evicts by sampling, in place of the LRU buckets.
+ * <p>
+ * Each write to the cache advances a logical clock and stamps the entry
+ * written with it. A cache hit only copies the current clock value into the
+ * entry, without taking the cache lock, so hits no longer serialize on it.
+ * <p>
+ * To evict, the sampler walks the entry table from where it last stopped and
+ * takes the next few entries that are neither pinned nor being removed. Of those
+ * it picks the one with the lowest score, where the score is the stamp plus the
+ * priority times the cache size. An entry of priority p thus outlives unused
+ * entries of priority 0 by about p times the cache size in writes, much as it
+ * stays p rounds longer in the LRU buckets.
+ * <p>
+ * The clock is advanced and victims are picked while holding the cache lock.
+ */
+class SampledEviction {
+
+    private static TraceComponent tc = Tr.register(SampledEviction.class, "WebSphere Dynamic Cache", "com.ibm.ws.cache.resources.dynacache");
+
+    private final ConcurrentEntryTable entryTable;
+    private final int sampleSize;
+    private final long priorityWeight;
+
+    /* advanced under the cache lock, read on every hit */
+    private volatile long clock = 0;
+
+    /* where the last sample stopped, only used under the cache lock */
+    private Iterator<Map.Entry<Object, Object>> hand;
+
+    SampledEviction(ConcurrentEntryTable entryTable, int sampleSize, int cacheSize) {
+        this.entryTable = entryTable;
+        this.sampleSize = Math.max(1, sampleSize);
+        this.priorityWeight = Math.max(1, cacheSize);
+    }
+
+    /**
+     * Records a cache hit on the entry. Called without the cache lock.
+     */
+    void accessed(CacheEntry cacheEntry) {
+        long now = clock;
+        if (cacheEntry.accessStamp != now) {
+            cacheEntry.accessStamp = now;
+        }
+    }
+
+    /**
+     * Records a write of the entry. Called with the cache lock held.
+     */
+    void written(CacheEntry cacheEntry) {
+        cacheEntry.accessStamp = ++clock;
+    }
+
+    /**
+     * Picks the entry to evict from a sample of the cache. Called with the
+     * cache lock held.
+     *
+     * @return the entry with the lowest score in the sample, or null if every
+     *         entry of the cache is pinned or being removed.
+     */
+    CacheEntry selectVictim() {
+        CacheEntry victim = null;
+        long victimScore = Long.MAX_VALUE;
+        int sampled = 0;
+        // look at each mapping of the table at most once for one victim
+        int remaining = entryTable.size();
+        boolean wrapped = false;
+        while (sampled < sampleSize && remaining > 0) {
+            if (hand == null || !hand.hasNext()) {
+                if (wrapped) {
+                    break;
+                }
+                hand = entryTable.entryIterator();
+                wrapped = true;
+                if (!hand.hasNext()) {
+                    break;
+                }
+            }
+            Map.Entry<Object, Object> mapping = hand.next();
+            remaining--;
+            CacheEntry cacheEntry = (CacheEntry) mapping.getValue();
+            Object id = cacheEntry.id;
+            // aliases map to the entry of their cache id, which is sampled under that id
+            if (id == null || !id.equals(mapping.getKey())) {
+                continue;
+            }
+            if (cacheEntry.getRefCount() != 0 || cacheEntry.pendingRemoval || cacheEntry.removeWhenUnpinned) {
+                continue;
+            }
+            sampled++;
+            long score = cacheEntry.accessStamp + cacheEntry.priority * priorityWeight;
+            if (score < victimScore) {
+                victim = cacheEntry;
+                victimScore = score;
+            }
+        }
+        if (victim == null && TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "selectVictim() no entry to evict in " + entryTable.size() + " mappings");
+        }
+        return victim;
+    }
+}
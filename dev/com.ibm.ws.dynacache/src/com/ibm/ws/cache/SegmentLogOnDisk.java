@@ -0,0 +1,2080 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.ibm.websphere.cache.InvalidationEvent;
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.websphere.ras.annotation.Trivial;
+import com.ibm.ws.cache.LogSegment.Record;
+import com.ibm.ws.cache.intf.DCache;
+import com.ibm.ws.cache.stat.CachePerf;
+import com.ibm.ws.cache.util.ExceptionUtility;
+import com.ibm.ws.cache.util.SerializationUtility;
+
+/**
+ * A disk cache that appends cache entries to a log of memory mapped segment
+ * files, in place of the hashtable on disk of {@link CacheOnDisk}.
+ * <p>
+ * Every write appends a record to the active segment, and every removal
+ * appends a tombstone, so a write is a copy into mapped memory rather than
+ * random writes to the hashtable, the file manager and the volumes on disk.
+ * The location of the live record of each cache id and alias is kept in an
+ * in-memory index, and reads copy the record straight out of the mapping.
+ * <p>
+ * Records that are overwritten or removed leave dead space behind. When the
+ * dead space of a sealed segment passes the compaction threshold, a background
+ * task copies the records that are still live to the active segment, and the
+ * segment is reused for later writes.
+ * <p>
+ * Each sealed segment ends with a footer that lists the keys and locations of
+ * its records. At startup the index is rebuilt by replaying the footers in
+ * segment order, without reading the records. The dependency ids and templates
+ * of the entries on disk are kept in memory and are written to a file when the
+ * disk cache is closed. As with {@link CacheOnDisk}, the disk cache files are
+ * reinitialized if the JVM ended without closing the disk cache.
+ * <p>
+ * Locking: the index and the segments are guarded by a read write lock. The
+ * lock is never held while calling back into the cache, so the cache may call
+ * this class while holding its own lock.
+ */
+public class SegmentLogOnDisk implements DynacacheOnDisk {
+
+    private static TraceComponent tc = Tr.register(SegmentLogOnDisk.class, "WebSphere Dynamic Cache", "com.ibm.ws.cache.resources.dynacache");
+
+    // fileNames
+    public final static String SEGMENT_LOG_DIRECTORY = "segmentlog";
+    public final static String SEGMENT_FILE_PREFIX = "segment";
+    public final static String SEGMENT_FILE_SUFFIX = ".log";
+    public final static String DEPENDENCY_FILENAME = "dependencies.ser";
+
+    // space kept free in the active segment for the tombstones of removals
+    private final static int TOMBSTONE_RESERVE = 64 * 1024;
+    // number of records the compactor moves each time it takes the lock
+    final static int COMPACTION_BATCH = 256;
+    // interval of the scan for expired entries when no cleanup frequency is set
+    private final static long DEFAULT_CLEANUP_INTERVAL = 24 * 60 * 60 * 1000;
+
+    protected DCache cache = null;
+    protected String cacheName = null;
+    protected String swapDirPath = null;
+    private String definedLocation = "";
+    private String alternateLocation = "";
+    private String inProgressFileName = null;
+    private String dependencyFileName = null;
+
+    protected boolean disableDependencyId = false;
+    protected boolean disableTemplatesSupport = false;
+    protected boolean ignoreValueInInvalidationEvent = false;
+    protected int diskCachePerformanceLevel = CacheConfig.DEFAULT_DISKCACHE_PERFORMANCE_LEVEL;
+    protected int cleanupFrequency = CacheConfig.DEFAULT_DISKCACHE_CLEANUP_FREQUENCY;
+    protected int evictionPolicy = CacheConfig.DEFAULT_DISKCACHE_EVICTION_POLICY;
+    protected int segmentSize;
+    protected int compactionThreshold;
+    protected int maxSegments = Integer.MAX_VALUE;
+    protected DiskCacheSizeInfo diskCacheSizeInfo = null;
+    protected int startState = CacheOnDisk.START_NONE;
+
+    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    // guarded by rwLock
+    private final ConcurrentHashMap<Object, Record> entries = new ConcurrentHashMap<Object, Record>();
+    private final ConcurrentHashMap<Object, Record> aliases = new ConcurrentHashMap<Object, Record>();
+    private final List<LogSegment> segments = new ArrayList<LogSegment>();
+    private final LinkedList<LogSegment> freeSegments = new LinkedList<LogSegment>();
+    private LogSegment activeSegment = null;
+    private long nextSequence = 1;
+    private volatile long currentCacheSizeInBytes = 0;
+    // true if a removal could not be logged, so the files must not be reused after a restart
+    private boolean unloggedRemovals = false;
+    private boolean closed = false;
+
+    // guarded by synchronizing on the table
+    private final HashMap<Object, ValueSet> dependencyTable = new HashMap<Object, ValueSet>();
+    private final HashMap<Object, ValueSet> templateTable = new HashMap<Object, ValueSet>();
+
+    private final RangeCursor cacheIdsCursor = new RangeCursor();
+    private final RangeCursor dependencyCursor = new RangeCursor();
+    private final RangeCursor templateCursor = new RangeCursor();
+    private final RangeCursor hashcodeCursor = new RangeCursor();
+
+    private final AtomicBoolean compactionRunning = new AtomicBoolean(false);
+    private final AtomicBoolean garbageCollectorRunning = new AtomicBoolean(false);
+    private final Object cleanupMonitor = new Object() {
+    };
+    private boolean cleanupRunning = false;
+    protected volatile boolean stopping = false;
+    protected volatile Exception diskCacheException = null;
+
+    public SegmentLogOnDisk(CacheConfig cacheConfig, DCache c) {
+        final String methodName = "constructor()";
+        if (cacheConfig.diskOffloadLocation == null) {
+            cacheConfig.setOffloadOffloadLocationAndProcess("");
+        }
+        this.cache = c;
+        this.cacheName = c.getCacheName();
+        this.cleanupFrequency = cacheConfig.htodCleanupFrequency;
+        this.disableDependencyId = cacheConfig.disableDependencyId;
+        if (cacheConfig.enableServletSupport) {
+            this.disableTemplatesSupport = cacheConfig.disableTemplatesSupport;
+        } else {
+            this.disableTemplatesSupport = true;
+        }
+        this.ignoreValueInInvalidationEvent = cacheConfig.ignoreValueInInvalidationEvent;
+        this.diskCachePerformanceLevel = cacheConfig.diskCachePerformanceLevel;
+        this.evictionPolicy = cacheConfig.diskCacheEvictionPolicy;
+
+        int segmentSizeInMB = cacheConfig.diskCacheSegmentSizeInMB;
+        int compactionThreshold = cacheConfig.diskCacheCompactionThreshold;
+        int diskCacheSizeLimit = cacheConfig.diskCacheSize;
+        int diskCacheSizeInGBLimit = cacheConfig.diskCacheSizeInGB;
+        int diskCacheEntrySizeInMBLimit = cacheConfig.diskCacheEntrySizeInMB;
+        int highThreshold = cacheConfig.diskCacheHighThreshold;
+        int lowThreshold = cacheConfig.diskCacheLowThreshold;
+        this.diskCacheSizeInfo = new DiskCacheSizeInfo(this.cacheName);
+
+        if (segmentSizeInMB < CacheConfig.MIN_DISKCACHE_SEGMENT_SIZE_MB || segmentSizeInMB > CacheConfig.MAX_DISKCACHE_SEGMENT_SIZE_MB) {
+            Tr.warning(tc, "DYNA0069W", new Object[] { new Integer(segmentSizeInMB), "diskCacheSegmentSizeInMB", this.cacheName,
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_SEGMENT_SIZE_MB), new Integer(CacheConfig.MAX_DISKCACHE_SEGMENT_SIZE_MB),
+                                                      new Integer(CacheConfig.DEFAULT_DISKCACHE_SEGMENT_SIZE_MB) });
+            segmentSizeInMB = CacheConfig.DEFAULT_DISKCACHE_SEGMENT_SIZE_MB;
+        }
+        if (compactionThreshold < CacheConfig.MIN_DISKCACHE_COMPACTION_THRESHOLD || compactionThreshold > CacheConfig.MAX_DISKCACHE_COMPACTION_THRESHOLD) {
+            Tr.warning(tc, "DYNA0069W", new Object[] { new Integer(compactionThreshold), "diskCacheCompactionThreshold", this.cacheName,
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_COMPACTION_THRESHOLD),
+                                                      new Integer(CacheConfig.MAX_DISKCACHE_COMPACTION_THRESHOLD),
+                                                      new Integer(CacheConfig.DEFAULT_DISKCACHE_COMPACTION_THRESHOLD) });
+            compactionThreshold = CacheConfig.DEFAULT_DISKCACHE_COMPACTION_THRESHOLD;
+        }
+        this.segmentSize = (int) (segmentSizeInMB * DiskCacheSizeInfo.MB_SIZE);
+        this.compactionThreshold = compactionThreshold;
+
+        if (this.evictionPolicy < CacheConfig.MIN_DISKCACHE_EVICTION_POLICY || this.evictionPolicy > CacheConfig.MAX_DISKCACHE_EVICTION_POLICY) {
+            Tr.warning(tc, "DYNA0069W", new Object[] { new Integer(this.evictionPolicy), "diskCacheEvictionPolicy", this.cacheName,
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_EVICTION_POLICY), new Integer(CacheConfig.MAX_DISKCACHE_EVICTION_POLICY),
+                                                      new Integer(CacheConfig.DEFAULT_DISKCACHE_EVICTION_POLICY) });
+            this.evictionPolicy = CacheConfig.DEFAULT_DISKCACHE_EVICTION_POLICY;
+        }
+        if (diskCacheSizeLimit < 0 || (diskCacheSizeLimit > 0 && diskCacheSizeLimit < CacheConfig.MIN_DISKCACHE_SIZE)) {
+            Tr.warning(tc, "DYNA0069W", new Object[] { new Integer(diskCacheSizeLimit), "diskCacheSize", this.cacheName,
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_SIZE), new Integer(CacheConfig.MAX_DISKCACHE_SIZE),
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_SIZE) });
+            diskCacheSizeLimit = CacheConfig.MIN_DISKCACHE_SIZE;
+        }
+        if (diskCacheSizeInGBLimit < 0 || (diskCacheSizeInGBLimit > 0 && diskCacheSizeInGBLimit < CacheConfig.MIN_DISKCACHE_SIZE_GB)) {
+            Tr.warning(tc, "DYNA0069W", new Object[] { new Integer(diskCacheSizeInGBLimit), "diskCacheSizeInGB", this.cacheName,
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_SIZE_GB), new Integer(CacheConfig.MAX_DISKCACHE_SIZE_GB),
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_SIZE_GB) });
+            diskCacheSizeInGBLimit = CacheConfig.MIN_DISKCACHE_SIZE_GB;
+        }
+        if (diskCacheEntrySizeInMBLimit < 0) {
+            Tr.warning(tc, "DYNA0069W", new Object[] { new Integer(diskCacheEntrySizeInMBLimit), "diskCacheEntrySizeInMB", this.cacheName,
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_ENTRY_SIZE_MB), new Integer(CacheConfig.MAX_DISKCACHE_ENTRY_SIZE_MB),
+                                                      new Integer(CacheConfig.MIN_DISKCACHE_ENTRY_SIZE_MB) });
+            diskCacheEntrySizeInMBLimit = CacheConfig.MIN_DISKCACHE_ENTRY_SIZE_MB;
+        }
+        if (this.evictionPolicy != CacheConfig.EVICTION_NONE) {
+            if (highThreshold < CacheConfig.MIN_HIGH_THRESHOLD || highThreshold > CacheConfig.MAX_HIGH_THRESHOLD
+                || lowThreshold < CacheConfig.MIN_LOW_THRESHOLD || lowThreshold > CacheConfig.MAX_LOW_THRESHOLD || highThreshold <= lowThreshold) {
+                Tr.info(tc, "DYNA0068W", new Object[] { this.cacheName });
+                highThreshold = CacheConfig.DEFAULT_HIGH_THRESHOLD;
+                lowThreshold = CacheConfig.DEFAULT_LOW_THRESHOLD;
+            }
+        }
+
+        String diskCacheName = this.cacheName.replace('/', '_').replace('\\', '_');
+        if (!findSwapDirPath(cacheConfig.diskOffloadLocation, diskCacheName)) {
+            return;
+        }
+
+        boolean flushToDiskOnStop = cacheConfig.flushToDiskOnStop;
+        if (this.cacheName.equals(DCacheBase.DEFAULT_CACHE_NAME)) {
+            String systemProperty = System.getProperty("com.ibm.ws.cache.flushToDiskOnStop");
+            if (systemProperty != null && systemProperty.equalsIgnoreCase("true")) {
+                flushToDiskOnStop = true;
+            }
+        }
+        if (flushToDiskOnStop)
+            Tr.info(tc, "DYNA0060I", new Object[] { this.cacheName });
+        else
+            Tr.info(tc, "DYNA0061I", new Object[] { this.cacheName });
+
+        this.inProgressFileName = swapDirPath + File.separator + CacheOnDisk.HTOD_IN_PROGRESS_FILENAME;
+        this.dependencyFileName = swapDirPath + File.separator + DEPENDENCY_FILENAME;
+
+        File df = new File(this.inProgressFileName);
+        if (df.exists()) {
+            // Disk cache files have been removed because of unexpected JVM termination.
+            Tr.warning(tc, "DYNA0056W");
+            deleteDiskCacheFiles();
+        }
+        createInProgressFile();
+
+        if (diskCacheSizeInGBLimit > 0) {
+            this.maxSegments = (int) Math.max(1, diskCacheSizeInGBLimit * DiskCacheSizeInfo.GB_SIZE / this.segmentSize);
+        }
+
+        try {
+            long start = System.nanoTime();
+            load();
+            if (this.entries.size() > 0) {
+                Tr.info(tc, "DYNA0074I", new Object[] { this.cacheName, new Integer(this.entries.size()), new Integer(this.segments.size() - 1),
+                                                       new Long((System.nanoTime() - start) / 1000000) });
+            }
+        } catch (Throwable t) {
+            com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.SegmentLogOnDisk", "226", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(t));
+            Tr.error(tc, "DYNA0055E", new Object[] { this.cacheName, definedLocation, alternateLocation });
+            c.setSwapToDisk(false);
+            return;
+        }
+
+        // the files already on disk may take more than the configured size
+        if (diskCacheSizeInGBLimit > 0 && this.segments.size() > this.maxSegments) {
+            this.maxSegments = this.segments.size();
+            diskCacheSizeInGBLimit = (int) ((this.maxSegments * (long) this.segmentSize + DiskCacheSizeInfo.GB_SIZE - 1) / DiskCacheSizeInfo.GB_SIZE);
+            Tr.warning(tc, "DYNA0071W", new Object[] { this.cacheName, new Integer(diskCacheSizeInGBLimit), swapDirPath });
+        }
+
+        c.setEnableDiskCacheSizeInBytesChecking(diskCacheSizeInGBLimit > 0);
+        this.diskCacheSizeInfo.initialize(diskCacheSizeLimit, diskCacheEntrySizeInMBLimit, diskCacheSizeInGBLimit, diskCacheSizeInGBLimit, 0, 0, highThreshold,
+                                          lowThreshold);
+
+        if (this.evictionPolicy != CacheConfig.EVICTION_NONE && diskCacheSizeLimit == 0 && diskCacheSizeInGBLimit == 0) {
+            this.evictionPolicy = CacheConfig.EVICTION_NONE;
+            Tr.error(tc, "DYNA0070W", new Object[] { this.cacheName });
+        }
+
+        // restore cache config in case of config has changed.
+        cacheConfig.disableDependencyId = this.disableDependencyId;
+        cacheConfig.disableTemplatesSupport = this.disableTemplatesSupport;
+        cacheConfig.diskCacheEvictionPolicy = this.evictionPolicy;
+        cacheConfig.diskCacheSegmentSizeInMB = segmentSizeInMB;
+        cacheConfig.diskCacheCompactionThreshold = this.compactionThreshold;
+        cacheConfig.diskCacheSize = diskCacheSizeLimit;
+        cacheConfig.diskCacheSizeInGB = diskCacheSizeInGBLimit;
+        cacheConfig.diskCacheEntrySizeInMB = diskCacheEntrySizeInMBLimit;
+        cacheConfig.diskCacheHighThreshold = highThreshold;
+        cacheConfig.diskCacheLowThreshold = lowThreshold;
+
+        StringBuffer configMsg = new StringBuffer();
+        configMsg.append("  DiskCacheSegmentLog=true");
+        configMsg.append("  DiskCacheSegmentSizeInMB=");
+        configMsg.append(segmentSizeInMB);
+        configMsg.append("  DiskCacheCompactionThreshold=");
+        configMsg.append(this.compactionThreshold);
+        if (diskCacheSizeLimit > 0) {
+            configMsg.append("  DiskCacheSize=");
+            configMsg.append(diskCacheSizeLimit);
+        }
+        if (diskCacheSizeInGBLimit > 0) {
+            configMsg.append("  DiskCacheSizeInGB=");
+            configMsg.append(diskCacheSizeInGBLimit);
+        }
+        if (diskCacheEntrySizeInMBLimit > 0) {
+            configMsg.append("  DiskCacheEntryInMB=");
+            configMsg.append(diskCacheEntrySizeInMBLimit);
+        }
+        configMsg.append("  DiskCachePerformanceLevel=");
+        configMsg.append(this.diskCachePerformanceLevel);
+        configMsg.append("  DiskCacheEvictionPolicy=");
+        configMsg.append(this.evictionPolicy);
+        if (this.evictionPolicy != CacheConfig.EVICTION_NONE) {
+            configMsg.append("  DiskCacheHighThreshold=");
+            configMsg.append(highThreshold);
+            configMsg.append("  DiskCacheLowThreshold=");
+            configMsg.append(lowThreshold);
+        }
+        Tr.info(tc, "DYNA0059I", new Object[] { this.cacheName, configMsg.toString() });
+
+        // remove the expired entries found on disk, and in high performance mode
+        // hand the expiration times of the others to the time limit daemon
+        if (this.entries.size() > 0) {
+            this.startState = CacheOnDisk.START_LPBT_SCAN;
+        }
+        if (this.diskCachePerformanceLevel != CacheConfig.HIGH) {
+            scheduleCleanup();
+        }
+    }
+
+    /**
+     * Call this method to rebuild the index from the footers of the segments on disk.
+     */
+    private void load() throws Exception {
+        final String methodName = "load()";
+        final File dir = new File(swapDirPath);
+        File[] files = AccessController.doPrivileged(new PrivilegedAction<File[]>() {
+            @Override
+            public File[] run() {
+                return dir.listFiles(new FilenameFilter() {
+                    @Override
+                    public boolean accept(File d, String name) {
+                        return name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX);
+                    }
+                });
+            }
+        });
+        List<LogSegment> opened = new ArrayList<LogSegment>();
+        boolean valid = true;
+        try {
+            if (files != null) {
+                for (final File file : files) {
+                    opened.add(AccessController.doPrivileged(new PrivilegedExceptionAction<LogSegment>() {
+                        @Override
+                        public LogSegment run() throws IOException {
+                            return LogSegment.open(file);
+                        }
+                    }));
+                }
+            }
+            Collections.sort(opened, new Comparator<LogSegment>() {
+                @Override
+                public int compare(LogSegment s1, LogSegment s2) {
+                    return s1.sequence < s2.sequence ? -1 : (s1.sequence == s2.sequence ? 0 : 1);
+                }
+            });
+            for (LogSegment segment : opened) {
+                if (segment.state == LogSegment.FREE) {
+                    this.freeSegments.add(segment);
+                    continue;
+                }
+                for (Record record : segment.readFooter(this.cacheName)) {
+                    replay(record);
+                }
+                this.segments.add(segment);
+                this.nextSequence = Math.max(this.nextSequence, segment.sequence + 1);
+            }
+            if (!this.entries.isEmpty() && (!this.disableDependencyId || !this.disableTemplatesSupport)) {
+                valid = readDependencies();
+            }
+        } catch (PrivilegedActionException ex) {
+            valid = false;
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex.getException()));
+        } catch (IOException ex) {
+            valid = false;
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        } catch (ClassNotFoundException ex) {
+            valid = false;
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        }
+
+        if (!valid) {
+            // Disk cache files have been reinitialized because of corrupted data.
+            Tr.warning(tc, "DYNA0056W");
+            for (LogSegment segment : opened) {
+                segment.close();
+            }
+            this.entries.clear();
+            this.aliases.clear();
+            this.segments.clear();
+            this.freeSegments.clear();
+            this.currentCacheSizeInBytes = 0;
+            this.nextSequence = 1;
+            synchronized (this.dependencyTable) {
+                this.dependencyTable.clear();
+            }
+            synchronized (this.templateTable) {
+                this.templateTable.clear();
+            }
+            deleteDiskCacheFiles();
+            createInProgressFile();
+        }
+
+        rwLock.writeLock().lock();
+        try {
+            nextActiveSegment(true);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+        traceDebug(methodName, "cacheName=" + this.cacheName + " segments=" + this.segments.size() + " freeSegments=" + this.freeSegments.size() + " entries="
+                               + this.entries.size() + " aliases=" + this.aliases.size() + " cacheSizeInBytes=" + this.currentCacheSizeInBytes);
+    }
+
+    /**
+     * Call this method to apply a record read from a footer to the index.
+     */
+    private void replay(Record record) {
+        Record old = null;
+        switch (record.type) {
+            case LogSegment.ENTRY:
+                old = this.entries.put(record.id, record);
+                this.currentCacheSizeInBytes += record.length;
+                break;
+            case LogSegment.ALIAS:
+                old = this.aliases.put(record.id, record);
+                break;
+            case LogSegment.TOMBSTONE:
+                old = this.entries.remove(record.id);
+                break;
+            case LogSegment.ALIAS_TOMBSTONE:
+                old = this.aliases.remove(record.id);
+                break;
+        }
+        if (old != null) {
+            released(old);
+        }
+    }
+
+    /**
+     * Call this method to account for a record the index no longer refers to.
+     */
+    private void released(Record record) {
+        record.segment.liveBytes -= record.length;
+        if (record.type == LogSegment.ENTRY) {
+            this.currentCacheSizeInBytes -= record.length;
+        }
+    }
+
+    /**
+     * Call this method to seal the active segment and make a free or a new segment the active segment.
+     * The caller must hold the write lock.
+     *
+     * @param spare true to allow one segment over the limit, so that the compactor can always make progress
+     * @return false if the size limit allows no more segments.
+     */
+    private boolean nextActiveSegment(boolean spare) throws IOException {
+        LogSegment next = this.freeSegments.poll();
+        long sequence = this.nextSequence++;
+        if (next != null) {
+            next.activate(sequence);
+        } else {
+            // without a size limit maxSegments is Integer.MAX_VALUE, which must not overflow
+            int limit = spare && this.maxSegments < Integer.MAX_VALUE ? this.maxSegments + 1 : this.maxSegments;
+            if (this.segments.size() >= limit) {
+                this.nextSequence--;
+                return false;
+            }
+            next = createSegment(sequence);
+        }
+        LogSegment sealed = this.activeSegment;
+        if (sealed != null) {
+            sealed.seal();
+        }
+        this.segments.add(next);
+        this.activeSegment = next;
+        if (sealed != null && sealed.deadPercentage() >= this.compactionThreshold) {
+            invokeCompaction();
+        }
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "nextActiveSegment() cacheName=" + this.cacheName + " sealed=" + sealed + " active=" + next);
+        }
+        return true;
+    }
+
+    private LogSegment createSegment(final long sequence) throws IOException {
+        final File file = new File(swapDirPath, SEGMENT_FILE_PREFIX + sequence + SEGMENT_FILE_SUFFIX);
+        try {
+            return AccessController.doPrivileged(new PrivilegedExceptionAction<LogSegment>() {
+                @Override
+                public LogSegment run() throws IOException {
+                    return LogSegment.create(file, segmentSize, sequence);
+                }
+            });
+        } catch (PrivilegedActionException ex) {
+            throw (IOException) ex.getException();
+        }
+    }
+
+    /**
+     * Call this method to get a segment with room for a record. The caller must hold the write lock.
+     *
+     * @return the active segment, or null if the record does not fit within the size limit.
+     */
+    private LogSegment segmentFor(int length, int keyLength, int reserve, boolean spare) throws IOException {
+        if (this.activeSegment != null && this.activeSegment.hasRoom(length, keyLength, reserve)) {
+            return this.activeSegment;
+        }
+        if (!nextActiveSegment(spare)) {
+            invokeCompaction();
+            return null;
+        }
+        return this.activeSegment.hasRoom(length, keyLength, reserve) ? this.activeSegment : null;
+    }
+
+    /**
+     * Call this method to log the removal of a cache id or an alias. The caller must hold the write lock.
+     */
+    private void logRemoval(Record record) throws IOException {
+        byte type = record.type == LogSegment.ALIAS ? LogSegment.ALIAS_TOMBSTONE : LogSegment.TOMBSTONE;
+        LogSegment segment = segmentFor(LogSegment.recordLength(record.key.length, 0, 0), record.key.length, 0, true);
+        if (segment == null) {
+            // the entry would come back after a restart, so the files are reinitialized instead
+            this.unloggedRemovals = true;
+            return;
+        }
+        segment.append(type, record.id, record.key, null, null, -1, -1, 0);
+    }
+
+    /**
+     * Call this method to close the disk cache. The active segment is sealed
+     * so that the index can be rebuilt from the footers when the server restarts.
+     */
+    @Override
+    public void close(boolean deleteInProgressFile) {
+        final String methodName = "close()";
+        traceDebug(methodName, "cacheName=" + this.cacheName + " deleteInProgressFile=" + deleteInProgressFile);
+        boolean completed = true;
+        rwLock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.stopping = true;
+            if (this.activeSegment != null) {
+                if (this.activeSegment.records.isEmpty()) {
+                    this.segments.remove(this.activeSegment);
+                    this.activeSegment.free();
+                    this.freeSegments.add(this.activeSegment);
+                } else {
+                    this.activeSegment.seal();
+                }
+                this.activeSegment = null;
+            }
+            completed = closeSegments();
+        } catch (Throwable t) {
+            completed = false;
+            com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.close", "455", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(t));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+        if (completed) {
+            completed = writeDependencies();
+        }
+        if (deleteInProgressFile && completed && !this.unloggedRemovals) {
+            deleteInProgressFile();
+        }
+    }
+
+    /**
+     * The dependency ids and templates are written to disk when the disk cache is closed.
+     */
+    @Override
+    public int writeAuxiliaryDepTables() {
+        return HTODDynacache.NO_EXCEPTION;
+    }
+
+    /**
+     * Call this method to write the dependency ids and templates of the entries on disk to the dependency file.
+     */
+    private boolean writeDependencies() {
+        final String methodName = "writeDependencies()";
+        if (this.disableDependencyId && this.disableTemplatesSupport) {
+            return true;
+        }
+        try {
+            final byte[] data;
+            synchronized (this.dependencyTable) {
+                synchronized (this.templateTable) {
+                    data = SerializationUtility.serialize(new Object[] { this.dependencyTable, this.templateTable });
+                }
+            }
+            final File f = new File(this.dependencyFileName);
+            AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
+                @Override
+                public Object run() throws IOException {
+                    FileOutputStream fos = new FileOutputStream(f);
+                    try {
+                        fos.write(data);
+                        fos.getFD().sync();
+                    } finally {
+                        fos.close();
+                    }
+                    return null;
+                }
+            });
+            traceDebug(methodName, "cacheName=" + this.cacheName + " dependencyIds=" + this.dependencyTable.size() + " templates=" + this.templateTable.size());
+            return true;
+        } catch (Throwable t) {
+            com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.writeDependencies", "500", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(t));
+            return false;
+        }
+    }
+
+    /**
+     * Call this method to read the dependency ids and templates of the entries on disk from the dependency file.
+     *
+     * @return false if the file does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean readDependencies() throws IOException, ClassNotFoundException {
+        final File f = new File(this.dependencyFileName);
+        byte[] data;
+        try {
+            data = AccessController.doPrivileged(new PrivilegedExceptionAction<byte[]>() {
+                @Override
+                public byte[] run() throws IOException {
+                    if (!f.exists()) {
+                        return null;
+                    }
+                    byte[] bytes = new byte[(int) f.length()];
+                    FileInputStream fis = new FileInputStream(f);
+                    try {
+                        int offset = 0;
+                        while (offset < bytes.length) {
+                            int read = fis.read(bytes, offset, bytes.length - offset);
+                            if (read < 0) {
+                                throw new IOException("Unexpected end of file " + f);
+                            }
+                            offset += read;
+                        }
+                    } finally {
+                        fis.close();
+                    }
+                    return bytes;
+                }
+            });
+        } catch (PrivilegedActionException ex) {
+            throw (IOException) ex.getException();
+        }
+        if (data == null) {
+            return false;
+        }
+        Object[] tables = (Object[]) SerializationUtility.deserialize(data, this.cacheName);
+        synchronized (this.dependencyTable) {
+            this.dependencyTable.putAll((Map<Object, ValueSet>) tables[0]);
+        }
+        synchronized (this.templateTable) {
+            this.templateTable.putAll((Map<Object, ValueSet>) tables[1]);
+        }
+        return true;
+    }
+
+    /**
+     * Call this method to close the segment files and release their mappings. The caller must hold the write lock.
+     *
+     * @return false if a segment could not be written to the disk.
+     */
+    private boolean closeSegments() {
+        final String methodName = "closeSegments()";
+        boolean completed = true;
+        List<LogSegment> all = new ArrayList<LogSegment>(this.segments);
+        all.addAll(this.freeSegments);
+        for (LogSegment segment : all) {
+            try {
+                segment.close();
+            } catch (IOException ex) {
+                completed = false;
+                com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.closeSegments", "680", this);
+                traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Call this method to delete the disk cache files of this cache instance. Segments that are
+     * still open are closed first, because a mapped file cannot be deleted on Windows.
+     */
+    @Override
+    public void deleteDiskCacheFiles() {
+        final String methodName = "deleteDiskCacheFiles()";
+        final File f = new File(swapDirPath);
+        final SegmentLogOnDisk slod = this;
+        traceDebug(methodName, "cacheName=" + this.cacheName);
+        rwLock.writeLock().lock();
+        try {
+            if (!this.segments.isEmpty() || !this.freeSegments.isEmpty()) {
+                this.closed = true;
+                this.stopping = true;
+                this.activeSegment = null;
+                closeSegments();
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+        AccessController.doPrivileged(new PrivilegedAction<Object>() {
+            @Override
+            public Object run() {
+                // delete files
+                File fl[] = f.listFiles();
+                if (fl != null) {
+                    for (int i = 0; i < fl.length; i++) {
+                        try {
+                            fl[i].delete();
+                        } catch (Throwable t) {
+                            com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.deleteDiskCacheFiles", "574", slod);
+                            traceDebug(methodName, "cacheName=" + slod.cacheName + "\nException: " + ExceptionUtility.getStackTrace(t));
+                        }
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Call this method to create "InProgress" file. It is being used to indicate whether the JVM is aborted abnormally.
+     */
+    private void createInProgressFile() {
+        final String methodName = "createInProgressFile()";
+        final File f = new File(this.inProgressFileName);
+        final SegmentLogOnDisk slod = this;
+        traceDebug(methodName, "cacheName=" + this.cacheName + " file=" + this.inProgressFileName);
+        AccessController.doPrivileged(new PrivilegedAction<Object>() {
+            @Override
+            public Object run() {
+                try {
+                    f.createNewFile();
+                } catch (Throwable t) {
+                    com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.createInProgressFile", "597", slod);
+                    traceDebug(methodName, "cacheName=" + slod.cacheName + "\nException: " + ExceptionUtility.getStackTrace(t));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Call this method to delete "InProgress" file. It is being used to indicate whether the JVM is aborted abnormally.
+     */
+    private void deleteInProgressFile() {
+        final String methodName = "deleteInProgressFile()";
+        final File f = new File(this.inProgressFileName);
+        final SegmentLogOnDisk slod = this;
+        traceDebug(methodName, "cacheName=" + this.cacheName);
+        AccessController.doPrivileged(new PrivilegedAction<Object>() {
+            @Override
+            public Object run() {
+                try {
+                    f.delete();
+                } catch (Throwable t) {
+                    com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.deleteInProgressFile", "619", slod);
+                    traceDebug(methodName, "cacheName=" + slod.cacheName + "\nException: " + ExceptionUtility.getStackTrace(t));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Call this method to stop the background tasks of the disk cache.
+     *
+     * @param completeClear
+     *            - not used, removals are not buffered.
+     */
+    @Override
+    public void stop(boolean completeClear) {
+        this.stopping = true;
+    }
+
+    /**
+     * Call this method to disable the disk cache after a disk exception.
+     */
+    @Override
+    public void stopOnError(Exception ex) {
+        this.cache.setSwapToDisk(false);
+        stop(HTODDynacache.COMPLETE_CLEAR);
+        close(!CacheOnDisk.DELETE_IN_PROGRESS_FILE);
+        Tr.error(tc, "DYNA0072E", new Object[] { this.cacheName, swapDirPath, ex.getMessage() });
+    }
+
+    /**
+     * Call this method to schedule the next scan for expired entries.
+     */
+    private void scheduleCleanup() {
+        long sleepTime = this.cleanupFrequency > 0 ? this.cleanupFrequency * 60L * 1000L : DEFAULT_CLEANUP_INTERVAL;
+        Scheduler.createNonDeferrable(sleepTime, null, new Runnable() {
+            @Override
+            public void run() {
+                if (!stopping) {
+                    invokeDiskCleanup(HTODInvalidationBuffer.SCAN);
+                    scheduleCleanup();
+                }
+            }
+        });
+    }
+
+    /**
+     * Call this method to start a background task that removes the expired entries
+     * if scan is true, and then compacts the segments.
+     */
+    @Override
+    @Trivial
+    public void invokeDiskCleanup(final boolean scan) {
+        if (this.stopping) {
+            return;
+        }
+        synchronized (this.cleanupMonitor) {
+            if (this.cleanupRunning) {
+                return;
+            }
+            this.cleanupRunning = true;
+        }
+        Future<?> future = spawnThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (scan) {
+                        scanExpired();
+                    }
+                    invokeCompaction();
+                } finally {
+                    synchronized (cleanupMonitor) {
+                        cleanupRunning = false;
+                        cleanupMonitor.notifyAll();
+                    }
+                }
+            }
+        });
+        if (future == null) {
+            synchronized (this.cleanupMonitor) {
+                this.cleanupRunning = false;
+            }
+        }
+    }
+
+    /**
+     * Call this method to remove the expired entries from the disk. In high performance mode, the
+     * expiration times of the other entries are handed to the time limit daemon.
+     */
+    private void scanExpired() {
+        final String methodName = "scanExpired()";
+        boolean high = this.diskCachePerformanceLevel == CacheConfig.HIGH;
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        for (Record record : snapshot()) {
+            if (this.stopping) {
+                break;
+            }
+            if (record.isExpired(now)) {
+                if (evict(record, CachePerf.TIMEOUT)) {
+                    expired++;
+                }
+            } else if (high && record.expirationTime > 0 && this.startState == CacheOnDisk.START_LPBT_SCAN) {
+                this.cache.addToTimeLimitDaemon(record.id, record.expirationTime, -1);
+            }
+        }
+        this.startState = CacheOnDisk.START_NONE;
+        traceDebug(methodName, "cacheName=" + this.cacheName + " expired=" + expired + " entries=" + this.entries.size());
+    }
+
+    /**
+     * Call this method to start a background task that compacts the sealed segments whose
+     * dead space is over the compaction threshold.
+     */
+    private void invokeCompaction() {
+        if (this.stopping || !this.compactionRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Future<?> future = spawnThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } finally {
+                    compactionRunning.set(false);
+                }
+            }
+        });
+        if (future == null) {
+            this.compactionRunning.set(false);
+        }
+    }
+
+    /**
+     * Call this method to compact segments until none is over the compaction threshold.
+     */
+    private void compact() {
+        final String methodName = "compact()";
+        while (!this.stopping) {
+            LogSegment victim = null;
+            rwLock.writeLock().lock();
+            try {
+                for (LogSegment segment : this.segments) {
+                    if (segment != this.activeSegment && segment.state == LogSegment.SEALED && !segment.compacting
+                        && segment.deadPercentage() >= this.compactionThreshold
+                        && (victim == null || segment.deadPercentage() > victim.deadPercentage())) {
+                        victim = segment;
+                    }
+                }
+                if (victim == null) {
+                    return;
+                }
+                victim.compacting = true;
+            } finally {
+                rwLock.writeLock().unlock();
+            }
+            traceDebug(methodName, "cacheName=" + this.cacheName + " compacting " + victim);
+            if (!compact(victim)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Call this method to move the live records of a segment to the active segment and free the segment.
+     * The lock is released after each batch of records, so that reads and writes are not held up for the
+     * whole segment.
+     *
+     * @return true if the segment was freed.
+     */
+    private boolean compact(LogSegment victim) {
+        final String methodName = "compact()";
+        Exception exception = null;
+        int index = 0;
+        int moved = 0;
+        try {
+            while (true) {
+                rwLock.writeLock().lock();
+                try {
+                    if (this.stopping || this.closed || victim.state != LogSegment.SEALED) {
+                        victim.compacting = false;
+                        return false;
+                    }
+                    int end = Math.min(index + COMPACTION_BATCH, victim.records.size());
+                    for (; index < end; index++) {
+                        Record record = victim.records.get(index);
+                        ConcurrentHashMap<Object, Record> index1 = null;
+                        if (record.type == LogSegment.ENTRY) {
+                            index1 = this.entries;
+                        } else if (record.type == LogSegment.ALIAS) {
+                            index1 = this.aliases;
+                        }
+                        if (index1 != null) {
+                            if (index1.get(record.id) != record) {
+                                continue;
+                            }
+                        } else if (!tombstoneNeeded(victim, record)) {
+                            continue;
+                        }
+                        LogSegment segment = segmentFor(record.length, record.key.length, 0, true);
+                        if (segment == null) {
+                            victim.compacting = false;
+                            traceDebug(methodName, "cacheName=" + this.cacheName + " no room to compact " + victim);
+                            return false;
+                        }
+                        Record copy = segment.append(record, record.expirationTime, record.validatorExpirationTime);
+                        if (index1 != null) {
+                            index1.put(record.id, copy);
+                            victim.liveBytes -= record.length;
+                            moved++;
+                        }
+                    }
+                    if (index >= victim.records.size()) {
+                        this.segments.remove(victim);
+                        victim.free();
+                        this.freeSegments.add(victim);
+                        traceDebug(methodName, "cacheName=" + this.cacheName + " freed " + victim + " moved=" + moved);
+                        return true;
+                    }
+                } finally {
+                    rwLock.writeLock().unlock();
+                }
+            }
+        } catch (IOException ex) {
+            exception = ex;
+            this.diskCacheException = ex;
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.compact", "832", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        }
+        stopOnError(exception);
+        return false;
+    }
+
+    /**
+     * A tombstone must be kept as long as an older segment may hold a record for the same id,
+     * unless the id has been written again since. The caller must hold the write lock.
+     */
+    private boolean tombstoneNeeded(LogSegment victim, Record tombstone) {
+        if (tombstone.type == LogSegment.TOMBSTONE ? this.entries.containsKey(tombstone.id) : this.aliases.containsKey(tombstone.id)) {
+            return false;
+        }
+        for (LogSegment segment : this.segments) {
+            if (segment.sequence < victim.sequence) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Call this method to start a background task that removes entries from the disk until the
+     * number of entries or the size of the disk cache is under the low threshold.
+     */
+    @Override
+    public boolean invokeDiskCacheGarbageCollector(final int GCType) {
+        if (this.evictionPolicy == CacheConfig.EVICTION_NONE || this.stopping || !this.garbageCollectorRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Future<?> future = spawnThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    collectGarbage(GCType);
+                } finally {
+                    garbageCollectorRunning.set(false);
+                }
+            }
+        });
+        if (future == null) {
+            this.garbageCollectorRunning.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    private void collectGarbage(int GCType) {
+        final String methodName = "collectGarbage()";
+        List<Record> candidates = snapshot();
+        if (this.evictionPolicy == CacheConfig.EVICTION_SIZE_BASED) {
+            Collections.sort(candidates, new Comparator<Record>() {
+                @Override
+                public int compare(Record r1, Record r2) {
+                    return r2.length - r1.length;
+                }
+            });
+        } else {
+            Collections.shuffle(candidates);
+        }
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        // expired entries go first
+        for (Record record : candidates) {
+            if (this.stopping) {
+                return;
+            }
+            if (record.isExpired(now) && evict(record, CachePerf.TIMEOUT)) {
+                removed++;
+            }
+        }
+        for (Record record : candidates) {
+            if (this.stopping || isUnderLowThreshold(GCType)) {
+                break;
+            }
+            if (!record.isExpired(now) && evict(record, CachePerf.DISK_GARBAGE_COLLECTOR)) {
+                removed++;
+            }
+        }
+        traceDebug(methodName, "cacheName=" + this.cacheName + " GCType=" + GCType + " removed=" + removed + " entries=" + this.entries.size() + " cacheSizeInBytes="
+                               + this.currentCacheSizeInBytes);
+    }
+
+    private boolean isUnderLowThreshold(int GCType) {
+        if (GCType == CacheOnDisk.DISK_CACHE_SIZE_IN_ENTRIES_TYPE) {
+            return this.entries.size() <= this.diskCacheSizeInfo.diskCacheSizeLowLimit;
+        }
+        return this.currentCacheSizeInBytes <= this.diskCacheSizeInfo.getDiskCacheSizeInBytesLowLimit();
+    }
+
+    /**
+     * Call this method to remove an entry found by a background task, unless a
+     * pre-invalidation listener vetoes it.
+     */
+    private boolean evict(Record record, int cause) {
+        if (this.entries.get(record.id) != record) {
+            return false;
+        }
+        if (this.cache.isEnableListener() && this.cache.getEventSource().getPreInvalidationListenerCount() > 0
+            && !this.cache.getEventSource().shouldInvalidate(record.id, CachePerf.LOCAL, cause)) {
+            return false;
+        }
+        return remove(record.id, record, cause, CachePerf.LOCAL, !Cache.FROM_DEPID_TEMPLATE_INVALIDATION, HTODInvalidationBuffer.FIRE_EVENT);
+    }
+
+    private List<Record> snapshot() {
+        rwLock.readLock().lock();
+        try {
+            return new ArrayList<Record>(this.entries.values());
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Call this method to clear the disk cache per cache instance.
+     */
+    @Override
+    public void clearDiskCache() {
+        final String methodName = "clearDiskCache()";
+        IOException exception = null;
+        rwLock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.entries.clear();
+            this.aliases.clear();
+            for (LogSegment segment : this.segments) {
+                segment.free();
+                this.freeSegments.add(segment);
+            }
+            this.segments.clear();
+            this.activeSegment = null;
+            this.currentCacheSizeInBytes = 0;
+            this.unloggedRemovals = false;
+            nextActiveSegment(true);
+        } catch (IOException ex) {
+            exception = ex;
+            this.diskCacheException = ex;
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.clearDiskCache", "985", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+        synchronized (this.dependencyTable) {
+            this.dependencyTable.clear();
+        }
+        synchronized (this.templateTable) {
+            this.templateTable.clear();
+        }
+        if (exception != null) {
+            stopOnError(exception);
+        } else {
+            createInProgressFile();
+        }
+    }
+
+    /**
+     * Call this method to write a cache entry to the disk.
+     */
+    @Override
+    public int writeCacheEntry(CacheEntry ce) {
+        final String methodName = "writeCacheEntry()";
+        byte[] serializedData = null;
+        byte[][] aliasKeys = new byte[ce.aliasList.length][];
+        try {
+            ce.skipValueSerialized = true;
+            serializedData = SerializationUtility.serialize(ce);
+            for (int i = 0; i < ce.aliasList.length; i++) {
+                aliasKeys[i] = SerializationUtility.serialize((Serializable) ce.aliasList[i]);
+            }
+        } catch (Exception ex) {
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.writeCacheEntry", "1017", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+            return HTODDynacache.SERIALIZATION_EXCEPTION;
+        } finally {
+            ce.skipValueSerialized = false;
+        }
+        if (ce.valueHashcode == 0 && null != ce.value) {
+            ce.valueHashcode = ce.value.hashCode();
+        }
+        long expirationTime = ce.timeLimit > 0 ? ce.expirationTime : -1;
+        int keyLength = ce.serializedId.length;
+        int length = LogSegment.recordLength(keyLength, serializedData.length, ce.serializedValue.length);
+        if (!LogSegment.fitsEmpty(this.segmentSize - TOMBSTONE_RESERVE, length, keyLength)) {
+            traceDebug(methodName, "cacheName=" + this.cacheName + " id=" + ce.id + " size=" + length + " is larger than a segment");
+            return HTODDynacache.DISK_CACHE_ENTRY_SIZE_OVER_LIMIT_EXCEPTION;
+        }
+
+        int returnCode = HTODDynacache.NO_EXCEPTION;
+        IOException exception = null;
+        rwLock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return HTODDynacache.OTHER_EXCEPTION;
+            }
+            LogSegment segment = segmentFor(length, keyLength, TOMBSTONE_RESERVE, false);
+            if (segment == null) {
+                returnCode = HTODDynacache.DISK_SIZE_OVER_LIMIT_EXCEPTION;
+            } else {
+                Record record = segment.append(LogSegment.ENTRY, ce.id, ce.serializedId, serializedData, ce.serializedValue, expirationTime,
+                                               ce.validatorExpirationTime, ce.valueHashcode);
+                this.currentCacheSizeInBytes += length;
+                Record old = this.entries.put(ce.id, record);
+                if (old != null) {
+                    released(old);
+                    returnCode = HTODDynacache.NO_EXCEPTION_ENTRY_OVERWRITTEN;
+                }
+                for (int i = 0; i < ce.aliasList.length; i++) {
+                    int aliasLength = LogSegment.recordLength(aliasKeys[i].length, keyLength, 0);
+                    segment = segmentFor(aliasLength, aliasKeys[i].length, TOMBSTONE_RESERVE, false);
+                    if (segment == null) {
+                        returnCode = HTODDynacache.DISK_SIZE_OVER_LIMIT_EXCEPTION;
+                        break;
+                    }
+                    // the alias record holds the serialized cache id in place of an entry
+                    Record alias = segment.append(LogSegment.ALIAS, ce.aliasList[i], aliasKeys[i], ce.serializedId, null, -1, -1, 0);
+                    alias.target = ce.id;
+                    old = this.aliases.put(ce.aliasList[i], alias);
+                    if (old != null) {
+                        released(old);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            exception = ex;
+            this.diskCacheException = ex;
+            returnCode = HTODDynacache.DISK_EXCEPTION;
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.writeCacheEntry", "1068", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+
+        if (returnCode == HTODDynacache.NO_EXCEPTION || returnCode == HTODDynacache.NO_EXCEPTION_ENTRY_OVERWRITTEN) {
+            this.cache.getCacheStatisticsListener().writeEntryToDisk(ce.id, length);
+        } else if (exception != null) {
+            stopOnError(exception);
+        }
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, methodName + " cacheName=" + this.cacheName + " id=" + ce.id + " size=" + length + " returnCode=" + returnCode + " cacheSizeInBytes="
+                         + this.currentCacheSizeInBytes);
+        }
+        return returnCode;
+    }
+
+    /**
+     * Call this method to read a cache entry from the disk.
+     *
+     * @param id
+     *            - cache id.
+     */
+    @Override
+    public CacheEntry readCacheEntry(Object id) {
+        return readCacheEntry(id, !HTODDynacache.CALLED_FROM_REMOVE);
+    }
+
+    /**
+     * Call this method to read a cache entry from the disk.
+     *
+     * @param id
+     *            - cache id or alias.
+     * @param calledFromRemove
+     *            - true if the entry is read to be removed.
+     */
+    @Override
+    public CacheEntry readCacheEntry(Object id, boolean calledFromRemove) {
+        final String methodName = "readCacheEntry()";
+        Record record = null;
+        byte[] serializedData = null;
+        byte[] serializedValue = null;
+        rwLock.readLock().lock();
+        try {
+            if (this.closed) {
+                return null;
+            }
+            record = this.entries.get(id);
+            if (record == null) {
+                Record alias = this.aliases.get(id);
+                if (alias != null) {
+                    record = this.entries.get(alias.target);
+                }
+            }
+            if (record == null) {
+                return null;
+            }
+            if (!record.isExpired(System.currentTimeMillis())) {
+                serializedData = record.segment.readEntry(record);
+                serializedValue = record.segment.readValue(record);
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+
+        if (serializedData == null) {
+            remove(record.id, record, CachePerf.TIMEOUT, CachePerf.LOCAL, !Cache.FROM_DEPID_TEMPLATE_INVALIDATION, HTODInvalidationBuffer.FIRE_EVENT);
+            if (this.diskCachePerformanceLevel != CacheConfig.HIGH && !calledFromRemove) {
+                this.cache.internalInvalidateByDepId(record.id, CachePerf.TIMEOUT, CachePerf.LOCAL, Cache.FIRE_INVALIDATION_LISTENER);
+            }
+            return null;
+        }
+
+        CacheEntry cacheEntry = null;
+        try {
+            cacheEntry = (CacheEntry) SerializationUtility.deserialize(serializedData, this.cacheName);
+            cacheEntry.setValidatorExpirationTime(record.validatorExpirationTime);
+            cacheEntry.serializedValue = serializedValue;
+        } catch (Exception ex) {
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.readCacheEntry", "1139", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+            return null;
+        }
+        if (!calledFromRemove) {
+            this.cache.getCacheStatisticsListener().readEntryFromDisk(cacheEntry.id, record.length);
+        }
+        return cacheEntry;
+    }
+
+    /**
+     * Call this method to remove a cache entry from the disk.
+     *
+     * @param ce
+     *            - cache entry.
+     */
+    @Override
+    public void delCacheEntry(CacheEntry ce, int cause, int source, boolean fromDepIdTemplateInvalidation) {
+        remove(ce.id, null, cause, source, fromDepIdTemplateInvalidation, !HTODInvalidationBuffer.FIRE_EVENT);
+        for (int i = 0; i < ce.aliasList.length; i++) {
+            removeAlias(ce.aliasList[i]);
+        }
+    }
+
+    /**
+     * Call this method to remove multiple of cache ids from the disk.
+     *
+     * @param removeList
+     *            - a collection of cache ids.
+     */
+    @Override
+    public void delCacheEntry(ValueSet removeList, int cause, int source, boolean fromDepIdTemplateInvalidation, boolean fireEvent) {
+        if (removeList != null) {
+            Iterator<?> it = removeList.iterator();
+            while (it.hasNext()) {
+                remove(it.next(), null, cause, source, fromDepIdTemplateInvalidation, fireEvent);
+            }
+        }
+    }
+
+    /**
+     * Call this method to remove a cache entry and its aliases from the disk, and the cache id from
+     * the dependency ids and templates of the entry.
+     *
+     * @param expected
+     *            - the record to remove, or null to remove whatever record the cache id maps to.
+     * @return true if the entry was removed.
+     */
+    private boolean remove(Object id, Record expected, int cause, int source, boolean fromDepIdTemplateInvalidation, boolean fireEvent) {
+        final String methodName = "remove()";
+        boolean retrieveValue = fireEvent && this.cache.isEnableListener() && this.cache.getEventSource().getInvalidationListenerCount() > 0
+                                && !this.ignoreValueInInvalidationEvent;
+        Record record = null;
+        byte[] serializedData = null;
+        byte[] serializedValue = null;
+        IOException exception = null;
+        rwLock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return false;
+            }
+            if (expected == null) {
+                record = this.entries.remove(id);
+            } else if (this.entries.remove(id, expected)) {
+                record = expected;
+            }
+            if (record == null) {
+                return false;
+            }
+            released(record);
+            serializedData = record.segment.readEntry(record);
+            if (retrieveValue) {
+                serializedValue = record.segment.readValue(record);
+            }
+            if (record.segment.state == LogSegment.SEALED && record.segment.deadPercentage() >= this.compactionThreshold) {
+                invokeCompaction();
+            }
+            logRemoval(record);
+        } catch (IOException ex) {
+            exception = ex;
+            this.diskCacheException = ex;
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.remove", "1215", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+
+        this.cache.getCacheStatisticsListener().deleteEntryFromDisk(id, record.length);
+        CacheEntry ce = null;
+        try {
+            ce = (CacheEntry) SerializationUtility.deserialize(serializedData, this.cacheName);
+        } catch (Exception ex) {
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.remove", "1226", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        }
+        if (ce != null) {
+            if (ce._dataIds != null) {
+                for (int i = 0; i < ce._dataIds.length; i++) {
+                    delDependencyEntry(ce._dataIds[i], ce.id);
+                }
+            }
+            if (ce._templates != null) {
+                for (int i = 0; i < ce._templates.length; i++) {
+                    delTemplateEntry(ce._templates[i], ce.id);
+                }
+            }
+            for (int i = 0; i < ce.aliasList.length; i++) {
+                removeAlias(ce.aliasList[i]);
+            }
+            if (ce.sharingPolicy == EntryInfo.SHARED_PUSH_PULL || ce.sharingPolicy == EntryInfo.SHARED_PULL) {
+                if (source == CachePerf.LOCAL && fromDepIdTemplateInvalidation) {
+                    this.cache.invalidateById(ce.id, cause, source, false, !InvalidateByIdEvent.INVOKE_INTERNAL_INVALIDATE_BY_ID);
+                }
+            }
+            if (fireEvent && this.cache.isEnableListener() && this.cache.getEventSource().getInvalidationListenerCount() > 0) {
+                InvalidationEvent ie = null;
+                if (cause == CachePerf.DISK_GARBAGE_COLLECTOR) {
+                    ie = new InvalidationEvent(ce.id, serializedValue, InvalidationEvent.DISK_GARBAGE_COLLECTOR, InvalidationEvent.LOCAL, this.cacheName);
+                } else {
+                    ie = new InvalidationEvent(ce.id, serializedValue, InvalidationEvent.DISK_TIMEOUT, InvalidationEvent.LOCAL, this.cacheName);
+                }
+                this.cache.getEventSource().fireEvent(ie);
+            }
+            CachePerf cachePerf = this.cache.getCachePerf();
+            if (cachePerf != null && cachePerf.isPMIEnabled()) {
+                String template = "";
+                if (ce._templates != null && ce._templates.length > 0) {
+                    template = ce._templates[0];
+                }
+                cachePerf.onInvalidate(template, cause, CachePerf.DISK, source);
+            }
+            this.cache.getCacheStatisticsListener().remove(ce.id, cause, CachePerf.DISK, source);
+        }
+        if (exception != null) {
+            stopOnError(exception);
+        }
+        return true;
+    }
+
+    private void removeAlias(Object alias) {
+        final String methodName = "removeAlias()";
+        IOException exception = null;
+        rwLock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            Record record = this.aliases.remove(alias);
+            if (record != null) {
+                released(record);
+                logRemoval(record);
+            }
+        } catch (IOException ex) {
+            exception = ex;
+            this.diskCacheException = ex;
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.removeAlias", "1290", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+        if (exception != null) {
+            stopOnError(exception);
+        }
+    }
+
+    /**
+     * This method is used to update the expiration times of an entry on disk. The record is
+     * appended again with the new times.
+     */
+    @Override
+    public int updateExpirationTime(Object id, long oldExpirationTime, int size, long newExpirationTime, long newValidatorExpirationTime) {
+        final String methodName = "updateExpirationTime()";
+        int returnCode = HTODDynacache.NO_EXCEPTION;
+        IOException exception = null;
+        rwLock.writeLock().lock();
+        try {
+            Record record = this.entries.get(id);
+            if (this.closed || record == null) {
+                return returnCode;
+            }
+            LogSegment segment = segmentFor(record.length, record.key.length, TOMBSTONE_RESERVE, false);
+            if (segment == null) {
+                returnCode = HTODDynacache.DISK_SIZE_OVER_LIMIT_EXCEPTION;
+            } else {
+                this.entries.put(id, segment.append(record, newExpirationTime, newValidatorExpirationTime));
+                record.segment.liveBytes -= record.length;
+            }
+        } catch (IOException ex) {
+            exception = ex;
+            this.diskCacheException = ex;
+            returnCode = HTODDynacache.DISK_EXCEPTION;
+            com.ibm.ws.ffdc.FFDCFilter.processException(ex, "com.ibm.ws.cache.SegmentLogOnDisk.updateExpirationTime", "1327", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + "\nException: " + ExceptionUtility.getStackTrace(ex));
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+        if (exception != null) {
+            stopOnError(exception);
+        }
+        traceDebug(methodName, "cacheName=" + this.cacheName + " id=" + id + " newValidatorExpirationTime=" + newValidatorExpirationTime + " returnCode=" + returnCode);
+        return returnCode;
+    }
+
+    /**
+     * This method returns true if disk cache contains a mapping for the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return this.entries.containsKey(key) || this.aliases.containsKey(key);
+    }
+
+    /**
+     * Call this method to read a specified dependency id which contains the cache ids from the disk.
+     */
+    @Override
+    public ValueSet readDependency(Object id, boolean delete) {
+        if (this.disableDependencyId) {
+            return HTODDynacache.EMPTY_VS;
+        }
+        return readValueSet(this.dependencyTable, id, delete);
+    }
+
+    /**
+     * Call this method to read a specified template which contains the cache ids from the disk.
+     */
+    @Override
+    public ValueSet readTemplate(String template, boolean delete) {
+        if (this.disableTemplatesSupport) {
+            return HTODDynacache.EMPTY_VS;
+        }
+        return readValueSet(this.templateTable, template, delete);
+    }
+
+    private ValueSet readValueSet(HashMap<Object, ValueSet> table, Object id, boolean delete) {
+        ValueSet valueSet = null;
+        if (id != null) {
+            synchronized (table) {
+                if (delete == HTODDynacache.DELETE) {
+                    valueSet = table.remove(id);
+                } else {
+                    valueSet = table.get(id);
+                    if (valueSet != null) {
+                        valueSet = (ValueSet) valueSet.clone();
+                    }
+                }
+            }
+        }
+        if (valueSet == null) {
+            valueSet = HTODDynacache.EMPTY_VS;
+        }
+        return valueSet;
+    }
+
+    /**
+     * Call this method to add a collection of cache ids to a dependency id.
+     */
+    @Override
+    public int writeDependency(Object id, ValueSet vs) {
+        if (!this.disableDependencyId) {
+            writeValueSet(this.dependencyTable, id, vs);
+            this.cache.getCacheStatisticsListener().depIdsOffloadedToDisk(id);
+        }
+        return HTODDynacache.NO_EXCEPTION;
+    }
+
+    /**
+     * Call this method to add a collection of cache ids to a template.
+     */
+    @Override
+    public int writeTemplate(String template, ValueSet vs) {
+        if (!this.disableTemplatesSupport) {
+            writeValueSet(this.templateTable, template, vs);
+            this.cache.getCacheStatisticsListener().templatesOffloadedToDisk(template);
+        }
+        return HTODDynacache.NO_EXCEPTION;
+    }
+
+    private void writeValueSet(HashMap<Object, ValueSet> table, Object id, ValueSet vs) {
+        if (vs.isEmpty()) {
+            return;
+        }
+        synchronized (table) {
+            ValueSet valueSet = table.get(id);
+            if (valueSet == null) {
+                valueSet = new ValueSet(vs.size());
+                table.put(id, valueSet);
+            }
+            valueSet.union(vs);
+        }
+    }
+
+    /**
+     * Call this method to add a cache id to a dependency id.
+     */
+    @Override
+    public int writeDependencyEntry(Object id, Object entry) {
+        if (!this.disableDependencyId) {
+            writeEntry(this.dependencyTable, id, entry);
+        }
+        return HTODDynacache.NO_EXCEPTION;
+    }
+
+    /**
+     * Call this method to add a cache id to a template.
+     */
+    @Override
+    public int writeTemplateEntry(String template, Object entry) {
+        if (!this.disableTemplatesSupport) {
+            writeEntry(this.templateTable, template, entry);
+        }
+        return HTODDynacache.NO_EXCEPTION;
+    }
+
+    private void writeEntry(HashMap<Object, ValueSet> table, Object id, Object entry) {
+        synchronized (table) {
+            ValueSet valueSet = table.get(id);
+            if (valueSet == null) {
+                valueSet = new ValueSet(4);
+                table.put(id, valueSet);
+            }
+            valueSet.add(entry);
+        }
+    }
+
+    /**
+     * Call this method to remove a cache id from a dependency id.
+     */
+    @Override
+    public void delDependencyEntry(Object id, Object entry) {
+        delEntry(this.dependencyTable, id, entry);
+    }
+
+    /**
+     * Call this method to remove a cache id from a template.
+     */
+    @Override
+    public void delTemplateEntry(String template, Object entry) {
+        delEntry(this.templateTable, template, entry);
+    }
+
+    private void delEntry(HashMap<Object, ValueSet> table, Object id, Object entry) {
+        synchronized (table) {
+            ValueSet valueSet = table.get(id);
+            if (valueSet != null) {
+                valueSet.remove(entry);
+                if (valueSet.isEmpty()) {
+                    table.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Call this method to remove a dependency id.
+     */
+    @Override
+    public void delDependency(Object id) {
+        synchronized (this.dependencyTable) {
+            this.dependencyTable.remove(id);
+        }
+    }
+
+    /**
+     * Call this method to remove a template.
+     */
+    @Override
+    public void delTemplate(String template) {
+        synchronized (this.templateTable) {
+            this.templateTable.remove(template);
+        }
+    }
+
+    /**
+     * Call this method to get the cache ids based on the index and the length from the disk.
+     *
+     * @param index
+     *            If index = 0, it starts the beginning. If index = 1, it means "next". If Index = -1, it means
+     *            "previous".
+     * @param length
+     *            The max number of cache ids to be read. If length = -1, it reads all cache ids until the end.
+     * @return valueSet - the collection of cache ids.
+     */
+    @Override
+    public ValueSet readCacheIdsByRange(int index, int length) {
+        Object[] ids;
+        rwLock.readLock().lock();
+        try {
+            ids = this.entries.keySet().toArray();
+        } finally {
+            rwLock.readLock().unlock();
+        }
+        ValueSet expiredIds = new ValueSet(4);
+        ValueSet valueSet = readByRange(this.cacheIdsCursor, ids, index, length, expiredIds);
+        if (!expiredIds.isEmpty()) {
+            delCacheEntry(expiredIds, CachePerf.TIMEOUT, CachePerf.LOCAL, !Cache.FROM_DEPID_TEMPLATE_INVALIDATION, HTODInvalidationBuffer.FIRE_EVENT);
+        }
+        return valueSet;
+    }
+
+    /**
+     * Call this method to get the dependency ids based on the index and the length from the disk.
+     */
+    @Override
+    public ValueSet readDependencyByRange(int index, int length) {
+        if (this.disableDependencyId) {
+            return HTODDynacache.EMPTY_VS;
+        }
+        Object[] ids;
+        synchronized (this.dependencyTable) {
+            ids = this.dependencyTable.keySet().toArray();
+        }
+        return readByRange(this.dependencyCursor, ids, index, length, null);
+    }
+
+    /**
+     * Call this method to get the templates based on the index and the length from the disk.
+     */
+    @Override
+    public ValueSet readTemplatesByRange(int index, int length) {
+        if (this.disableTemplatesSupport) {
+            return HTODDynacache.EMPTY_VS;
+        }
+        Object[] ids;
+        synchronized (this.templateTable) {
+            ids = this.templateTable.keySet().toArray();
+        }
+        return readByRange(this.templateCursor, ids, index, length, null);
+    }
+
+    /**
+     * Call this method to read a range of ids. If expiredIds is not null, the ids of expired
+     * entries are added to it rather than to the answer.
+     */
+    private ValueSet readByRange(RangeCursor cursor, Object[] ids, int index, int length, ValueSet expiredIds) {
+        boolean all = false;
+        if (length == -1) {
+            all = true;
+            length = ids.length;
+        }
+        if (length <= 0) {
+            return HTODDynacache.EMPTY_VS;
+        }
+        ValueSet answer = new ValueSet(length);
+        long now = System.currentTimeMillis();
+        synchronized (cursor) {
+            int i = cursor.start(index);
+            int count = 0;
+            for (; i < ids.length && count < length; i++, count++) {
+                if (expiredIds != null) {
+                    Record record = this.entries.get(ids[i]);
+                    if (record == null) {
+                        continue;
+                    }
+                    if (record.isExpired(now)) {
+                        expiredIds.add(ids[i]);
+                        continue;
+                    }
+                }
+                answer.add(ids[i]);
+            }
+            cursor.end(i);
+            // add a dummy entry to indicate more entries in the disk cache
+            if (!all && count >= length) {
+                answer.add(HTODDynacache.DISKCACHE_MORE);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * This method finds the hashcode of the cache ids and values based on index and length.
+     */
+    @Override
+    public Result readHashcodeByRange(int index, int length, boolean debug, boolean useValue) {
+        Result result = new Result();
+        Record[] records;
+        rwLock.readLock().lock();
+        try {
+            records = this.entries.values().toArray(new Record[0]);
+        } finally {
+            rwLock.readLock().unlock();
+        }
+        if (length == -1) {
+            length = records.length;
+        }
+        if (length <= 0) {
+            return result;
+        }
+        List<String> list = new ArrayList<String>(debug ? length : 0);
+        int totalHashcode = 0;
+        int count = 0;
+        int expiredCount = 0;
+        long now = System.currentTimeMillis();
+        synchronized (this.hashcodeCursor) {
+            int i = this.hashcodeCursor.start(index);
+            for (; i < records.length && count + expiredCount < length; i++) {
+                Record record = records[i];
+                if (record.isExpired(now)) {
+                    expiredCount++;
+                    continue;
+                }
+                int id_hc = record.id.hashCode();
+                totalHashcode += id_hc;
+                if (useValue) {
+                    totalHashcode += record.valueHashcode;
+                }
+                count++;
+                if (debug) {
+                    StringBuffer sb = new StringBuffer();
+                    sb.append("\nid=");
+                    sb.append(record.id);
+                    sb.append(" id_hashcode=");
+                    sb.append(id_hc);
+                    if (useValue) {
+                        sb.append(" value_hashcode=");
+                        sb.append(record.valueHashcode);
+                    }
+                    list.add(sb.toString());
+                }
+            }
+            this.hashcodeCursor.end(i);
+        }
+        result.totalHashcode = totalHashcode;
+        result.data = list;
+        result.dataSize = count;
+        result.bMore = count + expiredCount == length;
+        return result;
+    }
+
+    /**
+     * Call this method to get the number of the cache ids in the disk.
+     */
+    @Override
+    public int getCacheIdsSize(boolean filter) {
+        return this.entries.size();
+    }
+
+    @Override
+    public int getDepIdsSize() {
+        synchronized (this.dependencyTable) {
+            return this.dependencyTable.size();
+        }
+    }
+
+    @Override
+    public int getTemplatesSize() {
+        synchronized (this.templateTable) {
+            return this.templateTable.size();
+        }
+    }
+
+    /**
+     * Call this method to get the total size of the live records in the disk.
+     */
+    @Override
+    public long getCacheSizeInBytes() {
+        return this.currentCacheSizeInBytes;
+    }
+
+    @Override
+    public int getDiskCacheSizeLimit() {
+        return this.diskCacheSizeInfo.diskCacheSizeLimit;
+    }
+
+    @Override
+    public int getDiskCacheSizeHighLimit() {
+        return this.diskCacheSizeInfo.diskCacheSizeHighLimit;
+    }
+
+    @Override
+    public int getDiskCacheSizeInGBLimit() {
+        return this.diskCacheSizeInfo.diskCacheSizeInGBLimit;
+    }
+
+    @Override
+    public long getDiskCacheEntrySizeInBytesLimit() {
+        return this.diskCacheSizeInfo.diskCacheEntrySizeInBytesLimit;
+    }
+
+    @Override
+    public long getDiskCacheSizeInBytesLimit() {
+        return this.diskCacheSizeInfo.getDiskCacheSizeInBytesLimit();
+    }
+
+    @Override
+    public long getDiskCacheSizeInBytesHighLimit() {
+        return this.diskCacheSizeInfo.getDiskCacheSizeInBytesHighLimit();
+    }
+
+    @Override
+    public int getEvictionPolicy() {
+        return this.evictionPolicy;
+    }
+
+    @Override
+    public int getStartState() {
+        return this.startState;
+    }
+
+    /**
+     * There is no eviction table to populate, the eviction candidates are taken from the index.
+     */
+    @Override
+    public boolean shouldPopulateEvictionTable() {
+        return false;
+    }
+
+    /**
+     * Removals are not buffered, so there is never a pending removal.
+     */
+    @Override
+    public int getPendingRemovalSize() {
+        return 0;
+    }
+
+    @Override
+    public int getDepIdsBufferedSize() {
+        return 0;
+    }
+
+    @Override
+    public int getTemplatesBufferedSize() {
+        return 0;
+    }
+
+    @Override
+    public boolean isCleanupRunning() {
+        synchronized (this.cleanupMonitor) {
+            return this.cleanupRunning;
+        }
+    }
+
+    @Override
+    public void clearInvalidationBuffers() {
+    }
+
+    @Override
+    @Trivial
+    public boolean isInvalidationBuffersFull() {
+        return false;
+    }
+
+    @Override
+    public void releaseUnusedPools() {
+    }
+
+    @Override
+    public Exception getDiskCacheException() {
+        return this.diskCacheException;
+    }
+
+    @Override
+    public void waitForCleanupComplete() {
+        final String methodName = "waitForCleanupComplete()";
+        synchronized (this.cleanupMonitor) {
+            if (this.cleanupRunning) {
+                traceDebug(methodName, "waiting for cleanup completion (max 5 sec) for cache name \"" + this.cacheName);
+                try {
+                    this.cleanupMonitor.wait(5000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * There is no auxiliary dependency table, the dependency ids are all kept in memory.
+     */
+    @Override
+    public boolean isCacheIdInAuxDepIdTable(Object id) {
+        return false;
+    }
+
+    private boolean findSwapDirPath(String location, String diskCacheName) {
+        int index = location.indexOf("##");
+        if (index == -1) {
+            alternateLocation = location;
+        } else {
+            definedLocation = location.substring(0, index);
+            alternateLocation = location.substring(index + 2);
+        }
+        if (!definedLocation.equals("")) {
+            definedLocation = definedLocation + File.separator + diskCacheName + File.separator + SEGMENT_LOG_DIRECTORY;
+        }
+        if (!alternateLocation.equals("")) {
+            alternateLocation = alternateLocation + File.separator + diskCacheName + File.separator + SEGMENT_LOG_DIRECTORY;
+        }
+        if (isDirectoryWriteable(definedLocation)) {
+            swapDirPath = definedLocation;
+            Tr.info(tc, "DYNA0053I", new Object[] { this.cacheName, definedLocation });
+        } else if (isDirectoryWriteable(alternateLocation)) {
+            swapDirPath = alternateLocation;
+            if (definedLocation.equals("")) {
+                Tr.info(tc, "DYNA0053I", new Object[] { this.cacheName, alternateLocation });
+            } else {
+                Tr.warning(tc, "DYNA0054W", new Object[] { this.cacheName, definedLocation, alternateLocation });
+            }
+        } else {
+            swapDirPath = "";
+            Tr.error(tc, "DYNA0055E", new Object[] { this.cacheName, definedLocation, alternateLocation });
+            cache.setSwapToDisk(false);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isDirectoryWriteable(final String location) {
+        final String methodName = "isDirectoryWriteable()";
+        if (location.equals("") || (location.startsWith("${") && location.indexOf("}") > 0)) {
+            return false;
+        }
+        try {
+            return AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+                @Override
+                public Boolean run() {
+                    File f = new File(location);
+                    if (!f.exists()) {
+                        return f.mkdirs();
+                    }
+                    return f.isDirectory() && f.canWrite();
+                }
+            });
+        } catch (Throwable t) {
+            com.ibm.ws.ffdc.FFDCFilter.processException(t, "com.ibm.ws.cache.SegmentLogOnDisk.isDirectoryWriteable", "1807", this);
+            traceDebug(methodName, "cacheName=" + this.cacheName + " location=" + location + "\nException: " + ExceptionUtility.getStackTrace(t));
+            return false;
+        }
+    }
+
+    private Future<?> spawnThread(Runnable task) {
+        return Scheduler.submit(task);
+    }
+
+    private void traceDebug(String methodName, String message) {
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, methodName + " " + message);
+        }
+    }
+
+    /**
+     * Remembers where the ranges read by the cache monitor start, so that it can ask for the
+     * next or the previous range.
+     */
+    private static final class RangeCursor {
+        private final List<Integer> starts = new ArrayList<Integer>();
+        private int next = 0;
+
+        int start(int index) {
+            if (index == 0) {
+                starts.clear();
+                next = 0;
+            } else if (index < 0) {
+                // drop the current range and read the one before it again
+                if (!starts.isEmpty()) {
+                    starts.remove(starts.size() - 1);
+                }
+                next = starts.isEmpty() ? 0 : starts.remove(starts.size() - 1);
+            }
+            starts.add(next);
+            return next;
+        }
+
+        void end(int end) {
+            next = end;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.ws.cache.LogSegment.Record;
+import com.ibm.ws.cache.util.SerializationUtility;
+
+public class LogSegmentTest {
+
+    private static final int CAPACITY = 64 * 1024;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("segment", SegmentLogOnDisk.SEGMENT_FILE_SUFFIX);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testSealAndReadFooter() throws Exception {
+        byte[] entry = new byte[] { 1, 2, 3 };
+        byte[] value = new byte[] { 4, 5, 6, 7 };
+        LogSegment segment = LogSegment.create(file, CAPACITY, 7);
+        Record a = segment.append(LogSegment.ENTRY, "a", SerializationUtility.serialize("a"), entry, value, 5000L, 6000L, 42);
+        Record b = segment.append(LogSegment.ALIAS, "b", SerializationUtility.serialize("b"), SerializationUtility.serialize("a"), null, -1, -1, 0);
+        Record c = segment.append(LogSegment.TOMBSTONE, "c", SerializationUtility.serialize("c"), null, null, -1, -1, 0);
+        assertEquals(a.length + b.length + c.length, segment.usedBytes());
+        assertEquals(a.length + b.length, segment.liveBytes);
+        segment.seal();
+        segment.close();
+
+        segment = LogSegment.open(file);
+        try {
+            assertEquals(7, segment.sequence);
+            assertEquals(LogSegment.SEALED, segment.state);
+            List<Record> records = segment.readFooter("test");
+            assertEquals(3, records.size());
+
+            Record record = records.get(0);
+            assertEquals(LogSegment.ENTRY, record.type);
+            assertEquals("a", record.id);
+            assertEquals(a.offset, record.offset);
+            assertEquals(5000L, record.expirationTime);
+            assertEquals(6000L, record.validatorExpirationTime);
+            assertEquals(42, record.valueHashcode);
+            assertArrayEquals(entry, segment.readEntry(record));
+            assertArrayEquals(value, segment.readValue(record));
+
+            record = records.get(1);
+            assertEquals(LogSegment.ALIAS, record.type);
+            assertEquals("b", record.id);
+            assertEquals("a", record.target);
+
+            record = records.get(2);
+            assertEquals(LogSegment.TOMBSTONE, record.type);
+            assertEquals("c", record.id);
+
+            // tombstones are dead space once they are written
+            assertEquals(a.length + b.length, segment.liveBytes);
+            assertEquals(segment.usedBytes(), a.length + b.length + c.length);
+        } finally {
+            segment.close();
+        }
+    }
+
+    @Test
+    public void testUnsealedSegment() throws Exception {
+        LogSegment segment = LogSegment.create(file, CAPACITY, 1);
+        segment.append(LogSegment.ENTRY, "a", SerializationUtility.serialize("a"), new byte[10], new byte[10], -1, -1, 0);
+        // an active segment is not sealed when the JVM ends unexpectedly
+        segment.close();
+
+        segment = LogSegment.open(file);
+        try {
+            assertEquals(LogSegment.ACTIVE, segment.state);
+            segment.readFooter("test");
+            fail("the footer of an unsealed segment was read");
+        } catch (IOException ex) {
+            // expected
+        } finally {
+            segment.close();
+        }
+    }
+
+    @Test
+    public void testFreeAndActivate() throws Exception {
+        LogSegment segment = LogSegment.create(file, CAPACITY, 1);
+        segment.append(LogSegment.ENTRY, "a", SerializationUtility.serialize("a"), new byte[10], new byte[10], -1, -1, 0);
+        segment.seal();
+        segment.free();
+        assertEquals(0, segment.usedBytes());
+        assertTrue(segment.records.isEmpty());
+        segment.close();
+
+        segment = LogSegment.open(file);
+        try {
+            assertEquals(LogSegment.FREE, segment.state);
+            segment.activate(2);
+            segment.seal();
+            assertTrue(segment.readFooter("test").isEmpty());
+            assertEquals(2, segment.sequence);
+        } finally {
+            segment.close();
+        }
+    }
+
+    @Test
+    public void testRoom() throws Exception {
+        LogSegment segment = LogSegment.create(file, CAPACITY, 1);
+        try {
+            int keyLength = SerializationUtility.serialize("a").length;
+            int length = LogSegment.recordLength(keyLength, CAPACITY / 2, 0);
+            assertTrue(LogSegment.fitsEmpty(CAPACITY, length, keyLength));
+            assertFalse(LogSegment.fitsEmpty(CAPACITY, 2 * length, keyLength));
+            assertTrue(segment.hasRoom(length, keyLength, 0));
+            segment.append(LogSegment.ENTRY, "a", SerializationUtility.serialize("a"), new byte[CAPACITY / 2], null, -1, -1, 0);
+            assertFalse(segment.hasRoom(length, keyLength, 0));
+            // the footer entry of each record is kept free as well
+            int left = CAPACITY - LogSegment.HEADER_SIZE - length - LogSegment.TRAILER_SIZE - 2 * (LogSegment.FOOTER_ENTRY_SIZE + keyLength);
+            assertTrue(segment.hasRoom(LogSegment.recordLength(keyLength, 0, 0), keyLength, left - LogSegment.recordLength(keyLength, 0, 0)));
+            assertFalse(segment.hasRoom(LogSegment.recordLength(keyLength, 0, 0), keyLength, left - LogSegment.recordLength(keyLength, 0, 0) + 1));
+        } finally {
+            segment.close();
+        }
+    }
+
+    @Test
+    public void testCloseReleasesFile() throws Exception {
+        LogSegment segment = LogSegment.create(file, CAPACITY, 1);
+        segment.seal();
+        segment.close();
+        segment.close();
+        // the file cannot be deleted on Windows while it is still mapped
+        assertTrue(file.delete());
+    }
+}
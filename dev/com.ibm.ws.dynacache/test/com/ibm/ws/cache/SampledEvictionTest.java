@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.ibm.ws.cache.stat.CachePerf;
+
+/**
+ * Test the cache with sampled eviction in place of the LRU buckets.
+ */
+public class SampledEvictionTest {
+
+    private static final int CACHE_SIZE = 4;
+
+    private static Cache newCache(int sampleSize) {
+        CacheConfig config = new CacheConfig();
+        config.cacheName = "test";
+        config.cacheSize = CACHE_SIZE;
+        config.sampledEviction = true;
+        config.evictionSampleSize = sampleSize;
+        // evictions are not sent on to the BatchUpdateDaemon, which these tests do not run
+        config.filterLRUInvalidation = true;
+        return new Cache("test", config);
+    }
+
+    private static void put(Cache cache, Object id, Object value) {
+        EntryInfo entryInfo = new EntryInfo();
+        entryInfo.setId(id);
+        entryInfo.setSharingPolicy(EntryInfo.NOT_SHARED);
+        cache.setValue(entryInfo, value, false, DynaCacheConstants.VBC_CACHE_NEW_CONTENT);
+    }
+
+    private static Object get(Cache cache, Object id) {
+        return cache.getValue(id, null, false, false);
+    }
+
+    /**
+     * Invalidates the id as the BatchUpdateDaemon does when it wakes up.
+     */
+    private static void invalidate(Cache cache, Object id) {
+        HashMap invalidateIdEvents = new HashMap();
+        invalidateIdEvents.put(id, new InvalidateByIdEvent(id, CachePerf.DIRECT, CachePerf.LOCAL, true, false, cache.getCacheName()));
+        cache.batchUpdate(invalidateIdEvents, new HashMap(), new ArrayList());
+    }
+
+    private static CacheEntry newEntry(ConcurrentEntryTable table, Object id) {
+        CacheEntry cacheEntry = new CacheEntry();
+        cacheEntry.id = id;
+        table.put(id, cacheEntry);
+        return cacheEntry;
+    }
+
+    @Test
+    public void testPutGetInvalidate() {
+        Cache cache = newCache(CACHE_SIZE);
+        put(cache, "a", "1");
+        put(cache, "b", "2");
+        assertEquals("1", get(cache, "a"));
+        assertEquals("2", get(cache, "b"));
+        put(cache, "a", "3");
+        assertEquals("3", get(cache, "a"));
+        assertEquals(2, cache.getNumberCacheEntries());
+
+        invalidate(cache, "a");
+        assertNull(get(cache, "a"));
+        assertFalse(cache.containsCacheId("a"));
+        assertEquals("2", get(cache, "b"));
+        assertEquals(1, cache.getNumberCacheEntries());
+    }
+
+    @Test
+    public void testEvictionAtLimit() {
+        Cache cache = newCache(CACHE_SIZE);
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            put(cache, "id" + i, "v" + i);
+        }
+        assertEquals(CACHE_SIZE, cache.getNumberCacheEntries());
+        for (int i = CACHE_SIZE; i < 3 * CACHE_SIZE; i++) {
+            put(cache, "id" + i, "v" + i);
+            assertEquals(CACHE_SIZE, cache.getNumberCacheEntries());
+            // the entry just written is never the one evicted for it
+            assertEquals("v" + i, get(cache, "id" + i));
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        // sample the whole cache, so the oldest entry is always found
+        Cache cache = newCache(CACHE_SIZE);
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            put(cache, "id" + i, "v" + i);
+        }
+        // a hit makes id0 more recent than the later writes of id1
+        assertEquals("v0", get(cache, "id0"));
+        put(cache, "new", "v");
+        assertTrue(cache.containsCacheId("id0"));
+        assertFalse(cache.containsCacheId("id1"));
+        assertTrue(cache.containsCacheId("id2"));
+        assertTrue(cache.containsCacheId("id3"));
+    }
+
+    @Test
+    public void testSelectOldestAccessStamp() {
+        ConcurrentEntryTable table = new ConcurrentEntryTable(8);
+        SampledEviction eviction = new SampledEviction(table, 8, 8);
+        CacheEntry a = newEntry(table, "a");
+        CacheEntry b = newEntry(table, "b");
+        CacheEntry c = newEntry(table, "c");
+        eviction.written(a);
+        eviction.written(b);
+        eviction.written(c);
+        assertTrue(eviction.selectVictim() == a);
+
+        // a hit takes the current clock, the stamp of the last write
+        eviction.accessed(a);
+        assertTrue(eviction.selectVictim() == b);
+        eviction.written(a);
+        eviction.accessed(b);
+        assertTrue(eviction.selectVictim() == c);
+
+        // a higher priority outlives entries written after it
+        c.priority = a.priority + 1;
+        eviction.written(a);
+        assertTrue(eviction.selectVictim() == b);
+    }
+
+    @Test
+    public void testSkipPinnedAndAliases() {
+        ConcurrentEntryTable table = new ConcurrentEntryTable(8);
+        SampledEviction eviction = new SampledEviction(table, 8, 8);
+        CacheEntry a = newEntry(table, "a");
+        CacheEntry b = newEntry(table, "b");
+        eviction.written(a);
+        eviction.written(b);
+        // an alias of b maps to b, so it does not make b look older than it is
+        table.put("alias", b);
+
+        a.incRefCount();
+        assertTrue(eviction.selectVictim() == b);
+        b.pendingRemoval = true;
+        assertNull(eviction.selectVictim());
+        a.decRefCount();
+        assertTrue(eviction.selectVictim() == a);
+    }
+
+    @Test
+    public void testSampleSize() {
+        ConcurrentEntryTable table = new ConcurrentEntryTable(8);
+        SampledEviction eviction = new SampledEviction(table, 1, 8);
+        for (int i = 0; i < 4; i++) {
+            eviction.written(newEntry(table, "id" + i));
+        }
+        // with one entry per sample, the hand moves on through the table
+        CacheEntry first = eviction.selectVictim();
+        CacheEntry second = eviction.selectVictim();
+        assertTrue(first != null && second != null && first != second);
+    }
+}
@@ -0,0 +1,452 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.ws.cache.LogSegment.Record;
+import com.ibm.ws.cache.intf.CacheStatisticsListener;
+import com.ibm.ws.cache.intf.DCache;
+import com.ibm.ws.cache.stat.CachePerf;
+
+public class SegmentLogOnDiskTest {
+
+    // four of these fit in a segment of 1MB, five do not
+    private static final int LARGE_VALUE = 200000;
+    private static final int SMALL_VALUE = 1000;
+
+    private File dir;
+    private File swapDir;
+    private Scheduler scheduler;
+    private TaskQueue tasks;
+    private final List<SegmentLogOnDisk> opened = new ArrayList<SegmentLogOnDisk>();
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("segmentlog", "");
+        dir.delete();
+        dir.mkdirs();
+        swapDir = new File(dir, "test" + File.separator + SegmentLogOnDisk.SEGMENT_LOG_DIRECTORY);
+        // background tasks are queued and run by the tests
+        tasks = new TaskQueue();
+        scheduler = new Scheduler();
+        scheduler.setExecutorService(tasks);
+        scheduler.activate();
+    }
+
+    @After
+    public void tearDown() {
+        for (SegmentLogOnDisk disk : opened) {
+            disk.close(true);
+        }
+        scheduler.deactivate();
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private SegmentLogOnDisk open() {
+        CacheConfig config = new CacheConfig();
+        config.cacheName = "test";
+        config.diskOffloadLocation = dir.getPath();
+        config.diskCachePerformanceLevel = CacheConfig.HIGH;
+        config.diskCacheSegmentSizeInMB = 1;
+        config.diskCacheSizeInGB = 0;
+        config.diskCacheSize = 0;
+        config.diskCacheEvictionPolicy = CacheConfig.EVICTION_NONE;
+        SegmentLogOnDisk disk = new SegmentLogOnDisk(config, newCache());
+        opened.add(disk);
+        return disk;
+    }
+
+    private void close(SegmentLogOnDisk disk, boolean clean) {
+        disk.close(clean);
+        opened.remove(disk);
+    }
+
+    private static DCache newCache() {
+        final CacheStatisticsListener statistics = (CacheStatisticsListener) Proxy.newProxyInstance(SegmentLogOnDiskTest.class.getClassLoader(),
+                                                                                                     new Class<?>[] { CacheStatisticsListener.class },
+                                                                                                     new DefaultHandler(null));
+        return (DCache) Proxy.newProxyInstance(SegmentLogOnDiskTest.class.getClassLoader(), new Class<?>[] { DCache.class }, new DefaultHandler(statistics));
+    }
+
+    private static CacheEntry newEntry(Object id, int size, Object... aliases) {
+        CacheEntry ce = new CacheEntry();
+        ce.cacheName = "test";
+        ce.id = id;
+        byte[] value = new byte[size];
+        value[0] = (byte) id.hashCode();
+        ce.value = value;
+        ce.aliasList = aliases;
+        assertTrue(ce.prepareForSerialization());
+        return ce;
+    }
+
+    private static void write(SegmentLogOnDisk disk, Object id, int size, Object... aliases) {
+        int rc = disk.writeCacheEntry(newEntry(id, size, aliases));
+        assertTrue("returnCode=" + rc, rc == HTODDynacache.NO_EXCEPTION || rc == HTODDynacache.NO_EXCEPTION_ENTRY_OVERWRITTEN);
+    }
+
+    private static void remove(SegmentLogOnDisk disk, Object id) {
+        CacheEntry ce = new CacheEntry();
+        ce.id = id;
+        disk.delCacheEntry(ce, CachePerf.DIRECT, CachePerf.LOCAL, false);
+    }
+
+    private static void assertEntry(SegmentLogOnDisk disk, Object key, Object id, int size) {
+        CacheEntry ce = disk.readCacheEntry(key);
+        assertNotNull(key + " is missing", ce);
+        assertEquals(id, ce.id);
+        byte[] value = (byte[]) ce.getValue();
+        assertEquals(size, value.length);
+        assertEquals((byte) id.hashCode(), value[0]);
+    }
+
+    private File[] segmentFiles() {
+        return swapDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.startsWith(SegmentLogOnDisk.SEGMENT_FILE_PREFIX) && name.endsWith(SegmentLogOnDisk.SEGMENT_FILE_SUFFIX);
+            }
+        });
+    }
+
+    /**
+     * Returns the records of a given type in the footers of the sealed segments on disk.
+     */
+    private List<Object> recordsOnDisk(byte type) throws Exception {
+        List<Object> ids = new ArrayList<Object>();
+        for (File file : segmentFiles()) {
+            LogSegment segment = LogSegment.open(file);
+            try {
+                if (segment.state == LogSegment.SEALED) {
+                    for (Record record : segment.readFooter("test")) {
+                        if (record.type == type) {
+                            ids.add(record.id);
+                        }
+                    }
+                }
+            } finally {
+                segment.close();
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void testCleanRestart() throws Exception {
+        SegmentLogOnDisk disk = open();
+        write(disk, "a", SMALL_VALUE, "alias");
+        write(disk, "b", LARGE_VALUE);
+        write(disk, "c", SMALL_VALUE);
+        // an overwritten entry and a removed entry are not restored
+        write(disk, "c", LARGE_VALUE);
+        write(disk, "d", SMALL_VALUE);
+        remove(disk, "d");
+        ValueSet dependents = new ValueSet(1);
+        dependents.add("a");
+        disk.writeDependency("dep", dependents);
+        close(disk, true);
+        assertFalse(new File(swapDir, CacheOnDisk.HTOD_IN_PROGRESS_FILENAME).exists());
+
+        disk = open();
+        assertEquals(3, disk.getCacheIdsSize(false));
+        assertEntry(disk, "a", "a", SMALL_VALUE);
+        assertEntry(disk, "alias", "a", SMALL_VALUE);
+        assertEntry(disk, "b", "b", LARGE_VALUE);
+        assertEntry(disk, "c", "c", LARGE_VALUE);
+        assertNull(disk.readCacheEntry("d"));
+        assertTrue(disk.readDependency("dep", false).contains("a"));
+        assertTrue(new File(swapDir, CacheOnDisk.HTOD_IN_PROGRESS_FILENAME).exists());
+    }
+
+    @Test
+    public void testUncleanShutdown() throws Exception {
+        SegmentLogOnDisk disk = open();
+        write(disk, "a", SMALL_VALUE);
+        // the InProgress file is left behind when the JVM ends without closing the cache
+        close(disk, false);
+        assertTrue(new File(swapDir, CacheOnDisk.HTOD_IN_PROGRESS_FILENAME).exists());
+
+        disk = open();
+        assertEquals(0, disk.getCacheIdsSize(false));
+        assertNull(disk.readCacheEntry("a"));
+        write(disk, "b", SMALL_VALUE);
+        close(disk, true);
+
+        disk = open();
+        assertNull(disk.readCacheEntry("a"));
+        assertEntry(disk, "b", "b", SMALL_VALUE);
+    }
+
+    @Test
+    public void testUnsealedSegment() throws Exception {
+        SegmentLogOnDisk disk = open();
+        write(disk, "a", SMALL_VALUE);
+        close(disk, true);
+
+        // an active segment without a footer, as it is after the JVM ends unexpectedly
+        LogSegment segment = LogSegment.create(new File(swapDir, SegmentLogOnDisk.SEGMENT_FILE_PREFIX + "99" + SegmentLogOnDisk.SEGMENT_FILE_SUFFIX), 64 * 1024, 99);
+        segment.append(LogSegment.ENTRY, "b", com.ibm.ws.cache.util.SerializationUtility.serialize("b"), new byte[10], new byte[10], -1, -1, 0);
+        segment.close();
+
+        // the index cannot be rebuilt, so the files are reinitialized
+        disk = open();
+        assertEquals(0, disk.getCacheIdsSize(false));
+        assertNull(disk.readCacheEntry("a"));
+        assertEquals(1, segmentFiles().length);
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        SegmentLogOnDisk disk = open();
+        int count = 0;
+        // fill more than one segment, so that the first one is sealed
+        while (segmentFiles().length < 2) {
+            write(disk, "k" + count++, SMALL_VALUE);
+        }
+        for (int i = 0; i < 100; i++) {
+            write(disk, "k" + count++, SMALL_VALUE);
+        }
+        // the first segment takes several batches to compact
+        assertTrue("records=" + count, count - 100 > 2 * SegmentLogOnDisk.COMPACTION_BATCH);
+        for (int i = 0; i < count; i++) {
+            if (i % 3 != 0) {
+                remove(disk, "k" + i);
+            }
+        }
+        assertEquals(1, tasks.runAll());
+
+        // the first segment was freed and its live entries were moved to the active segment
+        assertEquals(2, segmentFiles().length);
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 0) {
+                assertEntry(disk, "k" + i, "k" + i, SMALL_VALUE);
+            } else {
+                assertNull(disk.readCacheEntry("k" + i));
+            }
+        }
+        close(disk, true);
+
+        disk = open();
+        assertEquals((count + 2) / 3, disk.getCacheIdsSize(false));
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 0) {
+                assertEntry(disk, "k" + i, "k" + i, SMALL_VALUE);
+            } else {
+                assertNull(disk.readCacheEntry("k" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testTombstoneKeptForOlderSegment() throws Exception {
+        SegmentLogOnDisk disk = open();
+        for (int i = 0; i < 4; i++) {
+            write(disk, "a" + i, LARGE_VALUE);
+        }
+        for (int i = 0; i < 4; i++) {
+            write(disk, "b" + i, LARGE_VALUE);
+        }
+        for (int i = 0; i < 4; i++) {
+            write(disk, "c" + i, LARGE_VALUE);
+        }
+        // the tombstone of a0 is written to the segment of c0-c3
+        remove(disk, "a0");
+        write(disk, "d0", LARGE_VALUE);
+        for (int i = 0; i < 4; i++) {
+            remove(disk, "c" + i);
+        }
+        // compacting the segment of c0-c3 must keep the tombstone, since a0 is still in the first segment
+        assertEquals(1, tasks.runAll());
+        assertEquals(4, segmentFiles().length);
+        close(disk, true);
+        assertTrue(recordsOnDisk(LogSegment.TOMBSTONE).contains("a0"));
+
+        disk = open();
+        assertNull(disk.readCacheEntry("a0"));
+        assertEntry(disk, "a1", "a1", LARGE_VALUE);
+        assertEntry(disk, "b0", "b0", LARGE_VALUE);
+        assertEntry(disk, "d0", "d0", LARGE_VALUE);
+        assertNull(disk.readCacheEntry("c0"));
+    }
+
+    @Test
+    public void testTombstoneDroppedWithoutOlderSegment() throws Exception {
+        SegmentLogOnDisk disk = open();
+        for (int i = 0; i < 4; i++) {
+            write(disk, "a" + i, LARGE_VALUE);
+        }
+        write(disk, "b0", LARGE_VALUE);
+        // the tombstones of a0-a3 are written to the segment of b0, and the first segment is freed
+        for (int i = 0; i < 4; i++) {
+            remove(disk, "a" + i);
+        }
+        assertEquals(1, tasks.runAll());
+        for (int i = 1; i < 4; i++) {
+            write(disk, "b" + i, LARGE_VALUE);
+        }
+        // the free segment becomes the active segment
+        write(disk, "e0", LARGE_VALUE);
+        assertEquals(2, segmentFiles().length);
+        for (int i = 0; i < 4; i++) {
+            remove(disk, "b" + i);
+        }
+        // no older segment is left that holds a0-a3, so their tombstones are not copied
+        assertEquals(1, tasks.runAll());
+        close(disk, true);
+        List<Object> tombstones = recordsOnDisk(LogSegment.TOMBSTONE);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(tombstones.contains("a" + i));
+            assertTrue(tombstones.contains("b" + i));
+        }
+
+        disk = open();
+        assertEquals(1, disk.getCacheIdsSize(false));
+        assertNull(disk.readCacheEntry("a0"));
+        assertNull(disk.readCacheEntry("b0"));
+        assertEntry(disk, "e0", "e0", LARGE_VALUE);
+    }
+
+    @Test
+    public void testDeleteDiskCacheFiles() throws Exception {
+        SegmentLogOnDisk disk = open();
+        write(disk, "a", SMALL_VALUE);
+        // the segments are still mapped, which keeps the files from being deleted on Windows
+        disk.deleteDiskCacheFiles();
+        assertEquals(0, swapDir.listFiles().length);
+        assertNull(disk.readCacheEntry("a"));
+        close(disk, true);
+    }
+
+    /**
+     * Returns false for booleans, zero for numbers, the statistics listener for
+     * getCacheStatisticsListener, the cache name for getCacheName and null otherwise.
+     */
+    private static final class DefaultHandler implements InvocationHandler {
+        private final CacheStatisticsListener statistics;
+
+        DefaultHandler(CacheStatisticsListener statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("getCacheName")) {
+                return "test";
+            }
+            if (name.equals("getCacheStatisticsListener")) {
+                return statistics;
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class) {
+                return Boolean.FALSE;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An executor that queues the tasks until the test runs them.
+     */
+    private static final class TaskQueue extends AbstractExecutorService {
+        private final LinkedList<Runnable> queue = new LinkedList<Runnable>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        /**
+         * Runs the queued tasks, and the tasks they queue.
+         *
+         * @return the number of tasks run.
+         */
+        int runAll() {
+            int count = 0;
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = queue.poll();
+                }
+                if (task == null) {
+                    return count;
+                }
+                task.run();
+                count++;
+            }
+        }
+
+        @Override
+        public void shutdown() {}
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<Runnable>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.ManagedConnectionFactory;
+import javax.resource.spi.ValidatingManagedConnectionFactory;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.ws.j2c.poolmanager.ConnectionPoolProperties;
+import com.ibm.ws.jca.adapter.PurgePolicy;
+
+/**
+ * Validates idle connections in the background, so that requests can skip validating
+ * connections that were validated recently. Enabled by the maxValidationAge property
+ * when connections are validated before they are handed out.
+ * <ul>
+ * <li>Every reapTime / SLICES seconds, idle connections that were not created or validated
+ * within maxValidationAge are validated, at most a SLICES-th of the idle connections at a time,
+ * so that the validations are spread across the reap interval.</li>
+ * <li>A connection is taken out of its free pool while it is validated, so that it cannot be handed out at the same time.</li>
+ * <li>A connection that fails validation is destroyed. With purgePolicy EntirePool the pool is then purged,
+ * otherwise all the other idle connections are validated at once.</li>
+ * </ul>
+ * Validation starts with the first request that validates a connection, and stops when the pool is shut down or quiesced.
+ */
+final class BackgroundValidator implements Runnable {
+    private static final TraceComponent tc = Tr.register(BackgroundValidator.class, J2CConstants.traceSpec, J2CConstants.messageFile);
+
+    /** Number of validation runs per reap interval. */
+    static final int SLICES = 10;
+
+    private final PoolManager pm;
+
+    /** Managed connection factory that validates the connections, guarded by this. */
+    private ManagedConnectionFactory mcf;
+
+    /** Periodic validation, guarded by this. */
+    private ScheduledFuture<?> future;
+
+    /** Whether the periodic validation was started. Read by requests without locking. */
+    private volatile boolean started;
+
+    BackgroundValidator(PoolManager pm) {
+        this.pm = pm;
+    }
+
+    /**
+     * Start the periodic validation if it is not running yet. Called by requests that validate a connection.
+     */
+    void start(ManagedConnectionFactory managedConnectionFactory) {
+        if (!started)
+            synchronized (this) {
+                if (!started && pm.maxValidationAgeMillis >= 0 && managedConnectionFactory instanceof ValidatingManagedConnectionFactory) {
+                    mcf = managedConnectionFactory;
+                    long interval = Math.max(1, (pm.reapTime > 0 ? pm.reapTime : ConnectionPoolProperties.DEFAULT_REAP_TIME) / SLICES);
+                    try {
+                        future = pm.connectorSvc.deferrableSchedXSvcRef.getServiceWithException().scheduleWithFixedDelay(this, interval, interval, TimeUnit.SECONDS);
+                    } catch (RuntimeException x) {
+                        com.ibm.ws.ffdc.FFDCFilter.processException(x, getClass().getName(), "76", this);
+                        return; // tried again by the next request
+                    }
+                    started = true;
+                    if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
+                        Tr.debug(this, tc, "validating idle connections of pool " + pm.gConfigProps.cfName + " every " + interval + " seconds");
+                }
+            }
+    }
+
+    /**
+     * Stop the periodic validation. It starts again with the next request that validates a connection.
+     */
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        started = false;
+    }
+
+    /**
+     * Periodic validation of idle connections.
+     */
+    @Override
+    public void run() {
+        long maxAgeMillis = pm.maxValidationAgeMillis;
+        if (maxAgeMillis < 0 || !pm.isPoolOpen()) {
+            stop();
+            return;
+        }
+
+        ManagedConnectionFactory managedConnectionFactory;
+        synchronized (this) {
+            managedConnectionFactory = mcf;
+        }
+
+        long start = System.currentTimeMillis();
+        if (validate(managedConnectionFactory, maxAgeMillis, false) > 0) {
+            if (pm.gConfigProps.getPurgePolicy() == PurgePolicy.EntirePool) {
+                if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
+                    Tr.debug(this, tc, "purging pool " + pm.gConfigProps.cfName);
+                pm.fatalErrorNotification(managedConnectionFactory, null, null);
+            } else {
+                // validate the other idle connections now rather than over the rest of the reap interval
+                validate(managedConnectionFactory, System.currentTimeMillis() - start + 1, true);
+            }
+        }
+    }
+
+    /**
+     * Validate idle connections that were not created or validated within the maximum age.
+     *
+     * @param managedConnectionFactory validates the connections.
+     * @param maxAgeMillis maximum validation age.
+     * @param all true to validate all of them, false to validate at most a SLICES-th of the idle connections.
+     * @return number of connections that failed validation and were destroyed.
+     */
+    private int validate(ManagedConnectionFactory managedConnectionFactory, long maxAgeMillis, boolean all) {
+        final boolean trace = TraceComponent.isAnyTracingEnabled();
+
+        List<MCWrapper> due = new ArrayList<MCWrapper>();
+        int idle = 0;
+        for (int j = 0; j < pm.maxFreePoolHashSize; ++j) {
+            FreePool fp = pm.freePool[j];
+            synchronized (fp.freeConnectionLockObject) {
+                for (Object o : fp.mcWrapperList) {
+                    MCWrapper mcw = (MCWrapper) o;
+                    ++idle;
+                    if (!mcw.isValidatedWithin(maxAgeMillis))
+                        due.add(mcw);
+                }
+            }
+        }
+        int count = all ? due.size() : Math.min(due.size(), (idle + SLICES - 1) / SLICES);
+
+        int validated = 0, failed = 0;
+        ValidatingManagedConnectionFactory validatingMCF = (ValidatingManagedConnectionFactory) managedConnectionFactory;
+        for (int i = 0; i < count && pm.isPoolOpen(); i++) {
+            MCWrapper mcw = due.get(i);
+            FreePool fp = pm.freePool[mcw.getHashMapBucket()];
+            if (!fp.removeMCWrapperFromList(mcw))
+                continue; // handed out since
+
+            boolean valid;
+            mcw.setPoolState(50);
+            try {
+                valid = validatingMCF.getInvalidConnections(Collections.singleton(mcw.getManagedConnection())).isEmpty();
+            } catch (ResourceException x) {
+                com.ibm.ws.ffdc.FFDCFilter.processException(x, getClass().getName(), "163", this);
+                fp.returnIdleConnection(mcw);
+                break;
+            } catch (RuntimeException x) {
+                com.ibm.ws.ffdc.FFDCFilter.processException(x, getClass().getName(), "167", this);
+                fp.returnIdleConnection(mcw);
+                break;
+            }
+
+            ++validated;
+            if (valid) {
+                mcw.setValidated();
+                fp.returnIdleConnection(mcw);
+            } else {
+                ++failed;
+                if (trace && tc.isDebugEnabled())
+                    Tr.debug(this, tc, "destroying idle connection that failed validation", mcw);
+                mcw.markStale();
+                fp.cleanupAndDestroyMCWrapper(mcw);
+                fp.removeMCWrapperFromList(mcw, false, true, false, true);
+            }
+        }
+
+        if (trace && tc.isDebugEnabled())
+            Tr.debug(this, tc, "pool " + pm.gConfigProps.cfName + ": idle " + idle + ", due " + due.size() + ", validated " + validated + ", failed " + failed);
+        return failed;
+    }
+}
@@ -517,6 +517,7 @@ public class ConnectionManagerServiceImpl extends ConnectionManagerService {
         int maxIdleTime = validateProperty(map, MAX_IDLE_TIME, ConnectionPoolProperties.DEFAULT_UNUSED_TIMEOUT, TimeUnit.SECONDS, -1, Integer.MAX_VALUE, null, 0, connectorSvc);
         int maxNumberOfMCsAllowableInThread = validateProperty(map, MAX_CONNECTIONS_PER_THREAD, 0, null, 0, Integer.MAX_VALUE, connectorSvc);
         int maxPoolSize = validateProperty(map, MAX_POOL_SIZE, 50, null, 0, Integer.MAX_VALUE, connectorSvc);
+        int maxValidationAge = validateProperty(map, MAX_VALIDATION_AGE, -1, TimeUnit.SECONDS, -1, Integer.MAX_VALUE, connectorSvc);
         int minPoolSize = 0;
         if (maxPoolSize == 0)
             minPoolSize = validateProperty(map, MIN_POOL_SIZE, 0, null, 0, Integer.MAX_VALUE, connectorSvc);
@@ -525,6 +526,7 @@ public class ConnectionManagerServiceImpl extends ConnectionManagerService {
 
         int numConnectionsPerThreadLocal = validateProperty(map, NUM_CONNECTIONS_PER_THREAD_LOCAL, ConnectionPoolProperties.DEFAULT_numConnectionsPerThreadLocal,
                                                             null, 0, Integer.MAX_VALUE, connectorSvc);
+        int prefillThreads = validateProperty(map, PREFILL_THREADS, 0, null, 0, Integer.MAX_VALUE, connectorSvc);
         int reapTime = validateProperty(map, J2CConstants.POOL_ReapTime, ConnectionPoolProperties.DEFAULT_REAP_TIME, TimeUnit.SECONDS, -1, Integer.MAX_VALUE, null,
                                         0, connectorSvc);
         boolean throwExceptionOnMCThreadCheck = false;
@@ -577,6 +579,12 @@ public class ConnectionManagerServiceImpl extends ConnectionManagerService {
             if (pm.gConfigProps.getMaxNumberOfMCsAllowableInThread() != maxNumberOfMCsAllowableInThread)
                 pm.gConfigProps.setMaxNumberOfMCsAllowableInThread(maxNumberOfMCsAllowableInThread);
 
+            if (pm.gConfigProps.getPrefillThreads() != prefillThreads)
+                pm.gConfigProps.setPrefillThreads(prefillThreads);
+
+            if (pm.gConfigProps.getMaxValidationAge() != maxValidationAge)
+                pm.gConfigProps.setMaxValidationAge(maxValidationAge);
+
             return null;
         } else {
             // Connection pool does not exist, create j2c global configuration properties for creating pool.
@@ -585,7 +593,8 @@ public class ConnectionManagerServiceImpl extends ConnectionManagerService {
                             100, // maxFreePoolHashSize,
                             false, // diagnoseConnectionUsage,
                             connectionTimeout, maxPoolSize, minPoolSize, purgePolicy, reapTime, maxIdleTime, agedTimeout, ConnectionPoolProperties.DEFAULT_HOLD_TIME_LIMIT, 0, // commit priority not supported
-                            numConnectionsPerThreadLocal, maxNumberOfMCsAllowableInThread, throwExceptionOnMCThreadCheck);
+                            numConnectionsPerThreadLocal, maxNumberOfMCsAllowableInThread, throwExceptionOnMCThreadCheck, prefillThreads,
+                            maxValidationAge);
 
         }
     }
@@ -333,27 +333,81 @@ public final class FreePool implements JCAPMIHelper {
 
         }
 
+        addToFreePool(mcWrapper);
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
+            Tr.exit(this, tc, "returnToFreePoolDelegated");
+        }
+    }
+
+    /**
+     * Return a connection that was taken out of this free pool without being used, to validate it.
+     * Unlike returnToFreePool, the connection is not cleaned up.
+     *
+     * @pre mcWrapper != null
+     */
+    protected void returnIdleConnection(MCWrapper mcWrapper) {
+        if (mcWrapper.shouldBeDestroyed() || mcWrapper.hasFatalErrorNotificationOccurred(fatalErrorNotificationTime)
+            || ((pm.agedTimeout != 0)
+                && (mcWrapper.hasAgedTimedOut(pm.agedTimeoutMillis)))) {
+            returnToFreePool(mcWrapper); // destroys it
+        } else {
+            addToFreePool(mcWrapper);
+        }
+    }
+
+    /**
+     * Add a connection to this free pool, or hand it to a request waiting for a connection.
+     */
+    private void addToFreePool(MCWrapper mcWrapper) {
         /*
-         * Return mcWrapper to free pool
+         * With no requests waiting, which is the normal case, only this free pool is locked.
+         * A request that starts waiting increments waiterCount before it looks at the free
+         * pools, so after adding the connection either the request finds it or we see the
+         * waiterCount and hand the connection over under the pm.waiterFreePoolLock.
          */
-        synchronized (pm.waiterFreePoolLock) {
-            // waiter code
-            if ((pm.waiterCount > 0) && (pm.waiterCount > pm.mcWrapperWaiterList.size())) {
-                // there are requests waiting, so notify one of them
-                pm.mcWrapperWaiterList.add(mcWrapper);
-                mcWrapper.setPoolState(4);
-                pm.waiterFreePoolLock.notify();
-            } else {
-                synchronized (freeConnectionLockObject) {
-                    mcWrapperList.add(mcWrapper); // Add to end of list
-                    mcWrapper.setPoolState(1);
-                }
+        if (pm.waiterCount == 0) {
+            synchronized (freeConnectionLockObject) {
+                mcWrapperList.add(mcWrapper); // Add to end of list
+                mcWrapper.setPoolState(1);
             }
             ((com.ibm.ejs.j2c.MCWrapper) mcWrapper).setAlreadyBeingReleased(false);
-        } // end synchronized (freeLockObject)
-
-        if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
-            Tr.exit(this, tc, "returnToFreePoolDelegated");
+            if (pm.waiterCount > 0) {
+                synchronized (pm.waiterFreePoolLock) {
+                    if ((pm.waiterCount > 0) && (pm.waiterCount > pm.mcWrapperWaiterList.size())) {
+                        boolean stillFree = false;
+                        synchronized (freeConnectionLockObject) {
+                            // another request may have already taken it
+                            if (mcWrapperList.remove(mcWrapper)) {
+                                mcWrapper.setPoolState(0);
+                                stillFree = true;
+                            }
+                        }
+                        if (stillFree) {
+                            // there are requests waiting, so notify one of them
+                            pm.mcWrapperWaiterList.add(mcWrapper);
+                            mcWrapper.setPoolState(4);
+                            pm.waiterFreePoolLock.notify();
+                        }
+                    }
+                } // end synchronized (waiterFreePoolLock)
+            }
+        } else {
+            synchronized (pm.waiterFreePoolLock) {
+                // waiter code
+                if ((pm.waiterCount > 0) && (pm.waiterCount > pm.mcWrapperWaiterList.size())) {
+                    // there are requests waiting, so notify one of them
+                    pm.mcWrapperWaiterList.add(mcWrapper);
+                    mcWrapper.setPoolState(4);
+                    pm.waiterFreePoolLock.notify();
+                } else {
+                    synchronized (freeConnectionLockObject) {
+                        mcWrapperList.add(mcWrapper); // Add to end of list
+                        mcWrapper.setPoolState(1);
+                    }
+                }
+                ((com.ibm.ejs.j2c.MCWrapper) mcWrapper).setAlreadyBeingReleased(false);
+            } // end synchronized (waiterFreePoolLock)
         }
     }
 
@@ -546,6 +600,76 @@ public final class FreePool implements JCAPMIHelper {
         return pm.totalConnectionCount.get();
     }
 
+    /**
+     * Add a connection about to be created to the total connection count if
+     * maxConnections allows it. maxConnections of zero means no limit.
+     *
+     * @return true if the connection was counted and can be created
+     */
+    private boolean reserveConnection() {
+        while (true) {
+            int total = pm.totalConnectionCount.get();
+            int max = pm.maxConnections;
+            if (max != 0 && total >= max) {
+                return false;
+            }
+            if (pm.totalConnectionCount.compareAndSet(total, total + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Create a connection ahead of demand and add it to this free pool, or hand it
+     * to a waiting request. Used to fill the pool, see PoolPrefiller.
+     *
+     * @return false if no connection was created because the pool is at maxConnections
+     * @throws ResourceAllocationException if the connection could not be created
+     */
+    protected boolean prefillConnection(ManagedConnectionFactory managedConnectionFactory, Subject subject, ConnectionRequestInfo cri,
+                                        int hashCode, int hashMapBucket) throws ResourceAllocationException {
+        if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
+            Tr.entry(this, tc, "prefillConnection", gConfigProps.cfName);
+        }
+
+        if (!reserveConnection()) {
+            if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
+                Tr.exit(this, tc, "prefillConnection", false);
+            }
+            return false;
+        }
+
+        MCWrapper mcWrapper = null;
+        pm.requestingAccessToPool();
+        try {
+            // decrements activeRequest when it fails
+            mcWrapper = createManagedConnectionWithMCWrapper(managedConnectionFactory, subject, cri, false, hashCode);
+        } catch (ResourceAllocationException e) {
+            synchronized (pm.waiterFreePoolLock) {
+                pm.totalConnectionCount.decrementAndGet();
+                if (pm.waiterCount > 0) {
+                    pm.waiterFreePoolLock.notify();
+                }
+            }
+            if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
+                Tr.exit(this, tc, "prefillConnection", e);
+            }
+            throw e;
+        }
+        mcWrapper.setHashMapBucket(hashMapBucket);
+        mcWrapper.setMCWrapperList(mcWrapperList);
+        synchronized (freeConnectionLockObject) {
+            ++numberOfConnectionsAssignedToThisFreePool;
+        }
+        addToFreePool(mcWrapper);
+        pm.activeRequest.decrementAndGet();
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
+            Tr.exit(this, tc, "prefillConnection", mcWrapper);
+        }
+        return true;
+    }
+
     /**
      * Return a mcWrapper from the free pool.
      */
@@ -737,22 +861,14 @@ public final class FreePool implements JCAPMIHelper {
                                    *
                                    * changed maxConnections to use pm.maxConnections.
                                    */
-            if ((pm.maxConnections == 0) || (pm.totalConnectionCount.get() < pm.maxConnections)) { // dirty read total connection count to save
-                // synchronized call  - extra item
-                // added (maxConnections == 0)
-                synchronized (pm.pmCounterLock) {
-                    if ((pm.totalConnectionCount.get() < pm.maxConnections) || pm.maxConnections == 0) {
-                        /*
-                         * We didn't find a connection in the free pool. Need to create a new one
-                         * Add to the counters
-                         */
-                        pm.totalConnectionCount.incrementAndGet();
-                        addingAConnection = true;
+            if (reserveConnection()) {
+                /*
+                 * We didn't find a connection in the free pool. Need to create a new one
+                 */
+                addingAConnection = true;
 
-                        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
-                            Tr.debug(this, tc, "TotalConnectionCount is " + pm.totalConnectionCount.get());
-                        }
-                    }
+                if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                    Tr.debug(this, tc, "TotalConnectionCount is " + pm.totalConnectionCount.get());
                 }
             }
 
@@ -779,20 +895,32 @@ public final class FreePool implements JCAPMIHelper {
                          * been returned to the free pool.
                          *
                          * We need to check for this connection before we queue this thread. While we have
-                         * the pm.waiterFreePoolLock, no connection will be return to any free pool. So,
-                         * all we need to do is quickly look at the number of connection in each free pool
+                         * the pm.waiterFreePoolLock, no connection will be handed to the waiter queue, but
+                         * returnToFreePoolDelegated adds connections to a free pool without it when there
+                         * are no waiters. This request is counted as a waiter before looking at the free
+                         * pools so that a connection added after we looked is handed over to the waiter queue.
                          */
+                        if (tc.isDebugEnabled()) {
+                            if (pm.waiterCount == 0)
+                                pm.waitersStartedTime = System.currentTimeMillis();
+                        }
+
+                        // increment the number of requests waiting
+                        pm.waiterCount++;
+
                         MCWrapper mcWrapperTemp = null;
-                        for (int j = 0; j < maxFreePoolHashSize; ++j) {
-                            /*
-                             * *
-                             * This is not double-checked locking. The following code diry reads the size of
-                             * the mcWrapperList that may be change at any time by another thread. If it is greater than zero,
-                             * we need to synchronize and check the value again. If it is still greater than
-                             * zero, we have one or more mcWrappers to work with. In order to work with the
-                             * mcWrapperList, we need to be synchronized.
-                             */
-                            if (pm.freePool[j].mcWrapperList.size() > 0) { //  Dirty read to avoid synchronize call
+                        MCWrapper tlsWrapper = null;
+                        boolean searched = false;
+                        try {
+                            for (int j = 0; j < maxFreePoolHashSize; ++j) {
+                                /*
+                                 * The size is read under the free pool lock, not dirty. A release that found no
+                                 * waiters adds its connection under this lock and then reads the volatile waiterCount;
+                                 * this request incremented waiterCount before taking the lock. So either this lock is
+                                 * taken after the release added the connection and the connection is seen here, or
+                                 * the increment happens-before the release takes the lock, and the release sees the
+                                 * waiter and hands the connection to the waiter queue under pm.waiterFreePoolLock.
+                                 */
                                 synchronized (pm.freePool[j].freeConnectionLockObject) {
                                     if (pm.freePool[j].mcWrapperList.size() > 0) {
                                         // A connection was returned to the a free pool
@@ -879,8 +1007,17 @@ public final class FreePool implements JCAPMIHelper {
                                         break;
                                     } // end if (pm.freePool[j][i].numberOfConnectionsInFreePool > 0)
                                 } // end synchronized
-                            } // end if (pm.freePool[j][i].numberOfConnectionsInFreePool > 0)
-                        } // j loop
+                            } // j loop
+                            if (mcWrapperTemp == null && pm.isThreadLocalConnectionEnabled && waitTimeout >= 0) {
+                                tlsWrapper = pm.searchTLSForMatchingConnection(managedConnectionFactory, subject, cri);
+                            }
+                            searched = true;
+                        } finally {
+                            if (!searched) {
+                                // The match or the thread local search failed, this request is not going to wait.
+                                pm.waiterCount--;
+                            }
+                        }
                         /*
                          * At this point we may or may not have a mcWrapper.
                          *
@@ -895,21 +1032,16 @@ public final class FreePool implements JCAPMIHelper {
                          * will break out of the while(true)). For case 4, mcWrapperTemp is null and we will check for a tls matching connection.
                          */
                         if (mcWrapperTemp == null) {
-                            if (pm.isThreadLocalConnectionEnabled && waitTimeout >= 0) {
-                                mcWrapper = pm.searchTLSForMatchingConnection(managedConnectionFactory, subject, cri);
-                                if (mcWrapper != null)
-                                    break;
+                            if (tlsWrapper != null) {
+                                mcWrapper = tlsWrapper;
+                                pm.waiterCount--;
+                                break;
                             }
 
                             if (tc.isDebugEnabled()) {
-                                if (pm.waiterCount == 0)
-                                    pm.waitersStartedTime = System.currentTimeMillis();
                                 Tr.debug(this, tc, "Waiters: requests for connections are being queued. Start Time" + pm.waitersStartedTime);
                             }
 
-                            // increment the number of requests waiting
-                            pm.waiterCount++;
-
                             if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
                                 Tr.debug(
                                          tc,
@@ -924,6 +1056,7 @@ public final class FreePool implements JCAPMIHelper {
                             waitEndTime = System.currentTimeMillis();
                         } else {
                             //We have a connections or we will be creating one.
+                            pm.waiterCount--;
                             break;
                         }
                     } // end if (waitStartTime == 0)
@@ -1071,17 +1204,13 @@ public final class FreePool implements JCAPMIHelper {
                      * Try to create a connection again.
                      * Check the totalConnectionCount to see if we can create a connection.
                      */
-                    synchronized (pm.pmCounterLock) {
-                        if (pm.totalConnectionCount.get() < pm.maxConnections) { // Can we create a connection?, changed maxConnections to use pm.maxConnections
-                            /*
-                             * We can create a connection.
-                             */
-                            pm.totalConnectionCount.incrementAndGet();
-                            addingAConnection = true;
-                            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
-                                Tr.debug(this, tc, "Total connection count is " + pm.totalConnectionCount.get());
-                            }
-
+                    if (reserveConnection()) {
+                        /*
+                         * We can create a connection.
+                         */
+                        addingAConnection = true;
+                        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                            Tr.debug(this, tc, "Total connection count is " + pm.totalConnectionCount.get());
                         }
                     }
 
@@ -1351,6 +1480,7 @@ public final class FreePool implements JCAPMIHelper {
                 Tr.debug(this, tc, "raClassLoader", raClassLoader);
 
             JcaServiceUtilities jcasu = new JcaServiceUtilities();
+            long createStart = System.nanoTime();
             if (raClassLoader == null) {
                 mc = managedConnectionFactory.createManagedConnection(subject, cri);
             } else {
@@ -1361,6 +1491,7 @@ public final class FreePool implements JCAPMIHelper {
                     jcasu.endContextClassLoader(raClassLoader, previousClassLoader);
                 }
             }
+            pm.connectionCreateTimes.record(System.nanoTime() - createStart);
             mcWrapper = new com.ibm.ejs.j2c.MCWrapper(pm, gConfigProps);
             mcWrapper.setManagedConnection(mc);
 
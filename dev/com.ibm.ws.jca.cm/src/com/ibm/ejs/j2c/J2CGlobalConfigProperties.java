@@ -353,6 +353,21 @@ public final class J2CGlobalConfigProperties implements PropertyChangeListener,
 
     protected int holdTimeLimit = 10;
     private int numConnectionsPerThreadLocal = 0;
+    /**
+     * Number of connections created at the same time to fill the pool ahead of demand.
+     * Zero disables filling, connections are then only created by requests.
+     *
+     * MBeans: Filling starts or stops with the next request or check.
+     */
+    private int prefillThreads = 0;
+    /**
+     * Seconds for which a connection that was created or validated is not validated again
+     * when it is requested, while idle connections are validated in the background.
+     * -1 validates connections on every request, when validation is enabled.
+     *
+     * MBeans: The background validation starts or stops with the next request.
+     */
+    private int maxValidationAge = -1;
 
     private int orphanConnHoldTimeLimitSeconds = 10; // Dynamically Updateable
 
@@ -404,7 +419,9 @@ public final class J2CGlobalConfigProperties implements PropertyChangeListener,
                                      int commitPriority,
                                      int numConnectionsPerThreadLocal,
                                      Integer maxNumberOfMCsAllowableInThread,
-                                     Boolean throwExceptionOnMCThreadCheck) {
+                                     Boolean throwExceptionOnMCThreadCheck,
+                                     int prefillThreads,
+                                     int maxValidationAge) {
         if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
             Tr.entry(this, tc, "<init>", "Full Constructor");
         }
@@ -448,6 +465,8 @@ public final class J2CGlobalConfigProperties implements PropertyChangeListener,
         this.numConnectionsPerThreadLocal = numConnectionsPerThreadLocal;
         this.maxNumberOfMCsAllowableInThread = maxNumberOfMCsAllowableInThread;
         this.throwExceptionOnMCThreadCheck = throwExceptionOnMCThreadCheck;
+        this.prefillThreads = prefillThreads;
+        this.maxValidationAge = maxValidationAge;
 
         /*
          * This value will be checked in the fatelErrorNotification code. We
@@ -597,6 +616,38 @@ public final class J2CGlobalConfigProperties implements PropertyChangeListener,
         this.minConnections = _minConnections;
     }
 
+    /**
+     * @return Returns the prefillThreads.
+     */
+    public synchronized final int getPrefillThreads() {
+        return prefillThreads;
+    }
+
+    /**
+     * @param prefillThreads
+     *            The prefillThreads to set.
+     */
+    public synchronized final void setPrefillThreads(int _prefillThreads) {
+        changeSupport.firePropertyChange("prefillThreads", this.prefillThreads, _prefillThreads);
+        this.prefillThreads = _prefillThreads;
+    }
+
+    /**
+     * @return Returns the maxValidationAge.
+     */
+    public synchronized final int getMaxValidationAge() {
+        return maxValidationAge;
+    }
+
+    /**
+     * @param maxValidationAge
+     *            The maxValidationAge to set.
+     */
+    public synchronized final void setMaxValidationAge(int _maxValidationAge) {
+        changeSupport.firePropertyChange("maxValidationAge", this.maxValidationAge, _maxValidationAge);
+        this.maxValidationAge = _maxValidationAge;
+    }
+
     /**
      * @return Returns the purgePolicy.
      */
@@ -926,6 +977,8 @@ public final class J2CGlobalConfigProperties implements PropertyChangeListener,
         buf.append("  maxFreePoolHashSize             : " + maxFreePoolHashSize + nl);
         buf.append("  orphanConnHoldTimeLimitSeconds  : " + orphanConnHoldTimeLimitSeconds + nl);
         buf.append(" numConnectionsPerThreadLocal  : " + numConnectionsPerThreadLocal + nl);
+        buf.append("  prefillThreads                  : " + prefillThreads + nl);
+        buf.append("  maxValidationAge                : " + maxValidationAge + nl);
 
         return buf.toString();
     }
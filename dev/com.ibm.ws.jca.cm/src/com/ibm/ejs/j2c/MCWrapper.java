@@ -280,6 +280,8 @@ public final class MCWrapper implements com.ibm.ws.j2c.MCWrapper, JCAPMIHelper {
     private long createdTimeStamp;
     // The time this wrapper was released back to the PoolManager, and thus is unused.
     private long unusedTimeStamp;
+    // The time the ManagedConnection was created or last passed validation.
+    private volatile long validatedTimeStamp;
     /**
      * Combined Subject and CRI hash code
      */
@@ -628,6 +630,7 @@ public final class MCWrapper implements com.ibm.ws.j2c.MCWrapper, JCAPMIHelper {
             mc = newMC;
             createdTimeStamp = java.lang.System.currentTimeMillis();
             unusedTimeStamp = createdTimeStamp;
+            validatedTimeStamp = createdTimeStamp;
             eventListener = new com.ibm.ejs.j2c.ConnectionEventListener(this);
             mc.addConnectionEventListener(eventListener);
 
@@ -3034,6 +3037,21 @@ public final class MCWrapper implements com.ibm.ws.j2c.MCWrapper, JCAPMIHelper {
         return cm;
     }
 
+    /**
+     * Record that the managed connection passed validation.
+     */
+    public void setValidated() {
+        validatedTimeStamp = java.lang.System.currentTimeMillis();
+    }
+
+    /**
+     * @param maxAgeMillis maximum validation age in milliseconds. Negative if validations are not trusted.
+     * @return true if the managed connection was created or passed validation within the maximum age.
+     */
+    public boolean isValidatedWithin(long maxAgeMillis) {
+        return maxAgeMillis >= 0 && java.lang.System.currentTimeMillis() - validatedTimeStamp < maxAgeMillis;
+    }
+
     public boolean isPretestThisConnection() {
         return pretestThisConnection;
     }
@@ -94,12 +94,16 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
 
     private ClassLoader raClassLoader;
 
-    protected final Integer pmCounterLock = new Integer(0);
     protected final Integer destroyMCWrapperListLock = new Integer(0);
     protected final AtomicInteger totalConnectionCount = new AtomicInteger(0);
     protected final Integer poolManagerBalancePoolLock = new Integer(0);
     protected final Integer waiterFreePoolLock = new Integer(0);
-    protected int waiterCount = 0;
+    /**
+     * Number of requests waiting for a connection. Only changed while holding
+     * waiterFreePoolLock, but read without it on the release path, see
+     * FreePool.returnToFreePoolDelegated.
+     */
+    protected volatile int waiterCount = 0;
     protected boolean allowConnectionRequests = true;
     private boolean connectionPoolShutDown = false;
     protected final Integer poolManagerTestConnectionLock = new Integer(0);
@@ -126,6 +130,29 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
     protected int maxFreePoolHashSize = 0;
     protected int maxNumberOfMCsAllowableInThread = 0;
     protected boolean throwExceptionOnMCThreadCheck = false;
+    protected volatile int prefillThreads = 0;
+
+    /**
+     * Creates connections ahead of demand when prefillThreads is set.
+     */
+    protected final PoolPrefiller prefiller = new PoolPrefiller(this);
+
+    /**
+     * Time taken by createManagedConnection.
+     */
+    protected final TimeHistogram connectionCreateTimes = new TimeHistogram();
+
+    /**
+     * Milliseconds for which a connection that was created or validated is not validated again
+     * when it is requested. Negative to validate connections on every request, which is also
+     * what a maxValidationAge of 0 means.
+     */
+    protected volatile long maxValidationAgeMillis = -1;
+
+    /**
+     * Validates idle connections in the background when maxValidationAge is set.
+     */
+    protected final BackgroundValidator validator = new BackgroundValidator(this);
 
     protected long waitersStartedTime;
     protected long waitersEndedTime;
@@ -211,6 +238,10 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
 
         this.connectionTimeout = gConfigProps.getConnectionTimeout();
 
+        this.prefillThreads = gConfigProps.getPrefillThreads();
+        int maxValidationAge = gConfigProps.getMaxValidationAge();
+        this.maxValidationAgeMillis = maxValidationAge <= 0 ? -1 : (long) maxValidationAge * 1000;
+
         if (this.maxCapacity < 1) {
             this.localConnection_ = null;
             if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
@@ -290,6 +321,8 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
             Tr.debug(this, tc, "Aged Timeout                            = " + agedTimeout + " (seconds)");
             Tr.debug(this, tc, "Free Pool Distribution Table Size       = " + maxFreePoolHashSize);
             Tr.debug(this, tc, "Number Of Shared Pool Partitions        = " + maxSharedBuckets);
+            Tr.debug(this, tc, "Prefill Threads                         = " + prefillThreads);
+            Tr.debug(this, tc, "Maximum Validation Age                  = " + maxValidationAge + " (seconds)");
         }
         if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
             Tr.exit(this, tc, "<init>");
@@ -602,6 +635,8 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
         }
 
         connectionPoolShutDown = true;
+        prefiller.stop();
+        validator.stop();
 
         if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
             Tr.debug(this, tc, "Shutting down pool manager connections in free pool ");
@@ -1294,6 +1329,9 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
 
             int hashCode = computeHashCode(subject, requestInfo);
             int hashMapBucket = hashCode % maxFreePoolHashSize;
+            if (prefillThreads > 0) {
+                prefiller.recordRequest(managedConnectionFactory, subject, requestInfo, hashCode);
+            }
             /*
              * If we have waiters, we don't have any free connection, move to the
              * create or wait code. If we don't have any waiters, we need to look for
@@ -1514,9 +1552,17 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
 
             // if the mcWrapper is null, the following code will not be executed.
             ManagedConnection mc = mcWrapper.getManagedConnection();
-            if (((managedConnectionFactory instanceof WSManagedConnectionFactory &&
-                  ((WSManagedConnectionFactory) managedConnectionFactory).isPooledConnectionValidationEnabled())
-                 || ((com.ibm.ejs.j2c.MCWrapper) mcWrapper).isPretestThisConnection())
+            boolean validate = managedConnectionFactory instanceof WSManagedConnectionFactory &&
+                               ((WSManagedConnectionFactory) managedConnectionFactory).isPooledConnectionValidationEnabled();
+            if (validate && maxValidationAgeMillis >= 0 && gConfigProps.validatingMCFSupported) {
+                /*
+                 * Idle connections are validated in the background, so a connection that was
+                 * created or validated recently is not validated again.
+                 */
+                validator.start(managedConnectionFactory);
+                validate = !((com.ibm.ejs.j2c.MCWrapper) mcWrapper).isValidatedWithin(maxValidationAgeMillis);
+            }
+            if ((validate || ((com.ibm.ejs.j2c.MCWrapper) mcWrapper).isPretestThisConnection())
                 && gConfigProps.validatingMCFSupported) {
                 /*
                  * Reset pretest value
@@ -1533,9 +1579,10 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
                 mcWrapper.setPoolState(50);
                 ValidatingManagedConnectionFactory validatingMCF = ((ValidatingManagedConnectionFactory) managedConnectionFactory);
                 Set<?> invalid = validatingMCF.getInvalidConnections(Collections.singleton(mc));
-                if (invalid.isEmpty())
+                if (invalid.isEmpty()) {
                     mcWrapper.setPoolState(poolState);
-                else {
+                    ((com.ibm.ejs.j2c.MCWrapper) mcWrapper).setValidated();
+                } else {
                     /*
                      * Before we try to create a new connection, we need to destroy the
                      * connection that failed the preTestConnection
@@ -1559,9 +1606,10 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
                     }
                     mc = mcWrapper.getManagedConnection();
                     invalid = validatingMCF.getInvalidConnections(Collections.singleton(mc));
-                    if (invalid.isEmpty())
+                    if (invalid.isEmpty()) {
                         allowConnectionRequests = true;
-                    else
+                        ((com.ibm.ejs.j2c.MCWrapper) mcWrapper).setValidated();
+                    } else
                         preTestFailed(managedConnectionFactory, subject, requestInfo, hashMapBucket, new ResourceAllocationException());
                 }
             }
@@ -2266,6 +2314,9 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
             freePool[0].cleanupAndDestroyMCWrapper(mcw);
             this.totalConnectionCount.decrementAndGet();
         }
+        if (prefillThreads > 0) {
+            prefiller.fillToMinimum();
+        }
         if (tc.isEntryEnabled()) {
             Tr.exit(this, tc, "purgePoolContents");
         }
@@ -2383,6 +2434,10 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
             }
         } // end for loop
 
+        if (prefillThreads > 0) {
+            prefiller.fillToMinimum();
+        }
+
         if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
             Tr.exit(tc, "purgePoolContents");
         }
@@ -3663,6 +3718,14 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
 
     }
 
+    /**
+     * @return true if the pool is in use and not shut down or quiesced, so that connections
+     *         may be created or validated ahead of demand
+     */
+    protected boolean isPoolOpen() {
+        return !connectionPoolShutDown && !_quiesce && !pmQuiesced && allowConnectionRequests && gConfigProps.connectionPoolingEnabled;
+    }
+
     /**
      * The caller of the method must call endingAccessToPool()
      */
@@ -3884,6 +3947,8 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
         if (!_quiesce) { // only do this the first time we're called
             _quiesce = true;
             _quiesceTime = new Date(System.currentTimeMillis());
+            prefiller.stop();
+            validator.stop();
 
             //  Begin block copied from serverShutdown()
             for (int j = 0; j < maxFreePoolHashSize; ++j) {
@@ -4079,6 +4144,30 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
                 logPropertyChangeMsg("minConnections", minConnections, value);
             }
             this.minConnections = value;
+            if (prefillThreads > 0) {
+                prefiller.fillToMinimum();
+            }
+        } else if (propName.equals("prefillThreads")) {
+            int value = ((Integer) event.getNewValue()).intValue();
+            if (tc.isInfoEnabled()) {
+                logPropertyChangeMsg("prefillThreads", prefillThreads, value);
+            }
+            this.prefillThreads = value;
+            if (value > 0) {
+                prefiller.start();
+                prefiller.fillToMinimum();
+            } else {
+                prefiller.stop();
+            }
+        } else if (propName.equals("maxValidationAge")) {
+            int value = ((Integer) event.getNewValue()).intValue();
+            if (tc.isInfoEnabled()) {
+                logPropertyChangeMsg("maxValidationAge", (int) (maxValidationAgeMillis < 0 ? -1 : maxValidationAgeMillis / 1000), value);
+            }
+            this.maxValidationAgeMillis = value <= 0 ? -1 : (long) value * 1000;
+            if (value <= 0) {
+                validator.stop();
+            }
         } else if (propName.equals("purgePolicy")) {
             PurgePolicy value = (PurgePolicy) (event.getNewValue());
             if (tc.isInfoEnabled()) {
@@ -4092,6 +4181,7 @@ public final class PoolManager implements Runnable, PropertyChangeListener, Veto
             }
             this.reapTime = value;
             checkForStartingReaperThread();
+            validator.stop(); // restarts with the new interval on the next request
         } else if (propName.equals("unusedTimeoutEnabled")) {
             boolean value = ((Boolean) event.getNewValue()).booleanValue();
             if (tc.isInfoEnabled()) {
@@ -14,6 +14,7 @@ import java.util.Arrays;
 import java.util.Hashtable;
 
 import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanException;
 import javax.management.MBeanInfo;
 import javax.management.MBeanOperationInfo;
@@ -161,16 +162,24 @@ public class PoolManagerMBeanImpl extends StandardMBean implements ConnectionMan
         final MBeanOperationInfo op1 = new MBeanOperationInfo("showPoolContents", "Displays the current contents of the Connection Manager in a human readable format.", null, String.class.getCanonicalName(), MBeanOperationInfo.INFO);
         final MBeanOperationInfo[] ops = { op0, op1 };
 
-        final MBeanInfo nmbi = new MBeanInfo(cname, text, null, null, ops, null, null);
+        final MBeanAttributeInfo attr0 = new MBeanAttributeInfo("ConnectionCreateTimeBuckets", long[].class.getName(), "Upper bound in milliseconds of each connection create time bucket.", true, false, false);
+        final MBeanAttributeInfo attr1 = new MBeanAttributeInfo("ConnectionCreateTimeHistogram", long[].class.getName(), "Number of connections created within the time of each bucket.", true, false, false);
+        final MBeanAttributeInfo[] attrs = { attr0, attr1 };
+
+        final MBeanInfo nmbi = new MBeanInfo(cname, text, attrs, null, ops, null, null);
 
         return nmbi;
     }
 
     @Override
     public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
-        String returnValue = null;
+        Object returnValue = null;
         if (attribute.equals("size")) {
             returnValue = _pm.getTotalConnectionCount().toString();
+        } else if (attribute.equals("ConnectionCreateTimeBuckets")) {
+            returnValue = getConnectionCreateTimeBuckets();
+        } else if (attribute.equals("ConnectionCreateTimeHistogram")) {
+            returnValue = getConnectionCreateTimeHistogram();
         } else {
             throw new AttributeNotFoundException(attribute);
         }
@@ -371,4 +380,14 @@ public class PoolManagerMBeanImpl extends StandardMBean implements ConnectionMan
     public String showPoolContents() {
         return toStringExternal();
     }
+
+    @Override
+    public long[] getConnectionCreateTimeBuckets() {
+        return _pm.connectionCreateTimes.getBounds();
+    }
+
+    @Override
+    public long[] getConnectionCreateTimeHistogram() {
+        return _pm.connectionCreateTimes.getCounts();
+    }
 }
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.resource.spi.ConnectionRequestInfo;
+import javax.resource.spi.ManagedConnectionFactory;
+import javax.resource.spi.ResourceAllocationException;
+import javax.security.auth.Subject;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+
+/**
+ * Creates connections for a pool ahead of demand, so that requests do not wait
+ * for createManagedConnection. Enabled by the prefillThreads property.
+ * <ul>
+ * <li>When the pool is first used and after it is purged, it is filled up to minPoolSize.</li>
+ * <li>Every few seconds, idle connections are added to cover the recent borrow rate.
+ * The number of requests arriving while one connection is created is the borrow rate
+ * times the mean creation time, and that many idle connections are kept, within maxPoolSize.
+ * Idle connections above minPoolSize are still removed by the reaper after maxIdleTime.</li>
+ * </ul>
+ * At most prefillThreads connections are created at the same time, on the Liberty executor.
+ * Connections are created for the Subject and ConnectionRequestInfo of the latest request
+ * that looked in the free pool, which with container managed authentication is the same
+ * for every request. That request is forgotten when a fill completes and when the prefiller
+ * stops, so that an idle pool does not hold on to its Subject; the next request that looks in
+ * the free pool provides it again. Filling stops at the first failure and is tried again on
+ * the next check.
+ */
+final class PoolPrefiller implements Runnable {
+    private static final TraceComponent tc = Tr.register(PoolPrefiller.class, J2CConstants.traceSpec, J2CConstants.messageFile);
+
+    /** Seconds between two checks of the idle connections. */
+    static final long INTERVAL = 5;
+
+    /** Weight of the latest interval in the smoothed borrow rate. */
+    static final double RATE_WEIGHT = 0.3;
+
+    /** Identity of a connection request. */
+    private static final class Request {
+        final ManagedConnectionFactory mcf;
+        final Subject subject;
+        final ConnectionRequestInfo cri;
+        final int hashCode;
+
+        Request(ManagedConnectionFactory mcf, Subject subject, ConnectionRequestInfo cri, int hashCode) {
+            this.mcf = mcf;
+            this.subject = subject;
+            this.cri = cri;
+            this.hashCode = hashCode;
+        }
+    }
+
+    private final PoolManager pm;
+
+    /** Identity to create connections for, null when no request was seen since the last fill. */
+    private volatile Request request;
+
+    /** Number of requests that looked in the free pool. */
+    private final AtomicLong borrows = new AtomicLong();
+
+    /** Connections still to be created by the current fill. */
+    private final AtomicInteger remaining = new AtomicInteger();
+
+    /** Fill tasks submitted to the executor and not yet ended. */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /** Smoothed borrow rate per second, negative before the first check. Only used by run. */
+    private double borrowRate = -1;
+    private long lastBorrows;
+
+    /** Periodic check, guarded by this. */
+    private ScheduledFuture<?> future;
+
+    PoolPrefiller(PoolManager pm) {
+        this.pm = pm;
+    }
+
+    /**
+     * Note a request that looks for a connection in the free pool.
+     * The first one, and the first after a fill completed, fills the pool to minPoolSize
+     * and starts the periodic check if it is not running yet.
+     */
+    void recordRequest(ManagedConnectionFactory mcf, Subject subject, ConnectionRequestInfo cri, int hashCode) {
+        borrows.incrementAndGet();
+        Request last = request;
+        if (last == null || last.hashCode != hashCode) {
+            request = new Request(mcf, subject, cri, hashCode);
+            if (last == null) {
+                start();
+                fillToMinimum();
+            }
+        }
+    }
+
+    /**
+     * Fill the pool up to minPoolSize, if it has been used already.
+     */
+    void fillToMinimum() {
+        fill(pm.minConnections - pm.totalConnectionCount.get());
+    }
+
+    /**
+     * Start the periodic check if the pool has been used and it is not running yet.
+     */
+    synchronized void start() {
+        if (future == null && request != null && pm.prefillThreads > 0) {
+            try {
+                future = pm.connectorSvc.deferrableSchedXSvcRef.getServiceWithException().scheduleWithFixedDelay(this, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+            } catch (RuntimeException x) {
+                com.ibm.ws.ffdc.FFDCFilter.processException(x, getClass().getName(), "127", this);
+            }
+        }
+    }
+
+    /**
+     * Stop the periodic check and any fill in progress.
+     */
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        remaining.set(0);
+        request = null;
+    }
+
+    /**
+     * Periodic check of the idle connections.
+     */
+    @Override
+    public void run() {
+        if (pm.prefillThreads <= 0 || !pm.isPoolOpen()) {
+            stop();
+            return;
+        }
+
+        long total = borrows.get();
+        double rate = (total - lastBorrows) / (double) INTERVAL;
+        lastBorrows = total;
+        borrowRate = borrowRate < 0 ? rate : RATE_WEIGHT * rate + (1 - RATE_WEIGHT) * borrowRate;
+
+        int headroom = (int) Math.ceil(borrowRate * pm.connectionCreateTimes.getMeanNanos() / 1000000000.0);
+        int idle = 0;
+        for (int j = 0; j < pm.maxFreePoolHashSize; ++j)
+            idle += pm.freePool[j].mcWrapperList.size(); // dirty read
+        int count = Math.max(headroom - idle, pm.minConnections - pm.totalConnectionCount.get());
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
+            Tr.debug(this, tc, "borrow rate " + borrowRate + "/s, headroom " + headroom + ", idle " + idle + ", creating " + Math.max(count, 0));
+
+        fill(count);
+    }
+
+    /**
+     * Create up to the given number of connections, with at most prefillThreads at the same time.
+     */
+    private void fill(int count) {
+        int threads = pm.prefillThreads;
+        if (count <= 0 || threads <= 0 || request == null || !pm.isPoolOpen())
+            return;
+
+        for (int current = remaining.get(); current < count; current = remaining.get())
+            if (remaining.compareAndSet(current, count))
+                break;
+
+        int workers = Math.min(threads, count);
+        for (int current = running.get(); current < workers; current = running.get())
+            if (running.compareAndSet(current, current + 1))
+                try {
+                    pm.connectorSvc.execSvcRef.getServiceWithException().submit(new Filler());
+                } catch (RuntimeException x) {
+                    com.ibm.ws.ffdc.FFDCFilter.processException(x, getClass().getName(), "187", this);
+                    running.decrementAndGet();
+                    remaining.set(0);
+                    return;
+                }
+    }
+
+    /**
+     * @return true if the caller may create one more connection of the current fill
+     */
+    private boolean claim() {
+        for (int current = remaining.get(); current > 0; current = remaining.get())
+            if (remaining.compareAndSet(current, current - 1))
+                return true;
+        return false;
+    }
+
+    /**
+     * Creates connections until the current fill is complete.
+     */
+    private class Filler implements Runnable {
+        @Override
+        public void run() {
+            final boolean trace = TraceComponent.isAnyTracingEnabled();
+            int created = 0;
+            try {
+                while (claim() && pm.isPoolOpen()) {
+                    Request r = request;
+                    if (r == null) {
+                        remaining.set(0); // stopped
+                        break;
+                    }
+                    int hashMapBucket = r.hashCode % pm.maxFreePoolHashSize;
+                    if (!pm.freePool[hashMapBucket].prefillConnection(r.mcf, r.subject, r.cri, r.hashCode, hashMapBucket)) {
+                        remaining.set(0); // maxPoolSize reached
+                        break;
+                    }
+                    ++created;
+                }
+            } catch (ResourceAllocationException x) {
+                // already logged when the connection could not be created
+                remaining.set(0);
+                if (trace && tc.isDebugEnabled())
+                    Tr.debug(PoolPrefiller.this, tc, "stopped filling pool " + pm.gConfigProps.cfName, x);
+            } catch (RuntimeException x) {
+                com.ibm.ws.ffdc.FFDCFilter.processException(x, getClass().getName(), "229", this);
+                remaining.set(0);
+            } finally {
+                if (running.decrementAndGet() == 0 && remaining.get() == 0)
+                    request = null; // fill complete
+            }
+            if (trace && tc.isDebugEnabled())
+                Tr.debug(PoolPrefiller.this, tc, "created " + created + " connections for pool " + pm.gConfigProps.cfName);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of elapsed times, such as the time taken to create a managed connection.
+ * The buckets are fixed so that recording is a single atomic increment and
+ * histograms of different pools can be compared.
+ */
+public final class TimeHistogram {
+    /**
+     * Upper bounds, in milliseconds, of the buckets. The last bucket holds
+     * everything above the last bound and is reported as Long.MAX_VALUE.
+     */
+    private static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, Long.MAX_VALUE };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length);
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Record one elapsed time.
+     *
+     * @param nanos elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        long millis = nanos / 1000000;
+        int i = 0;
+        while (i < BOUNDS.length - 1 && millis >= BOUNDS[i])
+            ++i;
+        counts.incrementAndGet(i);
+        totalNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return the upper bound of each bucket in milliseconds
+     */
+    public long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * @return the number of times recorded in each bucket
+     */
+    public long[] getCounts() {
+        long[] c = new long[BOUNDS.length];
+        for (int i = 0; i < c.length; ++i)
+            c[i] = counts.get(i);
+        return c;
+    }
+
+    /**
+     * @return the number of times recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BOUNDS.length; ++i)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @return the mean of the recorded times in nanoseconds, or 0 if none were recorded
+     */
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BOUNDS.length; ++i) {
+            long count = counts.get(i);
+            if (count > 0) {
+                if (sb.length() > 0)
+                    sb.append(", ");
+                sb.append(BOUNDS[i] == Long.MAX_VALUE ? ">" + BOUNDS[i - 1] : "<" + BOUNDS[i]).append("ms=").append(count);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -68,6 +68,16 @@ public abstract class ConnectionManagerService extends Observable {
      */
     public static final String NUM_CONNECTIONS_PER_THREAD_LOCAL = "numConnectionsPerThreadLocal";
 
+    /**
+     * Name of property controlling the number of connections created at the same time to fill the pool ahead of demand.
+     */
+    public static final String PREFILL_THREADS = "prefillThreads";
+
+    /**
+     * Name of property controlling how long a validated connection is trusted without validating it again.
+     */
+    public static final String MAX_VALIDATION_AGE = "maxValidationAge";
+
     /**
      * List of connectionManager properties.
      */
@@ -78,8 +88,10 @@ public abstract class ConnectionManagerService extends Observable {
                                                                MAX_IDLE_TIME,
                                                                MAX_CONNECTIONS_PER_THREAD,
                                                                MAX_POOL_SIZE,
+                                                               MAX_VALIDATION_AGE,
                                                                MIN_POOL_SIZE,
                                                                NUM_CONNECTIONS_PER_THREAD_LOCAL,
+                                                               PREFILL_THREADS,
                                                                J2CConstants.POOL_PurgePolicy,
                                                                J2CConstants.POOL_ReapTime
                                     ));
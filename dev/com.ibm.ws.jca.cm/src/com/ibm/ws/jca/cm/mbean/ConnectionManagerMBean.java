@@ -97,4 +97,18 @@ public interface ConnectionManagerMBean {
      * Displays the contents of the Connection Manager as a human readable string.
      */
     public String showPoolContents();
+
+    /**
+     * Returns the upper bound, in milliseconds, of each bucket of the connection create time histogram.
+     * The last bucket has no upper bound and is reported as <code>Long.MAX_VALUE</code>.
+     */
+    public long[] getConnectionCreateTimeBuckets();
+
+    /**
+     * Returns the number of connections created within the time of each bucket
+     * since the connection pool was first used.
+     *
+     * @see #getConnectionCreateTimeBuckets()
+     */
+    public long[] getConnectionCreateTimeHistogram();
 }
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.resource.spi.ManagedConnection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.ws.j2c.MCWrapper;
+import com.ibm.ws.jca.adapter.PurgePolicy;
+
+/**
+ * Test the background validation of idle connections against requests, purges and shutdown.
+ * The periodic validation is run directly by the tests rather than waiting for the schedule.
+ */
+public class BackgroundValidatorTest {
+    private ScheduledThreadPoolExecutor executor;
+    private TestConnectionFactoryService cfSvc;
+    private TestManagedConnectionFactory mcf;
+
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        cfSvc = new TestConnectionFactoryService();
+        mcf = cfSvc.mcf;
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates a pool with a maximum validation age of one second, and the given number
+     * of connections that are idle and due for validation.
+     */
+    private PoolManager createPool(PurgePolicy purgePolicy, int idle) throws Exception {
+        cfSvc.setExecutor(executor);
+        PoolManager pm = cfSvc.createPoolManager(10, 30, purgePolicy, 1);
+        List<MCWrapper> reserved = new ArrayList<MCWrapper>();
+        for (int i = 0; i < idle; i++)
+            reserved.add(reserve(pm));
+        for (MCWrapper mcw : reserved)
+            pm.release(mcw, null);
+        assertEquals(idle, idleCount(pm));
+
+        Thread.sleep(1100);
+        pm.validator.start(mcf);
+        assertEquals("periodic validation not scheduled", 1, executor.getQueue().size());
+        return pm;
+    }
+
+    private MCWrapper reserve(PoolManager pm) throws Exception {
+        return pm.reserve(mcf, null, null, null, false, false, 0, 0);
+    }
+
+    private static int idleCount(PoolManager pm) {
+        synchronized (pm.freePool[0].freeConnectionLockObject) {
+            return pm.freePool[0].mcWrapperList.size();
+        }
+    }
+
+    /**
+     * Runs the periodic validation on another thread and waits until it is validating a connection.
+     */
+    private Thread startValidation(final PoolManager pm) throws Exception {
+        mcf.validationStarted = new CountDownLatch(1);
+        mcf.validationGate = new CountDownLatch(1);
+        Thread thread = new Thread("BackgroundValidatorTest") {
+            @Override
+            public void run() {
+                pm.validator.run();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+        assertTrue(mcf.validationStarted.await(30, TimeUnit.SECONDS));
+        return thread;
+    }
+
+    /**
+     * If the periodic validation cannot be scheduled, the next request tries again.
+     */
+    @Test
+    public void testStartRetriedAfterSchedulingFails() throws Exception {
+        PoolManager pm = cfSvc.createPoolManager(10, 30, PurgePolicy.EntirePool, 1);
+        pm.validator.start(mcf); // no scheduled executor yet
+        assertEquals(0, executor.getQueue().size());
+
+        cfSvc.setExecutor(executor);
+        pm.validator.start(mcf);
+        assertEquals(1, executor.getQueue().size());
+        pm.validator.start(mcf);
+        assertEquals(1, executor.getQueue().size());
+    }
+
+    /**
+     * A connection that is being validated is not in its free pool, so requests arriving
+     * meanwhile are given other connections, and it returns to the free pool once valid.
+     */
+    @Test
+    public void testRequestDuringValidation() throws Exception {
+        PoolManager pm = createPool(PurgePolicy.EntirePool, 2);
+        Thread validation = startValidation(pm);
+        ManagedConnection validating = (ManagedConnection) mcf.validating.iterator().next();
+        assertEquals(1, idleCount(pm));
+
+        MCWrapper first = reserve(pm);
+        MCWrapper second = reserve(pm);
+        assertNotSame(validating, first.getManagedConnection());
+        assertNotSame(validating, second.getManagedConnection());
+        assertEquals(3, mcf.created.get());
+
+        mcf.validationGate.countDown();
+        validation.join(30000);
+        assertFalse(validation.isAlive());
+        assertEquals(1, idleCount(pm));
+        assertEquals(0, mcf.destroyed.get());
+
+        pm.release(first, null);
+        pm.release(second, null);
+        assertEquals(3, idleCount(pm));
+    }
+
+    /**
+     * With purgePolicy EntirePool, a connection that fails background validation purges
+     * the pool: idle connections are destroyed, and connections in use are destroyed
+     * when they are returned.
+     */
+    @Test
+    public void testFailurePurgesEntirePool() throws Exception {
+        PoolManager pm = createPool(PurgePolicy.EntirePool, 3);
+        MCWrapper inUse = reserve(pm);
+        synchronized (mcf.invalid) {
+            mcf.invalid.addAll(mcf.connections);
+        }
+
+        pm.validator.run();
+        assertEquals(1, mcf.validations.get());
+        assertEquals(0, idleCount(pm));
+        assertEquals(2, mcf.destroyed.get());
+
+        pm.release(inUse, null);
+        assertEquals(0, idleCount(pm));
+        assertEquals(3, mcf.created.get());
+        assertEquals(3, mcf.destroyed.get());
+    }
+
+    /**
+     * Shutting the pool down while a connection is being validated stops the periodic
+     * validation, and the connection is destroyed rather than returned to the pool.
+     */
+    @Test
+    public void testShutdownDuringValidation() throws Exception {
+        PoolManager pm = createPool(PurgePolicy.EntirePool, 2);
+        Thread validation = startValidation(pm);
+
+        pm.serverShutDown();
+        assertEquals("periodic validation not cancelled", 0, executor.getQueue().size());
+        assertEquals(1, mcf.destroyed.get());
+
+        mcf.validationGate.countDown();
+        validation.join(30000);
+        assertFalse(validation.isAlive());
+        assertEquals(1, mcf.validations.get());
+        assertEquals(0, idleCount(pm));
+        assertEquals(2, mcf.destroyed.get());
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.ManagedConnectionFactory;
+import javax.resource.spi.ResourceAllocationException;
+
+import org.junit.Test;
+
+import com.ibm.ws.j2c.MCWrapper;
+import com.ibm.ws.jca.adapter.PurgePolicy;
+
+/**
+ * Stress the handoff between threads returning connections to the free pool
+ * and threads waiting for a connection when the pool is at its maximum size.
+ */
+public class FreePoolWaiterTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 2000;
+
+    /**
+     * Many threads repeatedly reserve and release from a pool much smaller than the
+     * number of threads. A return that misses a waiter leaves that waiter blocked
+     * until the connection timeout, which is longer than the test allows, so every
+     * thread must complete promptly and the pool must never create more connections
+     * than its maximum.
+     */
+    @Test
+    public void testReturnWakesWaiter() throws Exception {
+        TestConnectionFactoryService cfSvc = new TestConnectionFactoryService();
+        final PoolManager pm = cfSvc.createPoolManager(2, 120, PurgePolicy.EntirePool, -1);
+        final ManagedConnectionFactory mcf = cfSvc.getManagedConnectionFactory();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread("FreePoolWaiterTest-" + t) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < ITERATIONS && failure.get() == null; i++) {
+                            MCWrapper mcw = pm.reserve(mcf, null, null, null, false, false, 0, 0);
+                            if ((i & 7) == 0)
+                                Thread.yield();
+                            pm.release(mcw, null);
+                        }
+                    } catch (Throwable x) {
+                        failure.compareAndSet(null, x);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        boolean completed = done.await(60, TimeUnit.SECONDS);
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+        assertTrue("threads still waiting for a connection: " + done.getCount(), completed);
+        assertTrue("created " + cfSvc.mcf.created.get(), cfSvc.mcf.created.get() <= 2);
+        assertEquals(0, pm.waiterCount);
+    }
+
+    /**
+     * A request that finds the pool at its maximum size counts itself as a waiter and then
+     * looks through the free pools once more before it waits. When matching a connection
+     * found there fails, the request is not going to wait, so it must no longer be counted.
+     */
+    @Test
+    public void testMatchFailureWhileWaiting() throws Exception {
+        TestConnectionFactoryService cfSvc = new TestConnectionFactoryService();
+        PoolManager pm = cfSvc.createPoolManager(1, 120, PurgePolicy.EntirePool, -1);
+        ManagedConnectionFactory mcf = cfSvc.getManagedConnectionFactory();
+
+        MCWrapper mcw = pm.reserve(mcf, null, null, null, false, false, 0, 0);
+        pm.release(mcw, null);
+
+        // Stand in for a waiter, so that reserve goes straight to the waiter code and finds the free connection there.
+        pm.waiterCount = 1;
+        cfSvc.mcf.matchFailure = new ResourceException("testMatchFailureWhileWaiting");
+        try {
+            pm.reserve(mcf, null, null, null, false, false, 0, 0);
+            fail("reserve should fail when the match fails");
+        } catch (ResourceAllocationException x) {
+            // expected
+        }
+        assertEquals(1, pm.waiterCount);
+    }
+}
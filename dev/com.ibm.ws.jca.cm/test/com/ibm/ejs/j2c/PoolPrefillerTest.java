@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.ws.j2c.MCWrapper;
+import com.ibm.ws.jca.adapter.PurgePolicy;
+
+/**
+ * Test the filling of a pool ahead of demand. The fills run on a single thread
+ * executor, so a test waits for them by running one more task on it, and the
+ * periodic check is run directly by the tests rather than waiting for the schedule.
+ */
+public class PoolPrefillerTest {
+    private ScheduledThreadPoolExecutor executor;
+    private TestConnectionFactoryService cfSvc;
+    private TestManagedConnectionFactory mcf;
+
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        cfSvc = new TestConnectionFactoryService();
+        cfSvc.setExecutor(executor);
+        mcf = cfSvc.mcf;
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private PoolManager createPool(int minConnections, int maxConnections) {
+        PoolManager pm = cfSvc.createPoolManager(maxConnections, 30, PurgePolicy.EntirePool, -1);
+        pm.minConnections = minConnections;
+        pm.prefillThreads = 2;
+        return pm;
+    }
+
+    /**
+     * Notes a request for a connection without a Subject or ConnectionRequestInfo, as reserve does.
+     */
+    private void recordRequest(PoolManager pm) {
+        pm.prefiller.recordRequest(mcf, null, null, pm.computeHashCode(null, null));
+    }
+
+    /**
+     * Waits for the fills submitted so far to end.
+     */
+    private void awaitFills() throws Exception {
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {}
+        }).get(30, TimeUnit.SECONDS);
+    }
+
+    private static int idleCount(PoolManager pm) {
+        synchronized (pm.freePool[0].freeConnectionLockObject) {
+            return pm.freePool[0].mcWrapperList.size();
+        }
+    }
+
+    /**
+     * The first request fills the pool to minPoolSize and starts the periodic check,
+     * and the prefilled connections are given to the requests that follow.
+     */
+    @Test
+    public void testFillToMinimum() throws Exception {
+        PoolManager pm = createPool(3, 10);
+        recordRequest(pm);
+        awaitFills();
+        assertEquals("periodic check not scheduled", 1, executor.getQueue().size());
+        assertEquals(3, mcf.created.get());
+        assertEquals(3, pm.totalConnectionCount.get());
+        assertEquals(3, idleCount(pm));
+        assertEquals(3, pm.connectionCreateTimes.getCount());
+
+        // a pool that is already at minPoolSize is not filled again
+        recordRequest(pm);
+        pm.prefiller.fillToMinimum();
+        awaitFills();
+        assertEquals(3, mcf.created.get());
+        assertEquals(1, executor.getQueue().size());
+
+        pm.prefillThreads = 0; // so that reserve does not fill the pool again
+        MCWrapper mcw = pm.reserve(mcf, null, null, null, false, false, 0, 0);
+        assertEquals(3, mcf.created.get());
+        assertEquals(2, idleCount(pm));
+        pm.release(mcw, null);
+    }
+
+    /**
+     * Filling stops at maxPoolSize when minPoolSize is above it.
+     */
+    @Test
+    public void testFillStopsAtMaximum() throws Exception {
+        PoolManager pm = createPool(10, 4);
+        recordRequest(pm);
+        awaitFills();
+        assertEquals(4, mcf.created.get());
+        assertEquals(4, pm.totalConnectionCount.get());
+        assertEquals(4, idleCount(pm));
+
+        // the next fill finds the pool full as well
+        recordRequest(pm);
+        awaitFills();
+        assertEquals(4, mcf.created.get());
+        assertEquals(4, pm.totalConnectionCount.get());
+    }
+
+    /**
+     * The periodic check keeps enough idle connections for the requests that arrive
+     * while one connection is created.
+     */
+    @Test
+    public void testHeadroom() throws Exception {
+        PoolManager pm = createPool(0, 10);
+        for (int i = 0; i < 10; i++)
+            recordRequest(pm);
+        awaitFills();
+        assertEquals(0, mcf.created.get());
+
+        // 10 requests in 5 seconds, and 1 second to create a connection
+        pm.connectionCreateTimes.record(TimeUnit.SECONDS.toNanos(1));
+        pm.prefiller.run();
+        awaitFills();
+        assertEquals(2, mcf.created.get());
+        assertEquals(2, idleCount(pm));
+
+        // enough idle connections already
+        recordRequest(pm);
+        pm.prefiller.run();
+        awaitFills();
+        assertEquals(2, mcf.created.get());
+    }
+
+    /**
+     * Stopping the prefiller ends the fill in progress and forgets the latest request,
+     * so that the periodic check is not started again until a new request is seen.
+     */
+    @Test
+    public void testStopForgetsRequest() throws Exception {
+        PoolManager pm = createPool(1, 10);
+        recordRequest(pm);
+        awaitFills();
+        assertEquals(1, mcf.created.get());
+
+        // a request seen after the fill completed, which needs no fill of its own
+        recordRequest(pm);
+        assertEquals(1, executor.getQueue().size());
+        pm.prefiller.stop();
+        assertEquals("periodic check not cancelled", 0, executor.getQueue().size());
+        pm.prefiller.start();
+        assertEquals("prefiller started again for a forgotten request", 0, executor.getQueue().size());
+
+        // a fill in progress when the prefiller stops creates no more connections
+        pm.minConnections = 5;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    gate.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(blocked.await(30, TimeUnit.SECONDS));
+        recordRequest(pm);
+        // the periodic check, and two fills waiting behind the gate
+        assertEquals(3, executor.getQueue().size());
+        pm.prefiller.stop();
+        gate.countDown();
+        awaitFills();
+        assertEquals(1, mcf.created.get());
+        assertEquals(0, executor.getQueue().size());
+        pm.prefiller.start();
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    /**
+     * Nothing is created once the pool is shut down.
+     */
+    @Test
+    public void testNoFillAfterShutdown() throws Exception {
+        PoolManager pm = createPool(3, 10);
+        pm.serverShutDown();
+        recordRequest(pm);
+        pm.prefiller.fillToMinimum();
+        awaitFills();
+        assertEquals(0, mcf.created.get());
+    }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Observable;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.resource.spi.ManagedConnectionFactory;
+import javax.resource.spi.TransactionSupport.TransactionSupportLevel;
+
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.ComponentContext;
+
+import com.ibm.ws.jca.adapter.PurgePolicy;
+import com.ibm.ws.jca.cm.AbstractConnectionFactoryService;
+import com.ibm.ws.jca.cm.ConnectorService;
+
+/**
+ * Connection factory service for building a PoolManager outside of the OSGi framework.
+ * Only what the pool itself needs is provided.
+ */
+public class TestConnectionFactoryService extends AbstractConnectionFactoryService {
+    private final ConnectorServiceImpl connectorSvc = new ConnectorServiceImpl();
+    final TestManagedConnectionFactory mcf = new TestManagedConnectionFactory();
+
+    /**
+     * Creates a pool with no reaper or prefill, so that tests control all activity.
+     *
+     * @param maxConnections maximum pool size.
+     * @param connectionTimeout seconds to wait for a connection.
+     * @param purgePolicy purge policy.
+     * @param maxValidationAge seconds, or -1 to disable validation.
+     * @return the pool manager.
+     */
+    PoolManager createPoolManager(int maxConnections, int connectionTimeout, PurgePolicy purgePolicy, int maxValidationAge) {
+        J2CGlobalConfigProperties gConfigProps = new J2CGlobalConfigProperties("test/connectionManager", this, false, 1, 1, false, //
+                        connectionTimeout, maxConnections, 0, purgePolicy, 0, 0, 0, 0, 0, 0, null, null, 0, maxValidationAge);
+        return new PoolManager(this, new Properties(), gConfigProps, getClass().getClassLoader());
+    }
+
+    /**
+     * Makes an executor available to the pool as the Liberty executor and scheduled executors,
+     * for the background tasks of the pool.
+     *
+     * @param executor the executor.
+     */
+    @SuppressWarnings("unchecked")
+    void setExecutor(final ScheduledExecutorService executor) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("locateService".equals(name))
+                    return executor;
+                if ("equals".equals(name))
+                    return proxy == args[0];
+                if ("hashCode".equals(name))
+                    return System.identityHashCode(proxy);
+                if ("toString".equals(name))
+                    return "test " + method.getDeclaringClass().getSimpleName();
+                throw new UnsupportedOperationException(name);
+            }
+        };
+        ClassLoader loader = getClass().getClassLoader();
+        ComponentContext context = (ComponentContext) Proxy.newProxyInstance(loader, new Class<?>[] { ComponentContext.class }, handler);
+        ServiceReference<?> ref = (ServiceReference<?>) Proxy.newProxyInstance(loader, new Class<?>[] { ServiceReference.class }, handler);
+
+        connectorSvc.activate(context);
+        connectorSvc.setDeferrableScheduledExecutor((ServiceReference<ScheduledExecutorService>) ref);
+        connectorSvc.setNonDeferrableScheduledExecutor((ServiceReference<ScheduledExecutorService>) ref);
+        connectorSvc.setExecutor((ServiceReference<ExecutorService>) ref);
+    }
+
+    @Override
+    protected void checkAccess() {}
+
+    @Override
+    public String getConfigElementName() {
+        return "connectionFactory";
+    }
+
+    @Override
+    public ConnectorService getConnectorService() {
+        return connectorSvc;
+    }
+
+    @Override
+    public String getID() {
+        return "test";
+    }
+
+    @Override
+    public String getJNDIName() {
+        return "eis/test";
+    }
+
+    @Override
+    public ManagedConnectionFactory getManagedConnectionFactory() {
+        return mcf;
+    }
+
+    @Override
+    public boolean getReauthenticationSupport() {
+        return false;
+    }
+
+    @Override
+    public boolean getRRSTransactional() {
+        return false;
+    }
+
+    @Override
+    public TransactionSupportLevel getTransactionSupport() {
+        return TransactionSupportLevel.NoTransaction;
+    }
+
+    @Override
+    public boolean getValidatingManagedConnectionFactorySupport() {
+        return true;
+    }
+
+    @Override
+    protected void init() {}
+
+    @Override
+    public void update(Observable o, Object arg) {}
+}
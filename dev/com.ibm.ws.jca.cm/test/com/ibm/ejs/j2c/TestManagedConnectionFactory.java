@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.ConnectionEventListener;
+import javax.resource.spi.ConnectionManager;
+import javax.resource.spi.ConnectionRequestInfo;
+import javax.resource.spi.LocalTransaction;
+import javax.resource.spi.ManagedConnection;
+import javax.resource.spi.ManagedConnectionFactory;
+import javax.resource.spi.ManagedConnectionMetaData;
+import javax.resource.spi.ValidatingManagedConnectionFactory;
+import javax.security.auth.Subject;
+import javax.transaction.xa.XAResource;
+
+/**
+ * Minimal resource adapter for driving a PoolManager in unit tests.
+ * Connections can be marked invalid, and validation can be held open
+ * so that tests can act on the pool while it is in progress.
+ */
+@SuppressWarnings("serial")
+public class TestManagedConnectionFactory implements ManagedConnectionFactory, ValidatingManagedConnectionFactory {
+    final AtomicInteger created = new AtomicInteger();
+    final AtomicInteger destroyed = new AtomicInteger();
+    final AtomicInteger validations = new AtomicInteger();
+
+    /**
+     * Connections reported as invalid by getInvalidConnections.
+     */
+    final Set<ManagedConnection> invalid = new HashSet<ManagedConnection>();
+
+    /** All connections created. */
+    final Set<ManagedConnection> connections = Collections.synchronizedSet(new HashSet<ManagedConnection>());
+
+    /**
+     * When set, getInvalidConnections counts down validationStarted and then
+     * waits on this latch before answering.
+     */
+    volatile CountDownLatch validationGate;
+    volatile CountDownLatch validationStarted;
+
+    /** Connections passed to the latest getInvalidConnections. */
+    volatile Set<?> validating;
+
+    /** When set, matchManagedConnections throws this exception. */
+    volatile ResourceException matchFailure;
+
+    @Override
+    public Object createConnectionFactory() throws ResourceException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object createConnectionFactory(ConnectionManager cm) throws ResourceException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ManagedConnection createManagedConnection(Subject subject, ConnectionRequestInfo cri) throws ResourceException {
+        created.incrementAndGet();
+        ManagedConnection mc = new TestManagedConnection();
+        connections.add(mc);
+        return mc;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws ResourceException {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Set getInvalidConnections(Set connectionSet) throws ResourceException {
+        validations.incrementAndGet();
+        validating = connectionSet;
+        CountDownLatch gate = validationGate;
+        if (gate != null) {
+            validationStarted.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException x) {
+                throw new ResourceException(x);
+            }
+        }
+        Set<Object> result = new HashSet<Object>();
+        synchronized (invalid) {
+            for (Iterator<?> it = connectionSet.iterator(); it.hasNext();) {
+                Object mc = it.next();
+                if (invalid.contains(mc))
+                    result.add(mc);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public ManagedConnection matchManagedConnections(Set connectionSet, Subject subject, ConnectionRequestInfo cri) throws ResourceException {
+        ResourceException failure = matchFailure;
+        if (failure != null)
+            throw failure;
+        Iterator<?> it = connectionSet.iterator();
+        return it.hasNext() ? (ManagedConnection) it.next() : null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws ResourceException {}
+
+    class TestManagedConnection implements ManagedConnection {
+        @Override
+        public void addConnectionEventListener(ConnectionEventListener listener) {}
+
+        @Override
+        public void associateConnection(Object connection) throws ResourceException {}
+
+        @Override
+        public void cleanup() throws ResourceException {}
+
+        @Override
+        public void destroy() throws ResourceException {
+            destroyed.incrementAndGet();
+        }
+
+        @Override
+        public Object getConnection(Subject subject, ConnectionRequestInfo cri) throws ResourceException {
+            return new Object();
+        }
+
+        @Override
+        public LocalTransaction getLocalTransaction() throws ResourceException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws ResourceException {
+            return null;
+        }
+
+        @Override
+        public ManagedConnectionMetaData getMetaData() throws ResourceException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public XAResource getXAResource() throws ResourceException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeConnectionEventListener(ConnectionEventListener listener) {}
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws ResourceException {}
+    }
+}
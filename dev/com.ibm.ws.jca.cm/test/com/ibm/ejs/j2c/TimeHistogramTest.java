@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ejs.j2c;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TimeHistogramTest {
+
+    private static int bucket(TimeHistogram histogram) {
+        long[] counts = histogram.getCounts();
+        int found = -1;
+        for (int i = 0; i < counts.length; i++)
+            if (counts[i] != 0) {
+                assertEquals("recorded in more than one bucket", -1, found);
+                found = i;
+            }
+        return found;
+    }
+
+    private static int bucketOf(long millis) {
+        TimeHistogram histogram = new TimeHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        return bucket(histogram);
+    }
+
+    @Test
+    public void testBounds() {
+        long[] bounds = new TimeHistogram().getBounds();
+        assertEquals(bounds.length, new TimeHistogram().getCounts().length);
+        assertEquals(Long.MAX_VALUE, bounds[bounds.length - 1]);
+        for (int i = 1; i < bounds.length; i++)
+            assertEquals(true, bounds[i - 1] < bounds[i]);
+
+        // the bounds are a copy
+        bounds[0] = 100;
+        assertEquals(1, new TimeHistogram().getBounds()[0]);
+    }
+
+    @Test
+    public void testBuckets() {
+        long[] bounds = new TimeHistogram().getBounds();
+        assertEquals(0, bucketOf(0));
+        for (int i = 0; i < bounds.length - 1; i++) {
+            // the upper bound of a bucket is excluded from it
+            assertEquals(i, bucketOf(bounds[i] - 1));
+            assertEquals(i + 1, bucketOf(bounds[i]));
+        }
+        assertEquals(bounds.length - 1, bucketOf(TimeUnit.HOURS.toMillis(1)));
+
+        TimeHistogram histogram = new TimeHistogram();
+        histogram.record(999999); // just under 1 ms
+        histogram.record(-5); // clock went back
+        assertEquals(0, bucket(histogram));
+        assertEquals(2, histogram.getCounts()[0]);
+    }
+
+    @Test
+    public void testCountAndMean() {
+        TimeHistogram histogram = new TimeHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals("", histogram.toString());
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(4));
+        histogram.record(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(3, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20002) + 333333, histogram.getMeanNanos());
+        assertEquals("<5ms=2, >30000ms=1", histogram.toString());
+    }
+}
@@ -21,6 +21,7 @@ import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.ws.ffdc.FFDCFilter;
 import com.ibm.ws.rsadapter.AdapterUtil;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
 import com.ibm.ws.rsadapter.impl.StatementCacheKey;
 import com.ibm.ws.rsadapter.jdbc.WSJdbcConnection;
 import com.ibm.ws.rsadapter.jdbc.WSJdbcUtil;
@@ -179,7 +180,11 @@ public class WSJdbc42CallableStatement extends WSJdbc41CallableStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             results = stmtImpl.executeLargeBatch();
+            SQLProfiler.Entry profile = getBatchProfile();
+            if (profile != null)
+                profile.batchExecuted(results.length, System.nanoTime() - start);
 
             // Batch parameters are cleared after executing the batch, so reset the batch parameter flag.
             hasBatchParameters = false;
@@ -220,7 +225,9 @@ public class WSJdbc42CallableStatement extends WSJdbc41CallableStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -258,7 +265,9 @@ public class WSJdbc42CallableStatement extends WSJdbc41CallableStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, autoGeneratedKeys);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -296,7 +305,9 @@ public class WSJdbc42CallableStatement extends WSJdbc41CallableStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, columnIndices);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -334,7 +345,9 @@ public class WSJdbc42CallableStatement extends WSJdbc41CallableStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, columnNames);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -373,7 +386,9 @@ public class WSJdbc42CallableStatement extends WSJdbc41CallableStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = pstmtImpl.executeLargeUpdate();
+            profileExecution(start);
         } catch (SQLException x) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -19,6 +19,7 @@ import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.ws.ffdc.FFDCFilter;
 import com.ibm.ws.rsadapter.AdapterUtil;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
 import com.ibm.ws.rsadapter.impl.StatementCacheKey;
 import com.ibm.ws.rsadapter.jdbc.WSJdbcConnection;
 import com.ibm.ws.rsadapter.jdbc.WSJdbcUtil;
@@ -118,7 +119,11 @@ public class WSJdbc42PreparedStatement extends WSJdbc41PreparedStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             results = stmtImpl.executeLargeBatch();
+            SQLProfiler.Entry profile = getBatchProfile();
+            if (profile != null)
+                profile.batchExecuted(results.length, System.nanoTime() - start);
 
             // Batch parameters are cleared after executing the batch, so reset the batch parameter flag.
             hasBatchParameters = false;
@@ -159,7 +164,9 @@ public class WSJdbc42PreparedStatement extends WSJdbc41PreparedStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -197,7 +204,9 @@ public class WSJdbc42PreparedStatement extends WSJdbc41PreparedStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, autoGeneratedKeys);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -235,7 +244,9 @@ public class WSJdbc42PreparedStatement extends WSJdbc41PreparedStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, columnIndices);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -273,7 +284,9 @@ public class WSJdbc42PreparedStatement extends WSJdbc41PreparedStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, columnNames);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -312,7 +325,9 @@ public class WSJdbc42PreparedStatement extends WSJdbc41PreparedStatement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = pstmtImpl.executeLargeUpdate();
+            profileExecution(start);
         } catch (SQLException x) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
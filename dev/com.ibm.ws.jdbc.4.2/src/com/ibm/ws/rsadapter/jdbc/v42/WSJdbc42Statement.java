@@ -18,6 +18,7 @@ import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.ws.ffdc.FFDCFilter;
 import com.ibm.ws.rsadapter.AdapterUtil;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
 import com.ibm.ws.rsadapter.jdbc.WSJdbcConnection;
 import com.ibm.ws.rsadapter.jdbc.WSJdbcUtil;
 import com.ibm.ws.rsadapter.jdbc.v41.WSJdbc41Statement;
@@ -109,7 +110,11 @@ public class WSJdbc42Statement extends WSJdbc41Statement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             results = stmtImpl.executeLargeBatch();
+            SQLProfiler.Entry profile = getBatchProfile();
+            if (profile != null)
+                profile.batchExecuted(results.length, System.nanoTime() - start);
 
             // Batch parameters are cleared after executing the batch, so reset the batch parameter flag.
             hasBatchParameters = false;
@@ -150,7 +155,9 @@ public class WSJdbc42Statement extends WSJdbc41Statement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -188,7 +195,9 @@ public class WSJdbc42Statement extends WSJdbc41Statement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, autoGeneratedKeys);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -226,7 +235,9 @@ public class WSJdbc42Statement extends WSJdbc41Statement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, columnIndices);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
@@ -264,7 +275,9 @@ public class WSJdbc42Statement extends WSJdbc41Statement {
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeLargeUpdate(sql, columnNames);
+            profileExecution(sql, start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.
             if (isTraceOn && tc.isEntryEnabled())
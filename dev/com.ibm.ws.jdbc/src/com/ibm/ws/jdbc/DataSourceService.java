@@ -47,6 +47,7 @@ import com.ibm.ws.jca.cm.AppDefinedResource;
 import com.ibm.ws.jca.cm.ConnectionManagerService;
 import com.ibm.ws.jca.cm.ConnectorService;
 import com.ibm.ws.jdbc.internal.DataSourceDef;
+import com.ibm.ws.jdbc.internal.DataSourceMXBeanImpl;
 import com.ibm.ws.jdbc.internal.JDBCDriverService;
 import com.ibm.ws.jdbc.internal.PropertyService;
 import com.ibm.ws.jdbc.osgi.JDBCRuntimeVersion;
@@ -183,6 +184,11 @@ public class DataSourceService extends AbstractConnectionFactoryService implemen
      */
     private JDBCDriverService jdbcDriverSvc;
 
+    /**
+     * MXBean for the data source. Only registered while initialized.
+     */
+    private DataSourceMXBeanImpl mxBean;
+
     /**
      * Implementation that varies based on JDBC version.
      */
@@ -308,6 +314,11 @@ public class DataSourceService extends AbstractConnectionFactoryService implemen
                     // Mark all traditional WAS data source wrappers as disabled
                     isInitialized.set(false);
 
+                    if (mxBean != null) {
+                        mxBean.unregister();
+                        mxBean = null;
+                    }
+
                     if (destroyImmediately) {
                         // Destroy the data source (it will only exist if it was looked up)
                         conMgrSvc.destroyConnectionFactories();
@@ -535,6 +546,15 @@ public class DataSourceService extends AbstractConnectionFactoryService implemen
             threadIdentitySupport = helper.getThreadIdentitySupport();
             threadSecurity = helper.getThreadSecurity();
 
+            try {
+                mxBean = new DataSourceMXBeanImpl(mcf, id, jndiName, getApplication(), getModule(), getComponent());
+                mxBean.register(componentContext.getBundleContext());
+            } catch (Exception x) {
+                // the data source remains usable without its MXBean
+                FFDCFilter.processException(x, getClass().getName(), "560", this);
+                mxBean = null;
+            }
+
             isInitialized.set(true);
         } catch (Exception x) {
             FFDCFilter.processException(x, getClass().getName(), "587", this);
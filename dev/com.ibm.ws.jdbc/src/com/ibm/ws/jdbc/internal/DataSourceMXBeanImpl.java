@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.jdbc.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.ws.jdbc.mbean.DataSourceMXBean;
+import com.ibm.ws.jdbc.mbean.SQLStatementProfile;
+import com.ibm.ws.jdbc.mbean.StatementCacheUsage;
+import com.ibm.ws.kernel.service.util.PrivHelper;
+import com.ibm.ws.rsadapter.AdapterUtil;
+import com.ibm.ws.rsadapter.DSConfig;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
+import com.ibm.ws.rsadapter.impl.StatementCacheStats;
+import com.ibm.ws.rsadapter.impl.WSManagedConnectionFactoryImpl;
+
+/**
+ * MXBean for a data source, which is registered while the data source is initialized.
+ */
+public class DataSourceMXBeanImpl implements DataSourceMXBean {
+    private static final TraceComponent tc = Tr.register(DataSourceMXBeanImpl.class, AdapterUtil.TRACE_GROUP, AdapterUtil.NLS_FILE);
+
+    private final WSManagedConnectionFactoryImpl mcf;
+    private final ObjectName obn;
+    private ServiceRegistration<?> reg;
+
+    /**
+     * Creates an MXBean for the managed connection factory of a data source.
+     *
+     * @param mcf managed connection factory.
+     * @param id config.displayId of the data source.
+     * @param jndiName JNDI name of the data source. Null if none.
+     * @param application application that defines the data source. Null if none.
+     * @param module module that defines the data source. Null if none.
+     * @param component component that defines the data source. Null if none.
+     * @throws MalformedObjectNameException if the object name is not valid.
+     */
+    public DataSourceMXBeanImpl(WSManagedConnectionFactoryImpl mcf, String id, String jndiName,
+                                String application, String module, String component) throws MalformedObjectNameException {
+        this.mcf = mcf;
+
+        StringBuilder obnSb = new StringBuilder("WebSphere:type=").append(DataSourceMXBean.class.getCanonicalName());
+        if (jndiName != null)
+            obnSb.append(",jndiName=").append(toObnString(jndiName));
+        if (id != null)
+            obnSb.append(",name=").append(toObnString(id));
+        if (application != null)
+            obnSb.append(",application=").append(toObnString(application));
+        if (module != null)
+            obnSb.append(",module=").append(toObnString(module));
+        if (component != null)
+            obnSb.append(",component=").append(toObnString(component));
+        obn = new ObjectName(obnSb.toString());
+    }
+
+    public void register(BundleContext bndCtx) {
+        Hashtable<String, String> props = new Hashtable<String, String>();
+        props.put("jmx.objectname", obn.toString());
+
+        reg = PrivHelper.registerService(bndCtx, DataSourceMXBean.class.getName(), this, props);
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
+            Tr.debug(this, tc, "registered", obn);
+    }
+
+    public void unregister() {
+        if (reg != null) {
+            reg.unregister();
+            reg = null;
+        }
+    }
+
+    /**
+     * Takes in any string value and replaces any of the reserved ObjectName
+     * chars with periods (.). The 4 reserved ObjectName chars are:<br>
+     * : = , "
+     *
+     * @param s The string to be converted to an ObjectName-safe string
+     */
+    private static String toObnString(String s) {
+        return s.replace(':', '.').replace('=', '.').replace(',', '.').replace('"', '.');
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return mcf.statementCacheStats.getHits();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return mcf.statementCacheStats.getMisses();
+    }
+
+    @Override
+    public long getStatementCacheDiscards() {
+        return mcf.statementCacheStats.getDiscards();
+    }
+
+    @Override
+    public int getStatementCacheSize() {
+        DSConfig config = mcf.dsConfig.get();
+        return config.statementCacheSize > 0
+                        ? mcf.statementCacheStats.getCacheSize(config.statementCacheSize, config.statementCacheTotalSize)
+                        : 0;
+    }
+
+    @Override
+    public StatementCacheUsage[] getStatementCacheUsage() {
+        StatementCacheStats stats = mcf.statementCacheStats;
+        List<Map.Entry<String, long[]>> usage = stats.getUsage();
+        StatementCacheUsage[] result = new StatementCacheUsage[usage.size()];
+        int i = 0;
+        for (Map.Entry<String, long[]> entry : usage) {
+            long[] counts = entry.getValue();
+            result[i++] = new StatementCacheUsage(entry.getKey(), counts[0], counts[1], counts[2]);
+        }
+        return result;
+    }
+
+    @Override
+    public long[] getExecuteTimeBuckets() {
+        return SQLProfiler.getBounds();
+    }
+
+    @Override
+    public SQLStatementProfile[] getSlowestStatements(int max) {
+        return getStatementProfiles(max, new Comparator<SQLStatementProfile>() {
+            @Override
+            public int compare(SQLStatementProfile p1, SQLStatementProfile p2) {
+                double m1 = p1.getExecutions() == 0 ? 0 : (double) p1.getExecuteTime() / p1.getExecutions();
+                double m2 = p2.getExecutions() == 0 ? 0 : (double) p2.getExecuteTime() / p2.getExecutions();
+                return Double.compare(m2, m1);
+            }
+        });
+    }
+
+    @Override
+    public SQLStatementProfile[] getTopStatementsByTotalTime(int max) {
+        return getStatementProfiles(max, new Comparator<SQLStatementProfile>() {
+            @Override
+            public int compare(SQLStatementProfile p1, SQLStatementProfile p2) {
+                long t1 = p1.getExecuteTime() + p1.getFetchTime();
+                long t2 = p2.getExecuteTime() + p2.getFetchTime();
+                return t1 < t2 ? 1 : t1 > t2 ? -1 : 0;
+            }
+        });
+    }
+
+    @Override
+    public long getUnprofiledExecutions() {
+        return mcf.sqlProfiler.getUntracked();
+    }
+
+    /**
+     * Returns a snapshot of the SQL profile, sorted and limited to a number of SQL strings.
+     *
+     * @param max maximum number of SQL strings to return.
+     * @param comparator order of the SQL strings.
+     * @return SQL profiles.
+     */
+    private SQLStatementProfile[] getStatementProfiles(int max, Comparator<SQLStatementProfile> comparator) {
+        List<SQLProfiler.Entry> entries = mcf.sqlProfiler.getEntries();
+        List<SQLStatementProfile> profiles = new ArrayList<SQLStatementProfile>(entries.size());
+        for (SQLProfiler.Entry entry : entries) {
+            if (entry.getExecutions() > 0)
+                profiles.add(new SQLStatementProfile(entry.sql, entry.getExecutions(),
+                                entry.getExecuteNanos() / 1000, entry.getMaxExecuteNanos() / 1000, entry.getHistogram(),
+                                entry.getResultSets(), entry.getRowsFetched(), entry.getFetchNanos() / 1000,
+                                entry.getBatches(), entry.getBatchedStatements()));
+        }
+        Collections.sort(profiles, comparator);
+        if (profiles.size() > max)
+            profiles = profiles.subList(0, Math.max(0, max));
+        return profiles.toArray(new SQLStatementProfile[profiles.size()]);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("DataSourceMXBean@").append(Integer.toHexString(hashCode())).append(' ').append(obn).toString();
+    }
+}
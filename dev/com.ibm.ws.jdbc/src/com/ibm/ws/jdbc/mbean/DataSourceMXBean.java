@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.jdbc.mbean;
+
+/**
+ * <p>Management interface for data sources. One MXBean instance exists per data source
+ * configured in server configuration or defined by an application.</p>
+ *
+ * <p>Important: the MXBean instance is not available until the data source is first used.</p>
+ *
+ * <p>The object name has the form <code>WebSphere:type=com.ibm.ws.jdbc.mbean.DataSourceMXBean,*</code>
+ * where additional attributes, such as <code>jndiName</code> and <code>name</code>, can be included
+ * to narrow down the data source instance.</p>
+ */
+public interface DataSourceMXBean {
+    /**
+     * @return the number of statements found in a statement cache, across all connections.
+     */
+    long getStatementCacheHits();
+
+    /**
+     * @return the number of statements not found in a statement cache, across all connections.
+     */
+    long getStatementCacheMisses();
+
+    /**
+     * @return the number of statements discarded from, or not admitted to, a statement cache, across all connections.
+     */
+    long getStatementCacheDiscards();
+
+    /**
+     * @return the current size of the statement cache of each connection. 0 if statement caching is disabled.
+     */
+    int getStatementCacheSize();
+
+    /**
+     * @return statement cache usage of each SQL string, most used first.
+     */
+    StatementCacheUsage[] getStatementCacheUsage();
+
+    /**
+     * @return upper bounds, in microseconds, of the buckets of SQLStatementProfile.getExecuteTimeHistogram.
+     *         The last bucket has no upper bound, and is reported as Long.MAX_VALUE.
+     */
+    long[] getExecuteTimeBuckets();
+
+    /**
+     * Returns the profiled SQL with the longest mean execution time.
+     *
+     * @param max maximum number of SQL strings to return.
+     * @return SQL profiles, slowest first.
+     */
+    SQLStatementProfile[] getSlowestStatements(int max);
+
+    /**
+     * Returns the profiled SQL with the most total execution and fetch time.
+     *
+     * @param max maximum number of SQL strings to return.
+     * @return SQL profiles, most time first.
+     */
+    SQLStatementProfile[] getTopStatementsByTotalTime(int max);
+
+    /**
+     * @return the number of SQL executions not profiled because the limit of profiled SQL strings is reached.
+     */
+    long getUnprofiledExecutions();
+}
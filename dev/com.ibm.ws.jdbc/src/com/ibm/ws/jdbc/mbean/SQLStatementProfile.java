@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.jdbc.mbean;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Execution and fetch profile of one normalized SQL string across all connections of a data source.
+ * SQL is normalized by replacing literals with ? and collapsing white space.
+ * Times are in microseconds.
+ */
+public class SQLStatementProfile {
+    private final String sql;
+    private final long executions;
+    private final long executeTime;
+    private final long maxExecuteTime;
+    private final long[] executeTimeHistogram;
+    private final long resultSets;
+    private final long rowsFetched;
+    private final long fetchTime;
+    private final long batches;
+    private final long batchedStatements;
+
+    @ConstructorProperties({ "sql", "executions", "executeTime", "maxExecuteTime", "executeTimeHistogram",
+                             "resultSets", "rowsFetched", "fetchTime", "batches", "batchedStatements" })
+    public SQLStatementProfile(String sql, long executions, long executeTime, long maxExecuteTime, long[] executeTimeHistogram,
+                               long resultSets, long rowsFetched, long fetchTime, long batches, long batchedStatements) {
+        this.sql = sql;
+        this.executions = executions;
+        this.executeTime = executeTime;
+        this.maxExecuteTime = maxExecuteTime;
+        this.executeTimeHistogram = executeTimeHistogram;
+        this.resultSets = resultSets;
+        this.rowsFetched = rowsFetched;
+        this.fetchTime = fetchTime;
+        this.batches = batches;
+        this.batchedStatements = batchedStatements;
+    }
+
+    /**
+     * @return the normalized SQL string.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the number of executions, including batches.
+     */
+    public long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * @return the total time spent executing, in microseconds.
+     */
+    public long getExecuteTime() {
+        return executeTime;
+    }
+
+    /**
+     * @return the longest execution, in microseconds.
+     */
+    public long getMaxExecuteTime() {
+        return maxExecuteTime;
+    }
+
+    /**
+     * @return the number of executions within each bucket of DataSourceMXBean.getExecuteTimeBuckets.
+     */
+    public long[] getExecuteTimeHistogram() {
+        return executeTimeHistogram;
+    }
+
+    /**
+     * @return the number of result sets of queries that have been closed.
+     */
+    public long getResultSets() {
+        return resultSets;
+    }
+
+    /**
+     * @return the number of rows fetched from those result sets.
+     */
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    /**
+     * @return the estimated time spent fetching those rows, in microseconds.
+     */
+    public long getFetchTime() {
+        return fetchTime;
+    }
+
+    /**
+     * @return the number of batches executed.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return the number of statements in those batches.
+     */
+    public long getBatchedStatements() {
+        return batchedStatements;
+    }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.jdbc.mbean;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Statement cache usage of one SQL string across all connections of a data source.
+ */
+public class StatementCacheUsage {
+    private final String sql;
+    private final long hits;
+    private final long misses;
+    private final long discards;
+
+    @ConstructorProperties({ "sql", "hits", "misses", "discards" })
+    public StatementCacheUsage(String sql, long hits, long misses, long discards) {
+        this.sql = sql;
+        this.hits = hits;
+        this.misses = misses;
+        this.discards = discards;
+    }
+
+    /**
+     * @return the SQL string.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the number of times a statement for the SQL string was found in a statement cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times a statement for the SQL string was not found in a statement cache.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of statements for the SQL string discarded from, or not admitted to, a statement cache.
+     */
+    public long getDiscards() {
+        return discards;
+    }
+}
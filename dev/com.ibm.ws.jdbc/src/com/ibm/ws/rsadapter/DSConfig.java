@@ -51,6 +51,7 @@ public class DSConfig implements FFDCSelfIntrospectable {
                     QUERY_TIMEOUT = "queryTimeout",
                     RECOVERY_AUTH_DATA_REF = "recoveryAuthDataRef",
                     STATEMENT_CACHE_SIZE = "statementCacheSize",
+                    STATEMENT_CACHE_TOTAL_SIZE = "statementCacheTotalSize",
                     SUPPLEMENTAL_JDBC_TRACE = "supplementalJDBCTrace",
                     SYNC_QUERY_TIMEOUT_WITH_TRAN_TIMEOUT = "syncQueryTimeoutWithTransactionTimeout",
                     TYPE = "type",
@@ -74,6 +75,7 @@ public class DSConfig implements FFDCSelfIntrospectable {
                                                                QUERY_TIMEOUT,
                                                                RECOVERY_AUTH_DATA_REF,
                                                                STATEMENT_CACHE_SIZE,
+                                                               STATEMENT_CACHE_TOTAL_SIZE,
                                                                SUPPLEMENTAL_JDBC_TRACE,
                                                                SYNC_QUERY_TIMEOUT_WITH_TRAN_TIMEOUT,
                                                                DataSourceDef.transactional.name(),
@@ -171,6 +173,12 @@ public class DSConfig implements FFDCSelfIntrospectable {
      */
     public final int statementCacheSize;
 
+    /**
+     * Maximum cached statements across all connections. When positive, each connection's
+     * statement cache is sized to the statements used repeatedly, within an equal share of this total.
+     */
+    public final int statementCacheTotalSize;
+
     /**
      * Whether or not supplemental JDBC tracing should be enabled
      */
@@ -248,6 +256,7 @@ public class DSConfig implements FFDCSelfIntrospectable {
         onConnect = remove(ON_CONNECT, (String[]) null);
         queryTimeout = remove(QUERY_TIMEOUT, (Integer) null, 0, TimeUnit.SECONDS);
         statementCacheSize = remove(STATEMENT_CACHE_SIZE, mcf.isUCP ? 0 : 10, 0, null);
+        statementCacheTotalSize = remove(STATEMENT_CACHE_TOTAL_SIZE, 0, 0, null);
         supplementalJDBCTrace = remove(SUPPLEMENTAL_JDBC_TRACE, (Boolean) null);
         syncQueryTimeoutWithTransactionTimeout = remove(SYNC_QUERY_TIMEOUT_WITH_TRAN_TIMEOUT, false);
         transactional = remove(DataSourceDef.transactional.name(), true);
@@ -299,6 +308,7 @@ public class DSConfig implements FFDCSelfIntrospectable {
                                                ENABLE_CONNECTION_CASTING, enableConnectionCasting,
                                                QUERY_TIMEOUT, queryTimeout,
                                                STATEMENT_CACHE_SIZE, statementCacheSize,
+                                               STATEMENT_CACHE_TOTAL_SIZE, statementCacheTotalSize,
                                                SUPPLEMENTAL_JDBC_TRACE, supplementalJDBCTrace,
                                                SYNC_QUERY_TIMEOUT_WITH_TRAN_TIMEOUT, syncQueryTimeoutWithTransactionTimeout,
                                                DataSourceDef.transactional.name(), transactional
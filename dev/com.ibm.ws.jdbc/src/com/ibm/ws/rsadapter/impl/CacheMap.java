@@ -28,6 +28,11 @@ import java.util.LinkedList;
  * performed, an entry from the bucket least recently used is discarded.</li>
  * <li>The hash function is simply the hash code modulus the maximum number of entries.</li>
  * <li>Methods are NOT synchronized. (add, remove, removeAll)</li>
+ * <li>When created with statement cache statistics, eviction is frequency aware. An entry
+ * from the least recently used bucket is only replaced by a key that was looked up at least
+ * as often recently, and the least frequently used entry of that bucket is the one replaced.
+ * This keeps statements that are reused across the pool from being pushed out by SQL that
+ * runs once.</li>
  * </ul>
  */
 public class CacheMap {
@@ -69,6 +74,9 @@ public class CacheMap {
     /** Index of the bucket with its "previous" pointing to the MRU bucket. */
     private final int AFTER_MRU;
 
+    /** Statement cache statistics providing key frequencies. Null for plain LRU. */
+    private final StatementCacheStats stats;
+
     /**
      * Create a new CacheMap with a maximum number of entries. When the CacheMap grows beyond
      * the maximum number of entries, an entry from the least recently used bucket is
@@ -77,7 +85,20 @@ public class CacheMap {
      * @param maxSize the maximum number of entries which may be stored in the CacheMap.
      */
     public CacheMap(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Create a new CacheMap with a maximum number of entries, which uses the key frequencies
+     * of the statement cache statistics to choose the entries to discard, and reports
+     * discarded entries to the statistics.
+     * 
+     * @param maxSize the maximum number of entries which may be stored in the CacheMap.
+     * @param stats statement cache statistics. Null to always discard least recently used entries.
+     */
+    public CacheMap(int maxSize, StatementCacheStats stats) {
         maxEntries = maxSize;
+        this.stats = stats;
 
         // The "next" and "previous" lists reserve the index after the last bucket index for
         // the pointer to the LRU bucket and the following index for the pointer to the MRU
@@ -120,6 +141,20 @@ public class CacheMap {
      */
     public final Object add(Object key, Object value) {
         int bucketIndex = (key.hashCode() & Integer.MAX_VALUE) % numBuckets;
+
+        // When full, do not let a key that is used less often than the entries of the least
+        // recently used bucket replace one of them. The new value is discarded instead.
+
+        if (stats != null && numEntries >= maxEntries && bucketSizes[bucketIndex] < maxBucketSize) {
+            int lruIndex = next[BEFORE_LRU];
+            if (lruIndex != AFTER_MRU
+                && stats.frequency(key) < stats.frequency(keys[lruIndex][leastFrequent(lruIndex, bucketSizes[lruIndex])])) {
+                numDiscards++;
+                stats.discarded(key);
+                return value;
+            }
+        }
+
         int bucketSize = bucketSizes[bucketIndex]++;
 
         // Discard an entry from the bucket if it's already at the maximum bucket size.
@@ -193,6 +228,8 @@ public class CacheMap {
      */
     private Object discardFromBucket(int bucketIndex, int entryIndex) {
         numDiscards++;
+        if (stats != null)
+            stats.discarded(keys[bucketIndex][entryIndex]);
         bucketSizes[bucketIndex]--;
         numEntries--;
         return values[bucketIndex][entryIndex];
@@ -215,6 +252,8 @@ public class CacheMap {
         sb.append(AdapterUtil.EOLN).append("Number of buckets:   ").append(numBuckets);
         sb.append(AdapterUtil.EOLN).append("Maximum bucket size: ").append(maxBucketSize); 
         sb.append(AdapterUtil.EOLN).append("Number of discards:  ").append(numDiscards); 
+        if (stats != null)
+            sb.append(AdapterUtil.EOLN).append("Statistics:          ").append(stats);
 
         sb.append(AdapterUtil.EOLN);
         sb.append(AdapterUtil.EOLN).append("BUCKET SIZE PREV NEXT");
@@ -237,6 +276,28 @@ public class CacheMap {
         return new String(sb);
     }
 
+    /**
+     * Returns the index of the entry with the lowest recent frequency within a bucket.
+     * 
+     * @param bucketIndex the index of the bucket.
+     * @param bucketSize the number of entries in the bucket.
+     * 
+     * @return the index of the least frequently used entry within the bucket.
+     */
+    private int leastFrequent(int bucketIndex, int bucketSize) {
+        Object[] bucketKeys = keys[bucketIndex];
+        int index = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < bucketSize; i++) {
+            int frequency = stats.frequency(bucketKeys[i]);
+            if (frequency < min) {
+                min = frequency;
+                index = i;
+            }
+        }
+        return index;
+    }
+
     /**
      * Returns the maximum number of entries that can be kept in the cache.
      * 
@@ -354,9 +415,17 @@ public class CacheMap {
         numEntries--;
 
         // Choose an entry in the LRU bucket to remove.  The numDiscards counter is used to
-        // reduce the chance of always choosing the same index.
-
-        int indexToRemove = (numDiscards++ & Integer.MAX_VALUE) % (bucketSize + 1);
+        // reduce the chance of always choosing the same index.  With statistics, the least
+        // frequently used entry is removed.
+
+        int indexToRemove;
+        if (stats == null)
+            indexToRemove = (numDiscards++ & Integer.MAX_VALUE) % (bucketSize + 1);
+        else {
+            numDiscards++;
+            indexToRemove = leastFrequent(bucketIndex, bucketSize + 1);
+            stats.discarded(bucketKeys[indexToRemove]);
+        }
 
         Object value = bucketValues[indexToRemove];
 
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.rsadapter.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Always-on profile of the SQL run through the JDBC wrappers of a managed connection factory.
+ * For each normalized SQL string it records the execution count, execution time and a histogram of it,
+ * batch sizes, and the rows fetched from result sets with an estimate of the time spent fetching them.</p>
+ *
+ * <p>SQL is normalized by replacing string and numeric literals with ? and collapsing white space,
+ * so that statements built by concatenating values are profiled together. The entry of each SQL
+ * string as issued is remembered, so that normalizing is only done the first time. Once the limit of
+ * profiled SQL is reached, SQL as issued that was turned away is remembered too, so that it is only
+ * counted, not normalized again.</p>
+ *
+ * <p>Counters are striped by thread over STRIPES copies, each on its own cache lines, so that
+ * threads running the same SQL do not contend. Reading a value sums the stripes.</p>
+ */
+public class SQLProfiler {
+    /** Upper bounds, in microseconds, of the execution time histogram buckets. */
+    static final long[] BOUNDS = { 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 1000000, Long.MAX_VALUE };
+
+    /** Upper limit on the number of normalized SQL strings profiled. Others are only counted as untracked. */
+    static final int MAX_TRACKED = 1000;
+
+    /** Upper limit on the number of SQL strings, as issued, remembered for their entry, and separately of those remembered as untracked. */
+    static final int MAX_ISSUED = 4096;
+
+    /** Longest normalized SQL kept. Longer SQL is truncated, and profiled with other SQL of the same beginning. */
+    static final int MAX_SQL_LENGTH = 2048;
+
+    /** One in this many ResultSet.next calls is timed, and the fetch time estimated from those. A prime, to not align with fetch sizes. */
+    public static final int FETCH_SAMPLE = 7;
+
+    // Counter offsets within a stripe
+    private static final int EXECUTIONS = 0, EXECUTE_NANOS = 1, RESULT_SETS = 2, ROWS = 3, FETCH_NANOS = 4, BATCHES = 5, BATCHED = 6, HISTOGRAM = 7;
+
+    /** Longs per stripe, rounded up to whole 64 byte cache lines. */
+    private static final int STRIDE = (HISTOGRAM + BOUNDS.length + 7) & ~7;
+
+    /** Number of stripes, a power of 2 no larger than 8. */
+    static final int STRIPES = Math.min(8, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    /**
+     * Profile of one normalized SQL string.
+     */
+    public static final class Entry {
+        /** Normalized SQL. */
+        public final String sql;
+
+        /** Counters of all stripes, with one more stride at the start so that the first stripe does not share a cache line with the array header. */
+        private final AtomicLongArray counters = new AtomicLongArray((STRIPES + 1) * STRIDE);
+
+        private final AtomicLong maxExecuteNanos = new AtomicLong();
+
+        Entry(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Records an execution.
+         *
+         * @param nanos elapsed time of the execution.
+         */
+        public final void executed(long nanos) {
+            int stripe = stripe();
+            counters.incrementAndGet(stripe + EXECUTIONS);
+            counters.addAndGet(stripe + EXECUTE_NANOS, nanos);
+
+            long micros = nanos / 1000;
+            int b = 0;
+            while (micros >= BOUNDS[b] && b < BOUNDS.length - 1)
+                b++;
+            counters.incrementAndGet(stripe + HISTOGRAM + b);
+
+            for (long max = maxExecuteNanos.get(); nanos > max && !maxExecuteNanos.compareAndSet(max, nanos); max = maxExecuteNanos.get());
+        }
+
+        /**
+         * Records the execution of a batch.
+         *
+         * @param size number of statements in the batch.
+         * @param nanos elapsed time of the execution.
+         */
+        public final void batchExecuted(int size, long nanos) {
+            executed(nanos);
+            int stripe = stripe();
+            counters.incrementAndGet(stripe + BATCHES);
+            counters.addAndGet(stripe + BATCHED, size);
+        }
+
+        /**
+         * Records the rows fetched from a result set when it is closed.
+         *
+         * @param rows number of rows fetched.
+         * @param nanos estimated time spent fetching them.
+         */
+        public final void fetched(long rows, long nanos) {
+            int stripe = stripe();
+            counters.incrementAndGet(stripe + RESULT_SETS);
+            counters.addAndGet(stripe + ROWS, rows);
+            counters.addAndGet(stripe + FETCH_NANOS, nanos);
+        }
+
+        private static int stripe() {
+            return (((int) Thread.currentThread().getId() & (STRIPES - 1)) + 1) * STRIDE;
+        }
+
+        private long sum(int offset) {
+            long sum = 0;
+            for (int s = 1; s <= STRIPES; s++)
+                sum += counters.get(s * STRIDE + offset);
+            return sum;
+        }
+
+        public final long getExecutions() {
+            return sum(EXECUTIONS);
+        }
+
+        public final long getExecuteNanos() {
+            return sum(EXECUTE_NANOS);
+        }
+
+        public final long getMaxExecuteNanos() {
+            return maxExecuteNanos.get();
+        }
+
+        /**
+         * @return number of executions within each bucket of BOUNDS.
+         */
+        public final long[] getHistogram() {
+            long[] histogram = new long[BOUNDS.length];
+            for (int b = 0; b < histogram.length; b++)
+                histogram[b] = sum(HISTOGRAM + b);
+            return histogram;
+        }
+
+        public final long getResultSets() {
+            return sum(RESULT_SETS);
+        }
+
+        public final long getRowsFetched() {
+            return sum(ROWS);
+        }
+
+        public final long getFetchNanos() {
+            return sum(FETCH_NANOS);
+        }
+
+        public final long getBatches() {
+            return sum(BATCHES);
+        }
+
+        public final long getBatchedStatements() {
+            return sum(BATCHED);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder("SQLProfile@").append(Integer.toHexString(hashCode()))
+                            .append(" executions=").append(getExecutions())
+                            .append(" executeMicros=").append(getExecuteNanos() / 1000)
+                            .append(" rows=").append(getRowsFetched())
+                            .append(' ').append(sql)
+                            .toString();
+        }
+    }
+
+    /** Entries by normalized SQL. */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /** Entries by SQL as issued. */
+    private final ConcurrentHashMap<String, Entry> issued = new ConcurrentHashMap<String, Entry>();
+
+    /** SQL as issued that was not profiled because MAX_TRACKED was reached. */
+    private final ConcurrentHashMap<String, Boolean> rejected = new ConcurrentHashMap<String, Boolean>();
+
+    /** Number of times SQL was not profiled because MAX_TRACKED was reached. */
+    private final AtomicLong untracked = new AtomicLong();
+
+    /**
+     * Returns the profile entry for a SQL string.
+     *
+     * @param sql the SQL as issued.
+     * @return the entry, or null if the SQL is null or too many SQL strings are already profiled.
+     */
+    public final Entry getEntry(String sql) {
+        if (sql == null)
+            return null;
+
+        Entry entry = issued.get(sql);
+        if (entry == null) {
+            if (rejected.containsKey(sql)) {
+                untracked.incrementAndGet();
+                return null;
+            }
+            String normalized = normalize(sql);
+            entry = entries.get(normalized);
+            if (entry == null) {
+                if (entries.size() >= MAX_TRACKED) {
+                    if (rejected.size() < MAX_ISSUED)
+                        rejected.put(sql, Boolean.TRUE);
+                    untracked.incrementAndGet();
+                    return null;
+                }
+                Entry newEntry = new Entry(normalized);
+                entry = entries.putIfAbsent(normalized, newEntry);
+                if (entry == null)
+                    entry = newEntry;
+            }
+            if (issued.size() < MAX_ISSUED)
+                issued.put(sql, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return all profile entries.
+     */
+    public final List<Entry> getEntries() {
+        return new ArrayList<Entry>(entries.values());
+    }
+
+    /**
+     * @return number of times SQL was not profiled because too many SQL strings are already profiled.
+     */
+    public final long getUntracked() {
+        return untracked.get();
+    }
+
+    /**
+     * @return upper bounds, in microseconds, of the execution time histogram buckets.
+     */
+    public static final long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * Replaces string and numeric literals with ? and collapses white space.
+     *
+     * @param sql SQL as issued.
+     * @return normalized SQL.
+     */
+    static String normalize(String sql) {
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(Math.min(length, MAX_SQL_LENGTH));
+        boolean space = false;
+        for (int i = 0; i < length && sb.length() < MAX_SQL_LENGTH; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) {
+                sb.append(' ');
+                space = false;
+            }
+            if (c == '\'') {
+                // string literal, with '' for a quote within it
+                for (i++; i < length; i++)
+                    if (sql.charAt(i) == '\'')
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'')
+                            i++;
+                        else
+                            break;
+                sb.append('?');
+            } else if (c == '"') {
+                // quoted identifier, kept as is
+                int end = sql.indexOf('"', i + 1);
+                end = end < 0 ? length - 1 : end;
+                sb.append(sql, i, end + 1);
+                i = end;
+            } else if ((c >= '0' && c <= '9' || c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))
+                       && (sb.length() == 0 || !Character.isJavaIdentifierPart(sb.charAt(sb.length() - 1)))) {
+                // numeric literal, including decimals and exponents
+                while (i + 1 < length) {
+                    char n = sql.charAt(i + 1);
+                    if (n >= '0' && n <= '9' || n == '.' || n == 'e' || n == 'E'
+                        || (n == '+' || n == '-') && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E'))
+                        i++;
+                    else
+                        break;
+                }
+                sb.append('?');
+            } else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
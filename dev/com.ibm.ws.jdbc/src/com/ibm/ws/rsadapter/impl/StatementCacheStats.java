@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.rsadapter.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.ws.rsadapter.AdapterUtil;
+
+/**
+ * <p>Statement cache usage across all connections of a managed connection factory,
+ * by SQL string. It is used for,</p>
+ *
+ * <ul>
+ * <li>Hit, miss and discard counts, in total and for each SQL string.</li>
+ * <li>The recent frequency of each SQL string, which the statement caches use to keep
+ * frequently used statements rather than recently used ones. Frequencies are halved
+ * every AGING_PERIOD lookups so that they follow changes in the workload.</li>
+ * <li>The size of each connection's statement cache. When statementCacheTotalSize is
+ * configured, each cache holds the SQL strings that are used repeatedly, up to an
+ * equal share of the total across the connections that use their cache.</li>
+ * </ul>
+ *
+ * <p>Counters are updated without locking, so the values are approximate
+ * while statements are being used.</p>
+ */
+public class StatementCacheStats {
+    private static final TraceComponent tc = Tr.register(StatementCacheStats.class, AdapterUtil.TRACE_GROUP, AdapterUtil.NLS_FILE);
+
+    /** Number of lookups after which frequencies are halved. */
+    static final int AGING_PERIOD = 10000;
+
+    /** Frequency within an aging period from which a SQL string counts as used repeatedly. */
+    static final int HOT_FREQUENCY = 2;
+
+    /** Upper limit on the number of SQL strings tracked. Others are only counted in the totals. */
+    static final int MAX_TRACKED = 4096;
+
+    /** Usage of one SQL string. */
+    static final class Usage {
+        final AtomicInteger frequency = new AtomicInteger();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong discards = new AtomicLong();
+    }
+
+    private final ConcurrentHashMap<String, Usage> usage = new ConcurrentHashMap<String, Usage>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+
+    /** Number of SQL strings used repeatedly in the last aging period. Negative before the first one ends. */
+    private volatile int hotCount = -1;
+
+    /** Current aging period. */
+    private volatile int period;
+
+    /** Statement caches used in the current and in the last aging period. */
+    private final AtomicInteger activeCaches = new AtomicInteger();
+    private volatile int lastActiveCaches;
+
+    /**
+     * Records a statement cache lookup.
+     *
+     * @param key the statement cache key.
+     * @param hit true if a statement was found in the cache.
+     */
+    public final void lookup(StatementCacheKey key, boolean hit) {
+        (hit ? hits : misses).incrementAndGet();
+
+        Usage u = getUsage(key, true);
+        if (u != null) {
+            u.frequency.incrementAndGet();
+            (hit ? u.hits : u.misses).incrementAndGet();
+        }
+
+        if (lookups.incrementAndGet() % AGING_PERIOD == 0)
+            age();
+    }
+
+    /**
+     * Records a statement discarded from a statement cache.
+     *
+     * @param key the statement cache key.
+     */
+    public final void discarded(Object key) {
+        discards.incrementAndGet();
+        Usage u = getUsage(key, false);
+        if (u != null)
+            u.discards.incrementAndGet();
+    }
+
+    /**
+     * @param key the statement cache key.
+     * @return the recent frequency of the SQL string of the key.
+     */
+    public final int frequency(Object key) {
+        Usage u = getUsage(key, false);
+        return u == null ? 0 : u.frequency.get();
+    }
+
+    /**
+     * Records that a connection uses its statement cache. A connection passes the
+     * period returned by its previous call, so that it is counted once per aging period.
+     *
+     * @param cachePeriod aging period returned by the previous call from the same connection, or -1.
+     * @return the current aging period.
+     */
+    public final int cacheUsed(int cachePeriod) {
+        int current = period;
+        if (cachePeriod != current)
+            activeCaches.incrementAndGet();
+        return current;
+    }
+
+    /**
+     * Returns the size for a connection's statement cache.
+     *
+     * @param statementCacheSize configured statementCacheSize, which must be positive.
+     * @param statementCacheTotalSize configured statementCacheTotalSize, or 0 to always use statementCacheSize.
+     * @return the size for a connection's statement cache.
+     */
+    public final int getCacheSize(int statementCacheSize, int statementCacheTotalSize) {
+        if (statementCacheTotalSize <= 0)
+            return statementCacheSize;
+
+        int hot = hotCount;
+        int wanted = hot < 0 ? statementCacheSize : hot;
+        int caches = Math.max(1, Math.max(activeCaches.get(), lastActiveCaches));
+        return Math.max(1, Math.min(wanted, statementCacheTotalSize / caches));
+    }
+
+    /**
+     * Halves all frequencies and starts a new aging period.
+     */
+    private synchronized void age() {
+        int hot = 0;
+        boolean full = usage.size() > MAX_TRACKED / 2;
+        for (Iterator<Usage> it = usage.values().iterator(); it.hasNext();) {
+            AtomicInteger frequency = it.next().frequency;
+            int f = frequency.get();
+            if (f >= HOT_FREQUENCY)
+                hot++;
+            frequency.set(f >> 1); // concurrent increments can be lost here, which only makes the value approximate
+            if (full && f <= 1)
+                it.remove();
+        }
+
+        lastActiveCaches = activeCaches.getAndSet(0);
+        hotCount = hot;
+        period++;
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
+            Tr.debug(this, tc, "statement cache period " + period, "used repeatedly: " + hot, "caches: " + lastActiveCaches, "tracked: " + usage.size());
+    }
+
+    private Usage getUsage(Object key, boolean create) {
+        String sql = ((StatementCacheKey) key).sql;
+        if (sql == null)
+            return null;
+        Usage u = usage.get(sql);
+        if (u == null && create && usage.size() < MAX_TRACKED) {
+            Usage newUsage = new Usage();
+            u = usage.putIfAbsent(sql, newUsage);
+            if (u == null)
+                u = newUsage;
+        }
+        return u;
+    }
+
+    /**
+     * @return the number of statements found in a statement cache.
+     */
+    public final long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of statements not found in a statement cache.
+     */
+    public final long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of statements discarded from, or not admitted to, a statement cache.
+     */
+    public final long getDiscards() {
+        return discards.get();
+    }
+
+    /**
+     * Returns the tracked SQL strings, most used first.
+     *
+     * @return list of entries with the SQL string as key and its hit, miss and discard counts as value.
+     */
+    public final List<Map.Entry<String, long[]>> getUsage() {
+        List<Map.Entry<String, long[]>> list = new ArrayList<Map.Entry<String, long[]>>(usage.size());
+        for (Map.Entry<String, Usage> entry : usage.entrySet()) {
+            Usage u = entry.getValue();
+            long[] counts = new long[] { u.hits.get(), u.misses.get(), u.discards.get() };
+            list.add(new AbstractMap.SimpleImmutableEntry<String, long[]>(entry.getKey(), counts));
+        }
+        Collections.sort(list, new Comparator<Map.Entry<String, long[]>>() {
+            @Override
+            public int compare(Map.Entry<String, long[]> e1, Map.Entry<String, long[]> e2) {
+                long l1 = e1.getValue()[0] + e1.getValue()[1];
+                long l2 = e2.getValue()[0] + e2.getValue()[1];
+                return l1 < l2 ? 1 : l1 > l2 ? -1 : 0;
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(getClass().getSimpleName()).append('@').append(Integer.toHexString(hashCode()))
+                        .append(" hits=").append(hits).append(" misses=").append(misses).append(" discards=").append(discards)
+                        .append(" usedRepeatedly=").append(hotCount).append(" tracked=").append(usage.size())
+                        .toString();
+    }
+}
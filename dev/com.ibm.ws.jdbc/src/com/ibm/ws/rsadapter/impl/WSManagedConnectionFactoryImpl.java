@@ -274,6 +274,16 @@ public class WSManagedConnectionFactoryImpl extends WSManagedConnectionFactory i
      */
     public final transient Set<Method> vendorMethods = Collections.newSetFromMap(new ConcurrentHashMap<Method, Boolean>());
 
+    /**
+     * Statement cache usage across all connections from this managed connection factory.
+     */
+    public final transient StatementCacheStats statementCacheStats = new StatementCacheStats();
+
+    /**
+     * Profile of the SQL run on connections from this managed connection factory.
+     */
+    public final transient SQLProfiler sqlProfiler = new SQLProfiler();
+
     // Indicates whether the DataSource was used to get a connection.
     private boolean wasUsedToGetAConnection;
 
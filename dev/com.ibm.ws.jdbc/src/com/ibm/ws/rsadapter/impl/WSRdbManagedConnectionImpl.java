@@ -318,6 +318,9 @@ public class WSRdbManagedConnectionImpl extends WSManagedConnection implements
     //Cache variables
     private CacheMap statementCache; // Switch to a WebSphere-specific hash map.  
 
+    /** Statement cache aging period in which this connection last used its cache. */
+    private int statementCachePeriod = -1;
+
     // Key sent to Connection wrapper to permit access to methods such as reassociate.
     static final Object key = new byte[0];
 
@@ -491,7 +494,8 @@ public class WSRdbManagedConnectionImpl extends WSManagedConnection implements
         //Create the stmt cache if cachesize > 0
         int statementCacheSize = config.statementCacheSize; 
         if (statementCacheSize > 0) 
-            statementCache = new CacheMap(statementCacheSize); 
+            statementCache = new CacheMap(mcf.statementCacheStats.getCacheSize(statementCacheSize, config.statementCacheTotalSize),
+                                          mcf.statementCacheStats); 
 
         //create an instance of WSStateManager
         stateMgr = new WSStateManager();
@@ -864,20 +868,26 @@ public class WSRdbManagedConnectionImpl extends WSManagedConnection implements
     }
 
     /**
-     * Processes any dynamic updates to the statement cache size
-     * and then returns the statement cache.
+     * Processes any dynamic updates to the statement cache size, including those
+     * from adapting to the statements used across the pool when statementCacheTotalSize
+     * is configured, and then returns the statement cache.
      * 
      * @return the statement cache. Null if caching is not enabled.
      */
     private CacheMap getStatementCache() {
-        int newSize = dsConfig.get().statementCacheSize; 
+        DSConfig config = dsConfig.get();
+        int newSize = 0;
+        if (config.statementCacheSize > 0) {
+            statementCachePeriod = mcf.statementCacheStats.cacheUsed(statementCachePeriod);
+            newSize = mcf.statementCacheStats.getCacheSize(config.statementCacheSize, config.statementCacheTotalSize);
+        }
 
         // Check if statement cache is dynamically enabled
         if (statementCache == null && newSize > 0) {
             if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
                 Tr.debug(this, tc,
                          "enable statement cache with size", newSize);
-            statementCache = new CacheMap(newSize);
+            statementCache = new CacheMap(newSize, mcf.statementCacheStats);
         }
 
         // Check if statement cache is dynamically resized or disabled
@@ -886,7 +896,7 @@ public class WSRdbManagedConnectionImpl extends WSManagedConnection implements
                 Tr.debug(this, tc,
                          "resize statement cache to", newSize);
             CacheMap oldCache = statementCache;
-            statementCache = newSize > 0 ? new CacheMap(newSize) : null;
+            statementCache = newSize > 0 ? new CacheMap(newSize, mcf.statementCacheStats) : null;
             Object[] discards = newSize > 0 ? statementCache.addAll(oldCache) : oldCache.removeAll();
             for (Object stmt : discards)
                 destroyStatement(stmt);
@@ -2156,6 +2166,7 @@ public class WSRdbManagedConnectionImpl extends WSManagedConnection implements
     public final Object getStatement(StatementCacheKey key) 
     {
         Object stmt = statementCache.remove(key);
+        mcf.statementCacheStats.lookup(key, stmt != null);
         if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) { 
             if (stmt == null) {
                 Tr.debug(this, tc, "No Matching Prepared Statement found in cache");
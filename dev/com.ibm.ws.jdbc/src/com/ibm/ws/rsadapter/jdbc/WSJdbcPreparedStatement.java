@@ -41,6 +41,7 @@ import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.ws.ffdc.FFDCFilter;
 import com.ibm.ws.jdbc.timedoperations.WSJdbcObjectHelper;
 import com.ibm.ws.rsadapter.AdapterUtil;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
 import com.ibm.ws.rsadapter.impl.StatementCacheKey;
 
 /**
@@ -63,6 +64,11 @@ public class WSJdbcPreparedStatement extends WSJdbcStatement implements Prepared
      * 
      */
     protected String sql;
+
+    /**
+     * SQL profile entry of this prepared statement. Null until first executed.
+     */
+    private SQLProfiler.Entry sqlProfile;
     
     Object sqljSection;
 
@@ -390,7 +396,9 @@ public class WSJdbcPreparedStatement extends WSJdbcStatement implements Prepared
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             result = pstmtImpl.execute();
+            profileExecution(start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
             if (isTraceOn && tc.isEntryEnabled())
@@ -454,6 +462,29 @@ public class WSJdbcPreparedStatement extends WSJdbcStatement implements Prepared
         return results;
     }
 
+    @Override
+    protected final SQLProfiler.Entry getBatchProfile() {
+        if (sqlProfile == null)
+            sqlProfile = mcf.sqlProfiler.getEntry(sql);
+        return sqlProfile;
+    }
+
+    /**
+     * Records an execution of this prepared statement in the SQL profile.
+     * 
+     * @param start System.nanoTime() before the execution.
+     * 
+     * @return the SQL profile entry. Null if the SQL is not profiled.
+     */
+    protected final SQLProfiler.Entry profileExecution(long start) {
+        long elapsed = System.nanoTime() - start;
+        if (sqlProfile == null)
+            sqlProfile = mcf.sqlProfiler.getEntry(sql);
+        if (sqlProfile != null)
+            sqlProfile.executed(elapsed);
+        return sqlProfile;
+    }
+
     public ResultSet executeQuery() throws SQLException {
         final boolean isTraceOn = TraceComponent.isAnyTracingEnabled(); 
 
@@ -475,7 +506,11 @@ public class WSJdbcPreparedStatement extends WSJdbcStatement implements Prepared
 
             enforceStatementProperties();
 
-            childWrapper = rsetWrapper = createResultSetWrapper(pstmtImpl.executeQuery());
+            long start = System.nanoTime();
+            ResultSet rsetImpl = pstmtImpl.executeQuery();
+            SQLProfiler.Entry profile = profileExecution(start);
+            childWrapper = rsetWrapper = createResultSetWrapper(rsetImpl);
+            rsetWrapper.sqlProfile = profile;
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
             if (isTraceOn && tc.isEntryEnabled())
@@ -520,7 +555,9 @@ public class WSJdbcPreparedStatement extends WSJdbcStatement implements Prepared
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = pstmtImpl.executeUpdate();
+            profileExecution(start);
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error.  
             if (isTraceOn && tc.isEntryEnabled())
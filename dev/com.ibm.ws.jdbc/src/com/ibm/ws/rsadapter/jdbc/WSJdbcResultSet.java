@@ -40,6 +40,7 @@ import com.ibm.ws.ffdc.FFDCFilter;
 import com.ibm.ws.jdbc.timedoperations.WSJdbcObjectHelper;
 import com.ibm.ws.rsadapter.AdapterUtil;
 import com.ibm.ws.rsadapter.DSConfig;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
 
 /**
  * This class wraps a JDBC ResultSet.
@@ -52,6 +53,18 @@ public class WSJdbcResultSet extends WSJdbcObject implements ResultSet, WSJdbcOb
 
     protected String sql;
 
+    /**
+     * SQL profile entry of the query that produced this result set. Null if not profiled.
+     * The rows fetched are recorded in it when the result set is closed.
+     */
+    SQLProfiler.Entry sqlProfile;
+
+    /** Rows fetched by next, and the estimated time spent in it, for the SQL profile. */
+    private long rowsFetched, fetchNanos;
+
+    /** Number of next calls until the next one that is timed. */
+    private int untilFetchSample = 1;
+
     /**
      * Create a WebSphere ResultSet wrapper.
      * 
@@ -214,6 +227,11 @@ public class WSJdbcResultSet extends WSJdbcObject implements ResultSet, WSJdbcOb
             parentWrapper.childWrappers.remove(this);
         }
 
+        if (sqlProfile != null) {
+            sqlProfile.fetched(rowsFetched, fetchNanos);
+            sqlProfile = null;
+        }
+
         if (closeWrapperOnly) { 
             // skip close of implementation object.  (Statement.getMoreResults will do it.)
             if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) { 
@@ -2267,7 +2285,17 @@ public class WSJdbcResultSet extends WSJdbcObject implements ResultSet, WSJdbcOb
             if (dsConfig.get().beginTranForResultSetScrollingAPIs)
                 getConnectionWrapper().beginTransactionIfNecessary();
 
-            boolean moreRows = rsetImpl.next();            
+            boolean moreRows;
+            if (sqlProfile != null && --untilFetchSample <= 0) {
+                // Time one in FETCH_SAMPLE calls, and count it for the calls that are not timed
+                untilFetchSample = SQLProfiler.FETCH_SAMPLE;
+                long start = System.nanoTime();
+                moreRows = rsetImpl.next();
+                fetchNanos += (System.nanoTime() - start) * SQLProfiler.FETCH_SAMPLE;
+            } else
+                moreRows = rsetImpl.next();
+            if (moreRows)
+                rowsFetched++;
             return moreRows;
         } catch (SQLException ex) {
             FFDCFilter.processException(ex, "com.ibm.ws.rsadapter.jdbc.WSJdbcResultSet.next", "2624", this);
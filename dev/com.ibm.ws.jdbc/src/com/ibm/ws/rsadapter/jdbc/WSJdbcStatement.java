@@ -34,6 +34,7 @@ import com.ibm.ws.jdbc.osgi.JDBCRuntimeVersion;
 import com.ibm.ws.jdbc.timedoperations.WSJdbcObjectHelper;
 import com.ibm.ws.rsadapter.AdapterUtil;
 import com.ibm.ws.rsadapter.DSConfig;
+import com.ibm.ws.rsadapter.impl.SQLProfiler;
 import com.ibm.wsspi.uow.UOWManager; 
 import com.ibm.wsspi.uow.UOWManagerFactory; 
 
@@ -94,6 +95,11 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
      */
     protected boolean hasBatchParameters;
 
+    /**
+     * SQL of the first statement added to the current batch, under which the batch is profiled.
+     */
+    private String batchSql;
+
     /**
      * Value of the query timeout before syncing it with the transaction timeout.
      * When statements from unsharable connections are kept open after the JTA transaction ends,
@@ -153,6 +159,8 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
         try {
             stmtImpl.addBatch(sql);
+            if (batchSql == null)
+                batchSql = sql;
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
             if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
@@ -200,6 +208,7 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
         try {
             stmtImpl.clearBatch();
+            batchSql = null;
 
             // Reset the batch parameter flag when the batch is cleared. 
             hasBatchParameters = false;
@@ -350,6 +359,34 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
         return rsetImplObject == null ? null : mcf.jdbcRuntime.newResultSet(rsetImplObject, this);
     }
 
+    /**
+     * Returns the SQL profile entry under which to record the batch being executed,
+     * and starts a new batch.
+     * 
+     * @return the SQL profile entry. Null if the batch is not profiled.
+     */
+    protected SQLProfiler.Entry getBatchProfile() {
+        String sql = batchSql;
+        batchSql = null;
+        return mcf.sqlProfiler.getEntry(sql);
+    }
+
+    /**
+     * Records an execution of the specified SQL in the SQL profile.
+     * 
+     * @param sql the SQL that was executed.
+     * @param start System.nanoTime() before the execution.
+     * 
+     * @return the SQL profile entry. Null if the SQL is not profiled.
+     */
+    protected final SQLProfiler.Entry profileExecution(String sql, long start) {
+        long elapsed = System.nanoTime() - start;
+        SQLProfiler.Entry profile = mcf.sqlProfiler.getEntry(sql);
+        if (profile != null)
+            profile.executed(elapsed);
+        return profile;
+    }
+
     /**
      * Update statement properties before executing the statement.
      * This method syncs the query timeout to the transaction timeout when appropriate
@@ -444,7 +481,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             result = stmtImpl.execute(sql);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -486,7 +525,11 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             results = stmtImpl.executeBatch();
+            SQLProfiler.Entry profile = getBatchProfile();
+            if (profile != null)
+                profile.batchExecuted(results.length, System.nanoTime() - start);
 
             // Batch parameters are cleared after executing the batch.  So reset the
             // batch parameter flag. 
@@ -565,7 +608,11 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
-            childWrapper = rsetWrapper = createResultSetWrapper(stmtImpl.executeQuery(sql));
+            long start = System.nanoTime();
+            ResultSet rsetImpl = stmtImpl.executeQuery(sql);
+            SQLProfiler.Entry profile = profileExecution(sql, start);
+            childWrapper = rsetWrapper = createResultSetWrapper(rsetImpl);
+            rsetWrapper.sqlProfile = profile;
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -607,7 +654,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeUpdate(sql);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -1337,7 +1386,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeUpdate(sql, autoGeneratedKeys);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -1394,7 +1445,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeUpdate(sql, columnIndexes);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -1450,7 +1503,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             numUpdates = stmtImpl.executeUpdate(sql, columnNames);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -1514,7 +1569,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             result = stmtImpl.execute(sql, autoGeneratedKeys);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -1580,7 +1637,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             result = stmtImpl.execute(sql, columnIndexes);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -1646,7 +1705,9 @@ public class WSJdbcStatement extends WSJdbcObject implements Statement, WSJdbcOb
 
             enforceStatementProperties();
 
+            long start = System.nanoTime();
             result = stmtImpl.execute(sql, columnNames);
+            profileExecution(sql, start);
 
         } catch (SQLException ex) {
             // No FFDC code needed. Might be an application error. 
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.rsadapter.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import test.common.SharedOutputManager;
+
+/**
+ * Unit test for statement cache eviction and sizing.
+ */
+public class CacheMapTest {
+    private static SharedOutputManager outputMgr;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        outputMgr = SharedOutputManager.getInstance();
+        outputMgr.captureStreams();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        outputMgr.restoreStreams();
+    }
+
+    private static StatementCacheKey key(String sql) {
+        return new PSCacheKey(sql, 0, 0, 0, 0, 0, null);
+    }
+
+    /**
+     * Without statistics, the least recently used entry is discarded.
+     */
+    @Test
+    public void testLRU() {
+        CacheMap cache = new CacheMap(2);
+        assertNull(cache.add(key("A"), "a"));
+        assertNull(cache.add(key("B"), "b"));
+        assertSame("a", cache.add(key("C"), "c"));
+        assertEquals(2, cache.size());
+        assertSame("c", cache.remove(key("C")));
+    }
+
+    /**
+     * With statistics, a statement used less often than the cached ones is not admitted.
+     */
+    @Test
+    public void testFrequencyAwareAdmission() {
+        StatementCacheStats stats = new StatementCacheStats();
+        CacheMap cache = new CacheMap(2, stats);
+        for (int i = 0; i < 5; i++) {
+            stats.lookup(key("A"), false);
+            stats.lookup(key("B"), false);
+        }
+        stats.lookup(key("C"), false);
+
+        assertNull(cache.add(key("A"), "a"));
+        assertNull(cache.add(key("B"), "b"));
+        assertSame("c", cache.add(key("C"), "c"));
+        assertEquals(2, cache.size());
+        assertSame("a", cache.remove(key("A")));
+        assertSame("b", cache.remove(key("B")));
+        assertEquals(1, stats.getDiscards());
+
+        // once used more often, it replaces the least frequently used entry
+        cache.add(key("A"), "a");
+        cache.add(key("B"), "b");
+        for (int i = 0; i < 10; i++)
+            stats.lookup(key("C"), false);
+        assertSame("a", cache.add(key("C"), "c"));
+        assertSame("c", cache.remove(key("C")));
+    }
+
+    /**
+     * With a total size, caches are sized to the SQL used repeatedly within a share of the total.
+     */
+    @Test
+    public void testCacheSize() {
+        StatementCacheStats stats = new StatementCacheStats();
+        assertEquals(10, stats.getCacheSize(10, 0));
+        assertEquals(10, stats.getCacheSize(10, 1000));
+
+        int period = stats.cacheUsed(-1);
+        stats.cacheUsed(-1);
+        for (int i = 0; i < StatementCacheStats.AGING_PERIOD; i++)
+            stats.lookup(key("SELECT " + (i % 40)), i % 3 == 0);
+
+        assertEquals(period + 1, stats.cacheUsed(period));
+        assertEquals(40, stats.getCacheSize(10, 1000));
+        assertEquals(25, stats.getCacheSize(10, 50));
+        assertEquals(10, stats.getCacheSize(10, 0));
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.rsadapter.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Ignore;
+
+/**
+ * Measures the cost of recording an execution in the SQL profile, as done by the
+ * statement wrappers, with one thread and with several threads running the same SQL,
+ * and the cost of recording the rows of a result set.
+ * Run the main method; this is not part of the unit test bucket.
+ */
+@Ignore
+public class SQLProfilerBenchmark {
+
+    static final int WARMUP_SECONDS = 2;
+    static final int MEASURE_SECONDS = 3;
+
+    static final String[] SQL = {
+                                  "SELECT NAME, BALANCE FROM ACCOUNTS WHERE ID = ?",
+                                  "UPDATE ACCOUNTS SET BALANCE = BALANCE + ? WHERE ID = ?",
+                                  "INSERT INTO HISTORY (ACCOUNT, AMOUNT, TIME) VALUES (?, ?, ?)",
+                                  "SELECT COUNT(*) FROM HISTORY WHERE ACCOUNT = 1234"
+    };
+
+    static volatile boolean running;
+
+    /**
+     * @return nanoseconds per execution recorded, per thread
+     */
+    static double execute(final SQLProfiler profiler, int threads, int seconds) throws InterruptedException {
+        final AtomicLong count = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(threads);
+        running = true;
+        for (int t = 0; t < threads; t++)
+            new Thread() {
+                @Override
+                public void run() {
+                    long n = 0;
+                    while (running) {
+                        String sql = SQL[(int) (n & 3)];
+                        long start = System.nanoTime();
+                        SQLProfiler.Entry entry = profiler.getEntry(sql);
+                        entry.executed(System.nanoTime() - start);
+                        n++;
+                    }
+                    count.addAndGet(n);
+                    done.countDown();
+                }
+            }.start();
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        done.await();
+        return seconds * 1e9 * threads / count.get();
+    }
+
+    /**
+     * @return nanoseconds per row of recording the rows fetched, for the given rows per result set
+     */
+    static double fetch(SQLProfiler profiler, int rows, int seconds) {
+        SQLProfiler.Entry entry = profiler.getEntry(SQL[0]);
+        long end = System.nanoTime() + seconds * 1000000000L;
+        long total = 0;
+        while (System.nanoTime() < end) {
+            long rowsFetched = 0, fetchNanos = 0;
+            int untilFetchSample = 1;
+            for (int r = 0; r < rows; r++) {
+                if (--untilFetchSample <= 0) {
+                    untilFetchSample = SQLProfiler.FETCH_SAMPLE;
+                    long start = System.nanoTime();
+                    fetchNanos += (System.nanoTime() - start) * SQLProfiler.FETCH_SAMPLE;
+                }
+                rowsFetched++;
+            }
+            entry.fetched(rowsFetched, fetchNanos);
+            total += rows;
+        }
+        return seconds * 1e9 / total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        SQLProfiler profiler = new SQLProfiler();
+        execute(profiler, cpus, WARMUP_SECONDS);
+        fetch(profiler, 100, WARMUP_SECONDS);
+
+        System.out.printf("stripes %d%n", SQLProfiler.STRIPES);
+        for (int threads = 1; threads <= cpus; threads *= 2)
+            System.out.printf("execute, %2d threads: %6.1f ns%n", threads, execute(profiler, threads, MEASURE_SECONDS));
+        for (int rows : new int[] { 1, 10, 1000 })
+            System.out.printf("fetch, %4d rows: %6.1f ns/row%n", rows, fetch(profiler, rows, MEASURE_SECONDS));
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.rsadapter.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the SQL profile.
+ */
+public class SQLProfilerTest {
+    /**
+     * Literals are replaced and white space is collapsed, while identifiers are kept.
+     */
+    @Test
+    public void testNormalize() {
+        assertEquals("SELECT * FROM T1 WHERE ID=? AND NAME = ?",
+                     SQLProfiler.normalize("  SELECT *\n FROM T1\tWHERE ID=42 AND NAME = 'O''Brien'  "));
+        assertEquals("UPDATE \"Table 2\" SET V=-? WHERE X IN (?, ?, ?)",
+                     SQLProfiler.normalize("UPDATE \"Table 2\" SET V=-1.5E+3 WHERE X IN (1, .5, 'a')"));
+        assertEquals("SELECT COL1 FROM T WHERE C = ?", SQLProfiler.normalize("SELECT COL1 FROM T WHERE C = ?"));
+    }
+
+    /**
+     * SQL that differs only in literals is profiled together.
+     */
+    @Test
+    public void testEntry() {
+        SQLProfiler profiler = new SQLProfiler();
+        assertNull(profiler.getEntry(null));
+
+        SQLProfiler.Entry entry = profiler.getEntry("SELECT NAME FROM EMP WHERE ID = 1");
+        assertSame(entry, profiler.getEntry("SELECT NAME FROM EMP WHERE ID = 2"));
+        assertSame(entry, profiler.getEntry("SELECT NAME FROM EMP WHERE ID = 1"));
+
+        entry.executed(50000);
+        entry.executed(3000000);
+        entry.batchExecuted(10, 700000);
+        entry.fetched(15, 20000);
+
+        assertEquals(3, entry.getExecutions());
+        assertEquals(3750000, entry.getExecuteNanos());
+        assertEquals(3000000, entry.getMaxExecuteNanos());
+        long[] histogram = new long[SQLProfiler.BOUNDS.length];
+        histogram[0] = 1; // 50us
+        histogram[3] = 1; // 700us
+        histogram[5] = 1; // 3ms
+        assertArrayEquals(histogram, entry.getHistogram());
+        assertEquals(1, entry.getBatches());
+        assertEquals(10, entry.getBatchedStatements());
+        assertEquals(1, entry.getResultSets());
+        assertEquals(15, entry.getRowsFetched());
+        assertEquals(20000, entry.getFetchNanos());
+        assertEquals(1, profiler.getEntries().size());
+    }
+
+    /**
+     * Once the limit is reached, new SQL is only counted, also when it is issued again.
+     */
+    @Test
+    public void testLimit() {
+        SQLProfiler profiler = new SQLProfiler();
+        for (int i = 0; i < SQLProfiler.MAX_TRACKED; i++)
+            profiler.getEntry("SELECT C" + i + " FROM T");
+        assertNull(profiler.getEntry("SELECT X FROM T"));
+        assertEquals(1, profiler.getUntracked());
+        assertNull(profiler.getEntry("SELECT X FROM T"));
+        assertEquals(2, profiler.getUntracked());
+        assertNotNull(profiler.getEntry("SELECT C1 FROM T"));
+        assertEquals(SQLProfiler.MAX_TRACKED, profiler.getEntries().size());
+    }
+}
@@ -0,0 +1,430 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import com.ibm.ws.session.utils.LoggingUtil;
+import com.ibm.ws.session.store.memory.MemorySession;
+import com.ibm.wsspi.session.IStoreCallback;
+
+/*
+ * ISession implementation for sessions persisted in a database.
+ *
+ * The session keeps track of the attributes set or removed since it was last
+ * written, so that only their rows are written, unless all attributes are to be
+ * written. A session read from the database on another server starts with its
+ * metadata only; the names of its attributes are read on first use of any of
+ * them, and the value of each attribute is read when it is first used.
+ */
+public class DatabaseSession extends MemorySession {
+
+    private static final long serialVersionUID = -4386432154071525813L;
+
+    private static final String methodClassName = "DatabaseSession";
+
+    /* whether the metadata row of this session exists */
+    private boolean persisted;
+    /* whether the metadata changed since the session was last written */
+    private boolean metadataChanged;
+    /* whether the attribute names were read from the database */
+    private boolean namesRead;
+    /* the names of the attributes whose rows exist */
+    private final Set<Object> persistedNames = new HashSet<Object>();
+    /* the names of the attributes read from the database whose values are not read yet */
+    private final Set<Object> unread = new HashSet<Object>();
+    /* the names of the attributes set or removed since the session was last written */
+    private final Set<Object> changed = new HashSet<Object>();
+    /* the listener count of the metadata row, used until the names are read */
+    private int persistedListenerCount;
+    /* the last access time the database held when this session was last read or written */
+    private long persistedAccessTime;
+
+    /*
+     * A new session.
+     */
+    public DatabaseSession(DatabaseStore store, String id, IStoreCallback storeCallback) {
+        super(store, id, storeCallback);
+        persisted = false;
+        metadataChanged = true;
+        namesRead = true;
+    }
+
+    /*
+     * A session read from the database, without its attributes.
+     */
+    DatabaseSession(DatabaseStore store, SessionTable.Metadata metadata, IStoreCallback storeCallback) {
+        super(store, metadata.id, storeCallback);
+        _creationTime = metadata.creationTime;
+        _lastAccessedTime = metadata.lastAccess;
+        _currentAccessTime = metadata.lastAccess;
+        _maxInactiveInterval = metadata.maxInactiveTime;
+        _userName = metadata.userName;
+        _isNew = false;
+        persisted = true;
+        metadataChanged = false;
+        namesRead = false;
+        persistedListenerCount = metadata.listenerCount;
+        persistedAccessTime = metadata.lastAccess;
+    }
+
+    private DatabaseStore getDatabaseStore() {
+        return (DatabaseStore) _store;
+    }
+
+    /*
+     * Read the attribute names from the database, if not read yet.
+     */
+    private void readNames() {
+        if (namesRead || !_isValid) {
+            return;
+        }
+        Map<String, Boolean> names = getDatabaseStore().readAttributeNames(_sessionId);
+        if (names == null) {
+            // could not read them; try again on the next use
+            return;
+        }
+        for (Map.Entry<String, Boolean> entry : names.entrySet()) {
+            String name = entry.getKey();
+            persistedNames.add(name);
+            if (!_attributeNames.containsKey(name)) {
+                _attributeNames.put(name, entry.getValue());
+                unread.add(name);
+            }
+        }
+        namesRead = true;
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, "readNames", names.keySet() + appNameAndIdString);
+        }
+    }
+
+    /*
+     * Read the value of the attribute from the database, if not read yet.
+     */
+    private void readValue(Object name) {
+        if (!unread.remove(name)) {
+            return;
+        }
+        Object value = getDatabaseStore().readAttribute(_sessionId, (String) name);
+        if (value != null) {
+            _attributes.put(name, value);
+        } else {
+            _attributeNames.remove(name);
+        }
+    }
+
+    private void readAll() {
+        readNames();
+        if (!unread.isEmpty()) {
+            for (Object name : new ArrayList<Object>(unread)) {
+                readValue(name);
+            }
+        }
+    }
+
+    /*
+     * Values of these types cannot be changed once set, so getting them does not
+     * mean they need to be written again.
+     */
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#getAttribute(java.lang.Object)
+     */
+    @Override
+    public synchronized Object getAttribute(Object name) {
+        readNames();
+        readValue(name);
+        Object value = super.getAttribute(name);
+        // the application may change the value it got without setting it again
+        if (value != null && !isImmutable(value)) {
+            changed.add(name);
+        }
+        return value;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#setAttribute(java.lang.Object, java.lang.Object, java.lang.Boolean)
+     */
+    @Override
+    public synchronized Object setAttribute(Object name, Object value, Boolean newIsListener) {
+        readNames();
+        readValue(name);
+        Object oldValue = super.setAttribute(name, value, newIsListener);
+        changed.add(name);
+        return oldValue;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#removeAttribute(java.lang.Object)
+     */
+    @Override
+    public synchronized Object removeAttribute(Object name) {
+        readNames();
+        readValue(name);
+        Object oldValue = super.removeAttribute(name);
+        changed.add(name);
+        return oldValue;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#getAttributeNames()
+     */
+    @Override
+    public synchronized Enumeration getAttributeNames() {
+        readNames();
+        return super.getAttributeNames();
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#getListenerAttributeNames()
+     */
+    @Override
+    public synchronized ArrayList getListenerAttributeNames() {
+        readNames();
+        return super.getListenerAttributeNames();
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#getSwappableData()
+     */
+    @Override
+    public synchronized Hashtable getSwappableData() {
+        readAll();
+        return super.getSwappableData();
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#invalidate()
+     */
+    @Override
+    public synchronized void invalidate() {
+        // the listeners called on invalidation may need the attributes, which
+        // cannot be read once the rows are deleted
+        if (!invalInProgress && _isValid) {
+            readNames();
+        }
+        super.invalidate();
+        changed.clear();
+        unread.clear();
+        metadataChanged = false;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#updateLastAccessTime(long)
+     */
+    @Override
+    public synchronized void updateLastAccessTime(long accessTime) {
+        super.updateLastAccessTime(accessTime);
+        metadataChanged = true;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#setMaxInactiveInterval(int)
+     */
+    @Override
+    public void setMaxInactiveInterval(int maxInactiveInterval) {
+        super.setMaxInactiveInterval(maxInactiveInterval);
+        metadataChanged = true;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#setMaxInactiveIntervalForInvalidateAll(int)
+     */
+    @Override
+    public void setMaxInactiveIntervalForInvalidateAll(int maxInactiveInterval) {
+        super.setMaxInactiveIntervalForInvalidateAll(maxInactiveInterval);
+        metadataChanged = true;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#setUserName(java.lang.String)
+     */
+    @Override
+    public void setUserName(String userName) {
+        super.setUserName(userName);
+        metadataChanged = true;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemorySession#setId(java.lang.String)
+     */
+    @Override
+    public synchronized void setId(String id) {
+        // the rows of the old id are deleted, so everything is written under the new one
+        readAll();
+        super.setId(id);
+        persisted = false;
+        metadataChanged = true;
+        persistedNames.clear();
+        changed.addAll(_attributeNames.keySet());
+    }
+
+    /*
+     * End of service write: write the changes now.
+     *
+     * @see com.ibm.ws.session.store.memory.MemorySession#flush()
+     */
+    @Override
+    public void flush() {
+        getDatabaseStore().writeSession(this);
+    }
+
+    /*
+     * Time based and manual update: the access time is kept in memory until the
+     * session is written with the others or synced by the application.
+     *
+     * @see com.ibm.ws.session.store.memory.MemorySession#flush(boolean)
+     */
+    @Override
+    public void flush(boolean metadataOnly) {
+        if (!metadataOnly) {
+            flush();
+        }
+    }
+
+    /*
+     * Whether the metadata or any attribute changed since the session was last written.
+     */
+    synchronized boolean isChanged() {
+        return _isValid && (!persisted || metadataChanged || !changed.isEmpty());
+    }
+
+    synchronized boolean isPersisted() {
+        return persisted;
+    }
+
+    synchronized long getPersistedAccessTime() {
+        return persistedAccessTime;
+    }
+
+    private int getListenerCount() {
+        if (!namesRead) {
+            return persistedListenerCount;
+        }
+        int count = 0;
+        for (Iterator it = _attributeNames.values().iterator(); it.hasNext();) {
+            if (Boolean.TRUE.equals(it.next())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Take what is to be written of this session, as if it was written.
+     *
+     * @param writeAll whether to write all the attributes read so far, or only the changed ones
+     * @param metadataOnly whether to write the metadata and none of the attributes
+     * @return null if nothing is to be written
+     */
+    synchronized SessionTable.Write takeWrite(boolean writeAll, boolean metadataOnly) {
+        if (!_isValid || invalInProgress) {
+            return null;
+        }
+        if (persisted && !metadataChanged && (metadataOnly || changed.isEmpty())) {
+            return null;
+        }
+        SessionTable.Write w = new SessionTable.Write();
+        w.id = _sessionId;
+        w.insert = !persisted;
+        w.lastAccess = _currentAccessTime;
+        w.creationTime = _creationTime;
+        w.maxInactiveTime = _maxInactiveInterval;
+        w.userName = _userName;
+        w.listenerCount = getListenerCount();
+        Set<Object> names = changed;
+        if (metadataOnly) {
+            names = new HashSet<Object>();
+        } else if (writeAll) {
+            names = new HashSet<Object>(changed);
+            names.addAll(_attributes.keySet());
+        }
+        for (Object name : names) {
+            // a row is known to exist, or may exist if the names could not be read
+            boolean exists = persistedNames.contains(name) || (persisted && !namesRead);
+            if (_attributeNames.containsKey(name)) {
+                if (unread.contains(name)) {
+                    continue;
+                }
+                byte[] bytes = serialize(name, _attributes.get(name));
+                if (bytes == null) {
+                    continue;
+                }
+                w.values.put((String) name, bytes);
+                w.listeners.put((String) name, (Boolean) _attributeNames.get(name));
+                if (exists) {
+                    w.existing.add((String) name);
+                }
+                persistedNames.add(name);
+            } else if (exists) {
+                w.removed.add((String) name);
+                persistedNames.remove(name);
+            }
+        }
+        if (!metadataOnly) {
+            changed.clear();
+        }
+        metadataChanged = false;
+        persisted = true;
+        persistedListenerCount = w.listenerCount;
+        persistedAccessTime = w.lastAccess;
+        return w;
+    }
+
+    /*
+     * The write taken from this session failed, so write it all again next time.
+     */
+    synchronized void writeFailed(SessionTable.Write w) {
+        if (w.insert) {
+            persisted = false;
+        }
+        metadataChanged = true;
+        changed.addAll(w.values.keySet());
+        changed.addAll(w.removed);
+        for (String name : w.values.keySet()) {
+            if (!w.existing.contains(name)) {
+                persistedNames.remove(name);
+            }
+        }
+        persistedNames.addAll(w.removed);
+    }
+
+    private byte[] serialize(Object name, Object value) {
+        if (!isSwappableData(value)) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.WARNING, methodClassName, "serialize", "DatabaseSession.notSerializable", new Object[] { name, _sessionId });
+            return null;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.WARNING, methodClassName, "serialize", "DatabaseSession.notSerializable", new Object[] { name, _sessionId });
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.WARNING, methodClassName, "serialize", "CommonMessage.exception", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.servlet.ServletContext;
+import javax.sql.DataSource;
+
+import com.ibm.ws.session.MemoryStoreHelper;
+import com.ibm.ws.session.SessionManagerConfig;
+import com.ibm.ws.session.store.memory.MemoryStore;
+import com.ibm.ws.session.store.memory.SessionSimpleHashMap;
+import com.ibm.ws.session.utils.LoggingUtil;
+import com.ibm.wsspi.session.ISession;
+
+/*
+ * IStore implementation for sessions persisted in a database, so that any
+ * server sharing the table can serve a request for any session.
+ *
+ * The in-memory table is a cache of the sessions used on this server. A session
+ * missing from it is read from the database, metadata first and attributes as
+ * they are used. A cached session is dropped when another server wrote it since,
+ * so that it is read again.
+ *
+ * End of service writes write the changes of one session. Time based writes
+ * gather the changes of every cached session and write them all in one batch.
+ * The invalidator finds the timed out sessions with one query; only those that
+ * have listeners to call are read and invalidated one by one, the rows of the
+ * rest are deleted with one statement.
+ */
+public class DatabaseStore extends MemoryStore {
+
+    private static final String methodClassName = "DatabaseStore";
+
+    static final String DEFAULT_TABLE_NAME = "sessions";
+
+    /* The most sessions written with one set of batched statements */
+    private static final int WRITE_BATCH_SIZE = 100;
+
+    private static final int GET_SESSION = 0;
+    private static final int REFRESH_SESSION = 1;
+    private static final int RUN_INVALIDATION = 2;
+    private static final int RUN_TIME_BASED_WRITES = 3;
+    private static final int WRITE = 4;
+
+    private static final String methodNames[] = { "getSession", "refreshSession", "runInvalidation", "runTimeBasedWrites", "write" };
+
+    private final SessionTable _table;
+    private final Object _loadLock = new Object();
+    private volatile long _lastTimeBasedWrite;
+
+    public DatabaseStore(SessionManagerConfig smc, String storeId, ServletContext sc, MemoryStoreHelper storeHelper, boolean isApplicationSessionStore,
+                         DataSource dataSource, ClassLoader classLoader) {
+        super(smc, storeId, sc, storeHelper, isApplicationSessionStore);
+        // only a cache of the sessions in the database, which must never refuse one,
+        // so it overflows past the in memory size instead of throwing TooManySessionsException
+        _sessions = new SessionSimpleHashMap(this, smc.getInMemorySize(), true);
+        String tableName = smc.getTableNameValue();
+        if (tableName == null) {
+            tableName = DEFAULT_TABLE_NAME;
+        }
+        _table = new SessionTable(dataSource, tableName, storeId, classLoader);
+        _lastTimeBasedWrite = System.currentTimeMillis();
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemoryStore#createSession(java.lang.String, boolean)
+     */
+    @Override
+    public ISession createSession(String id, boolean newId) {
+        if (inProcessOfStopping) {
+            throwException("SessionContext.createWhenStop");
+        }
+        if (_sessions.get(id) != null) {
+            return null;
+        }
+        DatabaseSession sess = new DatabaseSession(this, id, _storeCallback);
+        sess.setUserName(ANONYMOUS_USER);
+        sess.updateLastAccessTime(sess.getCreationTime());
+        _sessions.put(id, sess);
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, "createSession", id + appNameForLogging);
+        }
+        return sess;
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemoryStore#getSession(java.lang.String, int, boolean)
+     */
+    @Override
+    public ISession getSession(String id, int version, boolean isSessionAccess) {
+        final boolean isTraceOn = com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled();
+        if (isTraceOn && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINER)) {
+            StringBuffer sb = new StringBuffer("{").append(id).append(",").append(version).append("} ").append(appNameForLogging);
+            LoggingUtil.SESSION_LOGGER_CORE.entering(methodClassName, methodNames[GET_SESSION], sb.toString());
+        }
+        if (inProcessOfStopping) {
+            throwException("SessionContext.accessWhenStop");
+        }
+        DatabaseSession sess = (DatabaseSession) _sessions.get(id);
+        if (sess == null) {
+            sess = load(id);
+        }
+        if (sess != null && isSessionAccess) {
+            sess.updateLastAccessTime(System.currentTimeMillis());
+        }
+        if (isTraceOn && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[GET_SESSION], sess);
+        }
+        return sess;
+    }
+
+    /*
+     * Read the metadata of the session from the database into the cache.
+     *
+     * @return null if the session is not in the database
+     */
+    private DatabaseSession load(String id) {
+        SessionTable.Metadata metadata;
+        try {
+            metadata = _table.readMetadata(id);
+        } catch (SQLException e) {
+            logSqlError("load", e);
+            return null;
+        }
+        if (metadata == null) {
+            return null;
+        }
+        DatabaseSession sess = new DatabaseSession(this, metadata, _storeCallback);
+        synchronized (_loadLock) {
+            // another thread may have read it meanwhile
+            DatabaseSession existing = (DatabaseSession) _sessions.get(id);
+            if (existing != null) {
+                return existing;
+            }
+            _sessions.put(id, sess);
+        }
+        _storeCallback.sessionLiveCountInc(sess);
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, "load", id + appNameForLogging);
+        }
+        return sess;
+    }
+
+    /*
+     * Drop the cached copy of a session when the database has a newer one,
+     * written by another server, or none at all.
+     *
+     * @see com.ibm.ws.session.store.memory.MemoryStore#refreshSession(java.lang.String)
+     */
+    @Override
+    public void refreshSession(String sessionID) {
+        DatabaseSession sess = (DatabaseSession) _sessions.get(sessionID);
+        // a session in use on this server is current
+        if (sess == null || !sess.isPersisted() || sess.getRefCount() > 0) {
+            return;
+        }
+        long lastAccess;
+        try {
+            lastAccess = _table.readLastAccess(sessionID);
+        } catch (SQLException e) {
+            logSqlError(methodNames[REFRESH_SESSION], e);
+            return;
+        }
+        if (lastAccess == -1 || lastAccess > sess.getPersistedAccessTime()) {
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+                StringBuffer sb = new StringBuffer(sessionID).append(" cached=").append(sess.getPersistedAccessTime()).append(" database=").append(lastAccess).append(appNameForLogging);
+                LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, methodNames[REFRESH_SESSION], sb.toString());
+            }
+            if (lastAccess == -1) {
+                // invalidated by another server
+                sess.setIsValid(false);
+            }
+            removeFromMemory(sessionID);
+        }
+    }
+
+    @Override
+    public void refreshSession(String sessionID, int currentVersion) {
+        refreshSession(sessionID);
+    }
+
+    @Override
+    public void refreshSession(String sessionID, Object multiProtocolCorrelator) {
+        refreshSession(sessionID);
+    }
+
+    @Override
+    public void refreshSession(String sessionID, int currentVersion, Object multiProtocolCorrelator) {
+        refreshSession(sessionID);
+    }
+
+    /*
+     * Drop the session from the cache, leaving it in the database.
+     *
+     * @see com.ibm.ws.session.store.memory.MemoryStore#removeFromMemory(java.lang.String)
+     */
+    @Override
+    public void removeFromMemory(String id) {
+        Object removed = _sessions.remove(id);
+        if (removed != null) {
+            _storeCallback.sessionCacheDiscard(removed);
+            _storeCallback.sessionLiveCountDec(removed);
+        }
+    }
+
+    /*
+     * Remove the session from the cache and delete its rows.
+     *
+     * @see com.ibm.ws.session.store.memory.MemoryStore#removeSession(java.lang.String)
+     */
+    @Override
+    public void removeSession(String id) {
+        super.removeSession(id);
+        try {
+            _table.delete(id);
+        } catch (SQLException e) {
+            logSqlError("removeSession", e);
+        }
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemoryStore#isPresentInExternalStore(java.lang.String)
+     */
+    @Override
+    public boolean isPresentInExternalStore(String id) {
+        try {
+            return _table.exists(id);
+        } catch (SQLException e) {
+            logSqlError("isPresentInExternalStore", e);
+            return false;
+        }
+    }
+
+    Map<String, Boolean> readAttributeNames(String id) {
+        try {
+            return _table.readAttributeNames(id);
+        } catch (SQLException e) {
+            logSqlError("readAttributeNames", e);
+            return null;
+        }
+    }
+
+    Object readAttribute(String id, String name) {
+        try {
+            return _table.readAttribute(id, name);
+        } catch (Exception e) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.SEVERE, methodClassName, "readAttribute", "DatabaseStore.readError", new Object[] { name, id });
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.SEVERE, methodClassName, "readAttribute", "CommonMessage.exception", e);
+            return null;
+        }
+    }
+
+    /*
+     * Write the changes of one session now.
+     */
+    void writeSession(DatabaseSession sess) {
+        SessionTable.Write w = sess.takeWrite(_smc.writeAllProperties(), false);
+        if (w != null) {
+            List<SessionTable.Write> writes = new ArrayList<SessionTable.Write>(1);
+            writes.add(w);
+            List<DatabaseSession> sessions = new ArrayList<DatabaseSession>(1);
+            sessions.add(sess);
+            write(writes, sessions);
+        }
+    }
+
+    /*
+     * Write the changes of every cached session, WRITE_BATCH_SIZE sessions at a time.
+     *
+     * @param metadataOnly whether to write the metadata and none of the attributes
+     * @return the number of sessions written
+     */
+    private int writeChangedSessions(boolean metadataOnly) {
+        boolean writeAll = _smc.writeAllProperties();
+        List<SessionTable.Write> writes = new ArrayList<SessionTable.Write>();
+        List<DatabaseSession> sessions = new ArrayList<DatabaseSession>();
+        int count = 0;
+        for (Iterator it = _sessions.keySet().iterator(); it.hasNext();) {
+            DatabaseSession sess = (DatabaseSession) _sessions.get(it.next());
+            if (sess == null) {
+                continue;
+            }
+            SessionTable.Write w = sess.takeWrite(writeAll, metadataOnly);
+            if (w != null) {
+                writes.add(w);
+                sessions.add(sess);
+                if (writes.size() == WRITE_BATCH_SIZE) {
+                    count += write(writes, sessions);
+                    writes.clear();
+                    sessions.clear();
+                }
+            }
+        }
+        count += write(writes, sessions);
+        return count;
+    }
+
+    /*
+     * @return the number of sessions written
+     */
+    private int write(List<SessionTable.Write> writes, List<DatabaseSession> sessions) {
+        if (writes.isEmpty()) {
+            return 0;
+        }
+        try {
+            _table.write(writes);
+            return writes.size();
+        } catch (SQLException e) {
+            logSqlError(methodNames[WRITE], e);
+            for (int i = 0; i < writes.size(); i++) {
+                sessions.get(i).writeFailed(writes.get(i));
+            }
+            return 0;
+        }
+    }
+
+    /*
+     * Called by the TBWSessionStorer every few seconds; writes once every write interval.
+     *
+     * @see com.ibm.ws.session.store.memory.MemoryStore#runTimeBasedWrites()
+     */
+    @Override
+    public void runTimeBasedWrites() {
+        long now = System.currentTimeMillis();
+        if (inProcessOfStopping || now - _lastTimeBasedWrite < _smc.getPropertyWriterInterval() * 1000) {
+            return;
+        }
+        _lastTimeBasedWrite = now;
+        int count = writeChangedSessions(false);
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, methodNames[RUN_TIME_BASED_WRITES], "written=" + count + appNameForLogging);
+        }
+    }
+
+    /*
+     * @see com.ibm.ws.session.store.memory.MemoryStore#runInvalidation()
+     */
+    @Override
+    public void runInvalidation() {
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.entering(methodClassName, methodNames[RUN_INVALIDATION], appNameForLogging);
+        }
+        if (inProcessOfStopping) {
+            return;
+        }
+        long nowTime = System.currentTimeMillis();
+        try {
+            setThreadContextDuringRunInvalidation();
+            // the other servers must see the access times kept in memory before any session is
+            // taken for timed out; time based writes may as well write the attributes with them
+            writeChangedSessions(!_smc.getEnableTimeBasedWrite());
+            if (!_smc.getScheduledInvalidation() || isInvalidationHour(nowTime)) {
+                invalidateTimedOut(nowTime);
+            }
+            discardIdle(nowTime);
+        } catch (SQLException e) {
+            logSqlError(methodNames[RUN_INVALIDATION], e);
+        } finally {
+            unsetThreadContext();
+        }
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[RUN_INVALIDATION]);
+        }
+    }
+
+    private boolean isInvalidationHour(long nowTime) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowTime);
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        return hour == _smc.getInvalTime1() || hour == _smc.getInvalTime2();
+    }
+
+    /*
+     * Invalidate the sessions that timed out. The sessions whose invalidation calls
+     * listeners are read and invalidated one at a time; every other one is deleted
+     * in a single batch, without its attributes being read.
+     */
+    private void invalidateTimedOut(long nowTime) throws SQLException {
+        // every session is passed to the HttpSessionListeners of the application
+        boolean allHaveListeners = isHttpSessionListener();
+        List<String> ids = _table.selectExpired(nowTime, !allHaveListeners);
+        int invalidated = 0;
+        for (String id : ids) {
+            DatabaseSession sess = (DatabaseSession) _sessions.get(id);
+            if (sess == null) {
+                sess = load(id);
+            }
+            // checked again against the time of the session, which may have been accessed since
+            if (sess != null && !checkSessionStillValid(sess, sess.getCurrentAccessTime())) {
+                invalidated++;
+            }
+        }
+        int deleted = allHaveListeners ? 0 : _table.deleteExpired(nowTime);
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            StringBuffer sb = new StringBuffer("selected=").append(ids.size()).append(" invalidated=").append(invalidated).append(" rows deleted=").append(deleted).append(appNameForLogging);
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, methodNames[RUN_INVALIDATION], sb.toString());
+        }
+    }
+
+    /*
+     * Drop the cached sessions not used on this server for longer than their
+     * timeout. Their rows are either deleted already, or were written since by
+     * another server, so the cached copy is of no further use.
+     */
+    private void discardIdle(long nowTime) {
+        for (Iterator it = _sessions.keySet().iterator(); it.hasNext();) {
+            Object id = it.next();
+            DatabaseSession sess = (DatabaseSession) _sessions.get(id);
+            if (sess == null) {
+                continue;
+            }
+            synchronized (sess) {
+                int maxInactiveInterval = sess.getMaxInactiveInterval();
+                if (sess.getRefCount() == 0 && maxInactiveInterval != -1 && !sess.isChanged()
+                    && sess.getCurrentAccessTime() <= nowTime - 1000 * (long) maxInactiveInterval) {
+                    removeFromMemory((String) id);
+                }
+            }
+        }
+    }
+
+    /*
+     * The sessions stay in the database, so they are written rather than invalidated.
+     *
+     * @see com.ibm.ws.session.store.memory.MemoryStore#stop()
+     */
+    @Override
+    public synchronized void stop() {
+        inProcessOfStopping = true;
+        // manual updates only write what the application synced
+        writeChangedSessions(_smc.getEnableManualWrite());
+        _sessions.clear();
+    }
+
+    private void logSqlError(String methodName, SQLException e) {
+        LoggingUtil.SESSION_LOGGER_CORE.logp(Level.SEVERE, methodClassName, methodName, "DatabaseStore.sqlError", _storeId);
+        LoggingUtil.SESSION_LOGGER_CORE.logp(Level.SEVERE, methodClassName, methodName, "CommonMessage.exception", e);
+    }
+}
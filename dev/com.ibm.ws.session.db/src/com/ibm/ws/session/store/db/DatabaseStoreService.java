@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.db;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.servlet.ServletContext;
+import javax.sql.DataSource;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+
+import com.ibm.ws.session.MemoryStoreHelper;
+import com.ibm.ws.session.SessionManagerConfig;
+import com.ibm.ws.session.SessionStoreService;
+import com.ibm.ws.session.utils.LoggingUtil;
+import com.ibm.wsspi.resource.ResourceConfig;
+import com.ibm.wsspi.resource.ResourceConfigFactory;
+import com.ibm.wsspi.resource.ResourceFactory;
+import com.ibm.wsspi.session.IStore;
+
+/**
+ * Constructs the stores that persist sessions in the configured data source.
+ */
+@Component(name = "com.ibm.ws.session.db",
+           service = { SessionStoreService.class },
+           configurationPolicy = ConfigurationPolicy.REQUIRE,
+           property = { "service.vendor=IBM" })
+public class DatabaseStoreService implements SessionStoreService {
+
+    private static final String methodClassName = "DatabaseStoreService";
+
+    private volatile Map<String, Object> configurationProperties;
+
+    private ResourceFactory dataSourceFactory;
+
+    private ResourceConfigFactory resourceConfigFactory;
+
+    /* Created on first use, guarded by this */
+    private DataSource dataSource;
+
+    @Activate
+    protected void activate(Map<String, Object> properties) {
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+            LoggingUtil.SESSION_LOGGER_CORE.entering(methodClassName, "activate", properties);
+        }
+        Map<String, Object> configuration = new HashMap<String, Object>(properties);
+        configuration.put("sessionPersistenceMode", "DATABASE");
+        configurationProperties = Collections.unmodifiableMap(configuration);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        configurationProperties = null;
+        synchronized (this) {
+            dataSource = null;
+        }
+    }
+
+    /*
+     * @see com.ibm.ws.session.SessionStoreService#createStore(com.ibm.ws.session.SessionManagerConfig, java.lang.String, javax.servlet.ServletContext,
+     * com.ibm.ws.session.MemoryStoreHelper, java.lang.ClassLoader, boolean)
+     */
+    @Override
+    public IStore createStore(SessionManagerConfig smc, String smid, ServletContext sc, MemoryStoreHelper storeHelper, ClassLoader classLoader, boolean applicationSessionStore) {
+        DataSource ds;
+        try {
+            ds = getDataSource();
+        } catch (Exception e) {
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.SEVERE, methodClassName, "createStore", "DatabaseStore.sqlError", smid);
+            LoggingUtil.SESSION_LOGGER_CORE.logp(Level.SEVERE, methodClassName, "createStore", "CommonMessage.exception", e);
+            return null;
+        }
+        return new DatabaseStore(smc, smid, sc, storeHelper, applicationSessionStore, ds, classLoader);
+    }
+
+    private synchronized DataSource getDataSource() throws Exception {
+        if (dataSource == null) {
+            ResourceConfig resourceInfo = resourceConfigFactory.createResourceConfig(DataSource.class.getName());
+            // sessions are written in their own transactions, apart from any of the application
+            resourceInfo.setSharingScope(ResourceConfig.SHARING_SCOPE_UNSHAREABLE);
+            resourceInfo.setIsolationLevel(Connection.TRANSACTION_READ_COMMITTED);
+            resourceInfo.setResAuthType(ResourceConfig.AUTH_CONTAINER);
+            dataSource = (DataSource) dataSourceFactory.createResource(resourceInfo);
+        }
+        return dataSource;
+    }
+
+    /*
+     * @see com.ibm.ws.session.SessionStoreService#isValid()
+     */
+    @Override
+    public boolean isValid() {
+        return configurationProperties != null;
+    }
+
+    /*
+     * @see com.ibm.ws.session.SessionStoreService#getConfiguration()
+     */
+    @Override
+    public Map<String, Object> getConfiguration() {
+        return configurationProperties;
+    }
+
+    /**
+     * Declarative Services method for setting the resource factory for the data source.
+     *
+     * @param svc the service
+     */
+    @Reference(target = "(id=unbound)")
+    protected void setDataSourceFactory(ResourceFactory svc) {
+        dataSourceFactory = svc;
+    }
+
+    protected void unsetDataSourceFactory(ResourceFactory svc) {
+        dataSourceFactory = null;
+    }
+
+    /**
+     * Declarative Services method for setting the resource config factory.
+     *
+     * @param svc the service
+     */
+    @Reference
+    protected void setResourceConfigFactory(ResourceConfigFactory svc) {
+        resourceConfigFactory = svc;
+    }
+
+    protected void unsetResourceConfigFactory(ResourceConfigFactory svc) {
+        resourceConfigFactory = null;
+    }
+}
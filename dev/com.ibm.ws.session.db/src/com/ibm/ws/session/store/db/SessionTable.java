@@ -0,0 +1,625 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.sql.DataSource;
+
+import com.ibm.ws.session.utils.LoggingUtil;
+
+/*
+ * JDBC access to the table the sessions of one application are persisted in.
+ *
+ * The table has a row for the metadata of each session, whose PROPID is
+ * METADATA_PROPID, and a row for each attribute, whose PROPID is the attribute
+ * name after ATTRIBUTE_PREFIX and whose LARGE column holds the serialized value.
+ * No attribute row can have the PROPID of the metadata row, whatever its name. Writing an attribute
+ * touches only its own row, and the rows of any number of sessions are written
+ * with one set of batched statements.
+ *
+ * The LISTENERCNT column of the metadata row holds the number of attributes that
+ * are binding listeners, and that of an attribute row is 1 if the attribute is one.
+ */
+class SessionTable {
+
+    private static final String methodClassName = "SessionTable";
+
+    private static final int MAX_ID_LENGTH = 128;
+
+    static final String METADATA_PROPID = "#";
+    static final String ATTRIBUTE_PREFIX = ".";
+
+    private final DataSource dataSource;
+    private final String tableName;
+    private final String appName;
+    private final ClassLoader classLoader;
+    private volatile boolean tableChecked = false;
+
+    private final String selectMetadata;
+    private final String selectLastAccess;
+    private final String selectAttributeNames;
+    private final String selectAttribute;
+    private final String insertRow;
+    private final String updateMetadata;
+    private final String updateAttribute;
+    private final String deleteAttribute;
+    private final String deleteSession;
+    private final String deleteUnchanged;
+    /* built once the database product is known */
+    private volatile String selectExpired;
+    private volatile String selectDeletable;
+
+    /*
+     * The metadata of a session and the rows to write for its attributes,
+     * taken from the session under its lock and written without it.
+     */
+    static class Write {
+        String id;
+        boolean insert;
+        long lastAccess;
+        long creationTime;
+        int maxInactiveTime;
+        String userName;
+        int listenerCount;
+        /* serialized values of the attributes to insert or update */
+        final Map<String, byte[]> values = new HashMap<String, byte[]>();
+        /* whether each of those is a binding listener */
+        final Map<String, Boolean> listeners = new HashMap<String, Boolean>();
+        /* attributes whose rows exist and are updated rather than inserted */
+        final List<String> existing = new ArrayList<String>();
+        final List<String> removed = new ArrayList<String>();
+    }
+
+    /*
+     * The metadata row of a session.
+     */
+    static class Metadata {
+        String id;
+        long lastAccess;
+        long creationTime;
+        int maxInactiveTime;
+        String userName;
+        int listenerCount;
+    }
+
+    SessionTable(DataSource dataSource, String tableName, String appName, ClassLoader classLoader) {
+        this.dataSource = dataSource;
+        this.tableName = tableName;
+        this.appName = appName;
+        this.classLoader = classLoader;
+        selectMetadata = "SELECT LASTACCESS, CREATIONTIME, MAXINACTIVETIME, USERNAME, LISTENERCNT FROM " + tableName + " WHERE ID = ? AND PROPID = ? AND APPNAME = ?";
+        selectLastAccess = "SELECT LASTACCESS FROM " + tableName + " WHERE ID = ? AND PROPID = ? AND APPNAME = ?";
+        selectAttributeNames = "SELECT PROPID, LISTENERCNT FROM " + tableName + " WHERE ID = ? AND APPNAME = ? AND PROPID <> ?";
+        selectAttribute = "SELECT LARGE FROM " + tableName + " WHERE ID = ? AND PROPID = ? AND APPNAME = ?";
+        insertRow = "INSERT INTO " + tableName
+                    + " (ID, PROPID, APPNAME, LISTENERCNT, LASTACCESS, CREATIONTIME, MAXINACTIVETIME, USERNAME, LARGE) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        updateMetadata = "UPDATE " + tableName + " SET LASTACCESS = ?, MAXINACTIVETIME = ?, USERNAME = ?, LISTENERCNT = ? WHERE ID = ? AND PROPID = ? AND APPNAME = ?";
+        updateAttribute = "UPDATE " + tableName + " SET LARGE = ?, LISTENERCNT = ? WHERE ID = ? AND PROPID = ? AND APPNAME = ?";
+        deleteAttribute = "DELETE FROM " + tableName + " WHERE ID = ? AND PROPID = ? AND APPNAME = ?";
+        deleteSession = "DELETE FROM " + tableName + " WHERE ID = ? AND APPNAME = ?";
+        // no subquery on the table, which MySQL does not allow in a DELETE from it
+        deleteUnchanged = "DELETE FROM " + tableName + " WHERE ID = ? AND PROPID = ? AND APPNAME = ? AND LASTACCESS = ?";
+    }
+
+    /*
+     * Create the table and its index if they do not exist yet.
+     */
+    void ensureTable() throws SQLException {
+        if (tableChecked) {
+            return;
+        }
+        synchronized (this) {
+            if (tableChecked) {
+                return;
+            }
+            Connection con = dataSource.getConnection();
+            try {
+                DatabaseMetaData dmd = con.getMetaData();
+                String product = dmd.getDatabaseProductName().toLowerCase();
+                // LASTACCESS is compared bare so the index can be used; the timeout is
+                // widened before it is scaled so it cannot overflow an integer
+                String expired = " FROM " + tableName + " WHERE APPNAME = ? AND PROPID = '" + METADATA_PROPID + "' AND MAXINACTIVETIME >= 0 AND LASTACCESS < ? - CAST(MAXINACTIVETIME AS "
+                                 + castLongType(product) + ") * 1000";
+                selectExpired = "SELECT ID" + expired + " AND LISTENERCNT >= ?";
+                selectDeletable = "SELECT ID, LASTACCESS" + expired + " AND LISTENERCNT = 0";
+                if (!tableExists(dmd)) {
+                    Statement s = con.createStatement();
+                    try {
+                        s.executeUpdate("CREATE TABLE " + tableName + " (ID VARCHAR(" + MAX_ID_LENGTH + ") NOT NULL, PROPID VARCHAR(" + MAX_ID_LENGTH + ") NOT NULL, "
+                                        + "APPNAME VARCHAR(" + MAX_ID_LENGTH + ") NOT NULL, LISTENERCNT SMALLINT, LASTACCESS " + longType(product)
+                                        + ", CREATIONTIME " + longType(product) + ", MAXINACTIVETIME INTEGER, USERNAME VARCHAR(256), LARGE " + blobType(product)
+                                        + ", PRIMARY KEY (ID, PROPID, APPNAME))");
+                        // the invalidator looks up the metadata rows of each application by time
+                        s.executeUpdate("CREATE INDEX " + tableName + "_EXP ON " + tableName + " (APPNAME, LASTACCESS)");
+                    } finally {
+                        s.close();
+                    }
+                    if (!con.getAutoCommit()) {
+                        con.commit();
+                    }
+                    LoggingUtil.SESSION_LOGGER_CORE.logp(Level.INFO, methodClassName, "ensureTable", "DatabaseStore.createTable", tableName);
+                }
+            } catch (SQLException e) {
+                // another server may have created it first
+                if (!tableExists(con.getMetaData())) {
+                    throw e;
+                }
+            } finally {
+                con.close();
+            }
+            tableChecked = true;
+        }
+    }
+
+    private boolean tableExists(DatabaseMetaData dmd) throws SQLException {
+        String[] names = { tableName, tableName.toUpperCase(), tableName.toLowerCase() };
+        for (String name : names) {
+            ResultSet rs = dmd.getTables(null, null, name, null);
+            try {
+                if (rs.next()) {
+                    return true;
+                }
+            } finally {
+                rs.close();
+            }
+        }
+        return false;
+    }
+
+    private static String longType(String product) {
+        return product.contains("oracle") ? "NUMBER(19)" : "BIGINT";
+    }
+
+    private static String castLongType(String product) {
+        return product.contains("mysql") ? "SIGNED" : longType(product);
+    }
+
+    private static String blobType(String product) {
+        if (product.contains("postgres")) {
+            return "BYTEA";
+        }
+        if (product.contains("microsoft")) {
+            return "VARBINARY(MAX)";
+        }
+        if (product.contains("mysql")) {
+            return "LONGBLOB";
+        }
+        if (product.contains("oracle")) {
+            return "BLOB";
+        }
+        return "BLOB(2M)";
+    }
+
+    /*
+     * Read the metadata row of a session.
+     *
+     * @return null if the session is not in the table
+     */
+    Metadata readMetadata(String id) throws SQLException {
+        ensureTable();
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(selectMetadata);
+            try {
+                ps.setString(1, id);
+                ps.setString(2, METADATA_PROPID);
+                ps.setString(3, appName);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    Metadata m = new Metadata();
+                    m.id = id;
+                    m.lastAccess = rs.getLong(1);
+                    m.creationTime = rs.getLong(2);
+                    m.maxInactiveTime = rs.getInt(3);
+                    m.userName = rs.getString(4);
+                    m.listenerCount = rs.getInt(5);
+                    return m;
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                ps.close();
+            }
+        } finally {
+            con.close();
+        }
+    }
+
+    /*
+     * Read the last access time of a session.
+     *
+     * @return -1 if the session is not in the table
+     */
+    long readLastAccess(String id) throws SQLException {
+        ensureTable();
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(selectLastAccess);
+            try {
+                ps.setString(1, id);
+                ps.setString(2, METADATA_PROPID);
+                ps.setString(3, appName);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    return rs.next() ? rs.getLong(1) : -1;
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                ps.close();
+            }
+        } finally {
+            con.close();
+        }
+    }
+
+    /*
+     * Read the names of the attributes of a session, without their values.
+     *
+     * @return whether each attribute is a binding listener
+     */
+    Map<String, Boolean> readAttributeNames(String id) throws SQLException {
+        ensureTable();
+        Map<String, Boolean> names = new HashMap<String, Boolean>();
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(selectAttributeNames);
+            try {
+                ps.setString(1, id);
+                ps.setString(2, appName);
+                ps.setString(3, METADATA_PROPID);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    while (rs.next()) {
+                        names.put(rs.getString(1).substring(ATTRIBUTE_PREFIX.length()), Boolean.valueOf(rs.getInt(2) > 0));
+                    }
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                ps.close();
+            }
+        } finally {
+            con.close();
+        }
+        return names;
+    }
+
+    /*
+     * Read and deserialize the value of one attribute of a session.
+     *
+     * @return null if the attribute is not in the table
+     */
+    Object readAttribute(String id, String name) throws SQLException, IOException, ClassNotFoundException {
+        ensureTable();
+        byte[] bytes = null;
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(selectAttribute);
+            try {
+                ps.setString(1, id);
+                ps.setString(2, ATTRIBUTE_PREFIX + name);
+                ps.setString(3, appName);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    if (rs.next()) {
+                        bytes = rs.getBytes(1);
+                    }
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                ps.close();
+            }
+        } finally {
+            con.close();
+        }
+        return bytes == null ? null : deserialize(bytes);
+    }
+
+    private Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ApplicationObjectInputStream(new ByteArrayInputStream(bytes), classLoader);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * Whether the session is in the table.
+     */
+    boolean exists(String id) throws SQLException {
+        return readLastAccess(id) != -1;
+    }
+
+    /*
+     * Write the changes of any number of sessions in one transaction, with one
+     * batch for each kind of statement.
+     */
+    void write(List<Write> writes) throws SQLException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        ensureTable();
+        Connection con = dataSource.getConnection();
+        try {
+            con.setAutoCommit(false);
+            PreparedStatement insert = con.prepareStatement(insertRow);
+            PreparedStatement metadata = con.prepareStatement(updateMetadata);
+            PreparedStatement update = con.prepareStatement(updateAttribute);
+            PreparedStatement delete = con.prepareStatement(deleteAttribute);
+            try {
+                int inserts = 0, metadatas = 0, updates = 0, deletes = 0;
+                // the attribute rows batched for update, in order, in case some are gone
+                List<Object[]> updated = new ArrayList<Object[]>();
+                for (Write w : writes) {
+                    if (w.insert) {
+                        addInsert(insert, w, METADATA_PROPID, w.listenerCount, null);
+                        inserts++;
+                    } else {
+                        metadata.setLong(1, w.lastAccess);
+                        metadata.setInt(2, w.maxInactiveTime);
+                        metadata.setString(3, w.userName);
+                        metadata.setInt(4, w.listenerCount);
+                        metadata.setString(5, w.id);
+                        metadata.setString(6, METADATA_PROPID);
+                        metadata.setString(7, appName);
+                        metadata.addBatch();
+                        metadatas++;
+                    }
+                    for (String name : w.removed) {
+                        delete.setString(1, w.id);
+                        delete.setString(2, ATTRIBUTE_PREFIX + name);
+                        delete.setString(3, appName);
+                        delete.addBatch();
+                        deletes++;
+                    }
+                    for (Map.Entry<String, byte[]> e : w.values.entrySet()) {
+                        String name = e.getKey();
+                        int listener = Boolean.TRUE.equals(w.listeners.get(name)) ? 1 : 0;
+                        if (w.existing.contains(name)) {
+                            update.setBytes(1, e.getValue());
+                            update.setInt(2, listener);
+                            update.setString(3, w.id);
+                            update.setString(4, ATTRIBUTE_PREFIX + name);
+                            update.setString(5, appName);
+                            update.addBatch();
+                            updated.add(new Object[] { w, name });
+                            updates++;
+                        } else {
+                            addInsert(insert, w, ATTRIBUTE_PREFIX + name, listener, e.getValue());
+                            inserts++;
+                        }
+                    }
+                }
+                if (deletes > 0) {
+                    delete.executeBatch();
+                }
+                if (metadatas > 0) {
+                    metadata.executeBatch();
+                }
+                if (updates > 0) {
+                    int[] counts = update.executeBatch();
+                    // a row another server removed is inserted instead
+                    for (int i = 0; i < counts.length && i < updated.size(); i++) {
+                        if (counts[i] == 0) {
+                            Write w = (Write) updated.get(i)[0];
+                            String name = (String) updated.get(i)[1];
+                            addInsert(insert, w, ATTRIBUTE_PREFIX + name, Boolean.TRUE.equals(w.listeners.get(name)) ? 1 : 0, w.values.get(name));
+                            inserts++;
+                        }
+                    }
+                }
+                if (inserts > 0) {
+                    insert.executeBatch();
+                }
+                con.commit();
+                if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+                    StringBuffer sb = new StringBuffer("sessions=").append(writes.size()).append(" inserts=").append(inserts).append(" metadata=").append(metadatas).append(" updates=").append(updates).append(" deletes=").append(deletes);
+                    LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, "write", sb.toString());
+                }
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                insert.close();
+                metadata.close();
+                update.close();
+                delete.close();
+            }
+        } finally {
+            con.close();
+        }
+    }
+
+    private void addInsert(PreparedStatement insert, Write w, String propId, int listenerCount, byte[] value) throws SQLException {
+        insert.setString(1, w.id);
+        insert.setString(2, propId);
+        insert.setString(3, appName);
+        insert.setInt(4, listenerCount);
+        insert.setLong(5, w.lastAccess);
+        insert.setLong(6, w.creationTime);
+        insert.setInt(7, w.maxInactiveTime);
+        insert.setString(8, w.userName);
+        insert.setBytes(9, value);
+        insert.addBatch();
+    }
+
+    /*
+     * Delete every row of a session.
+     */
+    void delete(String id) throws SQLException {
+        ensureTable();
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(deleteSession);
+            try {
+                ps.setString(1, id);
+                ps.setString(2, appName);
+                ps.executeUpdate();
+            } finally {
+                ps.close();
+            }
+        } finally {
+            con.close();
+        }
+    }
+
+    /*
+     * Find the sessions that timed out.
+     *
+     * @param withListenersOnly only those with attributes that are binding listeners
+     */
+    List<String> selectExpired(long now, boolean withListenersOnly) throws SQLException {
+        ensureTable();
+        List<String> ids = new ArrayList<String>();
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(selectExpired);
+            try {
+                ps.setString(1, appName);
+                ps.setLong(2, now);
+                ps.setInt(3, withListenersOnly ? 1 : 0);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    while (rs.next()) {
+                        ids.add(rs.getString(1));
+                    }
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                ps.close();
+            }
+        } finally {
+            con.close();
+        }
+        return ids;
+    }
+
+    /*
+     * Delete every row of the sessions that timed out and have no attributes that
+     * are binding listeners. The metadata row of each session is deleted only if its
+     * last access time is still the one that was read, so a session accessed on another
+     * server since it was selected is kept, and the attribute rows are deleted in one
+     * batch for the sessions whose metadata row was.
+     *
+     * @return the number of rows deleted
+     */
+    int deleteExpired(long now) throws SQLException {
+        ensureTable();
+        List<String> ids = new ArrayList<String>();
+        List<Long> lastAccessTimes = new ArrayList<Long>();
+        Connection con = dataSource.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(selectDeletable);
+            try {
+                ps.setString(1, appName);
+                ps.setLong(2, now);
+                ResultSet rs = ps.executeQuery();
+                try {
+                    while (rs.next()) {
+                        ids.add(rs.getString(1));
+                        lastAccessTimes.add(rs.getLong(2));
+                    }
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                ps.close();
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            con.setAutoCommit(false);
+            PreparedStatement delete = con.prepareStatement(deleteUnchanged);
+            PreparedStatement deleteRest = con.prepareStatement(deleteSession);
+            try {
+                // one at a time, as a batch need not report the count of each statement
+                int deleted = 0, sessions = 0;
+                for (int i = 0; i < ids.size(); i++) {
+                    delete.setString(1, ids.get(i));
+                    delete.setString(2, METADATA_PROPID);
+                    delete.setString(3, appName);
+                    delete.setLong(4, lastAccessTimes.get(i));
+                    if (delete.executeUpdate() > 0) {
+                        deleted++;
+                        deleteRest.setString(1, ids.get(i));
+                        deleteRest.setString(2, appName);
+                        deleteRest.addBatch();
+                        sessions++;
+                    }
+                }
+                if (sessions > 0) {
+                    for (int count : deleteRest.executeBatch()) {
+                        if (count > 0) {
+                            deleted += count;
+                        }
+                    }
+                }
+                con.commit();
+                return deleted;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                delete.close();
+                deleteRest.close();
+            }
+        } finally {
+            con.close();
+        }
+    }
+
+    /*
+     * Resolves the classes of attribute values with the application class loader.
+     */
+    static class ApplicationObjectInputStream extends ObjectInputStream {
+        private final ClassLoader classLoader;
+
+        ApplicationObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // fall back to the default resolution, for primitives and JDK classes
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionTableTest {
+
+    private static int databases = 0;
+
+    private SessionTable table;
+
+    @Before
+    public void setUp() throws Exception {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:sessionTableTest" + databases++);
+        ds.setCreateDatabase("create");
+        table = new SessionTable(ds, "sessions", "/app", getClass().getClassLoader());
+        table.ensureTable();
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(value);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static SessionTable.Write newSession(String id, long lastAccess, int maxInactiveTime) {
+        SessionTable.Write w = new SessionTable.Write();
+        w.id = id;
+        w.insert = true;
+        w.lastAccess = lastAccess;
+        w.creationTime = lastAccess;
+        w.maxInactiveTime = maxInactiveTime;
+        w.userName = "anonymous";
+        return w;
+    }
+
+    @Test
+    public void testWriteAndReadLazily() throws Exception {
+        SessionTable.Write w = newSession("s1", 1000L, 1800);
+        w.values.put("a", serialize("one"));
+        w.listeners.put("a", Boolean.FALSE);
+        w.values.put("b", serialize(Integer.valueOf(2)));
+        w.listeners.put("b", Boolean.FALSE);
+        table.write(Collections.singletonList(w));
+
+        SessionTable.Metadata md = table.readMetadata("s1");
+        assertEquals(1000L, md.lastAccess);
+        assertEquals(1800, md.maxInactiveTime);
+        assertEquals("anonymous", md.userName);
+
+        Map<String, Boolean> names = table.readAttributeNames("s1");
+        assertEquals(2, names.size());
+        assertTrue(names.containsKey("a"));
+        assertEquals("one", table.readAttribute("s1", "a"));
+        assertEquals(Integer.valueOf(2), table.readAttribute("s1", "b"));
+        assertNull(table.readMetadata("s2"));
+        assertEquals(-1L, table.readLastAccess("s2"));
+    }
+
+    @Test
+    public void testDeltaWrite() throws Exception {
+        SessionTable.Write w = newSession("s1", 1000L, 1800);
+        w.values.put("a", serialize("one"));
+        w.listeners.put("a", Boolean.FALSE);
+        w.values.put("b", serialize("two"));
+        w.listeners.put("b", Boolean.FALSE);
+        table.write(Collections.singletonList(w));
+
+        // update one attribute, remove the other and add a third
+        SessionTable.Write delta = newSession("s1", 2000L, 1800);
+        delta.insert = false;
+        delta.values.put("a", serialize("uno"));
+        delta.listeners.put("a", Boolean.FALSE);
+        delta.existing.add("a");
+        delta.values.put("c", serialize("three"));
+        delta.listeners.put("c", Boolean.FALSE);
+        delta.removed.add("b");
+        table.write(Collections.singletonList(delta));
+
+        assertEquals(2000L, table.readLastAccess("s1"));
+        Map<String, Boolean> names = table.readAttributeNames("s1");
+        assertEquals(2, names.size());
+        assertFalse(names.containsKey("b"));
+        assertEquals("uno", table.readAttribute("s1", "a"));
+        assertEquals("three", table.readAttribute("s1", "c"));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        long now = 1500000000000L;
+        SessionTable.Write expired = newSession("expired", now - 120000L, 60);
+        SessionTable.Write listener = newSession("listener", now - 120000L, 60);
+        listener.listenerCount = 1;
+        SessionTable.Write live = newSession("live", now - 30000L, 60);
+        SessionTable.Write forever = newSession("forever", 0L, -1);
+        // a timeout of 40 days overflows an integer once it is in milliseconds
+        SessionTable.Write longLived = newSession("longLived", now - 30 * 86400000L, 40 * 86400);
+        table.write(java.util.Arrays.asList(expired, listener, live, forever, longLived));
+
+        List<String> withListeners = table.selectExpired(now, true);
+        assertEquals(Collections.singletonList("listener"), withListeners);
+        assertEquals(2, table.selectExpired(now, false).size());
+
+        assertEquals(1, table.deleteExpired(now));
+        assertFalse(table.exists("expired"));
+        assertTrue(table.exists("listener"));
+        assertTrue(table.exists("live"));
+        assertTrue(table.exists("forever"));
+        assertTrue(table.exists("longLived"));
+
+        table.delete("listener");
+        assertFalse(table.exists("listener"));
+    }
+
+    @Test
+    public void testAttributeNamedAsSession() throws Exception {
+        SessionTable.Write w = newSession("s1", 1000L, 1800);
+        w.values.put("s1", serialize("same name"));
+        w.listeners.put("s1", Boolean.FALSE);
+        w.values.put(SessionTable.METADATA_PROPID, serialize("reserved name"));
+        w.listeners.put(SessionTable.METADATA_PROPID, Boolean.FALSE);
+        table.write(Collections.singletonList(w));
+
+        assertEquals(1000L, table.readMetadata("s1").lastAccess);
+        Map<String, Boolean> names = table.readAttributeNames("s1");
+        assertEquals(2, names.size());
+        assertEquals("same name", table.readAttribute("s1", "s1"));
+        assertEquals("reserved name", table.readAttribute("s1", SessionTable.METADATA_PROPID));
+    }
+
+    @Test
+    public void testExpiryDeletesAttributes() throws Exception {
+        long now = 1500000000000L;
+        SessionTable.Write expired = newSession("expired", now - 120000L, 60);
+        expired.values.put("a", serialize("one"));
+        expired.listeners.put("a", Boolean.FALSE);
+        expired.values.put("b", serialize("two"));
+        expired.listeners.put("b", Boolean.FALSE);
+        table.write(Collections.singletonList(expired));
+
+        // the metadata row and both attribute rows
+        assertEquals(3, table.deleteExpired(now));
+        assertFalse(table.exists("expired"));
+        assertTrue(table.readAttributeNames("expired").isEmpty());
+        assertNull(table.readAttribute("expired", "a"));
+    }
+}
@@ -931,6 +931,12 @@ public class SessionContext {
                 strbuf.append(((SessionSimpleHashMap) ms._sessions).getOverflowSize());
                 strbuf.append("<BR>");
             }
+            strbuf.append("<b>  session table contention</b> : ");
+            strbuf.append(((SessionSimpleHashMap) ms._sessions).getContentionCount());
+            strbuf.append("<BR>");
+            strbuf.append("<b>  overflow table rehashes</b> : ");
+            strbuf.append(((SessionSimpleHashMap) ms._sessions).getRehashCount());
+            strbuf.append("<BR>");
         }
         strbuf.append("<b>  Invalidation alarm poll interval (for this webapp) </b> : ");
         strbuf.append(_smc.getInvalidationCheckInterval());
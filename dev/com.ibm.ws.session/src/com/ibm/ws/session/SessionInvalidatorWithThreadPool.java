@@ -14,6 +14,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import com.ibm.ws.session.store.memory.MemoryStore;
 import com.ibm.ws.webcontainer.httpsession.SessionMgrComponentImpl;
 import com.ibm.wsspi.session.IStore;
 import com.ibm.wsspi.session.ITimer;
@@ -36,6 +37,11 @@ public class SessionInvalidatorWithThreadPool implements ITimer{
         /*Get reference to ScheduledExecutorService from SessionMgrComponentImpl*/
         _scheduler = SessionMgrComponentImpl.INSTANCE.get().getScheduledExecutorService();
         
+        /*timed out sessions are invalidated on the same pool when many time out together*/
+        if (store instanceof MemoryStore) {
+            ((MemoryStore) store).setInvalidationExecutor(_scheduler);
+        }
+
         _invalTask = new InvalidationTask(store);
         
         /*schedule periodic invalidation task and store in ScheduledFuture object*/
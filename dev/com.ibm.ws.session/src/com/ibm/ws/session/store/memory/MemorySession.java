@@ -22,6 +22,7 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 import com.ibm.ws.session.SessionManagerConfig;
@@ -60,6 +61,8 @@ public class MemorySession implements ISession {
     protected boolean invalInProgress = false;
     protected SessionGCount _gcCount = null;
     protected SessionManagerConfig _smc;
+    // slot of the store's timing wheel this session is in, null if it is not scheduled
+    transient volatile Set _expirySlot;
 
     //The following strings are used for Logging
     private static final String methodClassName = "MemorySession";
@@ -436,6 +439,7 @@ public class MemorySession implements ISession {
         } else {
             _maxInactiveInterval = maxInactiveInterval;
         }
+        rescheduleExpiry();
     }
 
     public void setMaxInactiveIntervalForInvalidateAll(int maxInactiveInterval) {
@@ -444,6 +448,17 @@ public class MemorySession implements ISession {
         } else {
             //truly setting it to 0 for InvalidateAll
             _maxInactiveInterval = 0;
+            rescheduleExpiry();
+        }
+    }
+
+    /*
+     * The time this session is due to time out has changed, so move it in the
+     * store's timing wheel. Nothing to do if the store has not scheduled it.
+     */
+    private void rescheduleExpiry() {
+        if (_expirySlot != null && _store instanceof MemoryStore) {
+            ((MemoryStore) _store).scheduleExpiry(this);
         }
     }
 
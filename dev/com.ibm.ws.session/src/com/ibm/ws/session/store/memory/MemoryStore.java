@@ -11,11 +11,16 @@
 
 package com.ibm.ws.session.store.memory;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 import javax.servlet.ServletContext;
@@ -39,6 +44,10 @@ import com.ibm.wsspi.session.ITimer;
 public class MemoryStore implements IStore {
 
     public HashMap _sessions = null;
+    // sessions of _sessions by the time they are due to time out
+    protected SessionTimingWheel _expiryWheel = null;
+    // runs the invalidation of timed out sessions alongside the invalidator thread, may be null
+    protected Executor _invalidationExecutor = null;
 
     // anonymous user string
     public static final String ANONYMOUS_USER = "anonymous";
@@ -77,6 +86,11 @@ public class MemoryStore implements IStore {
     private static final String methodNames[] = { "createSession", "getSession", "idExists", "runInvalidation", "invalidateAllMemorySessions", "remoteInvalidate",
                                                  "checkSessionStillValid" };
 
+    // a tick of the timing wheel, finer than any invalidation interval
+    private static final long EXPIRY_TICK_MILLIS = 1000;
+    // timed out sessions invalidated by one task when the work is spread over the executor
+    private static final int INVALIDATION_BATCH_SIZE = 64;
+
     
     
     /* Public constructor */
@@ -95,6 +109,7 @@ public class MemoryStore implements IStore {
                 overflowSession.setIsValid(false);
             }
             _sessions = new SessionSimpleHashMap(this, _initialTableSize, _allowOverflow);
+            _expiryWheel = new SessionTimingWheel(EXPIRY_TICK_MILLIS, System.currentTimeMillis());
         }
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
             appNameForLogging = " AppName=" + _storeId;
@@ -129,6 +144,7 @@ public class MemoryStore implements IStore {
                 overflowSession.setIsValid(false);
             }
             _sessions = new SessionSimpleHashMap(this, _initialTableSize, _allowOverflow);
+            _expiryWheel = new SessionTimingWheel(EXPIRY_TICK_MILLIS, System.currentTimeMillis());
         }
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
             appNameForLogging = " AppName=" + _storeId;
@@ -196,6 +212,7 @@ public class MemoryStore implements IStore {
             sess.updateLastAccessTime(sess.getCreationTime());
             try {
                 _sessions.put(id, sess);
+                scheduleExpiry(sess);
             } catch (TooManySessionsException tmse) {
                 // could catch this exception if multiple threads get past the
                 // first overflow check and then attempt to do the sessions.put
@@ -396,6 +413,9 @@ public class MemoryStore implements IStore {
         }
         Object removedEntry = _sessions.remove(id);
         if (removedEntry != null) {
+            if (_expiryWheel != null && removedEntry instanceof MemorySession) {
+                _expiryWheel.cancel((MemorySession) removedEntry);
+            }
             _storeCallback.sessionLiveCountDec(removedEntry);
         }
     }
@@ -416,7 +436,6 @@ public class MemoryStore implements IStore {
          * } else {
          */
         long nowTime = System.currentTimeMillis();
-        Iterator iter = _sessions.keySet().iterator();
         try {
             //setThreadContext threw a NPE because we were trying to get the config from within getModuleMetaData and it was returning null
             //this only happens after the app has been shutdown.  There was a small timing window where this was possible.
@@ -439,62 +458,30 @@ public class MemoryStore implements IStore {
                 }
                 return;
             }
-            while (iter.hasNext()) {
-                String key = (String) iter.next();
-                ISession s = (ISession) _sessions.get(key);
-
-                // sync on the session and check if its active...
-                if (s != null) {
-                    synchronized (s) {
-                        if (s.isValid()) {
-                            if (s.getMaxInactiveInterval() != -1) {
-                                long currentAccessTime = s.getCurrentAccessTime(); // currentAccessTime
-                                                                                   // updated on
-                                                                                   // session
-                                                                                   // access
-                                                                                   // lastAccessedTime
-                                                                                   // updated at
-                                                                                   // releaseSession
-                                long maxinact = 1000 * (long) s.getMaxInactiveInterval();
-                                boolean active = s.getRefCount() > 0;
-                                if (_isApplicationSessionStore) {
-                                    // the RefCount is not correct when dealing with an
-                                    // applicationSessionStore
-                                    s.setRefCount(0);
-                                    active = false;
-                                }
-                                boolean timedOut = (currentAccessTime <= nowTime - maxinact);
-                                /*
-                                 * invalidate if:
-                                 * session has timedOut AND (is not active OR (the Invalidation
-                                 * Multiple has not been set to 0
-                                 * and the session is that many times the invalidation interval)
-                                 * 
-                                 * The default value for the invalidation interval is 3.
-                                 * 
-                                 * PK03711 removed check for active and always invalidated
-                                 * timedout sessions for v6.1 and earlier
-                                 * v7 CTS defect 391577 forced us to put this code back, so we
-                                 * introduced the InvalidateIfActive property
-                                 * In the service stream, the ForceSessionInvalidationMultiple was
-                                 * used, so we are using the same property
-                                 */
-                                if ((timedOut)
-                                    && ((!active) || ((_smc.getForceSessionInvalidationMultiple() != 0) && (currentAccessTime <= nowTime
-                                                                                                                                 - (_smc.getForceSessionInvalidationMultiple() * maxinact))))) {
-
-                                    _storeCallback.sessionInvalidatedByTimeout(s);
-                                    if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
-                                        String message = "Going to invalidate session with id=" + s.getId();
-                                        LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, methodNames[RUN_INVALIDATION], message);
-                                    }
-                                    s.invalidate();
-                                }
-                            }
-                        } // isValid
-                    }
+            // Only the sessions whose slots of the timing wheel came up are looked at,
+            // the ones that have not timed out are scheduled again
+            List<MemorySession> due = _expiryWheel.advance(nowTime);
+            List<MemorySession> timedOut = new ArrayList<MemorySession>();
+            for (MemorySession s : due) {
+                // skip a session that left the store since it was scheduled
+                if (_sessions.get(s.getId()) != s) {
+                    continue;
                 }
-            } // end "while"
+                if (isTimedOut(s, nowTime)) {
+                    timedOut.add(s);
+                } else if (s.isValid()) {
+                    scheduleExpiry(s);
+                }
+            }
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+                String message = "checked " + due.size() + " sessions, " + timedOut.size() + " timed out" + appNameForLogging;
+                LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, methodNames[RUN_INVALIDATION], message);
+            }
+            if (_invalidationExecutor != null && timedOut.size() > INVALIDATION_BATCH_SIZE) {
+                invalidateOnExecutor(timedOut, nowTime);
+            } else {
+                invalidateTimedOut(timedOut, nowTime);
+            }
         } finally {
             // PK99859: Unset the thread context
             unsetThreadContext();
@@ -504,6 +491,138 @@ public class MemoryStore implements IStore {
         }
     }
 
+    /*
+     * Whether the session should be invalidated by the invalidator at the given time
+     */
+    private boolean isTimedOut(ISession s, long nowTime) {
+        // sync on the session and check if its active...
+        synchronized (s) {
+            if (s.isValid()) {
+                if (s.getMaxInactiveInterval() != -1) {
+                    long currentAccessTime = s.getCurrentAccessTime(); // currentAccessTime
+                                                                       // updated on
+                                                                       // session
+                                                                       // access
+                                                                       // lastAccessedTime
+                                                                       // updated at
+                                                                       // releaseSession
+                    long maxinact = 1000 * (long) s.getMaxInactiveInterval();
+                    boolean active = s.getRefCount() > 0;
+                    if (_isApplicationSessionStore) {
+                        // the RefCount is not correct when dealing with an
+                        // applicationSessionStore
+                        s.setRefCount(0);
+                        active = false;
+                    }
+                    boolean timedOut = (currentAccessTime <= nowTime - maxinact);
+                    /*
+                     * invalidate if:
+                     * session has timedOut AND (is not active OR (the Invalidation
+                     * Multiple has not been set to 0
+                     * and the session is that many times the invalidation interval)
+                     * 
+                     * The default value for the invalidation interval is 3.
+                     * 
+                     * PK03711 removed check for active and always invalidated
+                     * timedout sessions for v6.1 and earlier
+                     * v7 CTS defect 391577 forced us to put this code back, so we
+                     * introduced the InvalidateIfActive property
+                     * In the service stream, the ForceSessionInvalidationMultiple was
+                     * used, so we are using the same property
+                     */
+                    return (timedOut)
+                           && ((!active) || ((_smc.getForceSessionInvalidationMultiple() != 0) && (currentAccessTime <= nowTime
+                                                                                                                     - (_smc.getForceSessionInvalidationMultiple() * maxinact))));
+                }
+            } // isValid
+        }
+        return false;
+    }
+
+    /*
+     * Invalidate the sessions that timed out, checking each again under its lock
+     * since it may have been accessed in the meantime
+     */
+    private void invalidateTimedOut(List<MemorySession> timedOut, long nowTime) {
+        for (MemorySession s : timedOut) {
+            synchronized (s) {
+                if (isTimedOut(s, nowTime)) {
+                    _storeCallback.sessionInvalidatedByTimeout(s);
+                    if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
+                        String message = "Going to invalidate session with id=" + s.getId();
+                        LoggingUtil.SESSION_LOGGER_CORE.logp(Level.FINE, methodClassName, methodNames[RUN_INVALIDATION], message);
+                    }
+                    s.invalidate();
+                } else if (s.isValid()) {
+                    scheduleExpiry(s);
+                }
+            }
+        }
+    }
+
+    /*
+     * Invalidate the sessions that timed out in batches, on the executor as well as on
+     * this thread, so the session listeners of a large number of sessions that timed out
+     * together are not all called one after the other. This thread does not wait for the
+     * batches the executor took to complete.
+     */
+    private void invalidateOnExecutor(List<MemorySession> timedOut, final long nowTime) {
+        final ConcurrentLinkedQueue<List<MemorySession>> batches = new ConcurrentLinkedQueue<List<MemorySession>>();
+        for (int i = 0; i < timedOut.size(); i += INVALIDATION_BATCH_SIZE) {
+            batches.add(timedOut.subList(i, Math.min(timedOut.size(), i + INVALIDATION_BATCH_SIZE)));
+        }
+        Runnable helper = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    setThreadContextDuringRunInvalidation();
+                } catch (RuntimeException e) {
+                    // the app is stopping, the invalidator thread still takes the batches
+                    return;
+                }
+                try {
+                    List<MemorySession> batch;
+                    while (!isInProcessOfStopping() && (batch = batches.poll()) != null) {
+                        invalidateTimedOut(batch, nowTime);
+                    }
+                } finally {
+                    unsetThreadContext();
+                }
+            }
+        };
+        int helpers = Math.min(batches.size() - 1, Runtime.getRuntime().availableProcessors());
+        try {
+            for (int i = 0; i < helpers; i++) {
+                _invalidationExecutor.execute(helper);
+            }
+        } catch (RejectedExecutionException e) {
+            // run what is left on this thread
+        }
+        List<MemorySession> batch;
+        while ((batch = batches.poll()) != null) {
+            invalidateTimedOut(batch, nowTime);
+        }
+    }
+
+    /*
+     * Schedule the session in the timing wheel for the time it is due to time out.
+     */
+    protected void scheduleExpiry(MemorySession s) {
+        if (_expiryWheel == null) {
+            return;
+        }
+        int maxInactiveInterval = s.getMaxInactiveInterval();
+        long dueTime = (maxInactiveInterval == -1) ? Long.MAX_VALUE : s.getCurrentAccessTime() + 1000 * (long) maxInactiveInterval;
+        _expiryWheel.schedule(s, dueTime);
+    }
+
+    /*
+     * Sets the executor the invalidation of timed out sessions is spread over.
+     */
+    public void setInvalidationExecutor(Executor executor) {
+        _invalidationExecutor = executor;
+    }
+
     /*
      * @see com.ibm.wsspi.session.IStore#runTimeBasedWrites()
      */
@@ -887,6 +1006,9 @@ public class MemoryStore implements IStore {
         }
         removeSession(oldId);
         _sessions.put(newSession.getId(),  newSession);
+        if (newSession instanceof MemorySession) {
+            scheduleExpiry((MemorySession) newSession);
+        }
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
             LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, "updateSessionId", newSession.getId());
         }
@@ -11,11 +11,20 @@
 
 package com.ibm.ws.session.store.memory;
 
-import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.logging.Level;
 
 import com.ibm.ws.session.utils.LoggingUtil;
@@ -32,28 +41,38 @@ import com.ibm.wsspi.session.IStore;
  * will be thrown back to the caller. However, if overflow is enabled a new Overflow Hashmap
  * will be created and all new put() requests will be placed in the overflow Hashmap.
  * 
- * Since Hashmap is totally unsynchronized, this class will provide the needed
- * synchronization for a threaded environment. There is no synchronization on get() for
- * the SessionSimpleHashMap though gets will be synchronized when the overflow Hashmap
- * is used (since the HashMap may rehash).
+ * The entries are not kept in the inherited HashMap but in a ConcurrentHashMap sized
+ * for maxCapacity, so gets, puts and removes for different sessions do not serialize
+ * on the map as they did when put() and remove() were synchronized. The number of
+ * entries is kept in a counter that is checked and reserved before a new entry is
+ * added, so maxCapacity is enforced without locking the table. The overflow Hashmap
+ * is still guarded by a single lock since it may rehash.
  * 
- * The keysSet() method will return a non "Fail-fast" version of the keys that
- * are a snapshot at the time of the method call.
+ * The contention count is the number of times a thread had to retry its reservation
+ * of the counter or wait for the overflow lock, and the rehash count is the number of
+ * times the overflow Hashmap grew; both are per application and shown with the
+ * session manager statistics.
+ * 
+ * The keysSet(), values() and entrySet() methods will return non "Fail-fast" versions
+ * of the keys, values and entries that are a snapshot at the time of the method call.
+ * Since the inherited HashMap is always empty, every HashMap method that reads or
+ * copies the entries is overridden, a clone gets its own table, and the map is
+ * serialized as a plain HashMap holding a snapshot of the entries.
  * 
  * @see java.util.HashMap
  */
 
 public class SessionSimpleHashMap extends HashMap {
 
-    private static class SerializableObject implements Serializable {
-        private static final long serialVersionUID = -1713215368202372876L;
-    }
-    
     private IStore _iStore;
     private int maxSize;
-    private int currentSize;
-    private HashMap OverflowTabl;
-    private Serializable OverflowTablLock = new SerializableObject();
+    private final AtomicInteger currentSize = new AtomicInteger();
+    private final ConcurrentHashMap<Object, Object> table;
+    private volatile HashMap OverflowTabl;
+    private int overflowThreshold;
+    private final ReentrantLock OverflowTablLock = new ReentrantLock();
+    private final AtomicLong contentionCount = new AtomicLong();
+    private final AtomicLong rehashCount = new AtomicLong();
     boolean overflowAllowed;
     private static final long serialVersionUID = 6091018332887652886L;
     private static final String methodClassName = "SessionSimpleHashMap";
@@ -69,9 +88,10 @@ public class SessionSimpleHashMap extends HashMap {
      * The Constructor
      */
     public SessionSimpleHashMap(IStore iStore, int maxCapacity, boolean overflow) {
-        // Need to play with load factor and initial capacity so that no rehash ever occurs
-        super(maxCapacity + 20, 1);
-        currentSize = 0;
+        // The inherited HashMap holds no entries
+        super(1);
+        // Size the table so that no rehash ever occurs below maxCapacity
+        table = new ConcurrentHashMap<Object, Object>(maxCapacity + 20, 0.75f, Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
         maxSize = maxCapacity;
         overflowAllowed = overflow;
         _iStore = iStore;
@@ -82,6 +102,34 @@ public class SessionSimpleHashMap extends HashMap {
         }
     }
 
+    /*
+     * Take the overflow lock, counting the times it was held by another thread.
+     */
+    private void lockOverflow() {
+        if (!OverflowTablLock.tryLock()) {
+            contentionCount.incrementAndGet();
+            OverflowTablLock.lock();
+        }
+    }
+
+    /*
+     * Reserve room for a new entry in the table.
+     * 
+     * @return false if the table is full
+     */
+    private boolean reserve() {
+        while (true) {
+            int size = currentSize.get();
+            if (size >= maxSize) {
+                return false;
+            }
+            if (currentSize.compareAndSet(size, size + 1)) {
+                return true;
+            }
+            contentionCount.incrementAndGet();
+        }
+    }
+
     /*
      * This method puts an entry into the HashMap. It does follow HashMap semantics by checking for
      * an existing entry and returning that entry when we replace it. However, the session component
@@ -91,7 +139,7 @@ public class SessionSimpleHashMap extends HashMap {
      * @see java.util.Map#put(java.lang.Object, java.lang.Object)
      */
     @Override
-    public synchronized Object put(Object key, Object value) {
+    public Object put(Object key, Object value) {
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINER)) {
             //PM16861
             StringBuffer sb = new StringBuffer("{").append(key).append("} ").append(appNameForLogging);
@@ -100,55 +148,70 @@ public class SessionSimpleHashMap extends HashMap {
         Object replacedEntry = null;
 
         // First see if replacing an existing entry 
-        Object currEntry = super.get(key);
+        Object currEntry = table.get(key);
 
         if (currEntry != null) {
             if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                 LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[PUT], "replacing existing entry");
             }
-            replacedEntry = super.put(key, value);
+            replacedEntry = table.put(key, value);
         } else {
             if ((overflowAllowed) && (OverflowTabl != null)) {
-                synchronized (OverflowTablLock) {
-                    currEntry = OverflowTabl.get(key);
+                lockOverflow();
+                try {
+                    currEntry = (OverflowTabl != null) ? OverflowTabl.get(key) : null;
                     if (currEntry != null) {
                         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                             LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[PUT], "replacing existing entry in overflow Hashmap");
                         }
                         replacedEntry = OverflowTabl.put(key, value);
                     }
+                } finally {
+                    OverflowTablLock.unlock();
                 }
             }
         }
 
         // Handle new entries
         if (currEntry == null) {
-            currentSize++;
             // increment pmi counter
             if (_iStore.getStoreCallback() != null) {
                 _iStore.getStoreCallback().sessionLiveCountInc(value);
             }
 
-            if (currentSize <= maxSize) {
-                replacedEntry = super.put(key, value);
+            if (reserve()) {
+                replacedEntry = table.putIfAbsent(key, value);
+                if (replacedEntry != null) {
+                    // another thread added the same key, the session component does not let this happen
+                    currentSize.decrementAndGet();
+                    replacedEntry = table.put(key, value);
+                }
                 if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                     LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[PUT], "add new entry to Hashmap");
                 }
             } else { // overflow
-                currentSize--;
                 if (overflowAllowed) {
-                    synchronized (OverflowTablLock) {
+                    lockOverflow();
+                    try {
                         if (OverflowTabl == null) {
-                            OverflowTabl = new HashMap(currentSize, 1);
+                            OverflowTabl = new HashMap(maxSize, 1);
+                            overflowThreshold = capacityFor(maxSize);
                             if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                                 LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[PUT], "Creating Overflow Table");
                             }
                         }
 
                         replacedEntry = OverflowTabl.put(key, value);
+                        if (OverflowTabl.size() > overflowThreshold) {
+                            // the HashMap doubled its table with a load factor of 1
+                            overflowThreshold <<= 1;
+                            rehashCount.incrementAndGet();
+                        }
                         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                             LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[PUT], "add new entry to overflow Hashmap");
                         }
+                    } finally {
+                        OverflowTablLock.unlock();
                     }
                 } else
                     throw new TooManySessionsException(); // no overflow allowed
@@ -158,6 +221,14 @@ public class SessionSimpleHashMap extends HashMap {
         return replacedEntry;
     }
 
+    /*
+     * The table size a HashMap created with the given capacity starts with.
+     */
+    private static int capacityFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(1, capacity));
+        return (n < capacity) ? n << 1 : n;
+    }
+
     /*
      * This method returns the entry from the hashmap associated with the given key.
      * If the object is not found in the original hashmap we will search the overflow
@@ -172,7 +243,7 @@ public class SessionSimpleHashMap extends HashMap {
             String s = key + appNameForLogging;
             LoggingUtil.SESSION_LOGGER_CORE.entering(methodClassName, methodNames[GET], s);
         }
-        Object currEntry = super.get(key);
+        Object currEntry = table.get(key);
 
         if (isTraceOn && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
             if (currEntry != null) {
@@ -181,13 +252,16 @@ public class SessionSimpleHashMap extends HashMap {
         }
 
         if ((currEntry == null) && (overflowAllowed) && (OverflowTabl != null)) {
-            synchronized (OverflowTablLock) {
-                currEntry = OverflowTabl.get(key);
+            lockOverflow();
+            try {
+                currEntry = (OverflowTabl != null) ? OverflowTabl.get(key) : null;
                 if (isTraceOn && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                     if (currEntry != null) {
                         LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[GET], "key found in overflow HashMap");
                     }
                 }
+            } finally {
+                OverflowTablLock.unlock();
             }
         }
         if (isTraceOn && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINER)) {
@@ -200,24 +274,47 @@ public class SessionSimpleHashMap extends HashMap {
     }
 
     @Override
-    public synchronized Object remove(Object key) {
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /*
+     * The number of entries in the table, not counting the overflow Hashmap.
+     * 
+     * @see java.util.Map#size()
+     */
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.isEmpty() && getOverflowSize() == 0;
+    }
+
+    @Override
+    public Object remove(Object key) {
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINER)) {
             String s = key + appNameForLogging;
             LoggingUtil.SESSION_LOGGER_CORE.entering(methodClassName, methodNames[REMOVE], s);
         }
 
-        Object removedEntry = super.remove(key);
+        Object removedEntry = table.remove(key);
 
         if ((removedEntry != null)) {
-            currentSize--;
+            currentSize.decrementAndGet();
             if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
                 LoggingUtil.SESSION_LOGGER_CORE.exiting(methodClassName, methodNames[REMOVE], "key removed from HashMap");
             }
         } else {
             // Must have returned null
             if ((overflowAllowed) && (OverflowTabl != null)) {
-                synchronized (OverflowTablLock) {
-                    removedEntry = OverflowTabl.remove(key);
+                lockOverflow();
+                try {
+                    removedEntry = (OverflowTabl != null) ? OverflowTabl.remove(key) : null;
+                } finally {
+                    OverflowTablLock.unlock();
                 }
             }
             if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
@@ -229,63 +326,233 @@ public class SessionSimpleHashMap extends HashMap {
     }
 
     @Override
-    public synchronized void clear() {
-        super.clear();
-        currentSize = 0;
+    public void clear() {
+        for (Object key : table.keySet()) {
+            if (table.remove(key) != null) {
+                currentSize.decrementAndGet();
+            }
+        }
         if (OverflowTabl != null) {
-            synchronized (OverflowTablLock) {
-                OverflowTabl.clear();
+            lockOverflow();
+            try {
+                OverflowTabl = null;
+            } finally {
+                OverflowTablLock.unlock();
             }
-            OverflowTabl = null;
         }
     }
 
     @Override
     public boolean containsValue(Object value) {
-        throw new UnsupportedOperationException();
+        if (table.containsValue(value)) {
+            return true;
+        }
+        if (OverflowTabl != null) {
+            lockOverflow();
+            try {
+                return (OverflowTabl != null) && OverflowTabl.containsValue(value);
+            } finally {
+                OverflowTablLock.unlock();
+            }
+        }
+        return false;
     }
 
+    /*
+     * Each entry is added with put(), so the capacity and overflow rules apply to it.
+     * 
+     * @see java.util.Map#putAll(java.util.Map)
+     */
     @Override
     public void putAll(Map t) {
-        throw new UnsupportedOperationException();
+        for (Iterator it = t.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            put(entry.getKey(), entry.getValue());
+        }
     }
 
+    /*
+     * A snapshot of the entries of the table and the overflow Hashmap. The
+     * entries cannot be used to change the map.
+     * 
+     * @see java.util.Map#entrySet()
+     */
     @Override
     public Set entrySet() {
-        throw new UnsupportedOperationException();
+        ArrayList entries = new ArrayList(table.size());
+        for (Map.Entry<Object, Object> entry : table.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<Object, Object>(entry));
+        }
+        if (OverflowTabl != null) {
+            lockOverflow();
+            try {
+                if (OverflowTabl != null) {
+                    for (Iterator it = OverflowTabl.entrySet().iterator(); it.hasNext();) {
+                        entries.add(new AbstractMap.SimpleImmutableEntry<Object, Object>((Map.Entry) it.next()));
+                    }
+                }
+            } finally {
+                OverflowTablLock.unlock();
+            }
+        }
+        return new SessionHashSet(entries.toArray());
     }
 
+    /*
+     * A snapshot of the values of the table and the overflow Hashmap.
+     * 
+     * @see java.util.Map#values()
+     */
     @Override
     public Collection values() {
+        ArrayList values = new ArrayList(table.values());
+        if (OverflowTabl != null) {
+            lockOverflow();
+            try {
+                if (OverflowTabl != null) {
+                    values.addAll(OverflowTabl.values());
+                }
+            } finally {
+                OverflowTablLock.unlock();
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        Object value = get(key);
+        return (value != null) ? value : defaultValue;
+    }
+
+    @Override
+    public void forEach(BiConsumer action) {
+        for (Iterator it = entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /*
+     * The conditional updates of the inherited HashMap would act on its empty
+     * table; the session component only uses put, get and remove.
+     */
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object replace(Object key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean replace(Object key, Object oldValue, Object newValue) {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Object computeIfAbsent(Object key, Function mappingFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object computeIfPresent(Object key, BiFunction remappingFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object compute(Object key, BiFunction remappingFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object merge(Object key, Object value, BiFunction remappingFunction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void replaceAll(BiFunction function) {
+        throw new UnsupportedOperationException();
+    }
+
+    /*
+     * The inherited clone would share the table with this map, so the clone
+     * is given copies of the table and the overflow Hashmap. The session
+     * counts of the store are not changed.
+     * 
+     * @see java.util.HashMap#clone()
+     */
+    @Override
+    public Object clone() {
+        SessionSimpleHashMap clone = new SessionSimpleHashMap(_iStore, maxSize, overflowAllowed);
+        clone.table.putAll(table);
+        clone.currentSize.set(clone.table.size());
+        if (OverflowTabl != null) {
+            lockOverflow();
+            try {
+                if (OverflowTabl != null) {
+                    clone.OverflowTabl = new HashMap(OverflowTabl);
+                    clone.overflowThreshold = overflowThreshold;
+                }
+            } finally {
+                OverflowTablLock.unlock();
+            }
+        }
+        return clone;
+    }
+
+    /*
+     * The entries are not in the inherited HashMap, and the store they belong
+     * to cannot be serialized, so a plain HashMap of the entries is written
+     * in place of this map.
+     */
+    private Object writeReplace() {
+        HashMap copy = new HashMap(table);
+        if (OverflowTabl != null) {
+            lockOverflow();
+            try {
+                if (OverflowTabl != null) {
+                    copy.putAll(OverflowTabl);
+                }
+            } finally {
+                OverflowTablLock.unlock();
+            }
+        }
+        return copy;
+    }
+
     @Override
     public Set keySet() {
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && LoggingUtil.SESSION_LOGGER_CORE.isLoggable(Level.FINE)) {
             LoggingUtil.SESSION_LOGGER_CORE.entering(methodClassName, methodNames[KEYSET], appNameForLogging);
         }
 
-        Set myKeySet;
         Object[] keys;
         int keysLen = 0;
         Object[] allKeys = null;
 
-        Set overflowKeySet;
         Object[] overflowKeys = null;
         int overflowKeysLen = 0;
 
-        // Get the "fail-fast keyset from the HashMaps and convert it to an array 
-        myKeySet = super.keySet();
-        synchronized (this) {
-            keys = myKeySet.toArray(); // base Map
-            keysLen = keys.length;
-            if (OverflowTabl != null) {
-                overflowKeySet = OverflowTabl.keySet();
-                synchronized (OverflowTablLock) {
-                    overflowKeys = overflowKeySet.toArray(); // overflow Map
+        // The ConcurrentHashMap keyset is weakly consistent, convert it to an array 
+        keys = table.keySet().toArray(); // base Map
+        keysLen = keys.length;
+        if (OverflowTabl != null) {
+            lockOverflow();
+            try {
+                if (OverflowTabl != null) {
+                    overflowKeys = OverflowTabl.keySet().toArray(); // overflow Map
                     overflowKeysLen = overflowKeys.length;
                 }
+            } finally {
+                OverflowTablLock.unlock();
             }
         }
 
@@ -325,9 +592,25 @@ public class SessionSimpleHashMap extends HashMap {
 
     public int getOverflowSize() {
         int overflowSize = 0;
-        if (OverflowTabl != null) {
-            overflowSize = OverflowTabl.size();
+        HashMap overflow = OverflowTabl;
+        if (overflow != null) {
+            overflowSize = overflow.size();
         }
         return overflowSize;
     }
+
+    /*
+     * The number of times a thread had to retry adding an entry or wait for
+     * the overflow lock.
+     */
+    public long getContentionCount() {
+        return contentionCount.get();
+    }
+
+    /*
+     * The number of times the overflow Hashmap rehashed.
+     */
+    public long getRehashCount() {
+        return rehashCount.get();
+    }
 }
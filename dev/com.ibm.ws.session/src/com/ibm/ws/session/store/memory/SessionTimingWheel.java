@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package com.ibm.ws.session.store.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/*
+ * Hierarchical timing wheel of the sessions of a MemoryStore, keyed by the
+ * time each session is due to time out.
+ *
+ * There are LEVELS wheels of SLOTS slots. A slot of the first wheel holds the
+ * sessions due in one tick, a slot of each next wheel spans all the slots of the
+ * wheel below it. Scheduling a session puts it in the slot of its due tick on the
+ * lowest wheel that reaches that far, and moves it out of the slot it was in,
+ * each in constant time. Advancing the wheel drains only the slots of the ticks
+ * that passed, plus the higher slots that now fall within the lower wheels.
+ *
+ * The wheel keeps no deadlines. The drained sessions are handed back to the
+ * store, which checks each one and schedules it again if it has not timed out,
+ * so a session accessed since it was scheduled is simply moved on when its old
+ * slot comes up, and a session is looked at no more than LEVELS times for each
+ * of its timeouts.
+ *
+ * Scheduling may run concurrently on any number of threads; advancing is done by
+ * the invalidator and is synchronized only against other advances. Scheduling
+ * and advancing share no lock: the slots are concurrent sets and each session
+ * records the slot it is in. A schedule that races with an advance may have
+ * picked a slot for a tick that has already come up, so it is redone whenever
+ * the current tick moved on while it ran. A session drained early by such a
+ * race is only checked and scheduled again by the store.
+ */
+class SessionTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /* The furthest a session can be scheduled, in ticks */
+    private static final long HORIZON = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private static final AtomicReferenceFieldUpdater<MemorySession, Set> SLOT_UPDATER = AtomicReferenceFieldUpdater.newUpdater(MemorySession.class, Set.class,
+                                                                                                                               "_expirySlot");
+
+    private final long tickMillis;
+    private final Set<MemorySession>[][] slots;
+    /* The last tick advanced to, only changed by advance */
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    SessionTimingWheel(long tickMillis, long now) {
+        this.tickMillis = tickMillis;
+        slots = new Set[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots[level][slot] = Collections.newSetFromMap(new ConcurrentHashMap<MemorySession, Boolean>());
+            }
+        }
+        currentTick = now / tickMillis;
+    }
+
+    /*
+     * Put the session in the slot of the tick it is due in, taking it out of the
+     * slot it was in. A session due at or before the current tick is put in the
+     * next tick.
+     *
+     * @param dueTime time in milliseconds, Long.MAX_VALUE if the session does not time out
+     */
+    void schedule(MemorySession session, long dueTime) {
+        long fromTick;
+        do {
+            fromTick = currentTick;
+            Set<MemorySession> slot = slotFor(fromTick, dueTime);
+            slot.add(session);
+            Set old = SLOT_UPDATER.getAndSet(session, slot);
+            if (old != null && old != slot) {
+                old.remove(session);
+            }
+            // the slot may have been drained while the session was put in it
+        } while (fromTick != currentTick);
+    }
+
+    /*
+     * The slot of the tick the time is due in, counted from the given tick.
+     */
+    private Set<MemorySession> slotFor(long fromTick, long dueTime) {
+        long delta;
+        if (dueTime >= (fromTick + HORIZON) * tickMillis) {
+            delta = HORIZON;
+        } else {
+            // round up so a session is never due before its time
+            delta = Math.max(1, (dueTime + tickMillis - 1) / tickMillis - fromTick);
+        }
+        long tick = fromTick + delta;
+        int level = 0;
+        while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        return slots[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK];
+    }
+
+    /*
+     * Take the session out of the wheel.
+     */
+    void cancel(MemorySession session) {
+        Set old = SLOT_UPDATER.getAndSet(session, null);
+        if (old != null) {
+            old.remove(session);
+        }
+    }
+
+    /*
+     * Advance the wheel to the given time.
+     *
+     * @return the sessions of the slots that were drained, none of which are left in the wheel
+     */
+    synchronized List<MemorySession> advance(long now) {
+        List<MemorySession> drained = new ArrayList<MemorySession>();
+        long targetTick = now / tickMillis;
+        long tick = currentTick;
+        while (tick < targetTick) {
+            tick++;
+            // publish the tick before its slots are drained, so a schedule that
+            // raced with the drain sees it and is redone
+            currentTick = tick;
+            // a higher slot comes due when the ticks below it wrap around
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    drain(slots[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK], drained);
+                }
+            }
+            drain(slots[0][(int) tick & SLOT_MASK], drained);
+        }
+        return drained;
+    }
+
+    private static void drain(Set<MemorySession> slot, List<MemorySession> drained) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        for (Iterator<MemorySession> it = slot.iterator(); it.hasNext();) {
+            MemorySession session = it.next();
+            it.remove();
+            // skip a session that was since scheduled into another slot
+            if (SLOT_UPDATER.compareAndSet(session, slot, null)) {
+                drained.add(session);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.ibm.wsspi.session.IStore;
+
+/**
+ * Test that the HashMap methods of the session table see the entries of the
+ * table and of the overflow Hashmap.
+ */
+public class SessionSimpleHashMapTest {
+
+    private static SessionSimpleHashMap newMap(int maxCapacity, boolean overflow) {
+        IStore store = (IStore) Proxy.newProxyInstance(SessionSimpleHashMapTest.class.getClassLoader(), new Class<?>[] { IStore.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getId")) {
+                    return "SessionSimpleHashMapTest";
+                }
+                return null;
+            }
+        });
+        return new SessionSimpleHashMap(store, maxCapacity, overflow);
+    }
+
+    /**
+     * A map with two entries in the table and one in the overflow Hashmap.
+     */
+    private static SessionSimpleHashMap newFullMap() {
+        SessionSimpleHashMap map = newMap(2, true);
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        assertEquals(1, map.getOverflowSize());
+        return map;
+    }
+
+    private static Map<Object, Object> expected() {
+        Map<Object, Object> expected = new HashMap<Object, Object>();
+        expected.put("a", "1");
+        expected.put("b", "2");
+        expected.put("c", "3");
+        return expected;
+    }
+
+    @Test
+    public void testCapacity() {
+        SessionSimpleHashMap map = newMap(2, false);
+        map.put("a", "1");
+        map.put("b", "2");
+        try {
+            map.put("c", "3");
+            fail("the table grew past its capacity");
+        } catch (TooManySessionsException e) {
+            // expected
+        }
+        // replacing an entry does not need room
+        assertEquals("1", map.put("a", "4"));
+        map.remove("b");
+        map.put("c", "3");
+        assertEquals("4", map.get("a"));
+        assertEquals("3", map.get("c"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testOverflow() {
+        SessionSimpleHashMap map = newFullMap();
+        assertEquals(2, map.size());
+        assertEquals("3", map.get("c"));
+        assertTrue(map.containsKey("c"));
+        assertEquals("3", map.remove("c"));
+        assertEquals(0, map.getOverflowSize());
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testContainsValue() {
+        SessionSimpleHashMap map = newFullMap();
+        assertTrue(map.containsValue("1"));
+        assertTrue(map.containsValue("3"));
+        assertFalse(map.containsValue("4"));
+    }
+
+    @Test
+    public void testValues() {
+        SessionSimpleHashMap map = newFullMap();
+        Collection<?> values = map.values();
+        assertEquals(3, values.size());
+        assertEquals(new HashSet<Object>(expected().values()), new HashSet<Object>(values));
+        // the values are a snapshot
+        map.remove("a");
+        assertEquals(3, values.size());
+    }
+
+    @Test
+    public void testEntrySet() {
+        SessionSimpleHashMap map = newFullMap();
+        Set<?> entries = map.entrySet();
+        assertEquals(3, entries.size());
+        Map<Object, Object> copy = new HashMap<Object, Object>();
+        for (Iterator<?> it = entries.iterator(); it.hasNext();) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) it.next();
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(expected(), copy);
+        // the entries are a snapshot
+        map.put("a", "4");
+        assertEquals(expected(), copy);
+        assertEquals("4", map.get("a"));
+    }
+
+    @Test
+    public void testPutAll() {
+        SessionSimpleHashMap map = newMap(2, true);
+        map.putAll(expected());
+        assertEquals(2, map.size());
+        assertEquals(1, map.getOverflowSize());
+        for (Map.Entry<Object, Object> entry : expected().entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        map = newMap(2, false);
+        try {
+            map.putAll(expected());
+            fail("the table grew past its capacity");
+        } catch (TooManySessionsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testClone() {
+        SessionSimpleHashMap map = newFullMap();
+        SessionSimpleHashMap clone = (SessionSimpleHashMap) map.clone();
+        assertNotSame(map, clone);
+        assertEquals(2, clone.size());
+        assertEquals(1, clone.getOverflowSize());
+        assertEquals("1", clone.get("a"));
+        assertEquals("3", clone.get("c"));
+
+        // the clone does not share the table or the overflow Hashmap
+        map.remove("a");
+        map.remove("c");
+        assertEquals("1", clone.get("a"));
+        assertEquals("3", clone.get("c"));
+        clone.put("d", "4");
+        assertNull(map.get("d"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(newFullMap());
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Object copy = in.readObject();
+        in.close();
+        assertEquals(HashMap.class, copy.getClass());
+        assertEquals(expected(), copy);
+    }
+
+    @Test
+    public void testDefaultMethods() {
+        SessionSimpleHashMap map = newFullMap();
+        assertEquals("3", map.getOrDefault("c", "0"));
+        assertEquals("0", map.getOrDefault("d", "0"));
+        try {
+            map.putIfAbsent("d", "4");
+            fail("putIfAbsent acted on the inherited HashMap");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertNull(map.get("d"));
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.session.store.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class SessionTimingWheelTest {
+
+    private static final long TICK = 1000L;
+
+    /**
+     * Advance the wheel one tick at a time up to the given time, scheduling
+     * again the drained sessions that are not due yet, as the store does.
+     *
+     * @return the tick each session was found due at
+     */
+    private static Map<MemorySession, Long> expire(SessionTimingWheel wheel, Map<MemorySession, Long> dueTimes, long from, long to, Map<MemorySession, Integer> looks) {
+        Map<MemorySession, Long> expired = new HashMap<MemorySession, Long>();
+        for (long now = from; now <= to; now += TICK) {
+            for (MemorySession session : wheel.advance(now)) {
+                if (looks != null) {
+                    Integer count = looks.get(session);
+                    looks.put(session, count == null ? 1 : count + 1);
+                }
+                long dueTime = dueTimes.get(session);
+                if (dueTime <= now) {
+                    expired.put(session, now);
+                } else {
+                    wheel.schedule(session, dueTime);
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Test
+    public void testExpiryOnAdvance() {
+        SessionTimingWheel wheel = new SessionTimingWheel(TICK, 0L);
+        MemorySession session = new MemorySession();
+        wheel.schedule(session, 5000L);
+        assertTrue(wheel.advance(4999L).isEmpty());
+        List<MemorySession> due = wheel.advance(5000L);
+        assertEquals(1, due.size());
+        assertTrue(due.get(0) == session);
+        // a drained session is no longer in the wheel
+        assertTrue(wheel.advance(100000L).isEmpty());
+    }
+
+    @Test
+    public void testDueTimeRoundedUp() {
+        SessionTimingWheel wheel = new SessionTimingWheel(TICK, 0L);
+        MemorySession session = new MemorySession();
+        wheel.schedule(session, 4500L);
+        assertTrue(wheel.advance(4999L).isEmpty());
+        assertEquals(1, wheel.advance(5000L).size());
+
+        // a session that is already due is put in the next tick
+        wheel.schedule(session, 1000L);
+        assertTrue(wheel.advance(5999L).isEmpty());
+        assertEquals(1, wheel.advance(6000L).size());
+    }
+
+    @Test
+    public void testReschedule() {
+        SessionTimingWheel wheel = new SessionTimingWheel(TICK, 0L);
+        MemorySession session = new MemorySession();
+        wheel.schedule(session, 5000L);
+        wheel.schedule(session, 10000L);
+        assertTrue(wheel.advance(9000L).isEmpty());
+        assertEquals(1, wheel.advance(10000L).size());
+
+        // moving a session nearer works as well
+        wheel.schedule(session, 50000L);
+        wheel.schedule(session, 20000L);
+        assertEquals(1, wheel.advance(20000L).size());
+        assertTrue(wheel.advance(60000L).isEmpty());
+    }
+
+    @Test
+    public void testCancel() {
+        SessionTimingWheel wheel = new SessionTimingWheel(TICK, 0L);
+        MemorySession session = new MemorySession();
+        wheel.schedule(session, 5000L);
+        wheel.cancel(session);
+        assertTrue(wheel.advance(10000L).isEmpty());
+        // cancelling a session that is not in the wheel does nothing
+        wheel.cancel(session);
+    }
+
+    @Test
+    public void testHigherLevels() {
+        SessionTimingWheel wheel = new SessionTimingWheel(TICK, 0L);
+        Map<MemorySession, Long> dueTimes = new HashMap<MemorySession, Long>();
+        long[] times = { 63000L, 64000L, 65000L, 4095000L, 4096000L, 4097500L, 300000000L };
+        for (long dueTime : times) {
+            MemorySession session = new MemorySession();
+            dueTimes.put(session, dueTime);
+            wheel.schedule(session, dueTime);
+        }
+        Map<MemorySession, Integer> looks = new HashMap<MemorySession, Integer>();
+        Map<MemorySession, Long> expired = expire(wheel, dueTimes, TICK, 300000000L + TICK, looks);
+        assertEquals(times.length, expired.size());
+        for (Map.Entry<MemorySession, Long> entry : expired.entrySet()) {
+            long dueTime = dueTimes.get(entry.getKey());
+            // found in the tick the session is due in, and looked at once per level at most
+            assertEquals(((dueTime + TICK - 1) / TICK) * TICK, entry.getValue().longValue());
+            assertTrue(looks.get(entry.getKey()) <= 4);
+        }
+    }
+
+    @Test
+    public void testNoTimeout() {
+        SessionTimingWheel wheel = new SessionTimingWheel(TICK, 0L);
+        MemorySession session = new MemorySession();
+        Map<MemorySession, Long> dueTimes = new HashMap<MemorySession, Long>();
+        dueTimes.put(session, Long.MAX_VALUE);
+        wheel.schedule(session, Long.MAX_VALUE);
+        assertTrue(expire(wheel, dueTimes, TICK, 100000000L, null).isEmpty());
+    }
+
+    @Test
+    public void testScheduleWhileAdvancing() throws Exception {
+        final SessionTimingWheel wheel = new SessionTimingWheel(1L, 0L);
+        final int threads = 4;
+        final int perThread = 200;
+        final long lastDue = 30000L;
+        final Map<MemorySession, Long> dueTimes = new HashMap<MemorySession, Long>();
+        final List<List<MemorySession>> sessions = new ArrayList<List<MemorySession>>();
+        for (int i = 0; i < threads; i++) {
+            List<MemorySession> list = new ArrayList<MemorySession>();
+            for (int j = 0; j < perThread; j++) {
+                MemorySession session = new MemorySession();
+                list.add(session);
+                dueTimes.put(session, lastDue);
+            }
+            sessions.add(list);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(threads);
+        List<Thread> schedulers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final List<MemorySession> list = sessions.get(i);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    long round = 0;
+                    while (!done.get()) {
+                        // keep moving each session between the next tick and a far one
+                        for (MemorySession session : list) {
+                            wheel.schedule(session, (round & 1) == 0 ? 0L : lastDue);
+                        }
+                        round++;
+                    }
+                    for (MemorySession session : list) {
+                        wheel.schedule(session, lastDue);
+                    }
+                }
+            };
+            thread.start();
+            schedulers.add(thread);
+        }
+        started.await();
+        // sessions drained while the schedulers still run are simply put back
+        for (long now = 1; now < 20000L; now++) {
+            for (MemorySession session : wheel.advance(now)) {
+                wheel.schedule(session, lastDue);
+            }
+        }
+        done.set(true);
+        for (Thread thread : schedulers) {
+            thread.join();
+        }
+
+        // no session was lost from the wheel
+        Map<MemorySession, Long> expired = expire(wheel, dueTimes, 20000L, lastDue + 1000L, null);
+        assertEquals(threads * perThread, expired.size());
+    }
+}
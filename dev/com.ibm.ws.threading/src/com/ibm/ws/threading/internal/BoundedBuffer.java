@@ -17,7 +17,6 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,7 +29,7 @@ import com.ibm.ejs.ras.TraceComponent;
  * the buffer. The buffer contains a expedited FIFO buffer, whose objects
  * will be removed before objects in the main buffer.
  */
-public class BoundedBuffer<T> implements BlockingQueue<T> {
+public class BoundedBuffer<T> implements ExpandableQueue<T> {
     // ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
     //
     // Implementation Note:  the buffer is implemented using a circular
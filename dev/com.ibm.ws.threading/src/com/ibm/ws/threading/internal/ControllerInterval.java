@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import com.ibm.websphere.ras.annotation.Trivial;
+import com.ibm.wsspi.threading.ThreadPoolControllerPolicy;
+
+/**
+ * The statistics and decision of one interval of the {@link ThreadPoolController}.
+ * Instances are offered to the controller policy, and are then kept as history
+ * for {@link ThreadPoolControllerMXBean}.
+ */
+@Trivial
+public class ControllerInterval implements ThreadPoolControllerPolicy.Interval {
+    private final long timestamp;
+    private final String policy;
+    private final int poolSize;
+    private final int coreThreads;
+    private final int maxThreads;
+    private final double throughput;
+    private final int queueDepth;
+    private final long queueWaitP99;
+    private double forecast = -1;
+    private int poolAdjustment;
+    private String reason = "";
+
+    ControllerInterval(long timestamp, String policy, int poolSize, int coreThreads, int maxThreads,
+                       double throughput, int queueDepth, long queueWaitP99) {
+        this.timestamp = timestamp;
+        this.policy = policy;
+        this.poolSize = poolSize;
+        this.coreThreads = coreThreads;
+        this.maxThreads = maxThreads;
+        this.throughput = throughput;
+        this.queueDepth = queueDepth;
+        this.queueWaitP99 = queueWaitP99;
+    }
+
+    /**
+     * @return time at the end of the interval, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return name of the policy that made the decision.
+     */
+    public String getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public int getCoreThreads() {
+        return coreThreads;
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    @Override
+    public double getThroughput() {
+        return throughput;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    @Override
+    public long getQueueWaitP99() {
+        return queueWaitP99;
+    }
+
+    /**
+     * @return the forecast throughput at the current pool size, or -1 if the policy does not forecast throughput.
+     */
+    public double getForecast() {
+        return forecast;
+    }
+
+    @Override
+    public void setForecast(double forecast) {
+        this.forecast = forecast;
+    }
+
+    /**
+     * @return the change that was made to the pool size.
+     */
+    public int getPoolAdjustment() {
+        return poolAdjustment;
+    }
+
+    void setPoolAdjustment(int poolAdjustment) {
+        this.poolAdjustment = poolAdjustment;
+    }
+
+    /**
+     * @return explanation of the decision.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public void setReason(String reason) {
+        this.reason = reason == null ? "" : reason;
+    }
+
+    @Override
+    public String toString() {
+        return "poolSize=" + poolSize + " adjustment=" + poolAdjustment + " throughput=" + throughput + " forecast=" + forecast
+               + " queueDepth=" + queueDepth + " queueWaitP99=" + queueWaitP99 + " policy=" + policy + " reason=" + reason;
+    }
+}
@@ -17,7 +17,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
@@ -37,10 +36,14 @@ import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.websphere.ras.annotation.Trivial;
 import com.ibm.ws.ffdc.annotation.FFDCIgnore;
 import com.ibm.wsspi.threading.ExecutorServiceTaskInterceptor;
+import com.ibm.wsspi.threading.ThreadPoolControllerPolicy;
 import com.ibm.wsspi.threading.WSExecutorService;
 
 /**
@@ -51,11 +54,19 @@ import com.ibm.wsspi.threading.WSExecutorService;
            property = "service.vendor=IBM",
            service = { java.util.concurrent.ExecutorService.class, com.ibm.wsspi.threading.WSExecutorService.class })
 public final class ExecutorServiceImpl implements WSExecutorService {
+    private static final TraceComponent tc = Tr.register(ExecutorServiceImpl.class);
+
     /**
      * Indicates whether we are on Java 6, because a workaround is needed for shutting down the thread pool in this case.
      */
     private static final boolean JAVA_6 = System.getProperty("java.version").equals("1.6.0");
 
+    /**
+     * Maximum number of virtual threads per processor when maxThreads is not configured.
+     * Virtual threads are not pooled, so the pool size is the only limit on concurrent tasks.
+     */
+    static final int DEFAULT_MAX_VIRTUAL_THREADS_PER_CPU = 256;
+
     /**
      * The target ExecutorService.
      */
@@ -104,6 +115,32 @@ public final class ExecutorServiceImpl implements WSExecutorService {
         }
     }
 
+    /**
+     * Queue wait times of tasks, when measured for the thread pool controller policy.
+     */
+    volatile QueueWaitHistogram queueWait = null;
+
+    /**
+     * A controller policy from the service registry, which takes precedence over the
+     * built-in policy from configuration.
+     */
+    volatile ThreadPoolControllerPolicy customPolicy = null;
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL,
+               policy = ReferencePolicy.DYNAMIC,
+               policyOption = ReferencePolicyOption.GREEDY)
+    protected void setThreadPoolControllerPolicy(ThreadPoolControllerPolicy policy) {
+        customPolicy = policy;
+        createExecutor();
+    }
+
+    protected void unsetThreadPoolControllerPolicy(ThreadPoolControllerPolicy policy) {
+        if (customPolicy == policy) {
+            customPolicy = null;
+            createExecutor();
+        }
+    }
+
     /**
      * The ThreadFactory used by the executor to create new threads.
      */
@@ -184,6 +221,7 @@ public final class ExecutorServiceImpl implements WSExecutorService {
         int coreThreads = Integer.parseInt(String.valueOf(componentConfig.get("coreThreads")));
         int maxThreads = Integer.parseInt(String.valueOf(componentConfig.get("maxThreads")));
         long keepAliveMillis = Long.parseLong(String.valueOf(componentConfig.get("keepAlive")));
+        boolean maxThreadsConfigured = maxThreads > 0;
 
         if (maxThreads <= 0) {
             maxThreads = Integer.MAX_VALUE;
@@ -196,15 +234,52 @@ public final class ExecutorServiceImpl implements WSExecutorService {
         // If coreThreads is greater than maxThreads, automatically lower it and proceed
         coreThreads = Math.min(coreThreads, maxThreads);
 
+        ThreadFactory factory = threadFactory != null ? threadFactory : new ThreadFactoryImpl(poolName, threadGroupName);
+
+        // When running on virtual threads, a new thread is started for every task until maxThreads
+        // tasks are running, after which tasks are queued. Idle virtual threads are allowed to time out.
+        // Without a configured maxThreads, the pool is limited to DEFAULT_MAX_VIRTUAL_THREADS_PER_CPU per processor.
+        boolean virtualThreads = Boolean.parseBoolean(String.valueOf(componentConfig.get("virtualThreads")));
+        if (virtualThreads) {
+            ThreadFactory virtualThreadFactory = VirtualThreadFactory.create(poolName);
+            if (virtualThreadFactory == null) {
+                Tr.warning(tc, "CWWKE1204.virtual.threads.unavailable", poolName, System.getProperty("java.version"));
+                virtualThreads = false;
+            } else {
+                factory = virtualThreadFactory;
+                if (!maxThreadsConfigured) {
+                    maxThreads = DEFAULT_MAX_VIRTUAL_THREADS_PER_CPU * Runtime.getRuntime().availableProcessors();
+                }
+                coreThreads = maxThreads;
+            }
+        }
+
         // Propagate the core and maximum threads to the controller
         threadPoolController.setCoreThreads(coreThreads);
         threadPoolController.setMaxThreads(maxThreads);
+        threadPoolController.setVirtualThreads(virtualThreads);
+
+        // Choose the policy for resizing the pool. Any policy other than the built-in throughput
+        // policy is given the queue wait time of tasks, which costs a wrapper per task to measure.
+        ThreadPoolControllerPolicy policy = customPolicy;
+        if (policy == null && "LATENCY_TARGET".equals(componentConfig.get("controlPolicy"))) {
+            long queueWaitTargetMillis = Long.parseLong(String.valueOf(componentConfig.get("queueWaitTarget")));
+            policy = new LatencyTargetPolicy(TimeUnit.MILLISECONDS.toNanos(queueWaitTargetMillis));
+        }
+        queueWait = policy == null || virtualThreads ? null : new QueueWaitHistogram();
+        threadPoolController.setPolicy(policy, queueWait);
 
-        BlockingQueue<Runnable> workQueue = new BoundedBuffer<Runnable>(java.lang.Runnable.class, 1000, 1000);
+        // BoundedBuffer hands tasks to waiting threads with synchronized and Object.wait, which pins the
+        // carrier thread of a waiting virtual thread. RingBuffer parks waiting threads with LockSupport.
+        Object workQueueType = componentConfig.get("workQueue");
+        ExpandableQueue<Runnable> workQueue = createWorkQueue(virtualThreads ? WorkQueueType.RING_BUFFER : workQueueType == null ? WorkQueueType.BOUNDED_BUFFER : WorkQueueType.valueOf(workQueueType.toString()));
 
         RejectedExecutionHandler rejectedExecutionHandler = new ExpandPolicy(workQueue, this);
 
-        threadPool = new ThreadPoolExecutor(coreThreads, maxThreads, keepAliveMillis, TimeUnit.MILLISECONDS, workQueue, threadFactory != null ? threadFactory : new ThreadFactoryImpl(poolName, threadGroupName), rejectedExecutionHandler);
+        threadPool = new ThreadPoolExecutor(coreThreads, maxThreads, keepAliveMillis, TimeUnit.MILLISECONDS, workQueue, factory, rejectedExecutionHandler);
+        if (virtualThreads && keepAliveMillis > 0) {
+            threadPool.allowCoreThreadTimeOut(true);
+        }
 
         threadPoolController.activate(threadPool);
 
@@ -213,6 +288,56 @@ public final class ExecutorServiceImpl implements WSExecutorService {
         }
     }
 
+    /**
+     * Create the queue that holds tasks until a thread of the pool is available to run them.
+     *
+     * @param type the configured queue implementation
+     * @return the work queue
+     */
+    @Trivial
+    private static ExpandableQueue<Runnable> createWorkQueue(WorkQueueType type) {
+        switch (type) {
+            case RING_BUFFER:
+                return new RingBuffer<Runnable>(1024, 1024);
+            default:
+                return new BoundedBuffer<Runnable>(java.lang.Runnable.class, 1000, 1000);
+        }
+    }
+
+    /**
+     * Wrap a task to measure its queue wait time, if measured.
+     */
+    @Trivial
+    private Runnable timed(Runnable task) {
+        QueueWaitHistogram histogram = queueWait;
+        return histogram == null ? task : histogram.timed(task);
+    }
+
+    /**
+     * Wrap a task to measure its queue wait time, if measured.
+     */
+    @Trivial
+    private <T> Callable<T> timed(Callable<T> task) {
+        QueueWaitHistogram histogram = queueWait;
+        return histogram == null ? task : histogram.timed(task);
+    }
+
+    /**
+     * Wrap tasks to measure their queue wait time, if measured.
+     */
+    @Trivial
+    private <T> Collection<? extends Callable<T>> timed(Collection<? extends Callable<T>> tasks) {
+        QueueWaitHistogram histogram = queueWait;
+        if (histogram == null) {
+            return tasks;
+        }
+        List<Callable<T>> timedTasks = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            timedTasks.add(histogram.timed(task));
+        }
+        return timedTasks;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
@@ -224,28 +349,28 @@ public final class ExecutorServiceImpl implements WSExecutorService {
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
         threadPoolController.resumeIfPaused();
-        return threadPool.invokeAll(interceptorsActive ? wrap(tasks) : tasks);
+        return threadPool.invokeAll(timed(interceptorsActive ? wrap(tasks) : tasks));
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
         threadPoolController.resumeIfPaused();
-        return threadPool.invokeAll(interceptorsActive ? wrap(tasks) : tasks, timeout, unit);
+        return threadPool.invokeAll(timed(interceptorsActive ? wrap(tasks) : tasks), timeout, unit);
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
         threadPoolController.resumeIfPaused();
-        return threadPool.invokeAny(interceptorsActive ? wrap(tasks) : tasks);
+        return threadPool.invokeAny(timed(interceptorsActive ? wrap(tasks) : tasks));
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
         threadPoolController.resumeIfPaused();
-        return threadPool.invokeAny(interceptorsActive ? wrap(tasks) : tasks, timeout, unit);
+        return threadPool.invokeAny(timed(interceptorsActive ? wrap(tasks) : tasks), timeout, unit);
     }
 
     /** {@inheritDoc} */
@@ -276,35 +401,35 @@ public final class ExecutorServiceImpl implements WSExecutorService {
     @Override
     public <T> Future<T> submit(Callable<T> task) {
         threadPoolController.resumeIfPaused();
-        return threadPool.submit(interceptorsActive ? wrap(task) : task);
+        return threadPool.submit(timed(interceptorsActive ? wrap(task) : task));
     }
 
     /** {@inheritDoc} */
     @Override
     public Future<?> submit(Runnable task) {
         threadPoolController.resumeIfPaused();
-        return threadPool.submit(interceptorsActive ? wrap(task) : task);
+        return threadPool.submit(timed(interceptorsActive ? wrap(task) : task));
     }
 
     /** {@inheritDoc} */
     @Override
     public <T> Future<T> submit(Runnable task, T result) {
         threadPoolController.resumeIfPaused();
-        return threadPool.submit(interceptorsActive ? wrap(task) : task, result);
+        return threadPool.submit(timed(interceptorsActive ? wrap(task) : task), result);
     }
 
     /** {@inheritDoc} */
     @Override
     public void execute(Runnable command) {
         threadPoolController.resumeIfPaused();
-        threadPool.execute(interceptorsActive ? wrap(command) : command);
+        threadPool.execute(timed(interceptorsActive ? wrap(command) : command));
     }
 
     /** {@inheritDoc} */
     @Override
     public void executeGlobal(Runnable command) {
         threadPoolController.resumeIfPaused();
-        threadPool.execute(interceptorsActive ? wrap(command) : command);
+        threadPool.execute(timed(interceptorsActive ? wrap(command) : command));
     }
 
     /**
@@ -317,7 +442,7 @@ public final class ExecutorServiceImpl implements WSExecutorService {
      */
     void executeWithoutInterceptors(Runnable proxy) {
         threadPoolController.resumeIfPaused();
-        threadPool.execute(proxy);
+        threadPool.execute(timed(proxy));
     }
 
     @Trivial
@@ -347,7 +472,10 @@ public final class ExecutorServiceImpl implements WSExecutorService {
     private void softShutdown(final ThreadPoolExecutor oldThreadPool) {
         // setting keepAlive and coreThreads to 0 ensures that idle threads go away immediately; the
         // thread pool will be eligible for garbage collection when all threads are gone and no other
-        // code has a reference to it
+        // code has a reference to it (a zero keepAlive is not permitted while core threads can time out,
+        // which is only the case for virtual threads, so turn that off first)
+        if (oldThreadPool.allowsCoreThreadTimeOut())
+            oldThreadPool.allowCoreThreadTimeOut(false);
         oldThreadPool.setKeepAliveTime(0, TimeUnit.SECONDS);
         oldThreadPool.setCorePoolSize(0);
 
@@ -398,14 +526,14 @@ public final class ExecutorServiceImpl implements WSExecutorService {
      */
     public static class ExpandPolicy implements RejectedExecutionHandler {
 
-        public BoundedBuffer<Runnable> workQueue;
+        public ExpandableQueue<Runnable> workQueue;
         public WSExecutorService exService;
 
         /**
          * Creates an {@code ExpandPolicy}.
          */
-        public ExpandPolicy(BlockingQueue<Runnable> workQueue2, WSExecutorService exService) {
-            this.workQueue = (BoundedBuffer<Runnable>) workQueue2;
+        public ExpandPolicy(ExpandableQueue<Runnable> workQueue2, WSExecutorService exService) {
+            this.workQueue = workQueue2;
             this.exService = exService;
         }
 
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A work queue for the default executor that has separate normal and expedited
+ * capacities, both of which can be increased when the executor would otherwise
+ * reject a task. See {@link ExecutorServiceImpl.ExpandPolicy}.
+ *
+ * @param <T> type of queue element
+ */
+public interface ExpandableQueue<T> extends BlockingQueue<T> {
+    /**
+     * Increases the capacity for non-expedited items by the given amount.
+     *
+     * @param additionalCapacity the amount by which capacity should be increased.
+     */
+    void expand(int additionalCapacity);
+
+    /**
+     * Increases the capacity for expedited items by the given amount.
+     *
+     * @param additionalCapacity the amount by which capacity should be increased.
+     */
+    void expandExpedited(int additionalCapacity);
+}
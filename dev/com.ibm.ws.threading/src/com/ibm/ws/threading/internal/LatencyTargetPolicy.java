@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.wsspi.threading.ThreadPoolControllerPolicy;
+
+/**
+ * Built-in controller policy that sizes the pool to keep the 99th percentile of
+ * the time tasks wait in the queue under a target, using as few threads as possible.
+ * <ul>
+ * <li>When the queue wait exceeds the target, the pool grows in proportion to how
+ * far the target is exceeded.</li>
+ * <li>If growing the pool did not reduce the queue wait, the threads that were added
+ * are contending for some other resource rather than helping, so they are removed
+ * again and the pool is held at that size for a few intervals.</li>
+ * <li>When the queue wait stays well under the target and the queue is empty,
+ * the pool shrinks one thread at a time.</li>
+ * </ul>
+ */
+class LatencyTargetPolicy implements ThreadPoolControllerPolicy {
+    /**
+     * Number of consecutive intervals with the queue wait under half of the
+     * target before the pool is shrunk.
+     */
+    static final int INTERVALS_BELOW_TARGET_BEFORE_SHRINK = 3;
+
+    /**
+     * Number of intervals to hold the pool size after backing out growth that didn't help.
+     */
+    static final int INTERVALS_TO_HOLD_AFTER_BACKOUT = 3;
+
+    /**
+     * A grow is considered to have helped if it reduced the queue wait by at least this fraction.
+     */
+    static final double MIN_IMPROVEMENT = 0.1;
+
+    /**
+     * Target for the 99th percentile queue wait, in nanoseconds.
+     */
+    final long targetNanos;
+
+    /**
+     * Threads added at the end of the previous interval, if any.
+     */
+    private int lastGrowth;
+
+    /**
+     * Queue wait observed in the interval that ended with the pool being grown.
+     */
+    private long queueWaitBeforeGrowth;
+
+    private int consecutiveBelowTarget;
+
+    private int holdIntervals;
+
+    LatencyTargetPolicy(long targetNanos) {
+        this.targetNanos = targetNanos;
+    }
+
+    @Override
+    public synchronized int evaluate(Interval interval) {
+        long queueWait = interval.getQueueWaitP99();
+        int poolSize = interval.getPoolSize();
+        int growth = lastGrowth;
+        lastGrowth = 0;
+
+        if (queueWait > targetNanos) {
+            consecutiveBelowTarget = 0;
+
+            if (growth > 0 && queueWait > queueWaitBeforeGrowth * (1.0 - MIN_IMPROVEMENT)) {
+                holdIntervals = INTERVALS_TO_HOLD_AFTER_BACKOUT;
+                interval.setReason("queue wait " + toMillis(queueWait) + "ms did not improve from " + toMillis(queueWaitBeforeGrowth)
+                                   + "ms after adding " + growth + " threads");
+                return -growth;
+            }
+
+            if (holdIntervals > 0) {
+                holdIntervals--;
+                interval.setReason("holding after backout, queue wait " + toMillis(queueWait) + "ms");
+                return 0;
+            }
+
+            if (poolSize >= interval.getMaxThreads()) {
+                interval.setReason("queue wait " + toMillis(queueWait) + "ms above target at maxThreads");
+                return 0;
+            }
+
+            // add up to a quarter of the pool, in proportion to how far over target we are
+            double excess = Math.min(1.0, (double) (queueWait - targetNanos) / targetNanos);
+            int adjustment = Math.max(1, (int) (poolSize * excess / 4));
+            adjustment = Math.min(adjustment, interval.getMaxThreads() - poolSize);
+            lastGrowth = adjustment;
+            queueWaitBeforeGrowth = queueWait;
+            interval.setReason("queue wait " + toMillis(queueWait) + "ms above target " + toMillis(targetNanos) + "ms");
+            return adjustment;
+        }
+
+        if (holdIntervals > 0)
+            holdIntervals--;
+
+        if (queueWait < targetNanos / 2 && interval.getQueueDepth() == 0) {
+            if (++consecutiveBelowTarget >= INTERVALS_BELOW_TARGET_BEFORE_SHRINK && poolSize > interval.getCoreThreads()) {
+                consecutiveBelowTarget = 0;
+                interval.setReason("queue wait " + (queueWait < 0 ? "none" : toMillis(queueWait) + "ms") + " well below target");
+                return -1;
+            }
+        } else {
+            consecutiveBelowTarget = 0;
+        }
+
+        interval.setReason("queue wait " + (queueWait < 0 ? "none" : toMillis(queueWait) + "ms") + " within target");
+        return 0;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", (double) nanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return "LATENCY_TARGET(" + toMillis(targetNanos) + "ms)";
+    }
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.websphere.ras.annotation.Trivial;
+
+/**
+ * Histogram of the time that tasks spend in the queue of the default executor
+ * before a thread starts running them. Tasks are timed by wrapping them with
+ * {@link #timed(Runnable)} or {@link #timed(Callable)} when they are submitted.
+ * <p>
+ * Recording is lock-free. Each power of 2 nanoseconds is split into 4 buckets,
+ * so percentiles are reported to within 25% of the actual value.
+ */
+class QueueWaitHistogram {
+    /**
+     * Values below this are recorded exactly.
+     */
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int BUCKETS = SUB_BUCKETS + (63 - 2) * SUB_BUCKETS;
+
+    /**
+     * Count of waits recorded in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Counts at the end of the previous interval.
+     */
+    private final long[] previousCounts = new long[BUCKETS];
+
+    @Trivial
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return nanos < 0 ? 0 : (int) nanos;
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (msb - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (msb - 2) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the smallest value that is too large for the bucket.
+     */
+    @Trivial
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket + 1;
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS + sub + 1) << shift;
+    }
+
+    @Trivial
+    void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+    }
+
+    /**
+     * Computes a percentile over the waits recorded since the previous invocation
+     * of this method, and starts a new interval.
+     *
+     * @param percentile between 0 and 100
+     * @return upper bound of the percentile in nanoseconds, or -1 if no waits were recorded.
+     */
+    synchronized long intervalPercentile(double percentile) {
+        long[] delta = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            delta[i] = count - previousCounts[i];
+            previousCounts[i] = count;
+            total += delta[i];
+        }
+        if (total == 0)
+            return -1;
+
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += delta[i];
+            if (cumulative >= threshold)
+                return upperBoundOf(i);
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * Wraps a task to record how long it waits before it starts running.
+     */
+    Runnable timed(Runnable task) {
+        return task instanceof QueueItem ? new TimedQueueItem(task, this) : new TimedRunnable(task, this);
+    }
+
+    /**
+     * Wraps a task to record how long it waits before it starts running.
+     */
+    <T> Callable<T> timed(Callable<T> task) {
+        return new TimedCallable<T>(task, this);
+    }
+
+    @Trivial
+    private static class TimedRunnable implements Runnable {
+        private final QueueWaitHistogram histogram;
+        private final long submitted = System.nanoTime();
+        final Runnable task;
+
+        TimedRunnable(Runnable task, QueueWaitHistogram histogram) {
+            this.task = task;
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void run() {
+            histogram.record(System.nanoTime() - submitted);
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+    /**
+     * Preserves the expedite indicator of the task, so that it is placed
+     * correctly in the work queue.
+     */
+    @Trivial
+    private static class TimedQueueItem extends TimedRunnable implements QueueItem {
+        TimedQueueItem(Runnable task, QueueWaitHistogram histogram) {
+            super(task, histogram);
+        }
+
+        @Override
+        public boolean isExpedited() {
+            return ((QueueItem) task).isExpedited();
+        }
+    }
+
+    @Trivial
+    private static class TimedCallable<T> implements Callable<T> {
+        private final QueueWaitHistogram histogram;
+        private final long submitted = System.nanoTime();
+        private final Callable<T> task;
+
+        TimedCallable(Callable<T> task, QueueWaitHistogram histogram) {
+            this.task = task;
+            this.histogram = histogram;
+        }
+
+        @Override
+        public T call() throws Exception {
+            histogram.record(System.nanoTime() - submitted);
+            return task.call();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -0,0 +1,598 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.websphere.ras.annotation.Trivial;
+
+/**
+ * A lock-free, multi-producer/multi-consumer FIFO (with expedited) of Objects.
+ * Null objects are not allowed in the buffer. Like {@link BoundedBuffer}, items that
+ * implement {@link QueueItem} and are expedited are removed before items in the main
+ * buffer.
+ * <p>
+ * Each of the two buffers is a bounded array of sequenced slots. Producers and consumers
+ * claim slots by a compare-and-set on a tail or head counter, and never acquire a monitor.
+ * The head and tail counters are padded onto their own cache lines so that producers and
+ * consumers do not invalidate each other's lines.
+ * <p>
+ * The arrays themselves never grow. When {@link #expand(int)} is invoked, it instead
+ * allows that many additional items to be held in an unbounded overflow list. While the
+ * overflow list is non-empty, producers append to it rather than to the array, which
+ * keeps the buffer (approximately) FIFO.
+ * <p>
+ * Consumers that find the buffer empty spin briefly and then park. Producers unpark
+ * one parked consumer per item added.
+ *
+ * @param <T> type of queue element
+ */
+public class RingBuffer<T> extends AbstractQueue<T> implements ExpandableQueue<T> {
+    private static final TraceComponent tc = Tr.register(RingBuffer.class);
+
+    /**
+     * Number of times a consumer polls an empty buffer before it parks.
+     */
+    private static final int SPINS_TAKE = Runtime.getRuntime().availableProcessors() > 1 //
+                    ? Integer.getInteger("com.ibm.ws.threading.RingBuffer.spins_take", 128).intValue() //
+                    : 0;
+
+    /**
+     * Upper bound on the time a consumer will stay parked before polling again.
+     * Producers always unpark a consumer, so this is only a safety net.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("com.ibm.ws.threading.RingBuffer.wait", 1000).longValue());
+
+    /**
+     * Upper bound on the back-off between attempts of a blocking put to a full buffer.
+     */
+    private static final long MAX_PUT_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Marker that replaces an item which was removed out of order, so that
+     * consumers can skip the slot.
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * Slots for non-expedited items.
+     */
+    private final Ring ring;
+
+    /**
+     * Slots for expedited items.
+     */
+    private final Ring expeditedRing;
+
+    /**
+     * Consumers that are parked, or about to park, waiting for an item.
+     */
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<Waiter>();
+
+    /**
+     * Create a RingBuffer with the given capacities. Capacities are rounded up
+     * to the next power of 2.
+     *
+     * @exception IllegalArgumentException if the requested capacity
+     *                is less or equal to zero.
+     */
+    public RingBuffer(int capacity, int expeditedCapacity) throws IllegalArgumentException {
+        if (capacity <= 0 || expeditedCapacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        ring = new Ring(capacity);
+        expeditedRing = new Ring(expeditedCapacity);
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Created ring buffer: capacity=" + ring.length() + " expedited capacity=" + expeditedRing.length());
+        }
+    }
+
+    @Trivial
+    private static boolean isExpedited(Object item) {
+        return item instanceof QueueItem && ((QueueItem) item).isExpedited();
+    }
+
+    /**
+     * Returns the overall capacity of the buffer, including any capacity
+     * that was added by expansion.
+     */
+    public int capacity() {
+        return ring.capacity() + expeditedRing.capacity();
+    }
+
+    @Override
+    public int size() {
+        return ring.size() + expeditedRing.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return expeditedRing.isEmpty() && ring.isEmpty();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity() - size());
+    }
+
+    @Override
+    public void expand(int additionalCapacity) {
+        if (additionalCapacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        ring.expand(additionalCapacity);
+    }
+
+    @Override
+    public void expandExpedited(int additionalCapacity) {
+        if (additionalCapacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        expeditedRing.expand(additionalCapacity);
+    }
+
+    @Override
+    public boolean offer(T t) {
+        if (t == null) {
+            throw new NullPointerException();
+        }
+
+        if ((isExpedited(t) ? expeditedRing : ring).offer(t)) {
+            if (!waiters.isEmpty()) {
+                signalTaker();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean offer(T t, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + nanos;
+        for (long backoff = 1000; !offer(t); backoff = Math.min(backoff << 1, MAX_PUT_BACKOFF_NANOS)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            nanos = deadline - System.nanoTime();
+            if (nanos <= 0L) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(backoff, nanos));
+        }
+        return true;
+    }
+
+    /**
+     * Puts an object into the buffer. If the buffer is full,
+     * the call will block indefinitely until space is freed up.
+     */
+    @Override
+    public void put(T t) throws InterruptedException {
+        for (long backoff = 1000; !offer(t); backoff = Math.min(backoff << 1, MAX_PUT_BACKOFF_NANOS)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(this, backoff);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        Object item = expeditedRing.poll();
+        if (item == null) {
+            item = ring.poll();
+        }
+        return (T) item;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitItem(true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return awaitItem(false, 0L);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        Object item = expeditedRing.peek();
+        if (item == null) {
+            item = ring.peek();
+        }
+        return (T) item;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        return expeditedRing.remove(o) || ring.remove(o);
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        T item;
+        while (count < maxElements && (item = poll()) != null) {
+            c.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over a snapshot of the buffer,
+     * expedited items first. Removal through the iterator removes the item
+     * from the buffer if it is still present.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<Object> snapshot = new ArrayList<Object>();
+        expeditedRing.addTo(snapshot);
+        ring.addTo(snapshot);
+        final Iterator<Object> it = snapshot.iterator();
+        return new Iterator<T>() {
+            private Object last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                return (T) (last = it.next());
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                RingBuffer.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Spin briefly on the buffer, and park if it stays empty.
+     *
+     * @param timed true if the wait is bounded by nanos
+     * @param nanos maximum time to wait, if timed
+     * @return the item, or null if timed out
+     */
+    private T awaitItem(boolean timed, long nanos) throws InterruptedException {
+        T item = null;
+        for (int spins = SPINS_TAKE; item == null && spins >= 0; spins--) {
+            item = poll();
+            if (item == null && (spins & 0x1f) == 0x1f) {
+                Thread.yield();
+            }
+        }
+        if (item != null) {
+            return item;
+        }
+
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Waiter waiter = null;
+        try {
+            for (;;) {
+                // Register before the final poll so that a producer that adds an item
+                // after this poll is guaranteed to see us in the waiter queue.
+                if (waiter == null) {
+                    waiter = new Waiter();
+                    waiters.add(waiter);
+                }
+                item = poll();
+                if (item != null) {
+                    return item;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long parkNanos = MAX_PARK_NANOS;
+                if (timed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return null;
+                    }
+                    parkNanos = Math.min(parkNanos, remaining);
+                }
+                LockSupport.parkNanos(this, parkNanos);
+                if (waiter.get()) {
+                    waiter = null; // signalled, register again if the item was taken by someone else
+                }
+            }
+        } finally {
+            if (waiter != null) {
+                if (waiter.compareAndSet(false, true)) {
+                    // Cancelled rather than signalled. A waiter left behind after taking an item
+                    // is skipped by the next producer, but on timeout or interrupt there may not
+                    // be a next producer for a long while, so unlink it.
+                    if (item == null) {
+                        waiters.remove(waiter);
+                    }
+                } else if (!isEmpty()) {
+                    // A producer signalled us for an item that we no longer need, pass it on
+                    signalTaker();
+                }
+            }
+        }
+    }
+
+    /**
+     * Unpark one consumer that is waiting for an item.
+     */
+    private void signalTaker() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.compareAndSet(false, true)) {
+                LockSupport.unpark(waiter.thread);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A parked consumer. The flag is set by whichever of a producer (to signal)
+     * or the consumer itself (to cancel) claims the waiter first.
+     */
+    @Trivial
+    private static final class Waiter extends AtomicBoolean {
+        private static final long serialVersionUID = 1L;
+
+        final Thread thread = Thread.currentThread();
+    }
+
+    /**
+     * Padding that keeps the value of a {@link Counter} off the cache line of the
+     * preceding object.
+     */
+    static class CounterLhsPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    /**
+     * The counter value.
+     */
+    static class CounterValue extends CounterLhsPadding {
+        static final AtomicLongFieldUpdater<CounterValue> VALUE = AtomicLongFieldUpdater.newUpdater(CounterValue.class, "value");
+
+        volatile long value;
+    }
+
+    /**
+     * A sequence counter that occupies a cache line of its own.
+     */
+    static final class Counter extends CounterValue {
+        long p11, p12, p13, p14, p15, p16, p17;
+
+        @Trivial
+        long get() {
+            return value;
+        }
+
+        @Trivial
+        boolean compareAndSet(long expect, long update) {
+            return VALUE.compareAndSet(this, expect, update);
+        }
+    }
+
+    /**
+     * Bounded multi-producer/multi-consumer array of slots, after Dmitry Vyukov's
+     * bounded MPMC queue. Every slot carries a sequence number: a slot at position
+     * <code>pos</code> can be filled when its sequence is <code>pos</code> and can be
+     * consumed when its sequence is <code>pos + 1</code>.
+     */
+    static final class Ring {
+        private final int mask;
+        private final AtomicLongArray sequences;
+        private final AtomicReferenceArray<Object> slots;
+        private final Counter head = new Counter();
+        private final Counter tail = new Counter();
+
+        /**
+         * Count of slots holding the REMOVED marker.
+         */
+        private final AtomicInteger removed = new AtomicInteger();
+
+        /**
+         * Items that did not fit in the slots, after expansion.
+         */
+        private final ConcurrentLinkedQueue<Object> overflow = new ConcurrentLinkedQueue<Object>();
+        private final AtomicInteger overflowCount = new AtomicInteger();
+        private volatile int overflowCapacity;
+
+        Ring(int capacity) {
+            int length = Integer.highestOneBit(capacity);
+            if (length < capacity) {
+                length <<= 1;
+            }
+            mask = length - 1;
+            sequences = new AtomicLongArray(length);
+            slots = new AtomicReferenceArray<Object>(length);
+            for (int i = 0; i < length; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        @Trivial
+        int length() {
+            return mask + 1;
+        }
+
+        @Trivial
+        int capacity() {
+            return mask + 1 + overflowCapacity;
+        }
+
+        synchronized void expand(int additionalCapacity) {
+            overflowCapacity += additionalCapacity;
+        }
+
+        int size() {
+            long h = head.get();
+            long t = tail.get();
+            long inSlots = Math.max(0L, t - h - removed.get());
+            return (int) Math.min(inSlots, mask + 1) + overflowCount.get();
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+
+        boolean offer(Object item) {
+            if (overflowCount.get() == 0) {
+                long pos = tail.get();
+                for (;;) {
+                    int index = (int) pos & mask;
+                    long dif = sequences.get(index) - pos;
+                    if (dif == 0L) {
+                        if (tail.compareAndSet(pos, pos + 1)) {
+                            slots.lazySet(index, item);
+                            sequences.set(index, pos + 1); // publish
+                            return true;
+                        }
+                        pos = tail.get();
+                    } else if (dif < 0L) {
+                        break; // full
+                    } else {
+                        pos = tail.get();
+                    }
+                }
+            }
+
+            // Slots are full, or overflow is in use and must be drained first for FIFO.
+            // In the latter case, slots that consumers have freed up count toward the
+            // capacity of the overflow list.
+            for (;;) {
+                int count = overflowCount.get();
+                long freeSlots = mask + 1 - (tail.get() - head.get());
+                if (count >= overflowCapacity + (freeSlots > 0L ? freeSlots : 0L)) {
+                    return false;
+                }
+                if (overflowCount.compareAndSet(count, count + 1)) {
+                    overflow.offer(item);
+                    return true;
+                }
+            }
+        }
+
+        Object poll() {
+            long pos = head.get();
+            for (;;) {
+                int index = (int) pos & mask;
+                long dif = sequences.get(index) - (pos + 1);
+                if (dif == 0L) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        Object item = slots.getAndSet(index, null);
+                        sequences.lazySet(index, pos + mask + 1); // release the slot to producers
+                        if (item != REMOVED) {
+                            return item;
+                        }
+                        removed.decrementAndGet();
+                    }
+                    pos = head.get();
+                } else if (dif < 0L) {
+                    break; // empty
+                } else {
+                    pos = head.get();
+                }
+            }
+
+            if (overflowCount.get() > 0) {
+                Object item = overflow.poll();
+                if (item != null) {
+                    overflowCount.decrementAndGet();
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        Object peek() {
+            long t = tail.get();
+            for (long pos = head.get(); pos < t; pos++) {
+                Object item = slots.get((int) pos & mask);
+                if (item != null && item != REMOVED) {
+                    return item;
+                }
+            }
+            return overflow.peek();
+        }
+
+        /**
+         * Removes one instance of the item. A slot is removed by swapping the item
+         * for a marker, which consumers will skip.
+         */
+        boolean remove(Object o) {
+            for (int i = 0; i <= mask; i++) {
+                Object item = slots.get(i);
+                if (item != null && item != REMOVED && (item == o || o.equals(item)) && slots.compareAndSet(i, item, REMOVED)) {
+                    removed.incrementAndGet();
+                    return true;
+                }
+            }
+            if (overflow.remove(o)) {
+                overflowCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        void addTo(List<Object> list) {
+            long t = tail.get();
+            for (long pos = head.get(); pos < t; pos++) {
+                Object item = slots.get((int) pos & mask);
+                if (item != null && item != REMOVED) {
+                    list.add(item);
+                }
+            }
+            list.addAll(overflow);
+        }
+    }
+}
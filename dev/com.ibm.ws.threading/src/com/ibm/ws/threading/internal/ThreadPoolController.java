@@ -19,6 +19,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
 import com.ibm.websphere.ras.annotation.Trivial;
+import com.ibm.wsspi.threading.ThreadPoolControllerPolicy;
 
 // @formatter:off
 /**
@@ -172,6 +173,16 @@ public final class ThreadPoolController {
      */
     final static int MAX_THREADS_TO_BREAK_HANG = 1000;
 
+    /**
+     * The number of intervals that are kept for monitoring.
+     */
+    final static int INTERVAL_HISTORY = 32;
+
+    /**
+     * Name of the built-in policy that maximizes throughput.
+     */
+    final static String THROUGHPUT_POLICY = "THROUGHPUT";
+
     /**
      * Reference to the configured ExecutorService implementation that
      * delegates to the {@link ThreadPoolExecutorImpl} that is controlled
@@ -278,6 +289,41 @@ public final class ThreadPoolController {
      */
     ThreadPoolExecutor threadPool;
 
+    /**
+     * Indicates whether the thread pool runs each task on a virtual thread.
+     * In that case the size of the pool is a limit on the number of tasks that
+     * can run concurrently rather than a number of platform threads, so the
+     * controller does not attempt to tune it for throughput.
+     */
+    boolean virtualThreads = false;
+
+    /**
+     * When running tasks on virtual threads, the limit on the number of tasks that
+     * can run concurrently. This can only be raised in an attempt to break a hang.
+     */
+    int concurrencyLimit = Integer.MAX_VALUE;
+
+    /**
+     * The policy that decides how to resize the pool, or null to use the
+     * built-in policy that maximizes throughput.
+     */
+    ThreadPoolControllerPolicy policy;
+
+    /**
+     * Queue wait times of tasks, if measured for the policy.
+     */
+    QueueWaitHistogram queueWait;
+
+    /**
+     * The most recent intervals, in the order they completed.
+     */
+    private final ControllerInterval[] recentIntervals = new ControllerInterval[INTERVAL_HISTORY];
+
+    /**
+     * The number of intervals that have completed since the controller was activated.
+     */
+    private int intervalCount;
+
     /**
      * Array of historical data representing observed throughput. The index
      * into the array is the number of active threads when the data was
@@ -374,6 +420,9 @@ public final class ThreadPoolController {
         this.threadPool = pool;
         this.coreThreads = pool.getCorePoolSize();
         this.maxThreads = pool.getMaximumPoolSize();
+        this.concurrencyLimit = pool.getMaximumPoolSize();
+        this.intervalCount = 0;
+        Arrays.fill(recentIntervals, null);
         resetStatistics(true);
         activeTask = new IntervalTask(this);
         timer.schedule(activeTask, INTERVAL, INTERVAL);
@@ -391,6 +440,8 @@ public final class ThreadPoolController {
         this.threadPool = null;
         this.coreThreads = getDefaultCoreThreadSize();
         this.maxThreads = Integer.MAX_VALUE;
+        this.virtualThreads = false;
+        this.concurrencyLimit = Integer.MAX_VALUE;
     }
 
     /**
@@ -445,6 +496,45 @@ public final class ThreadPoolController {
         this.maxThreads = maxThreads;
     }
 
+    /**
+     * Indicate whether the thread pool runs each task on a virtual thread,
+     * in which case the controller tracks a concurrency limit rather than
+     * the pool size. This must be set before the controller is activated.
+     *
+     * @param virtualThreads true if tasks run on virtual threads
+     */
+    synchronized void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Set the policy that decides how to resize the pool.
+     *
+     * @param policy the policy, or null for the built-in policy that maximizes throughput
+     * @param queueWait histogram of the queue wait time of tasks, or null if not measured
+     */
+    synchronized void setPolicy(ThreadPoolControllerPolicy policy, QueueWaitHistogram queueWait) {
+        this.policy = policy;
+        this.queueWait = queueWait;
+    }
+
+    @Trivial
+    synchronized String getPolicyName() {
+        return policy == null ? THROUGHPUT_POLICY : policy.toString();
+    }
+
+    /**
+     * Returns the most recent intervals, oldest first.
+     */
+    synchronized ControllerInterval[] getRecentIntervals() {
+        int count = Math.min(intervalCount, INTERVAL_HISTORY);
+        ControllerInterval[] intervals = new ControllerInterval[count];
+        for (int i = 0; i < count; i++) {
+            intervals[i] = recentIntervals[(intervalCount - count + i) % INTERVAL_HISTORY];
+        }
+        return intervals;
+    }
+
     /**
      * Get the throughput distribution data associated with the specified
      * number of active threads.
@@ -689,6 +779,10 @@ public final class ThreadPoolController {
         if (threadPool == null)
             return "threadPool == null";
 
+        if (virtualThreads) {
+            return evaluateConcurrencyLimit();
+        }
+
         int poolSize = threadPool.getPoolSize();
 
         // we can't even think about adjusting the pool size until the underlying executor has aggressively
@@ -718,8 +812,8 @@ public final class ThreadPoolController {
 
         ThroughputDistribution currentStats = getThroughputDistribution(poolSize);
 
-        // Reset statistics based on abnormal data points
-        if (handleOutliers(currentStats, throughput)) {
+        // Reset statistics based on abnormal data points, which only the throughput policy relies upon
+        if (policy == null && handleOutliers(currentStats, throughput)) {
             return "aberrant workload";
         }
 
@@ -727,6 +821,43 @@ public final class ThreadPoolController {
             return "action take to resolve hang";
         }
 
+        ControllerInterval interval = new ControllerInterval(currentTime, getPolicyName(), poolSize, coreThreads, maxThreads,
+                                                             throughput, threadPool.getQueue().size(),
+                                                             queueWait == null ? -1 : queueWait.intervalPercentile(99.0));
+
+        int poolAdjustment;
+        if (policy == null) {
+            poolAdjustment = evaluateThroughput(interval, currentStats, poolSize, queueEmpty, throughput, deltaCompleted);
+        } else {
+            poolAdjustment = policy.evaluate(interval);
+            // stay within the configured bounds
+            poolAdjustment = Math.max(poolAdjustment, Math.min(0, coreThreads - poolSize));
+            poolAdjustment = Math.min(poolAdjustment, Math.max(0, maxThreads - poolSize));
+
+            if (tc.isEventEnabled()) {
+                Tr.event(tc, "Interval data", interval);
+            }
+        }
+        interval.setPoolAdjustment(poolAdjustment);
+        recentIntervals[intervalCount++ % INTERVAL_HISTORY] = interval;
+
+        // Change the pool size
+        adjustPoolSize(poolSize, poolAdjustment);
+
+        lastTimerPop = currentTime;
+        previousCompleted = completedWork;
+        previousThroughput = throughput;
+        return "";
+    }
+
+    /**
+     * The built-in policy, which hill-climbs on the throughput distributions that have been
+     * observed at different pool sizes in an attempt to maximize throughput.
+     *
+     * @return the change to make to the pool size
+     */
+    private int evaluateThroughput(ControllerInterval interval, ThroughputDistribution currentStats, int poolSize, boolean queueEmpty, double throughput,
+                                   long deltaCompleted) {
         // Only add information if we have a backlog of work because
         // we don't want intervals where nothing happens to skew this.
         //
@@ -762,13 +893,38 @@ public final class ThreadPoolController {
             Tr.event(tc, "Interval data", toIntervalData(throughput, forecast, shrinkScore, growScore, queueEmpty, poolSize, poolAdjustment));
         }
 
-        // Change the pool size
-        adjustPoolSize(poolSize, poolAdjustment);
+        interval.setForecast(forecast);
+        interval.setReason(String.format("shrinkScore = %.6f growScore = %.6f", Double.valueOf(shrinkScore), Double.valueOf(growScore)));
+        return poolAdjustment;
+    }
+
+    /**
+     * Evaluate the current interval for a thread pool that runs each task on a virtual
+     * thread. Virtual threads are cheap to create and block, so there's nothing to gain by
+     * trading throughput against the number of threads. The controller only pauses when
+     * idle and watches for a hang at the concurrency limit.
+     */
+    private String evaluateConcurrencyLimit() {
+        long currentTime = System.currentTimeMillis();
+        long completedWork = threadPool.getCompletedTaskCount();
+        long deltaCompleted = completedWork - previousCompleted;
+
+        if (manageIdlePool(threadPool, deltaCompleted)) {
+            return "monitoring paused";
+        }
+
+        if (tc.isEventEnabled()) {
+            long deltaTime = Math.max(currentTime - lastTimerPop, INTERVAL);
+            Tr.event(tc, "Interval data", "\nThroughput: current = " + String.format("%.6f", Double.valueOf(1000.0 * deltaCompleted / deltaTime)) +
+                                          "\nConcurrency: limit = " + concurrencyLimit + " active = " + threadPool.getActiveCount() +
+                                          " queueEmpty = " + threadPool.getQueue().isEmpty());
+        }
+
+        boolean actionTaken = resolveHang();
 
         lastTimerPop = currentTime;
         previousCompleted = completedWork;
-        previousThroughput = throughput;
-        return "";
+        return actionTaken ? "action take to resolve hang" : "";
     }
 
     /**
@@ -827,7 +983,8 @@ public final class ThreadPoolController {
     private boolean resolveHang() {
         boolean actionTaken = false;
         if (threadPool.getCompletedTaskCount() == previousCompleted && !threadPool.getQueue().isEmpty()) {
-            int poolSize = threadPool.getPoolSize();
+            // with virtual threads, every task up to the concurrency limit is already running
+            int poolSize = virtualThreads ? concurrencyLimit : threadPool.getPoolSize();
 
             // if this is the first time we detected a given deadlock, record how many threads there are
             // and print a message
@@ -863,6 +1020,10 @@ public final class ThreadPoolController {
     }
 
     private void setPoolSize(int newPoolSize) {
+        if (virtualThreads) {
+            concurrencyLimit = newPoolSize;
+        }
+
         // As of Java 9, the corePoolSize must be <= maxPoolSize at all times.
         // Need to observe current core pool size to avoid violating this rule.
         if (newPoolSize < threadPool.getCorePoolSize()) {
@@ -879,6 +1040,9 @@ public final class ThreadPoolController {
         out.println(this.getClass().getName());
         out.println(INDENT + "coreThreads = " + coreThreads);
         out.println(INDENT + "maxThreads = " + maxThreads);
+        out.println(INDENT + "virtualThreads = " + virtualThreads);
+        if (virtualThreads)
+            out.println(INDENT + "concurrencyLimit = " + concurrencyLimit);
         out.println(INDENT + "paused = " + paused);
         out.println(INDENT + "hangIntervalCounter = " + hangIntervalCounter);
         out.println(INDENT + "poolSizeWhenHangDetected = " + poolSizeWhenHangDetected);
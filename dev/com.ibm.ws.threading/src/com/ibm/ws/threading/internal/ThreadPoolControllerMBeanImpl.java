@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Reference;
+
+import com.ibm.wsspi.threading.WSExecutorService;
+
+/**
+ * Exposes the per-interval decisions of the default executor's thread pool controller.
+ */
+@Component(service = ThreadPoolControllerMXBean.class,
+           immediate = true,
+           configurationPolicy = ConfigurationPolicy.IGNORE,
+           property = { "jmx.objectname=" + ThreadPoolControllerMXBean.OBJECT_NAME,
+                        Constants.SERVICE_VENDOR + "=" + "IBM" })
+public class ThreadPoolControllerMBeanImpl implements ThreadPoolControllerMXBean {
+
+    private volatile ExecutorServiceImpl impl;
+
+    @Reference
+    protected void setWSExecutorService(WSExecutorService wses) {
+        if (wses instanceof ExecutorServiceImpl) {
+            impl = (ExecutorServiceImpl) wses;
+        }
+    }
+
+    protected void unsetWSExecutorService(WSExecutorService wses) {
+        impl = null;
+    }
+
+    @Override
+    public String getPolicy() {
+        ExecutorServiceImpl executor = impl;
+        return executor == null ? null : executor.threadPoolController.getPolicyName();
+    }
+
+    @Override
+    public int getPoolSize() {
+        ExecutorServiceImpl executor = impl;
+        return executor == null ? -1 : executor.getPoolSize();
+    }
+
+    @Override
+    public ControllerInterval getLastInterval() {
+        ExecutorServiceImpl executor = impl;
+        ControllerInterval[] intervals = executor == null ? null : executor.threadPoolController.getRecentIntervals();
+        return intervals == null || intervals.length == 0 ? null : intervals[intervals.length - 1];
+    }
+
+    @Override
+    public ControllerInterval[] getRecentIntervals() {
+        ExecutorServiceImpl executor = impl;
+        return executor == null ? new ControllerInterval[0] : executor.threadPoolController.getRecentIntervals();
+    }
+}
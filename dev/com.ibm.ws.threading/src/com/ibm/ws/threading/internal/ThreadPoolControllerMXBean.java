@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+/**
+ * Management interface for the MBean "WebSphere:type=ThreadPoolController,name=Default Executor",
+ * which reports the decisions that the thread pool controller of the default executor made
+ * at the end of each of its recent intervals.
+ */
+public interface ThreadPoolControllerMXBean {
+    String OBJECT_NAME = "WebSphere:type=ThreadPoolController,name=Default Executor";
+
+    /**
+     * @return name of the policy that the controller is using.
+     */
+    String getPolicy();
+
+    /**
+     * @return the number of threads in the pool.
+     */
+    int getPoolSize();
+
+    /**
+     * @return the most recent interval, or null if the controller has not completed an interval.
+     */
+    ControllerInterval getLastInterval();
+
+    /**
+     * @return the most recent intervals, oldest first.
+     */
+    ControllerInterval[] getRecentIntervals();
+}
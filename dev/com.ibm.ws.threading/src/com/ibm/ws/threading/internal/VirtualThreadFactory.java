@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ThreadFactory;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.ws.ffdc.annotation.FFDCIgnore;
+
+/**
+ * Thread factory that creates JDK virtual threads for the default executor.
+ * Virtual threads are only available on Java 21 and above, so the JDK API
+ * is reached through reflection. Use {@link #create} to obtain an instance,
+ * which returns null when the JDK does not support virtual threads.
+ */
+final class VirtualThreadFactory implements ThreadFactory {
+
+    private final static TraceComponent tc = Tr.register(VirtualThreadFactory.class);
+
+    /**
+     * The JDK thread factory that creates unstarted virtual threads.
+     */
+    private final ThreadFactory virtualThreadFactory;
+
+    /**
+     * The context class loader to associate with newly created threads.
+     */
+    private final ClassLoader contextClassLoader;
+
+    private VirtualThreadFactory(ThreadFactory virtualThreadFactory) {
+        this.virtualThreadFactory = virtualThreadFactory;
+        this.contextClassLoader = AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
+            @Override
+            public ClassLoader run() {
+                return Thread.currentThread().getContextClassLoader();
+            }
+        });
+    }
+
+    /**
+     * Create a thread factory for virtual threads that are named after the executor.
+     *
+     * @param executorName the name of the owning executor
+     * @return the thread factory, or null if the JDK does not support virtual threads.
+     */
+    @FFDCIgnore(Exception.class)
+    static VirtualThreadFactory create(String executorName) {
+        try {
+            // Thread.ofVirtual().name(executorName + "-virtual-thread-", 1).factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, executorName + "-virtual-thread-", 1L);
+            Method factory = builderClass.getMethod("factory");
+            return new VirtualThreadFactory((ThreadFactory) factory.invoke(builder));
+        } catch (Exception x) {
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled())
+                Tr.debug(tc, "virtual threads are not available", x);
+            return null;
+        }
+    }
+
+    /**
+     * Create a new virtual thread. Virtual threads are always daemon threads
+     * with normal priority, so only the context class loader needs to be reset.
+     *
+     * @param runnable the task to run
+     */
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        // The AccessControlContext is implicitly copied from the creating
+        // thread, so use doPrivileged to prevent that.
+        return AccessController.doPrivileged(new PrivilegedAction<Thread>() {
+            @Override
+            public Thread run() {
+                Thread thread = virtualThreadFactory.newThread(runnable);
+                thread.setContextClassLoader(contextClassLoader);
+                return thread;
+            }
+        });
+    }
+}
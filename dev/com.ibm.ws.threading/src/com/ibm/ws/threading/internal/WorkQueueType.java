@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+/**
+ * The queue implementation that feeds tasks to the threads of the
+ * default executor.
+ */
+public enum WorkQueueType {
+
+    /**
+     * Monitor-based circular buffer, see {@link BoundedBuffer}.
+     */
+    BOUNDED_BUFFER,
+
+    /**
+     * Lock-free multi-producer/multi-consumer ring, see {@link RingBuffer}.
+     */
+    RING_BUFFER
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wsspi.threading;
+
+/**
+ * Decides how the thread pool of the Liberty default executor is resized.
+ * 
+ * At regular intervals, the controller of the default executor's thread pool gathers statistics about
+ * the pool and offers them to the evaluate method of the policy. The pool size is then changed by the
+ * amount that the policy returns, within the bounds of the coreThreads and maxThreads configuration.
+ * Before consulting the policy, the controller will already have taken action if the pool appears to
+ * be hung, in which case the policy is not consulted for that interval.
+ * 
+ * The controller uses a built-in policy, selected by the controlPolicy attribute of the executor
+ * configuration, unless an implementation of ThreadPoolControllerPolicy is in the service registry.
+ * If there are several, the one with the highest service ranking is used.
+ * 
+ * Note that use of this interface should generally be avoided. A policy that resizes the pool poorly
+ * affects every task executed by the application server.
+ */
+public interface ThreadPoolControllerPolicy {
+    /**
+     * Decide how to resize the thread pool at the end of an interval.
+     * 
+     * @param interval statistics for the interval that just ended.
+     * @return the number of threads to add to the pool if positive, the number of threads to remove from
+     *         the pool if negative, or 0 to leave the pool size unchanged.
+     */
+    public int evaluate(Interval interval);
+
+    /**
+     * Statistics that the controller gathered over an interval, along with the outcome of the interval
+     * that the policy can record for monitoring.
+     */
+    public interface Interval {
+        /**
+         * @return the number of threads in the pool.
+         */
+        public int getPoolSize();
+
+        /**
+         * @return the number of threads below which the pool will not be shrunk.
+         */
+        public int getCoreThreads();
+
+        /**
+         * @return the number of threads above which the pool will not be grown.
+         */
+        public int getMaxThreads();
+
+        /**
+         * @return the number of tasks completed per second over the interval.
+         */
+        public double getThroughput();
+
+        /**
+         * @return the number of tasks waiting in the queue at the end of the interval.
+         */
+        public int getQueueDepth();
+
+        /**
+         * Returns the 99th percentile of the time that tasks which started running during the interval
+         * spent waiting in the queue. Queue wait time is measured unless the controller is using
+         * the built-in throughput policy.
+         * 
+         * @return wait time in nanoseconds, or -1 if not measured or no tasks started during the interval.
+         */
+        public long getQueueWaitP99();
+
+        /**
+         * Record the throughput that the policy expects from the pool at its current size.
+         * 
+         * @param forecast tasks per second.
+         */
+        public void setForecast(double forecast);
+
+        /**
+         * Record a brief, human readable explanation of the decision made by the policy.
+         * 
+         * @param reason the reason for the decision.
+         */
+        public void setReason(String reason);
+    }
+}
@@ -94,6 +94,110 @@ public class ExecutorServiceImplTest {
         }
     }
 
+    /**
+     * With virtualThreads enabled, tasks that block on other tasks run concurrently up to maxThreads
+     * without relying on the hang detection of the thread pool controller. On a JDK without virtual
+     * threads, the executor falls back to platform threads.
+     */
+    @Test(timeout = 60000)
+    public void testVirtualThreads() throws Exception {
+        ExecutorServiceImpl executorService = new ExecutorServiceImpl();
+        Map<String, Object> componentConfig = new HashMap<String, Object>(8);
+        componentConfig.put("name", "testExecutor");
+        componentConfig.put("rejectedWorkPolicy", "CALLER_RUNS");
+        componentConfig.put("stealPolicy", "STRICT");
+        componentConfig.put("keepAlive", 10);
+        componentConfig.put("coreThreads", 2);
+        componentConfig.put("maxThreads", 100);
+        componentConfig.put("virtualThreads", true);
+        executorService.activate(componentConfig);
+
+        boolean virtualThreadsSupported = VirtualThreadFactory.create("testExecutor") != null;
+        ThreadPoolExecutor executor = executorService.getThreadPool();
+        Assert.assertEquals(virtualThreadsSupported ? 100 : 2, executor.getCorePoolSize());
+        Assert.assertEquals(100, executor.getMaximumPoolSize());
+        Assert.assertEquals(virtualThreadsSupported, executorService.threadPoolController.virtualThreads);
+        if (virtualThreadsSupported) {
+            // tasks are not handed off with synchronized/wait, which would pin the carrier thread
+            Assert.assertTrue(executor.getQueue() instanceof RingBuffer);
+        }
+
+        ArrayList<Future<Boolean>> alf = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < 20; i++) {
+            alf.add(executorService.submit(new ReturnsBooleanCallable(executorService)));
+        }
+        for (Future<Boolean> f : alf) {
+            Assert.assertTrue(f.get());
+        }
+
+        executorService.deactivate(0);
+    }
+
+    /**
+     * With virtualThreads enabled and maxThreads not configured, the pool is still bounded.
+     */
+    @Test
+    public void testVirtualThreadsDefaultMax() throws Exception {
+        ExecutorServiceImpl executorService = new ExecutorServiceImpl();
+        Map<String, Object> componentConfig = new HashMap<String, Object>(8);
+        componentConfig.put("name", "testExecutor");
+        componentConfig.put("rejectedWorkPolicy", "CALLER_RUNS");
+        componentConfig.put("stealPolicy", "STRICT");
+        componentConfig.put("keepAlive", 10);
+        componentConfig.put("coreThreads", -1);
+        componentConfig.put("maxThreads", -1);
+        componentConfig.put("virtualThreads", true);
+        executorService.activate(componentConfig);
+
+        ThreadPoolExecutor executor = executorService.getThreadPool();
+        if (VirtualThreadFactory.create("testExecutor") != null) {
+            int max = ExecutorServiceImpl.DEFAULT_MAX_VIRTUAL_THREADS_PER_CPU * Runtime.getRuntime().availableProcessors();
+            Assert.assertEquals(max, executor.getMaximumPoolSize());
+            Assert.assertEquals(max, executor.getCorePoolSize());
+        } else {
+            Assert.assertEquals(Integer.MAX_VALUE, executor.getMaximumPoolSize());
+        }
+
+        executorService.deactivate(0);
+    }
+
+    /**
+     * With the latency target control policy, the queue wait of tasks is measured and each interval
+     * of the controller is recorded along with the decision made by the policy.
+     */
+    @Test
+    public void testLatencyTargetPolicy() throws Exception {
+        ExecutorServiceImpl executorService = new ExecutorServiceImpl();
+        Map<String, Object> componentConfig = new HashMap<String, Object>(8);
+        componentConfig.put("name", "testExecutor");
+        componentConfig.put("keepAlive", 10);
+        componentConfig.put("coreThreads", 1);
+        componentConfig.put("maxThreads", 10);
+        componentConfig.put("controlPolicy", "LATENCY_TARGET");
+        componentConfig.put("queueWaitTarget", 50L);
+        componentConfig.put("workQueue", "RING_BUFFER");
+        executorService.activate(componentConfig);
+
+        ThreadPoolController tpc = executorService.threadPoolController;
+        tpc.timer.cancel(); // evaluate intervals manually
+        Assert.assertNotNull(executorService.queueWait);
+        Assert.assertEquals("LATENCY_TARGET(50.000ms)", tpc.getPolicyName());
+
+        for (int i = 0; i < 10; i++) {
+            executorService.submit(new ReturnsTrueCallable()).get();
+        }
+        Thread.sleep(10);
+        Assert.assertEquals("", tpc.evaluateInterval());
+
+        ControllerInterval[] intervals = tpc.getRecentIntervals();
+        Assert.assertEquals(1, intervals.length);
+        Assert.assertEquals("LATENCY_TARGET(50.000ms)", intervals[0].getPolicy());
+        Assert.assertTrue(intervals[0].getQueueWaitP99() > 0);
+        Assert.assertTrue(intervals[0].getReason(), intervals[0].getReason().contains("within target"));
+
+        executorService.deactivate(0);
+    }
+
     @Test
     public void testCreateExecutor() throws Exception {
         ExecutorServiceImpl executorService = new ExecutorServiceImpl();
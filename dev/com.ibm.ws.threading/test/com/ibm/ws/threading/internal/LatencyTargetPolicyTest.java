@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyTargetPolicyTest {
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static ControllerInterval interval(int poolSize, int queueDepth, long queueWaitMillis) {
+        return new ControllerInterval(System.currentTimeMillis(), "test", poolSize, 4, 100, 1000.0, queueDepth,
+                                      queueWaitMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(queueWaitMillis));
+    }
+
+    // Grow in proportion to how far the queue wait exceeds the target.
+    @Test
+    public void testGrowAboveTarget() {
+        LatencyTargetPolicy policy = new LatencyTargetPolicy(TARGET);
+        assertEquals(1, policy.evaluate(interval(10, 50, 150)));
+        assertEquals(5, policy.evaluate(interval(20, 50, 100)) + policy.evaluate(interval(20, 50, 300))); // 0 + 20/4
+    }
+
+    // Growth that does not reduce the queue wait is backed out and the pool size is held.
+    @Test
+    public void testBackoutGrowthThatDidNotHelp() {
+        LatencyTargetPolicy policy = new LatencyTargetPolicy(TARGET);
+        ControllerInterval i1 = interval(40, 200, 400);
+        assertEquals(10, policy.evaluate(i1));
+
+        ControllerInterval i2 = interval(50, 200, 390);
+        assertEquals(-10, policy.evaluate(i2));
+        assertTrue(i2.getReason(), i2.getReason().contains("did not improve"));
+
+        for (int i = 0; i < LatencyTargetPolicy.INTERVALS_TO_HOLD_AFTER_BACKOUT; i++)
+            assertEquals(0, policy.evaluate(interval(40, 200, 400)));
+        assertEquals(10, policy.evaluate(interval(40, 200, 400)));
+
+        // growth that did help is kept
+        assertEquals(6, policy.evaluate(interval(50, 100, 150)));
+    }
+
+    // Shrink one thread at a time after several intervals well below the target with an empty queue.
+    @Test
+    public void testShrinkBelowTarget() {
+        LatencyTargetPolicy policy = new LatencyTargetPolicy(TARGET);
+        for (int i = 1; i < LatencyTargetPolicy.INTERVALS_BELOW_TARGET_BEFORE_SHRINK; i++)
+            assertEquals(0, policy.evaluate(interval(10, 0, 10)));
+        assertEquals(-1, policy.evaluate(interval(10, 0, -1)));
+
+        // not below core threads
+        for (int i = 0; i < 2 * LatencyTargetPolicy.INTERVALS_BELOW_TARGET_BEFORE_SHRINK; i++)
+            assertEquals(0, policy.evaluate(interval(4, 0, -1)));
+
+        // queued work resets the count
+        assertEquals(0, policy.evaluate(interval(10, 1, 10)));
+        assertEquals(0, policy.evaluate(interval(10, 0, 10)));
+        assertEquals(0, policy.evaluate(interval(10, 0, 10)));
+        assertEquals(-1, policy.evaluate(interval(10, 0, 10)));
+    }
+
+    // Percentiles are computed per interval and are accurate to within a quarter of a power of 2.
+    @Test
+    public void testQueueWaitHistogram() throws Exception {
+        QueueWaitHistogram histogram = new QueueWaitHistogram();
+        assertEquals(-1, histogram.intervalPercentile(99.0));
+
+        for (int i = 0; i < 990; i++)
+            histogram.record(1000);
+        for (int i = 0; i < 10; i++)
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        long p99 = histogram.intervalPercentile(99.0);
+        assertTrue(Long.toString(p99), p99 >= 1000 && p99 <= 1250);
+
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+        p99 = histogram.intervalPercentile(99.0);
+        assertTrue(Long.toString(p99), p99 > TimeUnit.MILLISECONDS.toNanos(50) && p99 <= TimeUnit.MILLISECONDS.toNanos(63));
+
+        assertEquals(-1, histogram.intervalPercentile(99.0));
+
+        for (long nanos = 1; nanos > 0 && nanos < Long.MAX_VALUE / 2; nanos = nanos * 3 + 1)
+            assertTrue(nanos + " < " + QueueWaitHistogram.upperBoundOf(QueueWaitHistogram.bucketOf(nanos)),
+                       nanos < QueueWaitHistogram.upperBoundOf(QueueWaitHistogram.bucketOf(nanos)));
+
+        // wrapped tasks record their wait, and keep the expedite indicator
+        Runnable task = histogram.timed(new PolicyTask());
+        assertTrue(task instanceof QueueItem && ((QueueItem) task).isExpedited());
+        TimeUnit.MILLISECONDS.sleep(5);
+        task.run();
+        p99 = histogram.intervalPercentile(99.0);
+        assertTrue(Long.toString(p99), p99 >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    private static class PolicyTask implements Runnable, QueueItem {
+        @Override
+        public boolean isExpedited() {
+            return true;
+        }
+
+        @Override
+        public void run() {}
+    }
+}
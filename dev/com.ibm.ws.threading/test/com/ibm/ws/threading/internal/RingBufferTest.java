@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RingBufferTest {
+    private static ExecutorService testThreads;
+
+    private static class ExpeditedItem implements QueueItem {
+        private final int value;
+
+        ExpeditedItem(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean isExpedited() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "expedited " + value;
+        }
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        if (testThreads != null)
+            testThreads.shutdownNow();
+    }
+
+    @BeforeClass
+    public static void beforeClass() {
+        testThreads = Executors.newFixedThreadPool(8);
+    }
+
+    // Items are removed in the order they were added, expedited items first.
+    @Test
+    public void testExpeditedBeforeFIFO() throws Exception {
+        RingBuffer<Object> q = new RingBuffer<Object>(4, 4);
+        ExpeditedItem e1 = new ExpeditedItem(1);
+        ExpeditedItem e2 = new ExpeditedItem(2);
+
+        assertTrue(q.offer("a"));
+        assertTrue(q.offer(e1));
+        assertTrue(q.offer("b"));
+        assertTrue(q.offer(e2));
+        assertEquals(4, q.size());
+
+        assertEquals(e1, q.peek());
+        assertEquals(e1, q.poll());
+        assertEquals(e2, q.poll());
+        assertEquals("a", q.poll());
+        assertEquals("b", q.poll(1, TimeUnit.MILLISECONDS));
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    // Capacity is bounded until the buffer is expanded, after which items overflow in FIFO order.
+    @Test
+    public void testExpand() throws Exception {
+        RingBuffer<String> q = new RingBuffer<String>(2, 2);
+        assertEquals(4, q.capacity());
+
+        assertTrue(q.offer("a"));
+        assertTrue(q.offer("b"));
+        assertFalse(q.offer("c"));
+        assertFalse(q.offer("c", 10, TimeUnit.MILLISECONDS));
+        assertEquals(2, q.remainingCapacity()); // only expedited capacity remains
+
+        q.expand(2);
+        assertEquals(6, q.capacity());
+        assertTrue(q.offer("c"));
+        assertTrue(q.offer("d"));
+        assertFalse(q.offer("e"));
+
+        assertEquals("a", q.poll());
+        // the overflow must drain before the slots are used again
+        assertTrue(q.offer("e"));
+        assertEquals("b", q.poll());
+        assertEquals("c", q.poll());
+        assertEquals("d", q.poll());
+        assertEquals("e", q.poll());
+        assertNull(q.poll());
+    }
+
+    // Removed items are skipped by consumers and by the iterator.
+    @Test
+    public void testRemove() throws Exception {
+        RingBuffer<String> q = new RingBuffer<String>(8, 8);
+        q.add("a");
+        q.add("b");
+        q.add("c");
+
+        assertTrue(q.remove("b"));
+        assertFalse(q.remove("b"));
+        assertEquals(2, q.size());
+
+        Iterator<String> it = q.iterator();
+        assertEquals("a", it.next());
+        assertEquals("c", it.next());
+        assertFalse(it.hasNext());
+
+        List<String> drained = new ArrayList<String>();
+        assertEquals(2, q.drainTo(drained));
+        assertEquals("[a, c]", drained.toString());
+        assertTrue(q.isEmpty());
+    }
+
+    // A consumer that is parked in take is woken by a producer.
+    @Test
+    public void testTakeWaitsForOffer() throws Exception {
+        final RingBuffer<String> q = new RingBuffer<String>(2, 2);
+        Future<String> future = testThreads.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return q.take();
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertFalse(future.isDone());
+
+        assertTrue(q.offer("a"));
+        assertEquals("a", future.get(10, TimeUnit.SECONDS));
+    }
+
+    // Every item offered by concurrent producers is taken exactly once by concurrent consumers.
+    @Test
+    public void testMultipleProducersAndConsumers() throws Exception {
+        final int producers = 4, consumers = 4, itemsPerProducer = 20000;
+        final RingBuffer<Long> q = new RingBuffer<Long>(16, 16);
+        final AtomicLong sum = new AtomicLong();
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int p = 0; p < producers; p++)
+            futures.add(testThreads.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (long i = 1; i <= itemsPerProducer; i++)
+                        q.put(i);
+                    return null;
+                }
+            }));
+        for (int c = 0; c < consumers; c++)
+            futures.add(testThreads.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < itemsPerProducer; i++)
+                        sum.addAndGet(q.take());
+                    return null;
+                }
+            }));
+
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+
+        long n = itemsPerProducer;
+        assertEquals(producers * n * (n + 1) / 2, sum.get());
+        assertTrue(q.isEmpty());
+    }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.threading.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Ignore;
+
+/**
+ * Compares the hand-off throughput of the work queues that can back the default executor,
+ * with many producer threads (as with the TCP channel) feeding a pool-sized set of consumers.
+ * Run the main method; this is not part of the unit test bucket.
+ */
+@Ignore
+public class WorkQueueThroughputTest {
+
+    static final int[] PRODUCER_COUNTS = { 8, 32, 128 };
+
+    static final int CONSUMERS = 2 * Runtime.getRuntime().availableProcessors();
+
+    static final long ITEMS = 2000000;
+
+    static final Runnable doNothingRunnable = new Runnable() {
+        @Override
+        public void run() {}
+    };
+
+    static ExpandableQueue<Runnable> newQueue(WorkQueueType type) {
+        switch (type) {
+            case RING_BUFFER:
+                return new RingBuffer<Runnable>(1024, 1024);
+            default:
+                return new BoundedBuffer<Runnable>(Runnable.class, 1000, 1000);
+        }
+    }
+
+    /**
+     * Moves ITEMS through the queue and returns the elapsed time in nanoseconds.
+     */
+    static long handOff(final ExpandableQueue<Runnable> queue, final int producers) throws Exception {
+        final long itemsPerProducer = ITEMS / producers;
+        final long total = itemsPerProducer * producers;
+        final AtomicLong remaining = new AtomicLong(total);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers + CONSUMERS);
+
+        for (int p = 0; p < producers; p++) {
+            new Thread("producer-" + p) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (long i = 0; i < itemsPerProducer; i++)
+                            queue.put(doNothingRunnable);
+                    } catch (InterruptedException x) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        for (int c = 0; c < CONSUMERS; c++) {
+            new Thread("consumer-" + c) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        while (remaining.get() > 0) {
+                            Runnable r = queue.poll(10, TimeUnit.MILLISECONDS);
+                            if (r != null) {
+                                r.run();
+                                remaining.decrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException x) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await(5, TimeUnit.MINUTES);
+        long elapsedTime = System.nanoTime() - startTime;
+
+        assertEquals(0, remaining.get());
+        return elapsedTime;
+    }
+
+    static void results(String testHeader, long[] times) {
+        long sum = 0L;
+        for (long time : times)
+            sum += time;
+        long average = sum / times.length;
+
+        System.out.println(testHeader + " (" + CONSUMERS + " consumers)");
+        System.out.println("   Times = " + Arrays.toString(times));
+        System.out.println(" average = " + average + " (" + average / 1000000 + " ms, " + ITEMS * 1000000000L / average + " items/s)");
+
+        Arrays.sort(times);
+        System.out.println("     min = " + times[0]);
+        System.out.println("     max = " + times[times.length - 1]);
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int warmups = 5;
+        int loopCount = 10;
+
+        for (WorkQueueType type : WorkQueueType.values())
+            for (int w = 0; w < warmups; w++)
+                handOff(newQueue(type), 8);
+        System.out.println("Warmup phase complete");
+
+        for (int producers : PRODUCER_COUNTS) {
+            for (WorkQueueType type : WorkQueueType.values()) {
+                long[] times = new long[loopCount];
+                for (int i = 0; i < loopCount; i++)
+                    times[i] = handOff(newQueue(type), producers);
+                results(type + " with " + producers + " producers", times);
+            }
+        }
+    }
+}
@@ -68,6 +68,10 @@ public abstract class BNFHeadersImpl implements BNFHeaders, Externalizable {
     private static final int DEFAULT_BUFFERSIZE = 1024;
     /** Local default size of byte cache */
     private static final int DEFAULT_CACHESIZE = 512;
+    /** initial size of the block that parsed header values are stored in */
+    private static final int VALUE_BLOCK_SIZE = 2048;
+    /** largest value block kept for the next message */
+    private static final int MAX_VALUE_BLOCK_SIZE = 32768;
     /** Default maximum size of any individual token */
     private static final int DEFAULT_LIMIT_TOKENSIZE = 16384;
     /** Default maximum number of headers allowed in this message */
@@ -168,6 +172,10 @@ public abstract class BNFHeadersImpl implements BNFHeaders, Externalizable {
     private transient int parsedTokenLength = 0;
     /** byte cache which is reusable by all */
     private transient byte[] byteCache = new byte[this.byteCacheSize];
+    /** shared storage for header values parsed straight out of the byte cache */
+    private transient byte[] valueBlock = null;
+    /** amount of the value block in use */
+    private transient int valueBlockUsed = 0;
     /** position in the byte cache */
     private transient int bytePosition = 0;
     /** limit in the byte cache */
@@ -488,6 +496,12 @@ public abstract class BNFHeadersImpl implements BNFHeaders, Externalizable {
         this.parsedTokenLength = 0;
         this.bytePosition = 0;
         this.byteLimit = 0;
+        // the cleared elements were the only users of the value block, values
+        // handed out by asBytes() are copies, so the block is reused
+        if (null != this.valueBlock && MAX_VALUE_BLOCK_SIZE < this.valueBlock.length) {
+            this.valueBlock = null;
+        }
+        this.valueBlockUsed = 0;
         this.currentReadBB = null;
         clearBuffers();
         this.debugContext = this;
@@ -3680,6 +3694,32 @@ public abstract class BNFHeadersImpl implements BNFHeaders, Externalizable {
             // this header key wants to block the entire thing
             log = LOG_NONE;
         }
+        if (null == this.parsedToken && !this.bIsMultiLine) {
+            // fast path: a value that is complete inside the byte cache is
+            // copied into the shared value block rather than its own byte[]
+            if (!skipWhiteSpace(buff)) {
+                return false;
+            }
+            int start = findCurrentBufferPosition(buff);
+            if (TokenCodes.TOKEN_RC_MOREDATA.equals(findCRLFTokenLength(buff))) {
+                saveParsedToken(buff, start, false, log);
+                return false;
+            }
+            int length = this.parsedTokenLength;
+            if (0 < length && !this.foundTrailingWhitespace && this.bytePosition > length) {
+                this.parsedTokenLength = 0;
+                // the byte cache position is just past the CRLF delimiter
+                setHeaderValue(this.bytePosition - length - 1, length);
+            } else {
+                saveParsedToken(buff, start, true, log);
+                setHeaderValue();
+            }
+            this.parsedToken = null;
+            this.currentElem = null;
+            this.stateOfParsing = PARSING_CRLF;
+            return true;
+        }
+
         TokenCodes tcRC = parseCRLFTokenExtract(buff, log);
         if (!tcRC.equals(TokenCodes.TOKEN_RC_MOREDATA)) {
             setHeaderValue();
@@ -3824,6 +3864,46 @@ public abstract class BNFHeadersImpl implements BNFHeaders, Externalizable {
         this.currentElem.startTracking();
     }
 
+    /**
+     * Utility method used for adding a header whose value is in the byte cache
+     * to storage. The value is copied into the shared value block, which holds
+     * the values of many headers, so parsing a header does not need a byte[] of
+     * its own. The element keeps the block, offset and length, and a String or
+     * standalone byte[] is only built if someone asks for the value. When the
+     * block fills up, a larger one is started so that after a few messages
+     * all of the values of a message fit in one block. A value as long as the
+     * block gets an array of its own instead, as asBytes() hands out an array
+     * that holds exactly the value without copying it, and a block is reused
+     * by the next message.
+     *
+     * @param cacheStart position of the value in the byte cache
+     * @param length
+     * @throws MalformedMessageException
+     */
+    private void setHeaderValue(int cacheStart, int length) throws MalformedMessageException {
+        int blockSize = (null == this.valueBlock) ? VALUE_BLOCK_SIZE : this.valueBlock.length;
+        if (length >= blockSize) {
+            byte[] value = new byte[length];
+            System.arraycopy(this.byteCache, cacheStart, value, 0, length);
+            this.currentElem.setByteArrayValue(value);
+        } else {
+            if (null == this.valueBlock || blockSize - this.valueBlockUsed < length) {
+                // elements of this message still use the old block, so leave it to them
+                this.valueBlock = new byte[(null == this.valueBlock) ? VALUE_BLOCK_SIZE : blockSize * 2];
+                this.valueBlockUsed = 0;
+            }
+            System.arraycopy(this.byteCache, cacheStart, this.valueBlock, this.valueBlockUsed, length);
+            this.currentElem.setByteArrayValue(this.valueBlock, this.valueBlockUsed, length);
+            this.valueBlockUsed += length;
+        }
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Saved header value [" + this.currentElem.getDebugValue() + "] len:" + length);
+        }
+        addHeader(this.currentElem, FILTER_YES);
+        // now that we have the parsed value saved, start tracking changes/removes
+        this.currentElem.startTracking();
+    }
+
     /**
      * Sets the temporary parse token from the input buffer.
      * 
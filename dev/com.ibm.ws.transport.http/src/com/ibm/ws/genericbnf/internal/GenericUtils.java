@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
+import java.nio.charset.Charset;
 
 import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TraceComponent;
@@ -32,6 +33,8 @@ public class GenericUtils {
                                                          GenericConstants.GENERIC_TRACE_NAME,
                                                          null);
 
+    /** Charset that maps each byte to the char of the same value */
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
     /** Representation of a zero character */
     private static final byte ZERO = '0';
     /** Representation of a dash character */
@@ -911,11 +914,8 @@ public class GenericUtils {
         if (null == data) {
             return null;
         }
-        char chars[] = new char[data.length];
-        for (int i = 0; i < data.length; i++) {
-            chars[i] = (char) (data[i] & 0xff);
-        }
-        return new String(chars);
+        // ISO-8859-1 maps each byte to the char of the same value, without an intermediate char[]
+        return new String(data, ISO_8859_1);
     }
 
     /**
@@ -1068,11 +1068,7 @@ public class GenericUtils {
         if (null == data || 0 > len) {
             return null;
         }
-        char chars[] = new char[len];
-        for (int x = 0, i = start; i < end; x++, i++) {
-            chars[x] = (char) (data[i] & 0xff);
-        }
-        return new String(chars);
+        return new String(data, start, len, ISO_8859_1);
     }
 
     /**
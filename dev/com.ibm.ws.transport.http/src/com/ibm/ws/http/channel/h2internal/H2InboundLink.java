@@ -156,7 +156,9 @@ public class H2InboundLink extends HttpInboundLink {
 
         // decide which Q class to use by hand here, for now
         //writeQ = new H2WriteQ();
-        writeQ = new H2WriteTree();
+        H2WriteTree writeTree = new H2WriteTree();
+        writeTree.setWriteCoalesceSize(config.getH2WriteCoalesceSize());
+        writeQ = writeTree;
 
         writeQ.init(h2MuxTCPWriteContext, h2MuxWriteCallback);
 
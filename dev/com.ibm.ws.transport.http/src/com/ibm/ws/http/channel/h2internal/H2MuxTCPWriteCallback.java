@@ -96,6 +96,16 @@ public class H2MuxTCPWriteCallback implements TCPWriteCompletedCallback {
             }
         }
 
+        // A coalesced write carries the frames of several sync entries, each of which has a thread waiting on its own latch
+        if (qEntry.getGatheredEntries() != null) {
+            for (H2WriteQEntry e : qEntry.getGatheredEntries()) {
+                if (complete && h2WorkQ != null && e.getFrameType() == FrameTypes.DATA) {
+                    h2WorkQ.decreaseConnectionWindowUpdateWriteLimit(e.getPayloadLength());
+                }
+                e.hitWriteCompleteLatch();
+            }
+        }
+
         // Having this after the callback is not good for performance, but issue is if there can be more than one write outstanding per a stream
         // on the write queue, then writes could finish out of order if this is before the callback.
         // Since most writes should be sync, hopefully this will not become an issue
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.ws.http.channel.h2internal;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import com.ibm.websphere.ras.Tr;
@@ -53,6 +54,9 @@ public class H2WriteQEntry {
 
     boolean forceQueue = false;
 
+    // when this entry stands for one coalesced write of several queued entries, these are the entries whose frames it carries
+    List<H2WriteQEntry> gatheredEntries = null;
+
     public H2WriteQEntry(WsByteBuffer inBuf, WsByteBuffer[] inBufs, long inMin, int inTimeout, WRITE_TYPE inType, FrameTypes fType, int inPayloadLength, int inStreamID) {
 
         //  For a Sync write entry, the following are not use:  callback, forceQueue, connectionContext.
@@ -122,6 +126,32 @@ public class H2WriteQEntry {
         priority = x;
     }
 
+    public List<H2WriteQEntry> getGatheredEntries() {
+        return gatheredEntries;
+    }
+
+    public void setGatheredEntries(List<H2WriteQEntry> x) {
+        gatheredEntries = x;
+    }
+
+    /**
+     * @return the number of bytes remaining to be written from this entry's buffers
+     */
+    public long getWriteLength() {
+        if (buf != null) {
+            return buf.remaining();
+        }
+        long length = 0;
+        if (bufs != null) {
+            for (WsByteBuffer b : bufs) {
+                if (b != null) {
+                    length += b.remaining();
+                }
+            }
+        }
+        return length;
+    }
+
     // Only do get methods on parameters that are only set at the time of construction
 
     public WsByteBuffer getBuffer() {
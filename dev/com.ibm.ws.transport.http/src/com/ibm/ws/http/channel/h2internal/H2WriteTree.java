@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.ibm.ws.http.channel.h2internal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 import com.ibm.websphere.channelfw.osgi.CHFWBundle;
@@ -22,6 +24,7 @@ import com.ibm.ws.http.channel.h2internal.priority.Node.WRITE_COUNT_ACTION;
 import com.ibm.ws.http.channel.h2internal.priority.Tree;
 import com.ibm.ws.http.channel.internal.HttpMessages;
 import com.ibm.wsspi.channelfw.VirtualConnection;
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
 import com.ibm.wsspi.tcpchannel.TCPWriteRequestContext;
 
 // WDW - Improvements
@@ -49,6 +52,11 @@ public class H2WriteTree implements H2WorkQInterface {
     private final int connectionWindowUpdateWriteInitialSize = 65535;
     private int connectionWindowUpdateWriteLimit = 65535;
 
+    // the most bytes of queued frames the queue thread gathers into one write, 0 writes each entry on its own
+    private int writeCoalesceSize = 0;
+    // bound on the buffers handed to one gathering write
+    private static final int MAX_GATHERED_ENTRIES = 64;
+
     /*
      * (non-Javadoc)
      *
@@ -172,6 +180,16 @@ public class H2WriteTree implements H2WorkQInterface {
         return WRITE_ACTION.CONFUSED;
     }
 
+    /**
+     * Set the most bytes of queued frames that the queue servicing thread may
+     * gather into one write on the connection.
+     *
+     * @param size 0 or less to write each queued entry on its own
+     */
+    public void setWriteCoalesceSize(int size) {
+        writeCoalesceSize = size;
+    }
+
     @Override
     public void addNewNodeToQ(int streamID, int parentStreamID, int priority, boolean exclusive) {
 
@@ -431,6 +449,7 @@ public class H2WriteTree implements H2WorkQInterface {
                 while (true) {
 
                     H2WriteQEntry e = null;
+                    H2WriteQEntry gathered = null;
 
                     synchronized (qSync) {
                         if ((qStatus == Q_STATUS.QUIT) && (drainQ == false)) {
@@ -467,6 +486,8 @@ public class H2WriteTree implements H2WorkQInterface {
                             qStatus = Q_STATUS.NOT_IN_USE;
                             return;
                         }
+
+                        gathered = gatherEntries(e);
                     }
 
                     // we have an entry to write, want to do so outside the synchronized block
@@ -474,7 +495,11 @@ public class H2WriteTree implements H2WorkQInterface {
                         Tr.debug(tc, "Write Q perform write Q thread");
                     }
 
-                    writeEntry(e);
+                    if (gathered != null) {
+                        writeGatheredEntries(gathered);
+                    } else {
+                        writeEntry(e);
+                    }
 
                 }
 
@@ -489,6 +514,119 @@ public class H2WriteTree implements H2WorkQInterface {
         }
     }
 
+    /**
+     * Gather the frames that are ready to write, starting with the given entry, into one entry for a single write.
+     * Entries are taken from the tree in the order findNext would give them, counting each as a write of its stream,
+     * so stream priorities are kept. Gathering stops when the next frame would take the write over the coalesce size,
+     * when a DATA frame would exceed the connection window, or when the next entry is one that must be written alone.
+     * Called with the qSync lock held.
+     *
+     * @param first the next entry to write
+     * @return the entry that carries the gathered frames, or null if the first entry should be written on its own
+     */
+    H2WriteQEntry gatherEntries(H2WriteQEntry first) {
+        if (writeCoalesceSize <= 0 || !isGatherable(first, first.getTimeout())) {
+            return null;
+        }
+        long length = first.getWriteLength();
+        int dataLength = first.getFrameType() == FrameTypes.DATA ? first.getPayloadLength() : 0;
+        if (length >= writeCoalesceSize || dataLength > connectionWindowUpdateWriteLimit) {
+            return null;
+        }
+
+        List<H2WriteQEntry> entries = new ArrayList<H2WriteQEntry>();
+        H2WriteQEntry e = first;
+        while (e != null) {
+            entries.add(e);
+            // the stream no longer has a write pending on the tree, the count update re-sorts it among its siblings
+            tree.updateNode(e.getStreamID(), NODE_STATUS.NOT_REQUESTING, WRITE_COUNT_ACTION.INCREMENT, null);
+
+            if (entries.size() >= MAX_GATHERED_ENTRIES) {
+                break;
+            }
+            e = findNext();
+            if (e == null || !isGatherable(e, first.getTimeout())) {
+                break;
+            }
+            long nextLength = e.getWriteLength();
+            int nextDataLength = e.getFrameType() == FrameTypes.DATA ? e.getPayloadLength() : 0;
+            if (length + nextLength > writeCoalesceSize || dataLength + nextDataLength > connectionWindowUpdateWriteLimit) {
+                break;
+            }
+            length += nextLength;
+            dataLength += nextDataLength;
+        }
+
+        List<WsByteBuffer> buffers = new ArrayList<WsByteBuffer>(entries.size());
+        for (H2WriteQEntry entry : entries) {
+            if (entry.getBuffer() != null) {
+                buffers.add(entry.getBuffer());
+            } else {
+                for (WsByteBuffer b : entry.getBuffers()) {
+                    if (b != null) {
+                        buffers.add(b);
+                    }
+                }
+            }
+        }
+
+        H2WriteQEntry gathered = new H2WriteQEntry(null, buffers.toArray(new WsByteBuffer[buffers.size()]), TCPWriteRequestContext.WRITE_ALL_DATA,
+                        first.getTimeout(), H2WriteQEntry.WRITE_TYPE.SYNC, FrameTypes.UNKNOWN, 0, Node.ROOT_STREAM_ID);
+        gathered.setGatheredEntries(entries);
+        gathered.armWriteCompleteLatch();
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "gathered " + entries.size() + " entries, " + length + " bytes, into entry: " + gathered.hashCode());
+        }
+        return gathered;
+    }
+
+    /**
+     * Only sync writes of whole frames are gathered: their callers are waiting on their own latches, and there is no
+     * per entry callback or partial write to account for.
+     */
+    private boolean isGatherable(H2WriteQEntry e, int timeout) {
+        return e.getWriteType() == H2WriteQEntry.WRITE_TYPE.SYNC
+               && e.getTimeout() == timeout
+               && (e.getMinToWrite() == TCPWriteRequestContext.WRITE_ALL_DATA || e.getMinToWrite() >= e.getWriteLength());
+    }
+
+    /**
+     * Write the frames of the gathered entries with one write on the connection, and release the threads waiting on
+     * those entries once it is done. Always on the queue servicing thread.
+     *
+     * @param gathered the entry returned by gatherEntries
+     */
+    private void writeGatheredEntries(H2WriteQEntry gathered) {
+
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "writeGatheredEntries entry: " + gathered.hashCode());
+        }
+
+        muxCallback.setCurrentQEntry(gathered);
+        writeReqContext.setBuffers(gathered.getBuffers());
+
+        VirtualConnection vc = writeReqContext.write(gathered.getMinToWrite(), muxCallback, false, gathered.getTimeout());
+
+        if (vc != null) {
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, "write worked right away");
+            }
+            for (H2WriteQEntry e : gathered.getGatheredEntries()) {
+                if (e.getFrameType() == FrameTypes.DATA) {
+                    connectionWindowUpdateWriteLimit -= e.getPayloadLength();
+                }
+                e.hitWriteCompleteLatch();
+            }
+        } else {
+            // the mux callback releases the gathered entries, wait for it before starting the next write
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, "writeGatheredEntries - call entry.waitWriteCompleteLatch");
+            }
+            gathered.waitWriteCompleteLatch();
+        }
+    }
+
     private H2WriteQEntry findNext() {
         // look in the tree for the next one give the priorities and write counts per stream
         H2WriteQEntry e = tree.findNextWriteEntry();
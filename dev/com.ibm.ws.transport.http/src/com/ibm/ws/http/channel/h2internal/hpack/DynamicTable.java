@@ -10,8 +10,8 @@
  *******************************************************************************/
 package com.ibm.ws.http.channel.h2internal.hpack;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 2.3.2 - Consists of a list of header fields maintained in
@@ -31,12 +31,26 @@ import java.util.LinkedList;
  * Decoder updates the dynamic table during processing of
  * a list of header field representations.
  *
+ * Entries are held in a circular array so that lookups by index are
+ * constant time, and the encoder finds entries by name or by name and
+ * value through hash indexes rather than by scanning the table. Each
+ * entry is identified in the indexes by its insertion sequence number,
+ * from which its current index is derived. The indexes always refer to
+ * the newest entry with a given key; since entries are evicted oldest
+ * first, a key is only dropped from an index when the entry it refers
+ * to is evicted.
  */
 public class DynamicTable {
 
-    //private static DynamicTableEntry[] entries;
+    private H2HeaderField[] entries = new H2HeaderField[16];
+    /** position in entries of the newest entry */
+    private int head = 0;
+    private int count = 0;
+    /** sequence number that the next added entry will have */
+    private int insertions = 0;
 
-    private final LinkedList<H2HeaderField> entries = new LinkedList<H2HeaderField>();
+    private final Map<String, Integer> nameIndex = new HashMap<String, Integer>();
+    private final Map<H2HeaderField, Integer> fieldIndex = new HashMap<H2HeaderField, Integer>();
 
     private int tableAddressSpace = HpackConstants.INITIAL_SETTINGS_HEADER_TABLE_SIZE;
     private int freeAddressSpace = tableAddressSpace;
@@ -55,46 +69,68 @@ public class DynamicTable {
     public void addDynamicEntry(H2HeaderField entry) {
         int entrySize = entry.getSize();
         /*
-         * If newEntry is <= available address space, add it as the
-         * is no conflicts.
+         * New entry will result in the table size being larger than the
+         * maximum size. First verify if the entry size is larger than
+         * the table max size. If true, this causes the table to be
+         * emptied of all existing values and results in an empty
+         * table.
          */
-        if (entrySize <= freeAddressSpace) {
-            this.entries.addFirst(entry);
-            freeAddressSpace -= entrySize; // update free address space.
+        if (entrySize > tableAddressSpace) {
+            clearDynamicTable();
+            return;
+        }
+        /*
+         * If entry would fit on table if there was enough address
+         * space for it. Evict entries until there is enough
+         * free space to fit the new entry.
+         */
+        while (entrySize > freeAddressSpace) {
+            evictDynamicEntry();
         }
 
-        else {
-            /*
-             * New entry will result in the table size being larger than the
-             * maximum size. First verify if the entry size is larger than
-             * the table max size. If true, this causes the table to be
-             * emptied of all existing values and results in an empty
-             * table.
-             */
-            if (entrySize > tableAddressSpace) {
-                clearDynamicTable();
-            } else {
-                /*
-                 * If entry would fit on table if there was enough address
-                 * space for it. Evict entries until there is enough
-                 * free space to fit the new entry.
-                 */
-                while (entrySize > freeAddressSpace) {
-                    evictDynamicEntry();
-                }
-                this.entries.addFirst(entry);
-                freeAddressSpace -= entrySize; // update free address space.
-            }
-
+        if (count == entries.length) {
+            grow();
         }
+        head = (head - 1) & (entries.length - 1);
+        entries[head] = entry;
+        count++;
+        Integer sequence = Integer.valueOf(insertions++);
+        nameIndex.put(entry.getName(), sequence);
+        fieldIndex.put(entry, sequence);
+        freeAddressSpace -= entrySize; // update free address space.
+    }
 
+    /**
+     * Double the capacity of the entry array, keeping the newest entry at
+     * position 0.
+     */
+    private void grow() {
+        H2HeaderField[] larger = new H2HeaderField[entries.length << 1];
+        for (int i = 0; i < count; i++) {
+            larger[i] = entries[(head + i) & (entries.length - 1)];
+        }
+        entries = larger;
+        head = 0;
     }
 
     private void evictDynamicEntry() {
         // Dequeue last element of the list and update the free
         // address space that it was occupying.
-        freeAddressSpace += entries.getLast().getSize();
-        entries.removeLast();
+        int tail = (head + count - 1) & (entries.length - 1);
+        H2HeaderField evicted = entries[tail];
+        entries[tail] = null;
+        count--;
+        freeAddressSpace += evicted.getSize();
+
+        // only drop the index keys that still refer to this entry; if they
+        // refer to a newer entry with the same key, that one remains
+        Integer sequence = Integer.valueOf(insertions - count - 1);
+        if (sequence.equals(nameIndex.get(evicted.getName()))) {
+            nameIndex.remove(evicted.getName());
+        }
+        if (sequence.equals(fieldIndex.get(evicted))) {
+            fieldIndex.remove(evicted);
+        }
     }
 
     public void updateDynamicTableSize(int size) {
@@ -112,7 +148,7 @@ public class DynamicTable {
          * table is less than or equal to the maximum size.
          */
         if (this.tableAddressSpace > size) {
-            while (tableAddressSpace - freeAddressSpace >= size) {
+            while (tableAddressSpace - freeAddressSpace > size) {
                 evictDynamicEntry();
             }
         }
@@ -130,43 +166,53 @@ public class DynamicTable {
          * from the requested index, such that s+1 equates to index 0
          * of this dynamic table.
          */
-        try {
-            return entries.get(index);
-        } catch (IndexOutOfBoundsException e) {
+        if (index < 0 || index >= count) {
             return null;
         }
+        return entries[(head + index) & (entries.length - 1)];
     }
 
-    public H2HeaderField findInList(int name, int value) {
-        H2HeaderField result = null;
-        H2HeaderField current = null;
-        Iterator<H2HeaderField> i = entries.iterator();
-        int indexAddressSpace = StaticTable.STATIC_TABLE.size() + 1;
-        while (i.hasNext()) {
-            current = i.next();
-            if (current.getNameHash() == name) {
-                //Store the first partial match. This is the one that will be
-                //returned unless a complete match is found.
-                if (result == null) {
-                    result = current;
-                    //current index may have changed due to updates in the table
-                    //set new index location.
-                    result.setCurrentIndex(indexAddressSpace);
-                }
-
-                if (current.getValueHash() == value) {
-
-                    return result;
-                }
-            }
-            indexAddressSpace++;
+    /**
+     * Find the newest entry matching both the name and the value of the
+     * given field, and update its current index location.
+     *
+     * @param field
+     * @return the matching entry, or null
+     */
+    public H2HeaderField findField(H2HeaderField field) {
+        return find(fieldIndex.get(field));
+    }
 
+    /**
+     * Find the newest entry with the given name, and update its current
+     * index location.
+     *
+     * @param name
+     * @return the matching entry, or null
+     */
+    public H2HeaderField findName(String name) {
+        return find(nameIndex.get(name));
+    }
+
+    private H2HeaderField find(Integer sequence) {
+        if (sequence == null) {
+            return null;
         }
+        int index = insertions - 1 - sequence.intValue();
+        H2HeaderField result = get(index);
+        //current index may have changed due to updates in the table
+        //set new index location.
+        result.setCurrentIndex(StaticTable.STATIC_TABLE.size() + 1 + index);
         return result;
     }
 
     private void clearDynamicTable() {
-        entries.clear();
+        for (int i = 0; i < count; i++) {
+            entries[(head + i) & (entries.length - 1)] = null;
+        }
+        count = 0;
+        nameIndex.clear();
+        fieldIndex.clear();
         freeAddressSpace = tableAddressSpace;
     }
 
@@ -176,7 +222,7 @@ public class DynamicTable {
 
     //TODO: consider renaming
     public int amountOfEntries() {
-        return this.entries.size();
+        return this.count;
     }
 
     public int usedAddressSpace() {
@@ -199,12 +245,9 @@ public class DynamicTable {
     public String toString() {
         StringBuilder result = new StringBuilder();
         H2HeaderField current;
-        int i = 0;
-        Iterator<H2HeaderField> it = entries.iterator();
-        while (it.hasNext()) {
-            i++;
-            current = it.next();
-            result.append("[  " + i + "] (s = " + current.getSize() + ") " + current.getName() + ": " + current.getValue() + "\n");
+        for (int i = 0; i < count; i++) {
+            current = get(i);
+            result.append("[  " + (i + 1) + "] (s = " + current.getSize() + ") " + current.getName() + ": " + current.getValue() + "\n");
         }
         result.append("Table size: " + this.usedAddressSpace());
         return result.toString();
@@ -10,8 +10,6 @@
  *******************************************************************************/
 package com.ibm.ws.http.channel.h2internal.hpack;
 
-import java.util.Iterator;
-
 public class H2HeaderTable {
 
     private final DynamicTable dynamicTable;
@@ -35,64 +33,37 @@ public class H2HeaderTable {
         }
     }
 
+    /**
+     * Find the table entry to use when encoding the given header. A match on
+     * both name and value is preferred, from the static table first. Failing
+     * that, the lowest indexed static entry with the same name is returned,
+     * then the newest dynamic entry with the same name.
+     *
+     * @param name
+     * @param value
+     * @return the matching entry, or null if the name is in neither table
+     */
     public H2HeaderField getHeaderEntry(String name, String value) {
 
-        int hashName = name.hashCode();
-        int hashValue = value.hashCode();
-
-        H2HeaderField staticResult = null;
-        H2HeaderField dynamicResult = null;
+        H2HeaderField field = new H2HeaderField(name, value);
 
-        staticResult = findInStaticTable(hashName, hashValue);
-
-        if (staticResult != null) {
-            if (staticResult.getValueHash() == hashValue) {
-                //Fully matches return
-                return staticResult;
-            }
+        H2HeaderField result = StaticTable.findField(field);
+        if (result == null) {
+            result = dynamicTable.findField(field);
         }
-
-        dynamicResult = dynamicTable.findInList(hashName, hashValue);
-
-        if (dynamicResult != null) {
-            if (dynamicResult.getValueHash() == hashValue) {
-                return dynamicResult;
-            }
+        if (result == null) {
+            result = StaticTable.findName(name);
         }
-        //If it get here, there is not a complete match. Return the
-        //result from the static table if it isn't null. Otherwise,
-        //return the result from the dynamic table. If no results
-        //were found in either table, this will return null.
-
-        return staticResult != null ? staticResult : dynamicResult;
+        if (result == null) {
+            result = dynamicTable.findName(name);
+        }
+        return result;
     }
 
     private static H2HeaderField getFromStaticTable(int index) {
         return StaticTable.STATIC_TABLE.get(index - 1);
     }
 
-    private static H2HeaderField findInStaticTable(int name, int value) {
-        Iterator<H2HeaderField> it = StaticTable.STATIC_TABLE.iterator();
-        H2HeaderField result = null;
-        H2HeaderField current = null;
-
-        while (it.hasNext()) {
-            current = it.next();
-            if (current.getNameHash() == name) {
-                //Store the first partial match. This is the one that will be
-                //returned unless a complete match is found.
-                if (result == null) {
-                    result = current;
-                }
-                if (current.getValueHash() == value) {
-                    return current;
-                }
-            }
-        }
-        return result;
-
-    }
-
     public void addHeaderEntry(H2HeaderField entry) {
         this.dynamicTable.addDynamicEntry(entry);
     }
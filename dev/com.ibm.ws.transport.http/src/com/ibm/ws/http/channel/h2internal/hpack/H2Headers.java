@@ -313,7 +313,7 @@ public class H2Headers {
             //Location of found indexed header in table
             indexLocation = indexedHeader.getCurrentIndex();
 
-            if (indexedHeader.getValueHash() == value.hashCode()) {
+            if (indexedHeader.getValue().equals(value)) {
                 //If the header name and value both match, then this header is already indexed.
                 //Encode using a reference to the table entry. No changes are to be made to the
                 //dynamic table. With nothing table operations, return at this point.
@@ -11,7 +11,9 @@
 package com.ibm.ws.http.channel.h2internal.hpack;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class StaticTable {
 
@@ -78,4 +80,34 @@ public final class StaticTable {
                                                                          /* 60 */ new H2HeaderField("via", "", 60),
                                                                          /* 61 */ new H2HeaderField("www-authenticate", "", 61));
 
+    /** Lowest indexed entry for each header name */
+    private static final Map<String, H2HeaderField> NAME_INDEX = new HashMap<String, H2HeaderField>();
+    /** Entry for each header name and value */
+    private static final Map<H2HeaderField, H2HeaderField> FIELD_INDEX = new HashMap<H2HeaderField, H2HeaderField>();
+
+    static {
+        for (H2HeaderField field : STATIC_TABLE) {
+            if (!NAME_INDEX.containsKey(field.getName())) {
+                NAME_INDEX.put(field.getName(), field);
+            }
+            FIELD_INDEX.put(field, field);
+        }
+    }
+
+    /**
+     * @param name
+     * @return the lowest indexed entry with the given name, or null
+     */
+    public static H2HeaderField findName(String name) {
+        return NAME_INDEX.get(name);
+    }
+
+    /**
+     * @param field
+     * @return the entry matching both the name and value of the field, or null
+     */
+    public static H2HeaderField findField(H2HeaderField field) {
+        return FIELD_INDEX.get(field);
+    }
+
 }
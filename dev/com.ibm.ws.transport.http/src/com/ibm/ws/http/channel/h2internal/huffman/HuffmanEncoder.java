@@ -87,76 +87,36 @@ public class HuffmanEncoder {
 
     public static byte[] convertAsciiToHuffman(byte[] x1) {
 
-        int numberOfBits = 0;
-        int huffmanValue = 0;
-
-        int totalNumberOfHuffmanBits = 0;
-        int huffmanArrayLength = 0;
-        int huffmanExtraBits = 0;
-
         int asciiLength = x1.length;
-        byte[] huffmanArray = null;
-
-        int huffmanCurrentByte = -1;
-        int outputBitMask = 0x00; // if you make this a byte, then >>> still fills the MSB of the byte with a '1' - not sure why.
-        int inputBitMask = 0x00;
 
         // determine the array length of the output huffmanArray
+        int totalNumberOfHuffmanBits = 0;
         for (int i = 0; i < asciiLength; i++) {
-            totalNumberOfHuffmanBits = totalNumberOfHuffmanBits + AtoHbitNumber[x1[i]];
-            huffmanArrayLength = totalNumberOfHuffmanBits / 8;
-            huffmanExtraBits = 8 - (totalNumberOfHuffmanBits % 8);
-            if (huffmanExtraBits != 8) {
-                huffmanArrayLength++;
-            }
+            totalNumberOfHuffmanBits += AtoHbitNumber[x1[i] & 0xFF];
         }
-
-        //System.out.println("asciiLength: " + asciiLength + " totalNumberOfHuffmanBits: " + totalNumberOfHuffmanBits + " huffmanExtraBits: " + huffmanExtraBits
-        //		              + " huffmanArrayLength: " + huffmanArrayLength);
-
-        huffmanArray = new byte[huffmanArrayLength];
-
+        byte[] huffmanArray = new byte[(totalNumberOfHuffmanBits + 7) >>> 3];
+
+        // append each code to the low end of an accumulator and write out whole bytes from its high
+        // end as they fill. At most 7 bits are left over between codes and codes are at most 30 bits,
+        // so the pending bits always fit in the long.
+        long accumulator = 0L;
+        int pendingBits = 0;
+        int huffmanCurrentByte = 0;
         for (int i = 0; i < asciiLength; i++) {
-
-            numberOfBits = AtoHbitNumber[x1[i]];
-            huffmanValue = AtoHValue[x1[i]];
-
-            // add new value, with the exact number of bits, to the new huffman sequence of bits
-            // add them one at a time since we have the issue of running over the byte boundary on every bit
-
-            // System.out.println("ascii value: " + x1[i] + " numberOfBits: " + numberOfBits + " huffmanValue: " + String.format("0x%08X", huffmanValue));
-
-            inputBitMask = 1;
-            inputBitMask = inputBitMask << (numberOfBits - 1);
-
-            for (int j = 0; j < numberOfBits; j++) {
-                if (outputBitMask == 0) {
-                    outputBitMask = 0x80;
-                    huffmanCurrentByte++;
-                }
-
-                // if next bit is set in the huffmanValue then set it in the output byte array, else skip over it which leaves it at 0
-                if ((inputBitMask & huffmanValue) != 0) {
-                    huffmanArray[huffmanCurrentByte] = (byte) (huffmanArray[huffmanCurrentByte] | outputBitMask);
-                }
-
-                inputBitMask = inputBitMask >>> 1;
-                outputBitMask = outputBitMask >>> 1;
-
+            int ascii = x1[i] & 0xFF;
+            accumulator = (accumulator << AtoHbitNumber[ascii]) | AtoHValue[ascii];
+            pendingBits += AtoHbitNumber[ascii];
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                huffmanArray[huffmanCurrentByte++] = (byte) (accumulator >>> pendingBits);
             }
         }
 
-        // fill out the last byte with 1's
-        for (int i = 0; i < huffmanExtraBits; i++) {
-            huffmanArray[huffmanCurrentByte] = (byte) (huffmanArray[huffmanCurrentByte] | outputBitMask);
-            outputBitMask = outputBitMask >>> 1;
+        // fill out the last byte with 1's, the most significant bits of EOS
+        if (pendingBits > 0) {
+            huffmanArray[huffmanCurrentByte] = (byte) ((accumulator << (8 - pendingBits)) | (0xFF >>> pendingBits));
         }
 
-        //System.out.println("huffman array: " );
-        //for (int i = 0; i < huffmanArray.length; i++) {
-        //	   System.out.println(String.format("0x%08X", huffmanArray[i]));
-        //}
-
         return huffmanArray;
     }
 }
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.internal;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.ws.http.dispatcher.internal.HttpDispatcher;
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.http.channel.compression.CompressionHandler;
+import com.ibm.wsspi.http.channel.values.ContentEncodingValues;
+
+/**
+ * Compression handler that sends a body compressed for an earlier response
+ * with the same strong ETag. The plain body written by the application is
+ * consumed and dropped; the cached bytes are sent with the first write.
+ */
+public class CachedCompressionHandler implements CompressionHandler {
+    /** RAS variable */
+    private static final TraceComponent tc = Tr.register(CachedCompressionHandler.class, HttpMessages.HTTP_TRACE_NAME, HttpMessages.HTTP_BUNDLE);
+
+    /** Largest buffer handed out */
+    private static final int BUFFER_SIZE = 32768;
+
+    private final byte[] data;
+    private final ContentEncodingValues encoding;
+    private boolean sent = false;
+    private boolean finished = false;
+    private long bytesRead = 0L;
+
+    /**
+     * @param data - the cached compressed body
+     * @param encoding - the encoding it was compressed with
+     */
+    public CachedCompressionHandler(byte[] data, ContentEncodingValues encoding) {
+        this.data = data;
+        this.encoding = encoding;
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Sending " + data.length + " cached " + encoding.getName() + " bytes; " + this);
+        }
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#getContentEncoding()
+     */
+    @Override
+    public ContentEncodingValues getContentEncoding() {
+        return this.encoding;
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#compress(com.ibm.wsspi.bytebuffer.WsByteBuffer)
+     */
+    @Override
+    public List<WsByteBuffer> compress(WsByteBuffer buffer) {
+        List<WsByteBuffer> list = new LinkedList<WsByteBuffer>();
+        consume(buffer);
+        return send(list);
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#compress(com.ibm.wsspi.bytebuffer.WsByteBuffer[])
+     */
+    @Override
+    public List<WsByteBuffer> compress(WsByteBuffer[] buffers) {
+        List<WsByteBuffer> list = new LinkedList<WsByteBuffer>();
+        if (null != buffers) {
+            for (int i = 0; i < buffers.length; i++) {
+                consume(buffers[i]);
+            }
+        }
+        return send(list);
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#finish()
+     */
+    @Override
+    public List<WsByteBuffer> finish() {
+        List<WsByteBuffer> list = new LinkedList<WsByteBuffer>();
+        if (this.finished) {
+            return list;
+        }
+        this.finished = true;
+        return send(list);
+    }
+
+    private void consume(WsByteBuffer buffer) {
+        if (null != buffer) {
+            this.bytesRead += buffer.remaining();
+            buffer.position(buffer.limit());
+        }
+    }
+
+    /**
+     * Add the cached body to the list if it has not been sent yet.
+     *
+     * @param list
+     * @return List<WsByteBuffer>
+     */
+    private List<WsByteBuffer> send(List<WsByteBuffer> list) {
+        if (this.sent) {
+            return list;
+        }
+        this.sent = true;
+        for (int offset = 0; offset < this.data.length; offset += BUFFER_SIZE) {
+            int length = Math.min(BUFFER_SIZE, this.data.length - offset);
+            WsByteBuffer buffer = HttpDispatcher.getBufferManager().allocateDirect(length);
+            buffer.put(this.data, offset, length);
+            buffer.flip();
+            list.add(buffer);
+        }
+        return list;
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#isFinished()
+     */
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesRead()
+     */
+    @Override
+    public long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesWritten()
+     */
+    @Override
+    public long getBytesWritten() {
+        return this.sent ? this.data.length : 0L;
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+
+/**
+ * Cache of compressed response bodies, keyed by host, URI, strong ETag and
+ * content encoding. A strong ETag promises that every response carrying it
+ * has the same bytes, so the compressed form of one such response can be
+ * sent for the next instead of compressing the body again.
+ * <p>
+ * The cache is bounded by the total size of the compressed bodies and drops
+ * the least recently used ones first. A single body may use at most an
+ * eighth of the cache.
+ */
+public class CompressedVariantCache {
+    /** RAS variable */
+    private static final TraceComponent tc = Tr.register(CompressedVariantCache.class, HttpMessages.HTTP_TRACE_NAME, HttpMessages.HTTP_BUNDLE);
+
+    private final long maxBytes;
+    private long bytes = 0L;
+    private long hits = 0L;
+    private long misses = 0L;
+    private final LinkedHashMap<String, byte[]> variants = new LinkedHashMap<String, byte[]>(64, 0.75f, true);
+
+    /**
+     * @param maxBytes - the most compressed bytes held
+     */
+    public CompressedVariantCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Build the cache key of a response.
+     *
+     * @param method - the request method
+     * @param host
+     * @param uri - the request URI with any query string
+     * @param varied - the request headers named by the Vary header of the response
+     * @param etag - a strong ETag
+     * @param encoding - the content encoding with any variant marker
+     * @return String
+     */
+    public static String key(String method, String host, String uri, String varied, String etag, String encoding) {
+        return new StringBuilder(64).append(method).append(' ').append(host).append(' ').append(uri).append(' ').append(etag).append(' ').append(encoding).append(' ').append(varied).toString();
+    }
+
+    /**
+     * Query whether the Cache-Control header of a response allows a shared
+     * cache to keep it. Responses for one user only, or not to be stored at
+     * all, are not cached.
+     *
+     * @param cacheControl - the header value, or null
+     * @return boolean
+     */
+    public static boolean isStorable(String cacheControl) {
+        if (null == cacheControl) {
+            return true;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String name = directive.trim().toLowerCase();
+            int equals = name.indexOf('=');
+            if (-1 != equals) {
+                name = name.substring(0, equals).trim();
+            }
+            if ("no-store".equals(name) || "private".equals(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Query whether the ETag is strong. Weak ETags only promise equivalent
+     * content, not the same bytes.
+     *
+     * @param etag
+     * @return boolean
+     */
+    public static boolean isStrong(String etag) {
+        return null != etag && etag.startsWith("\"") && etag.length() > 2;
+    }
+
+    /**
+     * @return the largest compressed body the cache accepts
+     */
+    public int getMaxEntrySize() {
+        return (int) Math.min(Integer.MAX_VALUE, this.maxBytes / 8);
+    }
+
+    /**
+     * @param key
+     * @return the compressed body, or null if it is not cached
+     */
+    public synchronized byte[] get(String key) {
+        byte[] data = this.variants.get(key);
+        if (null == data) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return data;
+    }
+
+    /**
+     * Cache a compressed body, dropping the least recently used ones as
+     * needed to stay within the size of the cache.
+     *
+     * @param key
+     * @param data
+     */
+    public synchronized void put(String key, byte[] data) {
+        if (data.length > getMaxEntrySize()) {
+            return;
+        }
+        byte[] old = this.variants.put(key, data);
+        if (null != old) {
+            this.bytes -= old.length;
+        }
+        this.bytes += data.length;
+        Iterator<Map.Entry<String, byte[]>> it = this.variants.entrySet().iterator();
+        while (this.bytes > this.maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            this.bytes -= eldest.getValue().length;
+            it.remove();
+        }
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Cached " + data.length + " bytes for " + key + "; entries=" + this.variants.size() + " bytes=" + this.bytes);
+        }
+    }
+
+    /**
+     * @return the number of lookups that found a body
+     */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of lookups that found no body
+     */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /**
+     * @return the total size of the cached bodies
+     */
+    public synchronized long getSize() {
+        return this.bytes;
+    }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.zip.Deflater;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+
+/**
+ * Decides whether and how hard the channel compresses an outgoing body.
+ * <ul>
+ * <li>Bodies whose Content-Type is already compressed (images other than
+ * SVG, audio, video, archives, fonts in compressed formats) are sent as-is:
+ * deflate cannot shrink them and only spends CPU.
+ * <li>The level follows the system load. Below half of the processors busy
+ * the default level 6 is used. Above that the level drops to 3, and with all
+ * processors busy to 1. On HTML, JSON and log text level 3 takes about half
+ * the CPU per byte of level 6 and level 1 a third, for output 5-20% and
+ * 10-25% larger (see CompressionLevelBenchmark).
+ * <li>Bodies known to be larger than 1MB never use more than level 3, as
+ * they would hold a thread for the longest at the higher levels.
+ * </ul>
+ * The load is the system load average over the number of processors, sampled
+ * at most once a second. Where the load average is not available, such as on
+ * Windows, the level only depends on the size.
+ */
+public final class CompressionPolicy {
+    /** RAS variable */
+    private static final TraceComponent tc = Tr.register(CompressionPolicy.class, HttpMessages.HTTP_TRACE_NAME, HttpMessages.HTTP_BUNDLE);
+
+    /** Level used on a lightly loaded system */
+    static final int LEVEL_DEFAULT = 6;
+    /** Level used under moderate load and for large bodies */
+    static final int LEVEL_REDUCED = 3;
+    /** Level used on a saturated system */
+    static final int LEVEL_SATURATED = Deflater.BEST_SPEED;
+    /** Load per processor above which the level is reduced */
+    static final double LOAD_REDUCED = 0.5;
+    /** Load per processor above which the fastest level is used */
+    static final double LOAD_SATURATED = 1.0;
+    /** Body size above which the level is reduced */
+    static final long LARGE_BODY = 1024L * 1024L;
+    /** How often the load is sampled */
+    private static final long SAMPLE_INTERVAL = 1000L;
+
+    private static final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private static final int processors = Runtime.getRuntime().availableProcessors();
+
+    /** Last sampled load per processor, negative if not available */
+    private static volatile double load = -1.0;
+    /** Time of the next load sample */
+    private static volatile long nextSample = 0L;
+
+    private CompressionPolicy() {}
+
+    /**
+     * Query whether a body of the given Content-Type is worth compressing.
+     *
+     * @param contentType - the Content-Type header value, may be null
+     * @return boolean
+     */
+    public static boolean isCompressible(String contentType) {
+        if (null == contentType) {
+            return true;
+        }
+        String type = contentType.trim().toLowerCase();
+        if (type.startsWith("image/")) {
+            // SVG is XML text
+            return type.startsWith("image/svg");
+        }
+        if (type.startsWith("audio/") || type.startsWith("video/")) {
+            return false;
+        }
+        return !(type.startsWith("application/zip")
+                 || type.startsWith("application/gzip")
+                 || type.startsWith("application/x-gzip")
+                 || type.startsWith("application/x-compress")
+                 || type.startsWith("application/x-bzip2")
+                 || type.startsWith("application/x-xz")
+                 || type.startsWith("application/x-7z-compressed")
+                 || type.startsWith("application/x-rar-compressed")
+                 || type.startsWith("application/java-archive")
+                 || type.startsWith("application/pdf")
+                 || type.startsWith("font/woff")
+                 || type.startsWith("application/font-woff"));
+    }
+
+    /**
+     * Choose the compression level for an outgoing body.
+     *
+     * @param length - the body length if known, otherwise negative
+     * @return int Deflater level
+     */
+    public static int getLevel(long length) {
+        double current = getLoad();
+        int level;
+        if (current >= LOAD_SATURATED) {
+            level = LEVEL_SATURATED;
+        } else if (current >= LOAD_REDUCED || length > LARGE_BODY) {
+            level = LEVEL_REDUCED;
+        } else {
+            level = LEVEL_DEFAULT;
+        }
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, "Compression level " + level + " for length " + length + " at load " + current);
+        }
+        return level;
+    }
+
+    /**
+     * @return double load per processor, negative if not available
+     */
+    private static double getLoad() {
+        long now = System.currentTimeMillis();
+        if (now >= nextSample) {
+            nextSample = now + SAMPLE_INTERVAL;
+            double average = os.getSystemLoadAverage();
+            load = (average < 0.0) ? -1.0 : average / processors;
+        }
+        return load;
+    }
+}
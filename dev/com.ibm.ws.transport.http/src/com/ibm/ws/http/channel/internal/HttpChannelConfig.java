@@ -129,6 +129,10 @@ public class HttpChannelConfig {
     /** The amount of time the connection will be left open when HTTP/2 goes into an idle state */
     private long h2ConnectionCloseTimeout = 30;
     private int h2ConnectionReadWindowSize = Constants.SPEC_INITIAL_WINDOW_SIZE; // init the connection read window to the spec max
+    /** The most bytes of queued HTTP/2 frames gathered into one connection write */
+    private int h2WriteCoalesceSize = 65536;
+    /** Cache of compressed response bodies by strong ETag, null if off */
+    private CompressedVariantCache compressionCache = null;
     /** PI81572 Purge the remaining response body off the wire when clear is called */
     private boolean purgeRemainingResponseBody = true;
 
@@ -342,6 +346,14 @@ public class HttpChannelConfig {
                 props.put(HttpConfigConstants.PROPNAME_H2_CONN_READ_WINDOW_SIZE, value);
                 continue;
             }
+            if (key.equalsIgnoreCase(HttpConfigConstants.PROPNAME_H2_WRITE_COALESCE_SIZE)) {
+                props.put(HttpConfigConstants.PROPNAME_H2_WRITE_COALESCE_SIZE, value);
+                continue;
+            }
+            if (key.equalsIgnoreCase(HttpConfigConstants.PROPNAME_COMPRESSION_CACHE_SIZE)) {
+                props.put(HttpConfigConstants.PROPNAME_COMPRESSION_CACHE_SIZE, value);
+                continue;
+            }
             if (key.equalsIgnoreCase(HttpConfigConstants.PROPNAME_PURGE_REMAINING_RESPONSE)) {
                 props.put(HttpConfigConstants.PROPNAME_PURGE_REMAINING_RESPONSE, value);
                 continue;
@@ -386,6 +398,8 @@ public class HttpChannelConfig {
         parseSkipCookiePathQuotes(props); //738893
         parseH2ConnCloseTimeout(props);
         parseH2ConnReadWindowSize(props);
+        parseH2WriteCoalesceSize(props);
+        parseCompressionCacheSize(props);
         parsePurgeRemainingResponseBody(props); //PI81572
 
         if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
@@ -1213,6 +1227,41 @@ public class HttpChannelConfig {
 
     }
 
+    private void parseH2WriteCoalesceSize(Map<?, ?> props) {
+        Object value = props.get(HttpConfigConstants.PROPNAME_H2_WRITE_COALESCE_SIZE);
+        if (null != value) {
+            try {
+                this.h2WriteCoalesceSize = minLimit(convertInteger(value), 0);
+                if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                    Tr.event(tc, "Config: H2 Write Coalesce Size is " + getH2WriteCoalesceSize());
+                }
+            } catch (NumberFormatException nfe) {
+                FFDCFilter.processException(nfe, getClass().getName() + ".parseH2WriteCoalesceSize", "1");
+                if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                    Tr.event(tc, "Config: Invalid H2 Write Coalesce Size of " + value);
+                }
+            }
+        }
+    }
+
+    private void parseCompressionCacheSize(Map<?, ?> props) {
+        Object value = props.get(HttpConfigConstants.PROPNAME_COMPRESSION_CACHE_SIZE);
+        if (null != value) {
+            try {
+                int size = minLimit(convertInteger(value), 0);
+                this.compressionCache = (0 < size) ? new CompressedVariantCache(size) : null;
+                if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                    Tr.event(tc, "Config: Compression Cache Size is " + size);
+                }
+            } catch (NumberFormatException nfe) {
+                FFDCFilter.processException(nfe, getClass().getName() + ".parseCompressionCacheSize", "1");
+                if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                    Tr.event(tc, "Config: Invalid Compression Cache Size of " + value);
+                }
+            }
+        }
+    }
+
     /**
      * Check the configuration if we should purge the remaining response data
      * This is a JVM custom property as it's intended for outbound scenarios
@@ -1717,6 +1766,25 @@ public class HttpChannelConfig {
         return h2ConnectionReadWindowSize;
     }
 
+    /**
+     * Query the most bytes of queued HTTP/2 frames that may be gathered
+     * into a single write on the connection.
+     *
+     * @return int, 0 if frames are not coalesced
+     */
+    public int getH2WriteCoalesceSize() {
+        return h2WriteCoalesceSize;
+    }
+
+    /**
+     * Query the cache of compressed response bodies kept by strong ETag.
+     *
+     * @return CompressedVariantCache, null if the cache is off
+     */
+    public CompressedVariantCache getCompressionCache() {
+        return compressionCache;
+    }
+
     /**
      * Query whether or not the HTTP Channel should purge remaining response data
      * 
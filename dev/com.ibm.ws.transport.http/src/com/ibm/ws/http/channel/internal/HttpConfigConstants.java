@@ -334,6 +334,18 @@ public class HttpConfigConstants {
 
     public static final String PROPNAME_H2_CONN_READ_WINDOW_SIZE = "H2ConnReadWindowSize";
 
+    /**
+     * Property controlling the most bytes of queued HTTP/2 frames that are
+     * gathered into one write on the connection, 0 writes each frame alone
+     */
+    public static final String PROPNAME_H2_WRITE_COALESCE_SIZE = "H2WriteCoalesceSize";
+
+    /**
+     * Property controlling the most bytes of compressed response bodies kept
+     * for reuse by strong ETag, 0 turns the cache off
+     */
+    public static final String PROPNAME_COMPRESSION_CACHE_SIZE = "CompressionCacheSize";
+
     //PI81572 - Purge the remaining response body off the wire
     public static final String PROPNAME_PURGE_REMAINING_RESPONSE = "PurgeRemainingResponseBody";
 
@@ -2275,6 +2275,10 @@ public abstract class HttpServiceContextImpl implements HttpServiceContext, FFDC
             List<WsByteBuffer> list = this.compressHandler.compress(buffers);
             if (this.isFinalWrite) {
                 list.addAll(this.compressHandler.finish());
+                if (this.compressHandler instanceof RecordingCompressionHandler) {
+                    // the whole body went through, keep it for the next response
+                    ((RecordingCompressionHandler) this.compressHandler).commit();
+                }
             }
             // put any created buffers onto the release list
             if (0 < list.size()) {
@@ -4527,14 +4531,32 @@ public abstract class HttpServiceContextImpl implements HttpServiceContext, FFDC
 
         // if auto-compression is enabled, create the appropriate handler
         if (isAutoCompression(msg)) {
-            if (isGZipEncoded() || isXGZipEncoded()) {
-                this.compressHandler = new GzipOutputHandler(isXGZipEncoded());
-            } else if (isZlibEncoded()) {
-                if (isInboundConnection()) {
-                    // inbound connection, check the client User-Agent header
-                    this.compressHandler = new DeflateOutputHandler(getRequest().getHeader(HttpHeaderKeys.HDR_USER_AGENT).asBytes());
-                } else {
-                    this.compressHandler = new DeflateOutputHandler();
+            if (!CompressionPolicy.isCompressible(msg.getHeader(HttpHeaderKeys.HDR_CONTENT_TYPE).asString())) {
+                // already compressed content, send it as-is
+                if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                    Tr.debug(tc, "Not compressing content type: " + msg.getHeader(HttpHeaderKeys.HDR_CONTENT_TYPE).asString());
+                }
+                setOutgoingMsgEncoding(DEFAULT_ENCODING);
+                return;
+            }
+            byte[] useragent = null;
+            if (isZlibEncoded() && isInboundConnection()) {
+                // inbound connection, check the client User-Agent header
+                useragent = getRequest().getHeader(HttpHeaderKeys.HDR_USER_AGENT).asBytes();
+            }
+            String key = getCompressionCacheKey(msg, useragent);
+            byte[] cached = (null == key) ? null : getHttpConfig().getCompressionCache().get(key);
+            if (null != cached) {
+                this.compressHandler = new CachedCompressionHandler(cached, this.outgoingMsgEncoding);
+            } else {
+                int level = CompressionPolicy.getLevel(msg.getContentLength());
+                if (isGZipEncoded() || isXGZipEncoded()) {
+                    this.compressHandler = new GzipOutputHandler(isXGZipEncoded(), level);
+                } else if (isZlibEncoded()) {
+                    this.compressHandler = new DeflateOutputHandler(useragent, level);
+                }
+                if (null != key && null != this.compressHandler) {
+                    this.compressHandler = new RecordingCompressionHandler(this.compressHandler, getHttpConfig().getCompressionCache(), key);
                 }
             }
         }
@@ -4544,6 +4566,89 @@ public abstract class HttpServiceContextImpl implements HttpServiceContext, FFDC
         }
     }
 
+    /**
+     * Build the key under which the compressed body of this response may be
+     * cached. Only successful inbound responses to GET requests, with a body,
+     * a strong ETag, that a shared cache may store and that set no cookies,
+     * are cached. The key holds the method, the query string and the request
+     * headers named by Vary.
+     *
+     * @param msg
+     * @param useragent - the User-Agent used to choose the deflate format, or null
+     * @return String, null if the body may not be cached
+     */
+    private String getCompressionCacheKey(HttpBaseMessageImpl msg, byte[] useragent) {
+        if (null == getHttpConfig().getCompressionCache() || !isInboundConnection() || !(msg instanceof HttpResponseMessageImpl)) {
+            return null;
+        }
+        if (200 != ((HttpResponseMessageImpl) msg).getStatusCodeAsInt()) {
+            return null;
+        }
+        // a HEAD response compresses an empty body, which must never be sent for a GET
+        MethodValues method = getRequestMethod();
+        if (!MethodValues.GET.equals(method) || !msg.isBodyAllowed()) {
+            return null;
+        }
+        String etag = msg.getHeader(HttpHeaderKeys.HDR_ETAG).asString();
+        if (!CompressedVariantCache.isStrong(etag)) {
+            return null;
+        }
+        for (HeaderField cacheControl : msg.getHeaders(HttpHeaderKeys.HDR_CACHE_CONTROL)) {
+            if (!CompressedVariantCache.isStorable(cacheControl.asString())) {
+                return null;
+            }
+        }
+        // cookies are not yet marshalled into the headers
+        if (msg.containsHeader(HttpHeaderKeys.HDR_SET_COOKIE) || msg.containsHeader(HttpHeaderKeys.HDR_SET_COOKIE2)
+            || msg.isCookieCacheDirty(HttpHeaderKeys.HDR_SET_COOKIE) || msg.isCookieCacheDirty(HttpHeaderKeys.HDR_SET_COOKIE2)) {
+            return null;
+        }
+        String varied = getVariedHeaders(msg);
+        if (null == varied) {
+            return null;
+        }
+        String encoding = this.outgoingMsgEncoding.getName();
+        if (null != useragent && DeflateOutputHandler.isIEBrowser(useragent)) {
+            // IE gets deflate without the zlib wrapper
+            encoding = encoding + ";raw";
+        }
+        String uri = getRequest().getRequestURI();
+        String query = getRequest().getQueryString();
+        if (null != query) {
+            uri = uri + '?' + query;
+        }
+        return CompressedVariantCache.key(method.getName(), getRequest().getHeader(HttpHeaderKeys.HDR_HOST).asString(), uri, varied, etag, encoding);
+    }
+
+    /**
+     * Collect the values of the request headers that the Vary header of the
+     * response names. Accept-Encoding is left out, as the encoding is already
+     * part of the cache key.
+     *
+     * @param msg
+     * @return String, null if the response varies on everything
+     */
+    private String getVariedHeaders(HttpBaseMessageImpl msg) {
+        StringBuilder varied = new StringBuilder();
+        for (HeaderField vary : msg.getHeaders(HttpHeaderKeys.HDR_VARY)) {
+            for (String name : vary.asString().split(",")) {
+                name = name.trim();
+                if ("*".equals(name)) {
+                    return null;
+                }
+                if (0 == name.length() || HttpHeaderKeys.HDR_ACCEPT_ENCODING.getName().equalsIgnoreCase(name)) {
+                    continue;
+                }
+                varied.append(name.toLowerCase()).append(':');
+                for (HeaderField value : getRequest().getHeaders(name)) {
+                    varied.append(value.asString()).append(',');
+                }
+                varied.append(';');
+            }
+        }
+        return varied.toString();
+    }
+
     /**
      * Once we are done receiving the body, this method will set all of
      * the various temporary variables correctly to signify that.
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import com.ibm.websphere.ras.Tr;
+import com.ibm.websphere.ras.TraceComponent;
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.http.channel.compression.CompressionHandler;
+import com.ibm.wsspi.http.channel.values.ContentEncodingValues;
+
+/**
+ * Compression handler that keeps a copy of what another handler produces and
+ * caches it when the body is complete, so that the next response with the
+ * same strong ETag can be sent from the cache. Recording stops once the
+ * output outgrows the largest entry the cache accepts. Nothing is cached
+ * unless the body is completed through commit().
+ */
+public class RecordingCompressionHandler implements CompressionHandler {
+    /** RAS variable */
+    private static final TraceComponent tc = Tr.register(RecordingCompressionHandler.class, HttpMessages.HTTP_TRACE_NAME, HttpMessages.HTTP_BUNDLE);
+
+    private final CompressionHandler delegate;
+    private final CompressedVariantCache cache;
+    private final String key;
+    private final int limit;
+    /** Output recorded so far, null once recording stopped */
+    private ByteArrayOutputStream recorded = new ByteArrayOutputStream(4096);
+
+    /**
+     * @param delegate - the handler that compresses the body
+     * @param cache
+     * @param key - the cache key of the response
+     */
+    public RecordingCompressionHandler(CompressionHandler delegate, CompressedVariantCache cache, String key) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.key = key;
+        this.limit = cache.getMaxEntrySize();
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#getContentEncoding()
+     */
+    @Override
+    public ContentEncodingValues getContentEncoding() {
+        return this.delegate.getContentEncoding();
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#compress(com.ibm.wsspi.bytebuffer.WsByteBuffer)
+     */
+    @Override
+    public List<WsByteBuffer> compress(WsByteBuffer buffer) {
+        return record(this.delegate.compress(buffer));
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#compress(com.ibm.wsspi.bytebuffer.WsByteBuffer[])
+     */
+    @Override
+    public List<WsByteBuffer> compress(WsByteBuffer[] buffers) {
+        return record(this.delegate.compress(buffers));
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#finish()
+     */
+    @Override
+    public List<WsByteBuffer> finish() {
+        return record(this.delegate.finish());
+    }
+
+    /**
+     * Cache the recorded output. This is only called once the final write of
+     * the body has been compressed, as finish() is also used to clean up after
+     * a body that was cut short. Output for an empty body is not cached.
+     */
+    public void commit() {
+        if (null != this.recorded && this.delegate.isFinished() && 0 < this.delegate.getBytesRead()) {
+            this.cache.put(this.key, this.recorded.toByteArray());
+        }
+        this.recorded = null;
+    }
+
+    /**
+     * Copy the output buffers onto the recording, leaving their positions
+     * unchanged.
+     *
+     * @param list
+     * @return List<WsByteBuffer> - the same list
+     */
+    private List<WsByteBuffer> record(List<WsByteBuffer> list) {
+        if (null == this.recorded || null == list) {
+            return list;
+        }
+        for (WsByteBuffer buffer : list) {
+            int length = buffer.remaining();
+            if (this.recorded.size() + length > this.limit) {
+                if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                    Tr.debug(tc, "Compressed body too large to cache: " + this.key);
+                }
+                this.recorded = null;
+                break;
+            }
+            int position = buffer.position();
+            byte[] data = new byte[length];
+            buffer.get(data);
+            buffer.position(position);
+            this.recorded.write(data, 0, length);
+        }
+        return list;
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#isFinished()
+     */
+    @Override
+    public boolean isFinished() {
+        return this.delegate.isFinished();
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesRead()
+     */
+    @Override
+    public long getBytesRead() {
+        return this.delegate.getBytesRead();
+    }
+
+    /*
+     * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesWritten()
+     */
+    @Override
+    public long getBytesWritten() {
+        return this.delegate.getBytesWritten();
+    }
+}
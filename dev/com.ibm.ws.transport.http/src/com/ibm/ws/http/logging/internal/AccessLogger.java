@@ -16,6 +16,7 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.osgi.service.component.ComponentContext;
@@ -37,10 +38,8 @@ import com.ibm.ws.http.channel.internal.values.AccessLogLocalIP;
 import com.ibm.ws.http.channel.internal.values.AccessLogLocalPort;
 import com.ibm.ws.http.channel.internal.values.AccessLogStartTime;
 import com.ibm.ws.http.dispatcher.internal.HttpDispatcher;
-import com.ibm.wsspi.bytebuffer.WsByteBuffer;
 import com.ibm.wsspi.genericbnf.HeaderField;
 import com.ibm.wsspi.genericbnf.HeaderStorage;
-import com.ibm.wsspi.http.channel.HttpChannelUtils;
 import com.ibm.wsspi.http.channel.HttpRequestMessage;
 import com.ibm.wsspi.http.channel.HttpResponseMessage;
 import com.ibm.wsspi.http.channel.values.HttpHeaderKeys;
@@ -73,6 +72,12 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
     /**  */
     private static final String PROP_ENABLED = "enabled";
 
+    /**  */
+    private static final String PROP_QUEUESIZE = "queueSize";
+
+    /**  */
+    private static final String PROP_QUEUEFULLPOLICY = "queueFullPolicy";
+
     /** RAS tracing variable */
     private static final TraceComponent tc = Tr.register(AccessLogger.class,
                                                          HttpMessages.HTTP_TRACE_NAME,
@@ -93,6 +98,17 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
 
     }
 
+    /** Largest line builder kept for reuse by a thread */
+    private static final int MAX_KEPT_LINE_SIZE = 8192;
+
+    /** Line builder of each logging thread, the line is copied to the queue so it can be reused */
+    private static final ThreadLocal<StringBuilder> lineBuilder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
     static class FormatSegment {
         public String string;
         public Object data;
@@ -179,6 +195,30 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
                 }
             }
 
+            Object queueSize = config.get(PROP_QUEUESIZE);
+            if (null != queueSize) {
+                try {
+                    setQueueSize(Integer.valueOf(queueSize.toString()));
+                } catch (NumberFormatException nfe) {
+                    FFDCFilter.processException(nfe, getClass().getName() + ".modified", PROP_QUEUESIZE);
+                    if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                        Tr.event(tc, "Config: invalid access queue size: " + queueSize);
+                    }
+                }
+            }
+
+            Object policy = config.get(PROP_QUEUEFULLPOLICY);
+            if (null != policy) {
+                try {
+                    setQueueFullPolicy(QueueFullPolicy.valueOf(policy.toString().toUpperCase(Locale.ENGLISH)));
+                } catch (IllegalArgumentException iae) {
+                    FFDCFilter.processException(iae, getClass().getName() + ".modified", PROP_QUEUEFULLPOLICY);
+                    if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
+                        Tr.event(tc, "Config: invalid access queue full policy: " + policy);
+                    }
+                }
+            }
+
         } catch (FileNotFoundException e) {
             FFDCFilter.processException(e, getClass().getName() + ".modified", "name", this);
             if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
@@ -374,9 +414,9 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
             return;
         }
         try {
-            StringBuilder accessLogLine;
+            StringBuilder accessLogLine = lineBuilder.get();
+            accessLogLine.setLength(0);
             if (parsedFormat != null) {
-                accessLogLine = new StringBuilder();
                 for (FormatSegment s : parsedFormat) {
                     if (s.string != null) {
                         accessLogLine.append(s.string);
@@ -387,7 +427,6 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
                 }
             } else {
                 // addr - userid [date] "method uri?query version" status_code content_length
-                accessLogLine = new StringBuilder(128);
                 accessLogLine.append(remoteAddr);
                 if (null == userId) {
                     accessLogLine.append(" - - [");
@@ -468,11 +507,10 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
                 } // end-for
             }
 
-            WsByteBuffer wsbb =
-                            HttpDispatcher.getBufferManager().allocate(accessLogLine.length());
-            wsbb.put(HttpChannelUtils.getBytes(accessLogLine));
-            wsbb.flip();
-            super.log(wsbb);
+            logRecord(accessLogLine);
+            if (MAX_KEPT_LINE_SIZE < accessLogLine.capacity()) {
+                lineBuilder.remove();
+            }
         } catch (Throwable t) {
             FFDCFilter.processException(t, getClass().getName() + ".log", "136", this);
             if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
@@ -588,11 +626,7 @@ public class AccessLogger extends LoggerOffThread implements AccessLog {
             return;
         }
         try {
-            WsByteBuffer wsbb =
-                            HttpDispatcher.getBufferManager().allocate(message.length + 2);
-            wsbb.put(message);
-            wsbb.flip();
-            super.log(wsbb);
+            logRecord(message, 0, message.length);
         } catch (Throwable t) {
             FFDCFilter.processException(t, getClass().getName() + ".log", "156", this);
             if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.logging.internal;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded ring of log records with many producers and a single consumer.
+ * A producer claims the next sequence number with a compare and set, copies
+ * its record into the slot's byte[] and then publishes the slot by storing
+ * the sequence number in it. The consumer moves every published record in
+ * sequence order into one buffer and then frees those slots together, so
+ * neither side takes a lock.
+ * <p>
+ * The byte[] of a slot is kept and reused by later records, so once the
+ * slots have grown to the size of typical records nothing is allocated.
+ */
+public class LogRecordRing {
+
+    /** Size a slot's byte[] starts at */
+    private static final int INITIAL_SLOT_SIZE = 256;
+    /** Slot byte[] larger than this are not kept after their record is consumed */
+    private static final int MAX_KEPT_SLOT_SIZE = 8192;
+
+    /** Record data of each slot */
+    private final byte[][] data;
+    /** Record length of each slot */
+    private final int[] lengths;
+    /** Sequence number last published in each slot */
+    private final AtomicLongArray published;
+    /** Index mask, the number of slots is a power of 2 */
+    private final int mask;
+    /** Next sequence number to be claimed by a producer */
+    private final AtomicLong claimed = new AtomicLong(0L);
+    /** Next sequence number to be consumed, only changed by the consumer */
+    private final AtomicLong consumed = new AtomicLong(0L);
+
+    /**
+     * Create a ring with at least the given number of slots.
+     *
+     * @param size
+     */
+    public LogRecordRing(int size) {
+        int slots = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        this.data = new byte[slots][];
+        this.lengths = new int[slots];
+        this.published = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            this.published.set(i, -1L);
+        }
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Query the number of slots in this ring.
+     *
+     * @return int
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Query how many records are waiting to be consumed. This includes
+     * records that are claimed but not yet published.
+     *
+     * @return int
+     */
+    public int size() {
+        return (int) (this.claimed.get() - this.consumed.get());
+    }
+
+    /**
+     * Claim the next slot.
+     *
+     * @return long sequence number, -1 if the ring is full
+     */
+    private long claim() {
+        while (true) {
+            long sequence = this.claimed.get();
+            if (sequence - this.consumed.get() > this.mask) {
+                return -1L;
+            }
+            if (this.claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Access the byte[] of a claimed slot, making sure it holds at least
+     * the given length.
+     *
+     * @param index
+     * @param length
+     * @return byte[]
+     */
+    private byte[] slot(int index, int length) {
+        byte[] slot = this.data[index];
+        if (null == slot || slot.length < length) {
+            slot = new byte[Math.max(INITIAL_SLOT_SIZE, length)];
+            this.data[index] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * Add a copy of the given bytes to the ring.
+     *
+     * @param src
+     * @param offset
+     * @param length
+     * @return boolean (false means the ring was full)
+     */
+    public boolean offer(byte[] src, int offset, int length) {
+        long sequence = claim();
+        if (-1L == sequence) {
+            return false;
+        }
+        int index = (int) sequence & this.mask;
+        System.arraycopy(src, offset, slot(index, length), 0, length);
+        this.lengths[index] = length;
+        this.published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * Add the remaining bytes of the given buffer to the ring. The buffer's
+     * position is not changed.
+     *
+     * @param src
+     * @return boolean (false means the ring was full)
+     */
+    public boolean offer(ByteBuffer src) {
+        long sequence = claim();
+        if (-1L == sequence) {
+            return false;
+        }
+        int index = (int) sequence & this.mask;
+        int length = src.remaining();
+        if (src.hasArray()) {
+            System.arraycopy(src.array(), src.arrayOffset() + src.position(), slot(index, length), 0, length);
+        } else {
+            src.duplicate().get(slot(index, length), 0, length);
+        }
+        this.lengths[index] = length;
+        this.published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * Add the given characters to the ring, one byte per character, the same
+     * as HttpChannelUtils.getBytes() would have converted them.
+     *
+     * @param src
+     * @return boolean (false means the ring was full)
+     */
+    public boolean offer(CharSequence src) {
+        long sequence = claim();
+        if (-1L == sequence) {
+            return false;
+        }
+        int index = (int) sequence & this.mask;
+        int length = src.length();
+        byte[] slot = slot(index, length);
+        for (int i = 0; i < length; i++) {
+            slot[i] = (byte) src.charAt(i);
+        }
+        this.lengths[index] = length;
+        this.published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * Query whether the next record has been published.
+     *
+     * @return boolean
+     */
+    public boolean isReadable() {
+        long sequence = this.consumed.get();
+        return this.published.get((int) sequence & this.mask) == sequence;
+    }
+
+    /**
+     * Query the length of the next record, if it has been published.
+     *
+     * @return int length, -1 if there is no record to consume
+     */
+    public int peekLength() {
+        long sequence = this.consumed.get();
+        int index = (int) sequence & this.mask;
+        if (this.published.get(index) != sequence) {
+            return -1;
+        }
+        return this.lengths[index];
+    }
+
+    /**
+     * Move the next record into the target buffer and free its slot. The
+     * caller must have checked with peekLength() that there is a record and
+     * that it fits. Only the consumer thread may call this.
+     *
+     * @param target
+     */
+    public void take(ByteBuffer target) {
+        long sequence = this.consumed.get();
+        int index = (int) sequence & this.mask;
+        target.put(this.data[index], 0, this.lengths[index]);
+        if (MAX_KEPT_SLOT_SIZE < this.data[index].length) {
+            this.data[index] = null;
+        }
+        this.consumed.set(sequence + 1);
+    }
+
+    /**
+     * Remove every record without reading it. Only the consumer thread may
+     * call this.
+     *
+     * @return int number of records removed
+     */
+    public int clear() {
+        int count = 0;
+        while (isReadable()) {
+            this.consumed.set(this.consumed.get() + 1);
+            count++;
+        }
+        return count;
+    }
+}
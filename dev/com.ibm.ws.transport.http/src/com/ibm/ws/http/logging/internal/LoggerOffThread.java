@@ -20,6 +20,10 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import com.ibm.websphere.ras.Tr;
 import com.ibm.websphere.ras.TrConfigurator;
@@ -37,6 +41,9 @@ import com.ibm.wsspi.logging.TextFileOutputStreamFactory;
  * another thread, thus freeing up the caller to continue on while the IO occurs
  * in the background.
  * 
+ * The queue is a bounded ring that callers add to without locking, see
+ * LogRecordRing. What happens when it is full depends on the QueueFullPolicy.
+ * 
  * This logger can be stopped and started repeatedly; however, it cannot be
  * restarted once the destroy method has been used.
  */
@@ -65,8 +72,24 @@ public class LoggerOffThread implements LogFile {
         STOPPED
     }
 
+    /** What to do with a new entry when the queue is full */
+    public enum QueueFullPolicy {
+        /** Hold the entry on an unbounded overflow list until the writer gets to it */
+        ASYNC,
+        /** Discard the entry, counting it as dropped */
+        DROP,
+        /** Make the caller wait until the writer has made room */
+        BLOCK
+    }
+
     /** Timeout to use for some lock waits */
     protected static final long TIMEOUT = 10000L;
+    /** Default number of entries the queue holds */
+    public static final int DEFAULT_QUEUE_SIZE = 4096;
+    /** Size of the buffer that queued entries are gathered into for each write */
+    private static final int BATCH_SIZE = 65536;
+    /** How long a caller waits before checking again for room on a full queue */
+    private static final long BLOCK_WAIT = TimeUnit.MICROSECONDS.toNanos(100L);
 
     /** Log file associated with this particular thread */
     private File myFile = null;
@@ -84,6 +107,12 @@ public class LoggerOffThread implements LogFile {
     private long maxFileSize = LogFile.UNLIMITED;
     /** Maximum number of backup files to keep around */
     private int maxBackupFiles = 1;
+    /** Number of entries the queue holds */
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    /** What to do when the queue is full */
+    private volatile QueueFullPolicy queueFullPolicy = QueueFullPolicy.ASYNC;
+    /** Number of entries discarded because the queue was full */
+    private final AtomicLong droppedEntries = new AtomicLong(0L);
 
     /**
      * Constructor that opens a reference to the input file name. Note that
@@ -178,9 +207,8 @@ public class LoggerOffThread implements LogFile {
     }
 
     /**
-     * Log the given data to the log file. If this returns false, then the input
-     * buffer has also been released, the same as if it was successfully written
-     * to the logfile.
+     * Log the given data to the log file. The data is copied to the queue, so
+     * the input buffer is always released, whether this succeeds or not.
      * 
      * @param data
      * @return boolean (true means it succeeded)
@@ -190,11 +218,43 @@ public class LoggerOffThread implements LogFile {
             // return failure
             return false;
         }
-        // if we've stopped then there is no worker to hand this to; however, the
-        // caller does not expect to have to release buffers handed to the
-        // logger so do that here first
-        if (State.RUNNING != this.state) {
+        try {
+            if (State.RUNNING != this.state) {
+                return false;
+            }
+            return this.myWorker.enqueue(data.getWrappedByteBuffer());
+        } finally {
+            // the caller does not expect to have to release buffers handed to the logger
             data.release();
+        }
+    }
+
+    /**
+     * Log the given bytes to the log file. The bytes are copied to the queue
+     * so the caller may reuse the array once this returns.
+     * 
+     * @param data
+     * @param offset
+     * @param length
+     * @return boolean (true means it succeeded)
+     */
+    protected boolean logRecord(byte[] data, int offset, int length) {
+        if (State.RUNNING != this.state) {
+            return false;
+        }
+        return this.myWorker.enqueue(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Log the given characters to the log file, one byte per character. This
+     * writes straight into the queue, so a caller that reuses its own
+     * StringBuilder does not allocate anything for the entry.
+     * 
+     * @param data
+     * @return boolean (true means it succeeded)
+     */
+    protected boolean logRecord(CharSequence data) {
+        if (State.RUNNING != this.state) {
             return false;
         }
         return this.myWorker.enqueue(data);
@@ -239,7 +299,7 @@ public class LoggerOffThread implements LogFile {
         this.myWorker.triggerStop();
         this.myWorker = null;
         if (TraceComponent.isAnyTracingEnabled() && tc.isEventEnabled()) {
-            Tr.event(tc, getFileName() + ": stopped");
+            Tr.event(tc, getFileName() + ": stopped, dropped entries: " + this.droppedEntries.get());
         }
         return true;
     }
@@ -333,6 +393,76 @@ public class LoggerOffThread implements LogFile {
         return true;
     }
 
+    /**
+     * Set the number of entries the queue holds. If the logger is running,
+     * it is restarted with the new queue.
+     * 
+     * @param size
+     * @return boolean (false means the size was invalid)
+     */
+    public boolean setQueueSize(int size) {
+        if (1 > size) {
+            if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                Tr.debug(tc, this.myName + ": Invalid queue size-> " + size);
+            }
+            return false;
+        }
+        if (size != this.queueSize) {
+            boolean started = isStarted();
+            if (started) {
+                stop();
+            }
+            this.queueSize = size;
+            if (started) {
+                start();
+            }
+        }
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, this.myName + ": Set queue size to " + this.queueSize);
+        }
+        return true;
+    }
+
+    /**
+     * Query the number of entries the queue holds.
+     * 
+     * @return int
+     */
+    public int getQueueSize() {
+        return this.queueSize;
+    }
+
+    /**
+     * Set what happens to new entries when the queue is full.
+     * 
+     * @param policy
+     */
+    public void setQueueFullPolicy(QueueFullPolicy policy) {
+        this.queueFullPolicy = policy;
+        if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+            Tr.debug(tc, this.myName + ": Set queue full policy to " + policy);
+        }
+    }
+
+    /**
+     * Query what happens to new entries when the queue is full.
+     * 
+     * @return QueueFullPolicy
+     */
+    public QueueFullPolicy getQueueFullPolicy() {
+        return this.queueFullPolicy;
+    }
+
+    /**
+     * Query how many entries have been discarded because the queue was full,
+     * or because the logger stopped while the caller was waiting for room.
+     * 
+     * @return long
+     */
+    public long getDroppedEntryCount() {
+        return this.droppedEntries.get();
+    }
+
     /**
      * Print this object as a string.
      * 
@@ -346,6 +476,9 @@ public class LoggerOffThread implements LogFile {
         buffer.append("\n  FileName: " + this.myName);
         buffer.append("\n  MaxFileSize: " + this.maxFileSize);
         buffer.append("\n  MaxBackupFiles: " + this.maxBackupFiles);
+        buffer.append("\n  QueueSize: " + this.queueSize);
+        buffer.append("\n  QueueFullPolicy: " + this.queueFullPolicy);
+        buffer.append("\n  DroppedEntries: " + this.droppedEntries.get());
         buffer.append("\n  State: " + this.state);
         buffer.append("\n  Worker: " + this.myWorker);
         return buffer.toString();
@@ -353,8 +486,9 @@ public class LoggerOffThread implements LogFile {
 
     /**
      * Worker thread class that handles pulling data off of the outgoing queue
-     * and writing each buffer to the file. Each time this wakes up it will
-     * purge the entire queue to the file.
+     * and writing it to the file. Each time this wakes up it will purge the
+     * entire queue to the file, gathering the entries into as few writes as
+     * possible.
      * 
      */
     private class WorkerThread extends Thread {
@@ -364,11 +498,14 @@ public class LoggerOffThread implements LogFile {
         /** Lock object for the stop process */
         private final Object stopLock = new Object()
         {};
-        /** Lock object for interacting with the work queue */
-        private final Object lock = new Object()
-        {};
         /** Work queue storing data */
-        private LinkedList<WsByteBuffer> queue = null;
+        private final LogRecordRing ring;
+        /** Entries that did not fit on the full queue, for the ASYNC policy */
+        private final ConcurrentLinkedQueue<byte[]> overflow = new ConcurrentLinkedQueue<byte[]>();
+        /** Whether this thread is parked waiting for work */
+        private volatile boolean waiting = false;
+        /** Buffer that entries are gathered into before writing */
+        private ByteBuffer batch = null;
         /** List of backup files stored */
         private LinkedList<File> backups = null;
         /** path+name information of log files */
@@ -385,7 +522,7 @@ public class LoggerOffThread implements LogFile {
          */
         protected WorkerThread() {
             super();
-            this.queue = new LinkedList<WsByteBuffer>();
+            this.ring = new LogRecordRing(getQueueSize());
         }
 
         /**
@@ -426,23 +563,84 @@ public class LoggerOffThread implements LogFile {
         }
 
         /**
-         * Add a message to the outgoing queue.
+         * Add a copy of the remaining bytes of the buffer to the outgoing queue.
          * 
          * @param buff
          * @return boolean (true means success)
          */
-        protected boolean enqueue(WsByteBuffer buff) {
+        protected boolean enqueue(ByteBuffer buff) {
+            if (WorkerState.RUNNING != this.workerState) {
+                return false;
+            }
+            while (!this.ring.offer(buff)) {
+                QueueFullPolicy policy = getQueueFullPolicy();
+                if (QueueFullPolicy.ASYNC == policy) {
+                    byte[] copy = new byte[buff.remaining()];
+                    buff.duplicate().get(copy);
+                    this.overflow.add(copy);
+                    break;
+                }
+                if (QueueFullPolicy.DROP == policy || !waitForRoom()) {
+                    droppedEntries.incrementAndGet();
+                    return false;
+                }
+            }
+            wake();
+            return true;
+        }
+
+        /**
+         * Add the characters to the outgoing queue, one byte per character.
+         * 
+         * @param data
+         * @return boolean (true means success)
+         */
+        protected boolean enqueue(CharSequence data) {
             if (WorkerState.RUNNING != this.workerState) {
-                buff.release();
                 return false;
             }
-            synchronized (this.lock) {
-                this.queue.add(buff);
-                this.lock.notify();
+            while (!this.ring.offer(data)) {
+                QueueFullPolicy policy = getQueueFullPolicy();
+                if (QueueFullPolicy.ASYNC == policy) {
+                    byte[] copy = new byte[data.length()];
+                    for (int i = 0; i < copy.length; i++) {
+                        copy[i] = (byte) data.charAt(i);
+                    }
+                    this.overflow.add(copy);
+                    break;
+                }
+                if (QueueFullPolicy.DROP == policy || !waitForRoom()) {
+                    droppedEntries.incrementAndGet();
+                    return false;
+                }
             }
+            wake();
             return true;
         }
 
+        /**
+         * Wait a short time for this thread to make room on the queue.
+         * 
+         * @return boolean (false means this worker is stopping and the caller should give up)
+         */
+        private boolean waitForRoom() {
+            wake();
+            LockSupport.parkNanos(BLOCK_WAIT);
+            return WorkerState.RUNNING == this.workerState;
+        }
+
+        /**
+         * Unpark this thread if it is waiting for work. The caller has already
+         * published its entry, and this thread sets the waiting flag before
+         * its last check of the queue, so one of the two sees the other.
+         */
+        private void wake() {
+            if (this.waiting) {
+                this.waiting = false;
+                LockSupport.unpark(this);
+            }
+        }
+
         /**
          * Notify this worker thread that a shutdown is in progress and to not
          * accept new requests and to stop once the last data is flushed. This
@@ -455,9 +653,7 @@ public class LoggerOffThread implements LogFile {
             }
             this.workerState = WorkerState.STOPPING;
             // flush whatever might be on the queue
-            synchronized (this.lock) {
-                this.lock.notify();
-            }
+            LockSupport.unpark(this);
             try {
                 // wait until that flush stops, verify we haven't already stopped
                 if (WorkerState.STOPPING == this.workerState) {
@@ -470,12 +666,8 @@ public class LoggerOffThread implements LogFile {
             } catch (InterruptedException ie) {
                 FFDCFilter.processException(ie, getClass().getName() + ".triggerStop", "201", this);
             }
-            synchronized (this.lock) {
-                // free all the buffers left on the queue
-                while (!this.queue.isEmpty()) {
-                    this.queue.removeFirst().release();
-                }
-            }
+            // anything left is not going to be written now
+            this.overflow.clear();
             // cleanup any backup related items
             if (null != this.backups) {
                 this.myFormat = null;
@@ -595,24 +787,24 @@ public class LoggerOffThread implements LogFile {
             return (newlen > getMaximumSize() || 0 > newlen);
         }
 
+        /**
+         * Write the gathered entries to the file and empty the batch buffer.
+         */
+        private void flush() {
+            this.batch.flip();
+            write(this.batch);
+            this.batch.clear();
+        }
+
         /**
          * Method that actually handles writing data to the file.
          * 
-         * @param data
+         * @param buffer
          */
-        private void logData(WsByteBuffer data) {
-            int length = data.remaining();
-            if (isOverFileLimit(length)) {
-                if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
-                    Tr.debug(tc, "logData, rotate");
-                }
-                rotate();
-            }
-
+        private void write(ByteBuffer buffer) {
+            int length = buffer.remaining();
             int written = 0;
             try {
-
-                ByteBuffer buffer = data.getWrappedByteBuffer();
                 while (written < length) {
                     written += getChannel().write(buffer);
                 }
@@ -623,10 +815,65 @@ public class LoggerOffThread implements LogFile {
                 }
             } finally {
                 this.bytesWritten += written;
-                data.release();
             }
         }
 
+        /**
+         * Get ready to add an entry of the given length to the batch: rotate
+         * the log first if the entry would put it over the size limit, and
+         * write out what has been gathered so far if the entry doesn't fit.
+         * 
+         * @param length
+         * @return boolean (false means the entry is larger than the batch buffer)
+         */
+        private boolean prepareBatch(int length) {
+            if (isOverFileLimit(this.batch.position() + length)) {
+                if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
+                    Tr.debug(tc, "logData, rotate");
+                }
+                flush();
+                rotate();
+            }
+            if (length > this.batch.remaining()) {
+                flush();
+            }
+            return length <= this.batch.capacity();
+        }
+
+        /**
+         * Write everything on the queue to the file.
+         * 
+         * @return boolean (true means something was written)
+         */
+        private boolean drain() {
+            boolean found = false;
+            int length;
+            while (-1 != (length = this.ring.peekLength())) {
+                if (prepareBatch(length)) {
+                    this.ring.take(this.batch);
+                } else {
+                    ByteBuffer large = ByteBuffer.allocate(length);
+                    this.ring.take(large);
+                    large.flip();
+                    write(large);
+                }
+                found = true;
+            }
+            byte[] entry;
+            while (null != (entry = this.overflow.poll())) {
+                if (prepareBatch(entry.length)) {
+                    this.batch.put(entry);
+                } else {
+                    write(ByteBuffer.wrap(entry));
+                }
+                found = true;
+            }
+            if (0 < this.batch.position()) {
+                flush();
+            }
+            return found;
+        }
+
         /**
          * Run method that will watch for data on the outgoing queue and pull
          * that off to save to the file. This runs in the background so the
@@ -635,53 +882,39 @@ public class LoggerOffThread implements LogFile {
          */
         @Override
         public void run() {
-
-            LinkedList<WsByteBuffer> workList = new LinkedList<WsByteBuffer>();
-            LinkedList<WsByteBuffer> tmpList;
+            this.batch = ByteBuffer.allocateDirect(BATCH_SIZE);
             while (true) {
-
-                // pull all the data off of the parent queue and on to our local
-                // work list
-                if (!this.queue.isEmpty()) {
-                    synchronized (this.lock) {
-                        // swap the last work list that is now empty
-                        // and the newly filled queue list
-                        tmpList = workList;
-                        workList = this.queue;
-                        this.queue = tmpList;
-                    }
-                    // now work through each outgoing item on the list
-                    while (!workList.isEmpty()) {
-                        try {
-                            logData(workList.removeFirst());
-                        } catch (Throwable t) {
-                            FFDCFilter.processException(t, getClass().getName() + ".run", "588", this);
-                            if (tc.isDebugEnabled()) {
-                                Tr.debug(tc, getFileName() + ": Unexpected exception in logData; " + t);
-                            }
-                        }
+                boolean found = false;
+                try {
+                    found = drain();
+                } catch (Throwable t) {
+                    FFDCFilter.processException(t, getClass().getName() + ".run", "588", this);
+                    if (tc.isDebugEnabled()) {
+                        Tr.debug(tc, getFileName() + ": Unexpected exception in logData; " + t);
                     }
+                    this.batch.clear();
                 }
                 // if we're in the process of stopping then exit the while loop
                 if (WorkerState.RUNNING != this.workerState) {
                     break;
                 }
                 // wait until somebody tells us we have work to do
-                if (this.queue.isEmpty()) {
-                    try {
-                        synchronized (this.lock) {
-                            // if there's already work on the queue, loop back around
-                            if (!this.queue.isEmpty()) {
-                                continue;
-                            }
-                            this.lock.wait(TIMEOUT);
-                        }
-                    } catch (InterruptedException ie) {
-                        FFDCFilter.processException(ie, getClass().getName() + ".run", "278", this);
+                if (!found) {
+                    this.waiting = true;
+                    if (!this.ring.isReadable() && this.overflow.isEmpty() && WorkerState.RUNNING == this.workerState) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(TIMEOUT));
                     }
+                    this.waiting = false;
                 }
             } // end of while
 
+            // pick up anything added while the stop was in progress
+            try {
+                drain();
+            } catch (Throwable t) {
+                FFDCFilter.processException(t, getClass().getName() + ".run", "610", this);
+            }
+
             // tell the triggerStop method to exit now
             this.workerState = WorkerState.STOPPED;
             synchronized (this.stopLock) {
@@ -700,6 +933,8 @@ public class LoggerOffThread implements LogFile {
             sb.append(getFile().length());
             sb.append("\n    Number of backups: ");
             sb.append(((null != this.backups) ? this.backups.size() : 0));
+            sb.append("\n    Queued entries: ");
+            sb.append(this.ring.size() + this.overflow.size());
             sb.append("\n    State: ");
             sb.append(this.workerState);
             return sb.toString();
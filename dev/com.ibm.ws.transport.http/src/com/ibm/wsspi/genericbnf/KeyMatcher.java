@@ -41,7 +41,7 @@ public class KeyMatcher {
      * @return HeaderBucket
      */
     protected KeyBucket getBucket(char c) {
-        if (c > this.buckets.length) {
+        if (c >= this.buckets.length) {
             // can't handle non-ASCII chars
             return null;
         }
@@ -60,7 +60,7 @@ public class KeyMatcher {
      * @return HeaderBucket
      */
     protected KeyBucket makeBucket(char c) {
-        if (c > this.buckets.length) {
+        if (c >= this.buckets.length) {
             // can't handle non-ASCII chars
             return null;
         }
@@ -111,7 +111,7 @@ public class KeyMatcher {
         }
         KeyBucket bucket = getBucket(name.charAt(start));
         if (null != bucket) {
-            return bucket.match(name.toCharArray(), start, length);
+            return bucket.match(name, start, length);
         }
         return null;
     }
@@ -247,6 +247,42 @@ public class KeyMatcher {
             return null;
         }
 
+        /**
+         * Compare the input value against the stored list of objects and return a
+         * match if found. This works on the String directly so that lookups by
+         * name do not need to copy it.
+         * 
+         * @param data
+         * @param start
+         * @param length
+         * @return GenericKeys, null if not found
+         */
+        protected GenericKeys match(String data, int start, int length) {
+            int end = start + length - 1;
+            int x, y;
+            // save local refs to avoid problems with concurrent add() calls
+            int stop = this.number;
+            char[][] vlist = this.values;
+            char[] temp;
+            for (int i = 0; i < stop; i++) {
+                temp = vlist[i];
+                if (temp.length == length) {
+                    // potential match, scan backwards because most things vary
+                    // later on... Content-Length vs Content-Language for example
+                    for (x = end, y = temp.length - 1; x >= start; x--, y--) {
+                        if (!isEqual(data.charAt(x), temp[y])) {
+                            break; // out of the inner for loop
+                        }
+                    }
+                    if (-1 == y) {
+                        // entire thing matched
+                        return this.list[i];
+                    }
+                }
+            }
+            return null;
+        }
+
         /**
          * Query whether these two characters are equal.
          * 
@@ -258,8 +294,9 @@ public class KeyMatcher {
             if (c1 == c2)
                 return true;
             if (!isCaseSensitive()) {
-                // check both possible variations (lower/upper case)
-                return ((c1 + 32) == c2 || (c1 - 32) == c2);
+                // only letters have another case, '-' and 'M' for example
+                // are 32 apart as well but must not match
+                return (c1 | 0x20) == (c2 | 0x20) && (c1 | 0x20) >= 'a' && (c1 | 0x20) <= 'z';
             }
             return false;
         }
@@ -29,8 +29,16 @@ public class DeflateOutputHandler implements CompressionHandler {
     /** RAS variable */
     private static final TraceComponent tc = Tr.register(DeflateOutputHandler.class, HttpMessages.HTTP_TRACE_NAME, HttpMessages.HTTP_BUNDLE);
 
-    /** Deflater used for this output stream */
+    /** Deflater used for this output stream, null once finished */
     private Deflater deflater = null;
+    /** Whether the deflater omits the zlib wrapper */
+    private boolean nowrap = false;
+    /** Flag on whether the output has been finished */
+    private boolean finished = false;
+    /** Raw bytes compressed, saved when the deflater is given back */
+    private long bytesRead = 0L;
+    /** Compressed bytes produced, saved when the deflater is given back */
+    private long bytesWritten = 0L;
     /** Output buffer used during the compression stage */
     private byte[] buf = new byte[32768];
 
@@ -39,7 +47,7 @@ public class DeflateOutputHandler implements CompressionHandler {
      * 
      */
     public DeflateOutputHandler() {
-        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+        this.deflater = DeflaterPool.acquire(Deflater.DEFAULT_COMPRESSION, false);
         if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
             Tr.debug(tc, "Created a deflate output handler; " + this);
         }
@@ -54,16 +62,30 @@ public class DeflateOutputHandler implements CompressionHandler {
      *            - header from request
      */
     public DeflateOutputHandler(byte[] useragent) {
+        this(useragent, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Create this deflate compression method output handler with the given
+     * compression level. This will check the provided User-Agent value to
+     * test for an IE browser client as IE requires that there is no deflate
+     * wrapper around the compressed bytes.
+     * 
+     * @param useragent
+     *            - header from request, may be null
+     * @param level
+     *            - Deflater compression level, 0-9 or -1 for the default
+     */
+    public DeflateOutputHandler(byte[] useragent, int level) {
         if (null != useragent && isIEBrowser(useragent)) {
             // IE cannot handle the compressed bytes wrapped with encryption
             // markers, so we need to create a Deflater with the nowrap enabled
             if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
                 Tr.debug(tc, "User-Agent indicates IE browser [" + GenericUtils.getEnglishString(useragent) + "]");
             }
-            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-        } else {
-            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+            this.nowrap = true;
         }
+        this.deflater = DeflaterPool.acquire(level, this.nowrap);
         if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
             Tr.debug(tc, "Created a deflate output handler; " + this);
         }
@@ -74,9 +96,10 @@ public class DeflateOutputHandler implements CompressionHandler {
      * marker.
      * 
      * @param agent
-     * @return boolean
+     * @return boolean - true if deflate output for this client must not have
+     *         the zlib wrapper
      */
-    private boolean isIEBrowser(byte[] agent) {
+    public static boolean isIEBrowser(byte[] agent) {
         int end = agent.length - 4;
         for (int i = 0; i < end;) {
             // check for MSIE
@@ -165,6 +188,11 @@ public class DeflateOutputHandler implements CompressionHandler {
                 list.add(buffer);
             }
         }
+        this.bytesRead = this.deflater.getBytesRead();
+        this.bytesWritten = this.deflater.getBytesWritten();
+        DeflaterPool.release(this.deflater, this.nowrap);
+        this.deflater = null;
+        this.finished = true;
         if (TraceComponent.isAnyTracingEnabled() && tc.isEntryEnabled()) {
             Tr.exit(tc, "finish, return list of size " + list.size());
         }
@@ -175,7 +203,7 @@ public class DeflateOutputHandler implements CompressionHandler {
      * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#isFinished()
      */
     public boolean isFinished() {
-        return this.deflater.finished();
+        return this.finished;
     }
 
     /**
@@ -190,7 +218,7 @@ public class DeflateOutputHandler implements CompressionHandler {
             return null;
         }
         int dataSize = buffer.remaining();
-        if (0 == dataSize) {
+        if (0 == dataSize || this.finished) {
             return list;
         }
         byte[] input = null;
@@ -246,7 +274,7 @@ public class DeflateOutputHandler implements CompressionHandler {
      * com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesRead()
      */
     public long getBytesRead() {
-        return this.deflater.getBytesRead();
+        return this.finished ? this.bytesRead : this.deflater.getBytesRead();
     }
 
     /*
@@ -254,7 +282,7 @@ public class DeflateOutputHandler implements CompressionHandler {
      * com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesWritten()
      */
     public long getBytesWritten() {
-        return this.deflater.getBytesWritten();
+        return this.finished ? this.bytesWritten : this.deflater.getBytesWritten();
     }
 
 }
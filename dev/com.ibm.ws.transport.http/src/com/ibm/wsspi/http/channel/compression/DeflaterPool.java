@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wsspi.http.channel.compression;
+
+import java.util.zip.Deflater;
+
+/**
+ * Per-thread cache of Deflaters for the output handlers. A Deflater holds
+ * about 256K of native zlib state, which is allocated on creation and only
+ * freed by end() or by finalization, so creating one per response costs both
+ * the native allocation and finalizer work.
+ * <p>
+ * Each thread keeps one Deflater with the zlib wrapper and one without. A
+ * handler takes the one matching its format when it is created and gives it
+ * back when it finishes, possibly on another thread. A Deflater that finds
+ * its slot taken is ended instead.
+ */
+final class DeflaterPool {
+
+    /** Slot 0 holds the wrapped (zlib) Deflater, slot 1 the raw (nowrap) one */
+    private static final ThreadLocal<Deflater[]> deflaters = new ThreadLocal<Deflater[]>() {
+        @Override
+        protected Deflater[] initialValue() {
+            return new Deflater[2];
+        }
+    };
+
+    private DeflaterPool() {}
+
+    /**
+     * Take a Deflater, reset and set to the given level.
+     *
+     * @param level
+     * @param nowrap - true for raw deflate data, as used inside gzip
+     * @return Deflater
+     */
+    static Deflater acquire(int level, boolean nowrap) {
+        Deflater[] slots = deflaters.get();
+        int slot = nowrap ? 1 : 0;
+        Deflater deflater = slots[slot];
+        if (null == deflater) {
+            return new Deflater(level, nowrap);
+        }
+        slots[slot] = null;
+        // a reset Deflater applies the new level to all of the next input
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    /**
+     * Give a Deflater back once its output is complete. The caller must not
+     * use it afterwards.
+     *
+     * @param deflater
+     * @param nowrap - the format it was acquired with
+     */
+    static void release(Deflater deflater, boolean nowrap) {
+        Deflater[] slots = deflaters.get();
+        int slot = nowrap ? 1 : 0;
+        if (null == slots[slot]) {
+            deflater.reset();
+            slots[slot] = deflater;
+        } else {
+            deflater.end();
+        }
+    }
+}
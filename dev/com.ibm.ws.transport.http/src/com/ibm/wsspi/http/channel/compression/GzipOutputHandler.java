@@ -44,8 +44,14 @@ public class GzipOutputHandler implements CompressionHandler {
                                                  // MSDOS
     };
 
-    /** Deflater used by this handler */
+    /** Deflater used by this handler, null once finished */
     private Deflater deflater = null;
+    /** Flag on whether the output has been finished */
+    private boolean finished = false;
+    /** Raw bytes compressed, saved when the deflater is given back */
+    private long bytesRead = 0L;
+    /** Compressed bytes produced, saved when the deflater is given back */
+    private long bytesWritten = 0L;
     /** Flag on whether we have written out the gzip header information */
     private boolean haveWrittenHeader = false;
     /** Flag on whether this is the specialized x-gzip type */
@@ -62,7 +68,20 @@ public class GzipOutputHandler implements CompressionHandler {
      *            - boolean flag on whether this is an x-gzip handler
      */
     public GzipOutputHandler(boolean isXGzip) {
-        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        this(isXGzip, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Create a gzip compression method output handler with the given
+     * compression level.
+     * 
+     * @param isXGzip
+     *            - boolean flag on whether this is an x-gzip handler
+     * @param level
+     *            - Deflater compression level, 0-9 or -1 for the default
+     */
+    public GzipOutputHandler(boolean isXGzip, int level) {
+        this.deflater = DeflaterPool.acquire(level, true);
         this.bIsXGzip = isXGzip;
         if (TraceComponent.isAnyTracingEnabled() && tc.isDebugEnabled()) {
             Tr.debug(tc, "Created " + (isXGzip ? "x-gzip" : "gzip") + " output handler; " + this);
@@ -143,7 +162,7 @@ public class GzipOutputHandler implements CompressionHandler {
             return list;
         }
         int dataSize = buffer.remaining();
-        if (0 == dataSize) {
+        if (0 == dataSize || this.finished) {
             return list;
         }
         byte[] input = null;
@@ -236,7 +255,11 @@ public class GzipOutputHandler implements CompressionHandler {
         // write the gzip trailer information out
         writeInt((int) this.checksum.getValue(), this.buf, 0);
         writeInt((int) this.deflater.getBytesRead(), this.buf, 4);
-        this.deflater.end();
+        this.bytesRead = this.deflater.getBytesRead();
+        this.bytesWritten = this.deflater.getBytesWritten();
+        DeflaterPool.release(this.deflater, true);
+        this.deflater = null;
+        this.finished = true;
         if (null != buffer && (buffer.capacity() - buffer.limit()) >= 8) {
             buffer.position(buffer.limit());
             buffer.limit(buffer.capacity());
@@ -258,7 +281,7 @@ public class GzipOutputHandler implements CompressionHandler {
      * @see com.ibm.wsspi.http.channel.compression.CompressionHandler#isFinished()
      */
     public boolean isFinished() {
-        return this.deflater.finished();
+        return this.finished;
     }
 
     /*
@@ -266,7 +289,7 @@ public class GzipOutputHandler implements CompressionHandler {
      * com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesRead()
      */
     public long getBytesRead() {
-        return this.deflater.getBytesRead();
+        return this.finished ? this.bytesRead : this.deflater.getBytesRead();
     }
 
     /*
@@ -274,7 +297,7 @@ public class GzipOutputHandler implements CompressionHandler {
      * com.ibm.wsspi.http.channel.compression.CompressionHandler#getBytesWritten()
      */
     public long getBytesWritten() {
-        return this.deflater.getBytesWritten();
+        return this.finished ? this.bytesWritten : this.deflater.getBytesWritten();
     }
 
     /**
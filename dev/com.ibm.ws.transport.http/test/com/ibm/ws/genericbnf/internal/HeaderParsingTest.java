@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.genericbnf.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.ibm.ws.bytebuffer.internal.WsByteBufferImpl;
+import com.ibm.ws.http.channel.internal.HttpTrailersImpl;
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.http.channel.values.HttpHeaderKeys;
+
+/**
+ * Header parsing tests.
+ */
+public class HeaderParsingTest {
+
+    static WsByteBuffer wrap(String s) throws Exception {
+        WsByteBufferImpl buffer = new WsByteBufferImpl();
+        buffer.setByteBuffer(ByteBuffer.wrap(s.getBytes("ISO-8859-1")));
+        return buffer;
+    }
+
+    @Test
+    public void testParseValues() throws Exception {
+        HttpTrailersImpl headers = new HttpTrailersImpl();
+        assertTrue(headers.parseHeaders(wrap("Host: www.example.com\r\n"
+                                             + "accept:\t*/*\r\n"
+                                             + "X-Empty:\r\n"
+                                             + "X-Folded: first\r\n second\r\n"
+                                             + "Content-Length: 42\r\n"
+                                             + "\r\n"), true));
+        assertEquals("www.example.com", headers.getHeader("host").asString());
+        assertEquals("*/*", headers.getHeader(HttpHeaderKeys.HDR_ACCEPT).asString());
+        assertEquals("first second", headers.getHeader("x-folded").asString());
+        assertEquals(42, headers.getHeader("Content-Length").asInteger());
+        assertEquals("", headers.getHeader("X-Empty").asString());
+        byte[] value = headers.getHeader("Host").asBytes();
+        assertEquals(15, value.length);
+        assertEquals("www.example.com", new String(value, "ISO-8859-1"));
+        assertEquals(5, headers.getNumberOfHeaders());
+    }
+
+    @Test
+    public void testParseAcrossBuffers() throws Exception {
+        HttpTrailersImpl headers = new HttpTrailersImpl();
+        assertFalse(headers.parseHeaders(wrap("User-Agent: Mozilla/5.0 (Win"), true));
+        assertTrue(headers.parseHeaders(wrap("dows NT 10.0)\r\nDNT: 1\r\n\r\n"), true));
+        assertEquals("Mozilla/5.0 (Windows NT 10.0)", headers.getHeader("user-agent").asString());
+        assertEquals("1", headers.getHeader("dnt").asString());
+    }
+
+    @Test
+    public void testValuesAfterClear() throws Exception {
+        HttpTrailersImpl headers = new HttpTrailersImpl();
+        assertTrue(headers.parseHeaders(wrap("Host: first.example.com\r\n\r\n"), true));
+        byte[] first = headers.getHeader("Host").asBytes();
+        headers.clear();
+        // the value block is reused, values handed out must not change
+        assertTrue(headers.parseHeaders(wrap("Host: other.example.com\r\n\r\n"), true));
+        assertEquals("first.example.com", new String(first, "ISO-8859-1"));
+        assertEquals("other.example.com", headers.getHeader("Host").asString());
+    }
+
+    @Test
+    public void testLongValuesAfterClear() throws Exception {
+        // values as long as a value block, which asBytes() returns without copying
+        for (int length : new int[] { 2048, 4096 }) {
+            HttpTrailersImpl headers = new HttpTrailersImpl();
+            assertTrue(headers.parseHeaders(wrap("X-Long: " + repeat('a', length) + "\r\n\r\n"), true));
+            byte[] first = headers.getHeader("X-Long").asBytes();
+            assertEquals(length, first.length);
+            headers.clear();
+            assertTrue(headers.parseHeaders(wrap("X-Long: " + repeat('b', length) + "\r\n\r\n"), true));
+            assertEquals(repeat('a', length), new String(first, "ISO-8859-1"));
+            assertEquals(repeat('b', length), headers.getHeader("X-Long").asString());
+        }
+    }
+
+    private static String repeat(char c, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testManyValues() throws Exception {
+        // more value bytes than fit in one value block
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("X-Header-").append(i).append(": value-").append(i).append("-abcdefghijklmnopqrstuvwxyz\r\n");
+        }
+        sb.append("\r\n");
+        HttpTrailersImpl headers = new HttpTrailersImpl();
+        assertTrue(headers.parseHeaders(wrap(sb.toString()), true));
+        assertEquals(100, headers.getNumberOfHeaders());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value-" + i + "-abcdefghijklmnopqrstuvwxyz", headers.getHeader("x-header-" + i).asString());
+        }
+    }
+
+    @Test
+    public void testKeyMatching() {
+        assertSame(HttpHeaderKeys.HDR_CONTENT_LENGTH, HttpHeaderKeys.find("content-LENGTH"));
+        byte[] name = "xxCONTENT-length".getBytes();
+        assertSame(HttpHeaderKeys.HDR_CONTENT_LENGTH, HttpHeaderKeys.find(name, 2, name.length - 2));
+        // '-' and 'M' differ by the same amount as a letter's two cases
+        assertNotSame(HttpHeaderKeys.HDR_CONTENT_LENGTH, HttpHeaderKeys.find("ContentMLength"));
+    }
+}
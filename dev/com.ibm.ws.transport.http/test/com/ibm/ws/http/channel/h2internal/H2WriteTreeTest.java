@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.h2internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jmock.Mockery;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.ws.bytebuffer.internal.WsByteBufferImpl;
+import com.ibm.ws.http.channel.h2internal.H2WorkQInterface.Q_STATUS;
+import com.ibm.ws.http.channel.h2internal.H2WorkQInterface.WRITE_ACTION;
+import com.ibm.ws.http.channel.h2internal.priority.Node;
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.channelfw.VirtualConnection;
+import com.ibm.wsspi.tcpchannel.TCPConnectionContext;
+import com.ibm.wsspi.tcpchannel.TCPRequestContext;
+import com.ibm.wsspi.tcpchannel.TCPWriteCompletedCallback;
+import com.ibm.wsspi.tcpchannel.TCPWriteRequestContext;
+
+/**
+ * Tests for coalescing queued frames into gathering writes.
+ */
+public class H2WriteTreeTest {
+
+    private final Mockery mock = new Mockery();
+    private final VirtualConnection vc = mock.mock(VirtualConnection.class);
+
+    private RecordingWriteContext writeContext;
+    private H2WriteTree writeTree;
+
+    /**
+     * Completes every write right away, keeping the buffers of each.
+     */
+    private class RecordingWriteContext implements TCPWriteRequestContext {
+        final List<WsByteBuffer[]> writes = new ArrayList<WsByteBuffer[]>();
+        WsByteBuffer[] buffers;
+
+        @Override
+        public TCPConnectionContext getInterface() {
+            return null;
+        }
+
+        @Override
+        public void clearBuffers() {
+            buffers = null;
+        }
+
+        @Override
+        public WsByteBuffer[] getBuffers() {
+            return buffers;
+        }
+
+        @Override
+        public void setBuffers(WsByteBuffer[] bufs) {
+            buffers = bufs;
+        }
+
+        @Override
+        public WsByteBuffer getBuffer() {
+            return buffers == null ? null : buffers[0];
+        }
+
+        @Override
+        public void setBuffer(WsByteBuffer buf) {
+            buffers = new WsByteBuffer[] { buf };
+        }
+
+        @Override
+        public long write(long numBytes, int timeout) {
+            writes.add(buffers);
+            return numBytes;
+        }
+
+        @Override
+        public VirtualConnection write(long numBytes, TCPWriteCompletedCallback callback, boolean forceQueue, int timeout) {
+            writes.add(buffers);
+            return vc;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        writeContext = new RecordingWriteContext();
+        writeTree = new H2WriteTree();
+        writeTree.init(writeContext, new H2MuxTCPWriteCallback());
+        // a write is outstanding, so new entries go to the queue
+        writeTree.qStatus = Q_STATUS.ACTIVE;
+    }
+
+    private H2WriteQEntry queue(int streamID, FrameTypes type, int size) throws Exception {
+        WsByteBufferImpl buffer = new WsByteBufferImpl();
+        buffer.setByteBuffer(ByteBuffer.allocate(size));
+        H2WriteQEntry e = new H2WriteQEntry(buffer, null, size, TCPRequestContext.NO_TIMEOUT, H2WriteQEntry.WRITE_TYPE.SYNC, type,
+                                            type == FrameTypes.DATA ? size - 9 : 0, streamID);
+        e.armWriteCompleteLatch();
+        assertEquals(WRITE_ACTION.QUEUED, writeTree.writeOrAddToQ(e));
+        return e;
+    }
+
+    @Test
+    public void testGatherInPriorityOrder() throws Exception {
+        writeTree.setWriteCoalesceSize(1000);
+        writeTree.addNewNodeToQ(3, Node.ROOT_STREAM_ID, 16, false);
+        writeTree.addNewNodeToQ(5, Node.ROOT_STREAM_ID, 200, false);
+        H2WriteQEntry low = queue(3, FrameTypes.HEADERS, 100);
+        H2WriteQEntry high = queue(5, FrameTypes.DATA, 100);
+        H2WriteQEntry control = queue(0, FrameTypes.WINDOW_UPDATE, 13);
+
+        writeTree.new QOwner().run();
+
+        assertEquals(1, writeContext.writes.size());
+        WsByteBuffer[] written = writeContext.writes.get(0);
+        assertEquals(3, written.length);
+        // connection level frames are on the root of the tree, so go first
+        assertSame(control.getBuffer(), written[0]);
+        assertSame(high.getBuffer(), written[1]);
+        assertSame(low.getBuffer(), written[2]);
+        assertEquals(0, low.writeCompleteLatch.getCount());
+        assertEquals(0, high.writeCompleteLatch.getCount());
+        assertEquals(0, control.writeCompleteLatch.getCount());
+        assertEquals(65535 - 91, writeTree.getConnectionWriteLimit());
+        assertEquals(Q_STATUS.NOT_IN_USE, writeTree.qStatus);
+    }
+
+    @Test
+    public void testCoalesceSizeBound() throws Exception {
+        writeTree.setWriteCoalesceSize(250);
+        H2WriteQEntry first = queue(1, FrameTypes.HEADERS, 100);
+        queue(3, FrameTypes.HEADERS, 100);
+        queue(5, FrameTypes.HEADERS, 100);
+
+        writeTree.new QOwner().run();
+
+        assertEquals(2, writeContext.writes.size());
+        assertEquals(2, writeContext.writes.get(0).length);
+        assertSame(first.getBuffer(), writeContext.writes.get(0)[0]);
+        assertEquals(1, writeContext.writes.get(1).length);
+    }
+
+    @Test
+    public void testConnectionWindowBound() throws Exception {
+        writeTree.setWriteCoalesceSize(1000);
+        writeTree.decreaseConnectionWindowUpdateWriteLimit(65535 - 150);
+        queue(1, FrameTypes.DATA, 100);
+        queue(3, FrameTypes.DATA, 100);
+        queue(5, FrameTypes.HEADERS, 100);
+
+        // the second DATA frame would overrun the connection window, so it is left on the tree
+        H2WriteQEntry gathered = writeTree.gatherEntries(writeTree.tree.findNextWriteEntry());
+        assertEquals(1, gathered.getGatheredEntries().size());
+        assertEquals(3, writeTree.tree.findNextWriteEntry().getStreamID());
+    }
+
+    @Test
+    public void testCoalescingDisabled() throws Exception {
+        queue(1, FrameTypes.HEADERS, 100);
+        queue(3, FrameTypes.HEADERS, 100);
+        assertNull(writeTree.gatherEntries(writeTree.tree.findNextWriteEntry()));
+
+        writeTree.new QOwner().run();
+
+        assertEquals(2, writeContext.writes.size());
+    }
+}
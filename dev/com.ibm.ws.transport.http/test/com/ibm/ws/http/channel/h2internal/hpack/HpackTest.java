@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.h2internal.hpack;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.ibm.ws.bytebuffer.internal.WsByteBufferImpl;
+import com.ibm.ws.http.channel.h2internal.exceptions.CompressionException;
+import com.ibm.ws.http.channel.h2internal.hpack.HpackConstants.LiteralIndexType;
+import com.ibm.ws.http.channel.h2internal.huffman.HuffmanDecoder;
+import com.ibm.ws.http.channel.h2internal.huffman.HuffmanEncoder;
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+
+/**
+ * Header compression tests, using the examples of RFC 7541 appendix C.
+ */
+public class HpackTest {
+
+    /** C.4, requests with Huffman coding */
+    static final String[][][] REQUESTS = {
+                                           { { ":method", "GET" }, { ":scheme", "http" }, { ":path", "/" }, { ":authority", "www.example.com" } },
+                                           { { ":method", "GET" }, { ":scheme", "http" }, { ":path", "/" }, { ":authority", "www.example.com" },
+                                             { "cache-control", "no-cache" } },
+                                           { { ":method", "GET" }, { ":scheme", "https" }, { ":path", "/index.html" }, { ":authority", "www.example.com" },
+                                             { "custom-key", "custom-value" } } };
+
+    static final String[] REQUESTS_ENCODED = {
+                                               "828684418cf1e3c2e5f23a6ba0ab90f4ff",
+                                               "828684be5886a8eb10649cbf",
+                                               "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf" };
+
+    /** C.6, responses with Huffman coding and a 256 octet table */
+    static final String[][][] RESPONSES = {
+                                            { { ":status", "302" }, { "cache-control", "private" }, { "date", "Mon, 21 Oct 2013 20:13:21 GMT" },
+                                              { "location", "https://www.example.com" } },
+                                            { { ":status", "307" }, { "cache-control", "private" }, { "date", "Mon, 21 Oct 2013 20:13:21 GMT" },
+                                              { "location", "https://www.example.com" } },
+                                            { { ":status", "200" }, { "cache-control", "private" }, { "date", "Mon, 21 Oct 2013 20:13:22 GMT" },
+                                              { "location", "https://www.example.com" }, { "content-encoding", "gzip" },
+                                              { "set-cookie", "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1" } } };
+
+    static final String[] RESPONSES_ENCODED = {
+                                                "488264025885aec3771a4b6196d07abe941054d444a8200595040b8166e082a62d1bff6e919d29ad171863c78f0b97c8e9ae82ae43d3",
+                                                "4883640effc1c0bf",
+                                                "88c16196d07abe941054d444a8200595040b8166e084a62d1bffc05a839bd9ab77ad94e7821dd7f2e6c7b335dfdfcd5b3960d5af27087f3672c1ab270fb5291f9587316065c003ed4ee5b1063d5007" };
+
+    static byte[] hex(String s) {
+        byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return b;
+    }
+
+    static byte[] encode(H2HeaderTable table, String[][] headers) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String[] header : headers) {
+            out.write(H2Headers.encodeHeader(table, header[0], header[1], LiteralIndexType.INDEX));
+        }
+        return out.toByteArray();
+    }
+
+    static void decode(H2HeaderTable table, byte[] block, String[][] expected) throws Exception {
+        WsByteBufferImpl buffer = new WsByteBufferImpl();
+        buffer.setByteBuffer(ByteBuffer.wrap(block));
+        for (String[] header : expected) {
+            H2HeaderField field = H2Headers.decodeHeader(buffer, table);
+            assertEquals(header[0], field.getName());
+            assertEquals(header[1], field.getValue());
+        }
+        assertEquals(0, ((WsByteBuffer) buffer).remaining());
+    }
+
+    @Test
+    public void testEncodeRequests() throws Exception {
+        H2HeaderTable table = new H2HeaderTable();
+        for (int i = 0; i < REQUESTS.length; i++) {
+            assertArrayEquals("request " + i, hex(REQUESTS_ENCODED[i]), encode(table, REQUESTS[i]));
+        }
+        assertEquals(3, table.getDynamicEntryCount());
+        assertEquals(164, table.getDynamicTableUsedAddressSpace());
+    }
+
+    @Test
+    public void testDecodeRequests() throws Exception {
+        H2HeaderTable table = new H2HeaderTable();
+        for (int i = 0; i < REQUESTS.length; i++) {
+            decode(table, hex(REQUESTS_ENCODED[i]), REQUESTS[i]);
+        }
+        assertEquals("custom-key", table.getHeaderEntry(62).getName());
+        assertEquals("cache-control", table.getHeaderEntry(63).getName());
+        assertEquals(":authority", table.getHeaderEntry(64).getName());
+    }
+
+    // The responses fill the 256 octet table, so these check that eviction keeps the index consistent.
+    @Test
+    public void testEncodeResponses() throws Exception {
+        H2HeaderTable table = new H2HeaderTable(256);
+        for (int i = 0; i < RESPONSES.length; i++) {
+            assertArrayEquals("response " + i, hex(RESPONSES_ENCODED[i]), encode(table, RESPONSES[i]));
+        }
+        assertEquals(3, table.getDynamicEntryCount());
+        assertEquals(215, table.getDynamicTableUsedAddressSpace());
+    }
+
+    @Test
+    public void testDecodeResponses() throws Exception {
+        H2HeaderTable table = new H2HeaderTable(256);
+        for (int i = 0; i < RESPONSES.length; i++) {
+            decode(table, hex(RESPONSES_ENCODED[i]), RESPONSES[i]);
+        }
+        assertEquals("set-cookie", table.getHeaderEntry(62).getName());
+        assertNull(table.getHeaderEntry(65));
+    }
+
+    @Test
+    public void testTableLookup() throws Exception {
+        H2HeaderTable table = new H2HeaderTable(200);
+        // full static match wins, then static name match before dynamic
+        assertEquals(2, table.getHeaderEntry(":method", "GET").getCurrentIndex());
+        assertEquals(8, table.getHeaderEntry(":status", "302").getCurrentIndex());
+        assertNull(table.getHeaderEntry("x-custom", "a"));
+
+        table.addHeaderEntry(new H2HeaderField("x-custom", "a"));
+        table.addHeaderEntry(new H2HeaderField(":status", "302"));
+        table.addHeaderEntry(new H2HeaderField("x-custom", "b"));
+        assertEquals(63, table.getHeaderEntry(":status", "302").getCurrentIndex());
+        assertEquals(64, table.getHeaderEntry("x-custom", "a").getCurrentIndex());
+        assertEquals("b", table.getHeaderEntry("x-custom", "c").getValue());
+        assertEquals(62, table.getHeaderEntry("x-custom", "c").getCurrentIndex());
+
+        // 124 of 200 octets are used; a 79 octet entry evicts the oldest, the newer entry with the same name stays indexed
+        table.addHeaderEntry(new H2HeaderField("x-other", "1234567890123456789012345678901234567890"));
+        assertEquals(3, table.getDynamicEntryCount());
+        assertEquals("b", table.getHeaderEntry("x-custom", "a").getValue());
+        assertEquals(63, table.getHeaderEntry("x-custom", "a").getCurrentIndex());
+
+        // shrinking the table evicts from the oldest end
+        table.updateTableSize(100);
+        assertEquals(1, table.getDynamicEntryCount());
+        assertEquals(8, table.getHeaderEntry(":status", "302").getCurrentIndex());
+        table.updateTableSize(0);
+        assertNull(table.getHeaderEntry("x-custom", "b"));
+    }
+
+    @Test
+    public void testHuffmanRoundTrip() throws Exception {
+        HuffmanDecoder decoder = new HuffmanDecoder();
+        Random random = new Random(7541);
+        for (int i = 0; i < 2000; i++) {
+            byte[] b = new byte[random.nextInt(64)];
+            random.nextBytes(b);
+            assertArrayEquals(b, decoder.convertHuffmanToAscii(HuffmanEncoder.convertAsciiToHuffman(b)));
+        }
+        // C.4.1
+        assertArrayEquals(hex("f1e3c2e5f23a6ba0ab90f4ff"), HuffmanEncoder.convertAsciiToHuffman("www.example.com".getBytes("US-ASCII")));
+    }
+
+    @Test
+    public void testHuffmanInvalidPadding() throws Exception {
+        HuffmanDecoder decoder = new HuffmanDecoder();
+        // "0" is 00000, padded with 1's is valid
+        assertEquals("0", new String(decoder.convertHuffmanToAscii(new byte[] { 0x07 }), "US-ASCII"));
+        assertEquals(0, decoder.convertHuffmanToAscii(new byte[0]).length);
+        // padding of 0's
+        assertInvalid(decoder, new byte[] { 0x00 });
+        // padding of 8 or more 1's
+        assertInvalid(decoder, new byte[] { 0x07, (byte) 0xff });
+        // EOS
+        assertInvalid(decoder, new byte[] { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff });
+    }
+
+    private static void assertInvalid(HuffmanDecoder decoder, byte[] b) {
+        try {
+            decoder.convertHuffmanToAscii(b);
+            fail("decoded invalid Huffman string");
+        } catch (CompressionException e) {
+            // expected
+        }
+    }
+}
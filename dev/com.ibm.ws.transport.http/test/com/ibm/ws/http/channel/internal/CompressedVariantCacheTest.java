@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.channel.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.channelfw.ChannelFrameworkFactory;
+import com.ibm.wsspi.http.channel.compression.GzipOutputHandler;
+
+/**
+ * Tests for the compressed body cache and the compression policy.
+ */
+public class CompressedVariantCacheTest {
+
+    @Test
+    public void testStrongETag() {
+        assertTrue(CompressedVariantCache.isStrong("\"abc\""));
+        assertFalse(CompressedVariantCache.isStrong("W/\"abc\""));
+        assertFalse(CompressedVariantCache.isStrong("\"\""));
+        assertFalse(CompressedVariantCache.isStrong(null));
+    }
+
+    @Test
+    public void testKeyIncludesEncoding() {
+        String gzip = CompressedVariantCache.key("GET", "host", "/a", "", "\"1\"", "gzip");
+        String deflate = CompressedVariantCache.key("GET", "host", "/a", "", "\"1\"", "deflate");
+        assertFalse(gzip.equals(deflate));
+    }
+
+    @Test
+    public void testKeyIncludesMethod() {
+        String get = CompressedVariantCache.key("GET", "host", "/a", "", "\"1\"", "gzip");
+        String head = CompressedVariantCache.key("HEAD", "host", "/a", "", "\"1\"", "gzip");
+        assertFalse(get.equals(head));
+    }
+
+    /**
+     * A HEAD response compresses an empty body, which must not be cached for
+     * the GET that follows; the GET caches its own complete body.
+     */
+    @Test
+    public void testHeadThenGet() throws Exception {
+        CompressedVariantCache cache = new CompressedVariantCache(1024 * 1024);
+        String key = CompressedVariantCache.key("GET", "host", "/a", "", "\"1\"", "gzip");
+
+        RecordingCompressionHandler head = new RecordingCompressionHandler(new GzipOutputHandler(false), cache, key);
+        release(head.compress(new WsByteBuffer[0]));
+        release(head.finish());
+        head.commit();
+        assertNull(cache.get(key));
+
+        byte[] body = new byte[4096];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        WsByteBuffer buffer = ChannelFrameworkFactory.getBufferManager().wrap(body);
+        RecordingCompressionHandler get = new RecordingCompressionHandler(new GzipOutputHandler(false), cache, key);
+        release(get.compress(new WsByteBuffer[] { buffer }));
+        release(get.finish());
+        get.commit();
+        byte[] cached = cache.get(key);
+        assertNotNull(cached);
+
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(cached));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        for (int len = in.read(chunk); -1 != len; len = in.read(chunk)) {
+            out.write(chunk, 0, len);
+        }
+        assertEquals(new String(body, "ISO-8859-1"), new String(out.toByteArray(), "ISO-8859-1"));
+    }
+
+    private static void release(List<WsByteBuffer> list) {
+        for (WsByteBuffer buffer : list) {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testKeyIncludesQueryAndVariedHeaders() {
+        String plain = CompressedVariantCache.key("GET", "host", "/a", "", "\"1\"", "gzip");
+        assertFalse(plain.equals(CompressedVariantCache.key("GET", "host", "/a?b=1", "", "\"1\"", "gzip")));
+        assertFalse(plain.equals(CompressedVariantCache.key("GET", "host", "/a", "accept-language:en,;", "\"1\"", "gzip")));
+    }
+
+    @Test
+    public void testStorable() {
+        assertTrue(CompressedVariantCache.isStorable(null));
+        assertTrue(CompressedVariantCache.isStorable("public, max-age=60"));
+        assertFalse(CompressedVariantCache.isStorable("no-store"));
+        assertFalse(CompressedVariantCache.isStorable("max-age=60, Private"));
+        assertFalse(CompressedVariantCache.isStorable("private=\"Set-Cookie\""));
+    }
+
+    @Test
+    public void testGetAndPut() {
+        CompressedVariantCache cache = new CompressedVariantCache(800);
+        byte[] data = new byte[50];
+        assertNull(cache.get("a"));
+        cache.put("a", data);
+        assertSame(data, cache.get("a"));
+        assertEquals(50, cache.getSize());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        cache.put("a", new byte[20]);
+        assertEquals(20, cache.getSize());
+    }
+
+    @Test
+    public void testLargeEntryNotCached() {
+        CompressedVariantCache cache = new CompressedVariantCache(800);
+        cache.put("a", new byte[101]);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDropped() {
+        CompressedVariantCache cache = new CompressedVariantCache(800);
+        for (int i = 0; i < 8; i++) {
+            cache.put("k" + i, new byte[100]);
+        }
+        // touch the oldest so that the next one goes instead
+        assertNotNull(cache.get("k0"));
+        cache.put("k8", new byte[100]);
+        assertEquals(800, cache.getSize());
+        assertNotNull(cache.get("k0"));
+        assertNull(cache.get("k1"));
+        assertNotNull(cache.get("k8"));
+    }
+
+    @Test
+    public void testCompressibleTypes() {
+        assertTrue(CompressionPolicy.isCompressible(null));
+        assertTrue(CompressionPolicy.isCompressible("text/html; charset=UTF-8"));
+        assertTrue(CompressionPolicy.isCompressible("application/json"));
+        assertTrue(CompressionPolicy.isCompressible("image/svg+xml"));
+        assertFalse(CompressionPolicy.isCompressible("image/png"));
+        assertFalse(CompressionPolicy.isCompressible("IMAGE/JPEG"));
+        assertFalse(CompressionPolicy.isCompressible("video/mp4"));
+        assertFalse(CompressionPolicy.isCompressible("application/zip"));
+        assertFalse(CompressionPolicy.isCompressible("application/x-gzip"));
+        assertFalse(CompressionPolicy.isCompressible("font/woff2"));
+    }
+
+    @Test
+    public void testLargeBodyLevel() {
+        assertTrue(CompressionPolicy.getLevel(CompressionPolicy.LARGE_BODY + 1) <= CompressionPolicy.LEVEL_REDUCED);
+        assertTrue(CompressionPolicy.getLevel(-1) >= CompressionPolicy.LEVEL_SATURATED);
+    }
+}
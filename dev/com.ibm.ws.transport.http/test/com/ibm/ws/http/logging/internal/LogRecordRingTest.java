@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.http.logging.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests for the access log queue and the writer thread that drains it.
+ */
+public class LogRecordRingTest {
+
+    private static String take(LogRecordRing ring) {
+        ByteBuffer buffer = ByteBuffer.allocate(ring.peekLength());
+        ring.take(buffer);
+        return new String(buffer.array());
+    }
+
+    @Test
+    public void testOfferAndTake() {
+        LogRecordRing ring = new LogRecordRing(3);
+        assertEquals(4, ring.getCapacity());
+        assertEquals(-1, ring.peekLength());
+        assertTrue(ring.offer("one"));
+        assertTrue(ring.offer(ByteBuffer.wrap("two".getBytes())));
+        assertTrue(ring.offer("xthreex".getBytes(), 1, 5));
+        assertTrue(ring.offer(new StringBuilder("four")));
+        // full
+        assertFalse(ring.offer("five"));
+        assertEquals(4, ring.size());
+
+        assertEquals("one", take(ring));
+        assertEquals("two", take(ring));
+        // the freed slots are reused
+        assertTrue(ring.offer("five"));
+        assertTrue(ring.offer("a record longer than the initial size of a slot, " + new String(new char[300]).replace('\0', 'x')));
+        assertEquals("three", take(ring));
+        assertEquals("four", take(ring));
+        assertEquals("five", take(ring));
+        assertEquals(349, ring.peekLength());
+        assertEquals(1, ring.clear());
+        assertFalse(ring.isReadable());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final LogRecordRing ring = new LogRecordRing(256);
+        final int threads = 4;
+        final int perThread = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        String record = id + ":" + i;
+                        while (!ring.offer(record)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        Set<String> seen = new HashSet<String>();
+        int[] last = new int[threads];
+        while (seen.size() < threads * perThread) {
+            if (ring.isReadable()) {
+                String record = take(ring);
+                assertTrue(record, seen.add(record));
+                // each producer's records come out in the order it added them
+                int id = Integer.parseInt(record.substring(0, record.indexOf(':')));
+                int i = Integer.parseInt(record.substring(record.indexOf(':') + 1));
+                assertEquals(last[id], i);
+                last[id] = i + 1;
+            }
+        }
+        assertEquals(0, ring.size());
+    }
+
+    /**
+     * Logger writing to a plain file.
+     */
+    static class FileLogger extends LoggerOffThread {
+        FileLogger(File file) throws FileNotFoundException {
+            setFilename(file.getAbsolutePath());
+        }
+
+        @Override
+        protected FileOutputStream createFileOutputStream() throws FileNotFoundException {
+            return new FileOutputStream(getFile(), true);
+        }
+    }
+
+    @Test
+    public void testWriteThroughQueue() throws Exception {
+        File file = File.createTempFile("LogRecordRingTest", ".log");
+        file.deleteOnExit();
+        final FileLogger logger = new FileLogger(file);
+        logger.setQueueSize(16);
+        logger.setQueueFullPolicy(LoggerOffThread.QueueFullPolicy.BLOCK);
+        assertTrue(logger.start());
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int id = t;
+            producers[t] = new Thread() {
+                @Override
+                public void run() {
+                    StringBuilder line = new StringBuilder();
+                    for (int i = 0; i < 1000; i++) {
+                        line.setLength(0);
+                        line.append(id).append(' ').append(i).append('\n');
+                        assertTrue(logger.logRecord(line));
+                    }
+                }
+            };
+            producers[t].start();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        assertTrue(logger.logRecord("last\n".getBytes(), 0, 5));
+        logger.stop();
+        assertFalse(logger.logRecord("stopped\n"));
+        logger.disable();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+        assertEquals(4001, lines.size());
+        assertEquals(4001, new HashSet<String>(lines).size());
+        assertEquals(0, logger.getDroppedEntryCount());
+    }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wsspi.http.channel.compression;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Ignore;
+
+/**
+ * Measures the CPU time per input byte and the compression ratio of each
+ * Deflater level on an HTML page, a JSON document and a log file, and the
+ * cost of a small response with a new Deflater against a pooled one.
+ * Run the main method; this is not part of the unit test bucket.
+ */
+@Ignore
+public class CompressionLevelBenchmark {
+
+    static final int WARMUP_SECONDS = 2;
+    static final int MEASURE_SECONDS = 3;
+
+    static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    static byte[] html(int size) {
+        StringBuilder sb = new StringBuilder("<html><head><title>Orders</title></head><body><table>\n");
+        Random random = new Random(1);
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("<tr class=\"").append((i & 1) == 0 ? "even" : "odd").append("\"><td><a href=\"/orders/").append(100000 + random.nextInt(900000));
+            sb.append("\">Order ").append(i).append("</a></td><td>").append(random.nextInt(10000) / 100.0).append(" EUR</td><td>shipped</td></tr>\n");
+        }
+        return sb.append("</table></body></html>").toString().getBytes();
+    }
+
+    static byte[] json(int size) {
+        StringBuilder sb = new StringBuilder("[");
+        Random random = new Random(2);
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("{\"id\":").append(random.nextInt(1000000)).append(",\"name\":\"user").append(Long.toHexString(random.nextLong()));
+            sb.append("\",\"active\":").append(random.nextBoolean()).append(",\"score\":").append(random.nextDouble()).append("},");
+        }
+        return sb.append("{}]").toString().getBytes();
+    }
+
+    static byte[] log(int size) {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(3);
+        String[] levels = { "INFO", "WARN", "DEBUG" };
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("2017-10-17 10:").append(10 + random.nextInt(50)).append(':').append(10 + random.nextInt(50)).append(' ');
+            sb.append(levels[random.nextInt(3)]).append(" [thread-").append(random.nextInt(64)).append("] request ");
+            sb.append(Integer.toHexString(random.nextInt())).append(" completed in ").append(random.nextInt(500)).append("ms\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    /**
+     * @return compressed length
+     */
+    static int deflate(Deflater deflater, byte[] input, byte[] output) {
+        deflater.setInput(input);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            length += deflater.deflate(output, 0, output.length);
+        }
+        return length;
+    }
+
+    /**
+     * @return CPU nanoseconds per input byte and compressed size over input size
+     */
+    static double[] measure(byte[] input, int level) {
+        Deflater deflater = new Deflater(level, true);
+        byte[] output = new byte[32768];
+        int compressed = 0;
+        long end = System.nanoTime() + WARMUP_SECONDS * 1000000000L;
+        while (System.nanoTime() < end) {
+            deflater.reset();
+            compressed = deflate(deflater, input, output);
+        }
+        long ops = 0;
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        end = System.nanoTime() + MEASURE_SECONDS * 1000000000L;
+        do {
+            deflater.reset();
+            deflate(deflater, input, output);
+            ops++;
+        } while (System.nanoTime() < end);
+        cpu = THREADS.getCurrentThreadCpuTime() - cpu;
+        deflater.end();
+        return new double[] { cpu / (double) (ops * input.length), compressed / (double) input.length };
+    }
+
+    /**
+     * @return CPU nanoseconds per response
+     */
+    static double measureResponse(byte[] input, boolean pooled) {
+        byte[] output = new byte[32768];
+        long ops = 0;
+        long cpu = 0;
+        long end = System.nanoTime() + (WARMUP_SECONDS + MEASURE_SECONDS) * 1000000000L;
+        long measureFrom = System.nanoTime() + WARMUP_SECONDS * 1000000000L;
+        boolean measuring = false;
+        do {
+            if (!measuring && System.nanoTime() >= measureFrom) {
+                measuring = true;
+                cpu = THREADS.getCurrentThreadCpuTime();
+                ops = 0;
+            }
+            Deflater deflater = pooled ? DeflaterPool.acquire(6, true) : new Deflater(6, true);
+            deflate(deflater, input, output);
+            if (pooled) {
+                DeflaterPool.release(deflater, true);
+            } else {
+                // as before pooling, the Deflater was left to finalization
+                deflater = null;
+            }
+            ops++;
+        } while (System.nanoTime() < end);
+        cpu = THREADS.getCurrentThreadCpuTime() - cpu;
+        return cpu / (double) ops;
+    }
+
+    public static void main(String[] args) {
+        String[] names = { "html", "json", "log" };
+        byte[][] inputs = { html(256 * 1024), json(256 * 1024), log(256 * 1024) };
+        System.out.printf("%-6s %6s %12s %8s%n", "input", "level", "cpu ns/byte", "ratio");
+        for (int i = 0; i < inputs.length; i++) {
+            for (int level = 1; level <= 9; level++) {
+                double[] result = measure(inputs[i], level);
+                System.out.printf("%-6s %6d %12.2f %8.3f%n", names[i], level, result[0], result[1]);
+            }
+        }
+        byte[] small = html(4096);
+        System.out.printf("%n%-24s %14s%n", "4K response, level 6", "cpu ns/resp");
+        System.out.printf("%-24s %14.0f%n", "new Deflater", measureResponse(small, false));
+        System.out.printf("%-24s %14.0f%n", "pooled Deflater", measureResponse(small, true));
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wsspi.http.channel.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+/**
+ * Tests for the per-thread Deflater cache of the output handlers.
+ */
+public class DeflaterPoolTest {
+
+    private static byte[] text() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("<tr><td class=\"item\">item ").append(i).append("</td><td>").append(i * 31 % 977).append("</td></tr>\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] input) {
+        deflater.setInput(input);
+        deflater.finish();
+        byte[] out = new byte[input.length + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    @Test
+    public void testReusedOnSameThread() {
+        Deflater first = DeflaterPool.acquire(6, true);
+        DeflaterPool.release(first, true);
+        Deflater second = DeflaterPool.acquire(1, true);
+        assertSame(first, second);
+        DeflaterPool.release(second, true);
+    }
+
+    @Test
+    public void testFormatsKeptApart() {
+        Deflater raw = DeflaterPool.acquire(6, true);
+        DeflaterPool.release(raw, true);
+        Deflater wrapped = DeflaterPool.acquire(6, false);
+        assertNotSame(raw, wrapped);
+        DeflaterPool.release(wrapped, false);
+        assertSame(raw, DeflaterPool.acquire(6, true));
+        assertSame(wrapped, DeflaterPool.acquire(6, false));
+    }
+
+    @Test
+    public void testSecondReleaseIsNotKept() {
+        Deflater first = DeflaterPool.acquire(6, false);
+        Deflater second = DeflaterPool.acquire(6, false);
+        DeflaterPool.release(first, false);
+        DeflaterPool.release(second, false);
+        assertSame(first, DeflaterPool.acquire(6, false));
+        assertNotSame(second, DeflaterPool.acquire(6, false));
+    }
+
+    @Test
+    public void testReusedOutputMatchesNewDeflater() {
+        byte[] input = text();
+        for (int level = 1; level <= 9; level++) {
+            Deflater pooled = DeflaterPool.acquire(level, true);
+            byte[] actual = deflate(pooled, input);
+            DeflaterPool.release(pooled, true);
+            Deflater fresh = new Deflater(level, true);
+            byte[] expected = deflate(fresh, input);
+            fresh.end();
+            assertArrayEquals("level " + level, expected, actual);
+        }
+    }
+}
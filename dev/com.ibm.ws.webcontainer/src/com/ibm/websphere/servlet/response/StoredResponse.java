@@ -24,16 +24,20 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
 import com.ibm.ejs.ras.TraceNLS;
 import com.ibm.websphere.servlet.error.ServletErrorReport;
 import com.ibm.ws.webcontainer.servlet.IncludedResponse;
+import com.ibm.ws.webcontainer.servlet.StaticContentCache;
 import com.ibm.ws.webcontainer.srt.SRTOutputStream;
 import com.ibm.ws.webcontainer.srt.SRTServletResponse;
 import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.webcontainer.WCCustomProperties;
 import com.ibm.wsspi.webcontainer.logging.LoggerFactory;
 import com.ibm.wsspi.webcontainer.servlet.IExtendedResponse;
 import com.ibm.wsspi.webcontainer.servlet.IOutputMethodListener;
@@ -42,6 +46,7 @@ import com.ibm.wsspi.webcontainer.util.ByteBufferOutputStream;
 import com.ibm.wsspi.webcontainer.util.EncodingUtils;
 import com.ibm.wsspi.webcontainer.util.IOutputStreamObserver;
 import com.ibm.wsspi.webcontainer.util.IResponseOutput;
+import com.ibm.wsspi.webcontainer.util.ServletUtil;
 
 /**
  * 
@@ -93,6 +98,10 @@ public class StoredResponse extends HttpServletResponseWrapper implements Stored
   protected int bufferSize = 4096; // default value
   private boolean isCommitted = false;
   private List<WsByteBuffer> _bbList = null;
+  // gzip variant of the output, compressed on the first replay that can use
+  // it and not serialized with the response
+  private transient byte[] _replayGzip;
+  private transient boolean _replayGzipAttempted;
 
   private IOutputMethodListener outputMethodListener;
 
@@ -1047,7 +1056,22 @@ public class StoredResponse extends HttpServletResponseWrapper implements Stored
    * another response. This method is useful when this response is cached to
    * generate the same response later.
    */
-  public void transferResponse(HttpServletResponse target) throws IOException // never
+  public void transferResponse(HttpServletResponse target) throws IOException
+  {
+    transferResponse(target, null);
+  }
+
+  /**
+   * Copy the contents of this response to another HttpServletResponse, as
+   * {@link #transferResponse(HttpServletResponse)} does. If the request is
+   * given and gzip replay is enabled, a gzip variant of the output, compressed
+   * once and kept with this response, is sent to clients that accept it, with
+   * its own entity tag.
+   * 
+   * @param target the response to copy this response to
+   * @param request the request the target responds to, or null
+   */
+  public void transferResponse(HttpServletResponse target, HttpServletRequest request) throws IOException // never
   // called
   // for
   // ARD.
@@ -1153,9 +1177,86 @@ public class StoredResponse extends HttpServletResponseWrapper implements Stored
           out = s._outInternal;
         }
 
-        out.write(this.getOutputBuffer());
+        byte[] gzip = getReplayGzip(target, request);
+        out.write(gzip != null ? gzip : this.getOutputBuffer());
+      }
+    }
+  }
+
+  /**
+   * Choose the gzip variant of the output when the client accepts it, setting
+   * the headers for it; nothing is written, so the caller decides when the
+   * response is committed.
+   * 
+   * @return the gzip variant, or null to send the output as it is
+   */
+  private byte[] getReplayGzip(HttpServletResponse target, HttpServletRequest request) throws IOException
+  {
+    // the encoding and length can only change while nothing else is in the body
+    if (request == null || !WCCustomProperties.STORED_RESPONSE_GZIP || this.getOutputBuffer().length == 0 || target.isCommitted()
+        || !StaticContentCache.isCompressible(target.getContentType()))
+    {
+      return null;
+    }
+    ServletResponse wasres = ServletUtil.unwrapResponse(target);
+    if (wasres instanceof IExtendedResponse && ((IExtendedResponse) wasres).isOutputWritten())
+    {
+      return null;
+    }
+    target.addHeader("Vary", "Accept-Encoding");
+    if (!StaticContentCache.acceptsGzip(request) || target.containsHeader("Content-Encoding"))
+    {
+      return null;
+    }
+    byte[] gzip = getGzipOutput();
+    if (gzip != null)
+    {
+      if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE))
+      {
+        logger.logp(Level.FINE, CLASS_NAME, "getReplayGzip", "length --> " + gzip.length);
+      }
+      target.setHeader("Content-Encoding", "gzip");
+      target.setContentLength(gzip.length);
+      // the gzip variant is a different representation, so it cannot share the entity tag
+      String etag = getHeader("ETag");
+      if (etag != null)
+      {
+        target.setHeader("ETag", gzipETag(etag));
+      }
+    }
+    return gzip;
+  }
+
+  /**
+   * @return the entity tag of the gzip variant of the output with the given entity tag
+   */
+  static String gzipETag(String etag)
+  {
+    int end = etag.length() - 1;
+    if (end > 0 && etag.charAt(end) == '"')
+    {
+      return etag.substring(0, end) + "-gzip\"";
+    }
+    return etag + "-gzip";
+  }
+
+  /**
+   * @return the gzip variant of the output, compressed on first use, or null
+   *         if compression does not make the output smaller
+   */
+  private synchronized byte[] getGzipOutput() throws IOException
+  {
+    if (!_replayGzipAttempted)
+    {
+      _replayGzipAttempted = true;
+      byte[] output = getOutputBuffer();
+      byte[] gzip = StaticContentCache.gzip(output);
+      if (gzip.length < output.length)
+      {
+        _replayGzip = gzip;
       }
     }
+    return _replayGzip;
   }
 
   // LIDB1234.3 - added method below
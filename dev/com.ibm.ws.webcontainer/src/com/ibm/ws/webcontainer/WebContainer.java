@@ -24,11 +24,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
-import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -76,6 +73,7 @@ import com.ibm.ws.webcontainer.srt.SRTConnectionContext;
 import com.ibm.ws.webcontainer.srt.SRTServletRequest;
 import com.ibm.ws.webcontainer.srt.SRTServletResponse;
 import com.ibm.ws.webcontainer.util.InvalidCacheTargetException;
+import com.ibm.ws.webcontainer.util.InvocationCache;
 import com.ibm.ws.webcontainer.util.VirtualHostMapper;
 import com.ibm.ws.webcontainer.util.WSURLDecoder;
 import com.ibm.ws.webcontainer.webapp.WebApp;
@@ -192,8 +190,26 @@ public abstract class WebContainer extends BaseContainer {
 
     protected static boolean decodePlusSign = true; //default to not decoding the plus sign per URL Spec
 
-    protected final static Map _cacheMap = new ConcurrentHashMap(invocationCacheSize);
-    final private static AtomicInteger _cacheSize = new AtomicInteger();
+    /**
+     * Invocation cache of request URI to servlet wrapper, bounded per virtual host.
+     * Evicted wrappers are marked so the servlet wrapper drops its reference to them.
+     */
+    protected final static InvocationCache<CacheServletWrapper> _cacheMap = new InvocationCache<CacheServletWrapper>(invocationCacheSize, new InvocationCache.RemovalListener<CacheServletWrapper>() {
+        @Override
+        public void removed(String key, CacheServletWrapper wrapper) {
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+                logger.logp(Level.FINE, CLASS_NAME, "removed", "evicted cacheKey --> " + key + ", hits=" + _cacheMap.getHitCount() + ", misses=" + _cacheMap.getMissCount()
+                                                               + ", evictions=" + _cacheMap.getEvictionCount());
+            }
+            wrapper.evicted();
+        }
+    });
+
+    /** Start of the cache keys of entries stored under a normalized URI, cannot start a request's key */
+    private static final String NORMALIZED_KEY_PREFIX = "\n";
+
+    /** Placeholder for a templated path segment in a normalized URI */
+    private static final String TEMPLATED_SEGMENT = "*";
 
     protected boolean vHostCompatFlag = true;
 
@@ -1183,14 +1199,7 @@ public abstract class WebContainer extends BaseContainer {
     // begin 272738    Duplicate CacheServletWrappers when url-rewriting is enabled    WAS.webcontainer: rewritten to prevent duplicates    
     public static void addToCache(HttpServletRequest req, RequestProcessor s, WebApp app) {
         //Begin 253010  
-        // check if cache is full
-        if (_cacheSize.get() >= invocationCacheSize) {
-            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) //306998.15
-            {
-                logger.logp(Level.FINE, CLASS_NAME, "addToCache", "cache is full");
-            }
-            return;
-        }
+        // the cache evicts its least frequently used entries once full
         if (app.isUpgraded()) {
             if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE))
             {
@@ -1225,6 +1234,12 @@ public abstract class WebContainer extends BaseContainer {
                 return;
             }
             String cacheKeyStr = cacheKey.toString();
+            if (WCCustomProperties.INVOCATION_CACHE_NORMALIZE_PATHS) {
+                String normalizedKey = getNormalizedCacheKey(req, app, cacheKeyStr);
+                if (normalizedKey != null) {
+                    cacheKeyStr = normalizedKey;
+                }
+            }
             if (_cacheMap.containsKey(cacheKeyStr)) {
                 if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) //306998.15
                 {
@@ -1239,9 +1254,10 @@ public abstract class WebContainer extends BaseContainer {
                 }
 
                 CacheServletWrapper wrapper = new CacheServletWrapper((IServletWrapper) s, req, cacheKeyStr, app);
-                // keep a rough count of the number of items in the cache
-                _cacheMap.put(cacheKeyStr, wrapper);
-                _cacheSize.incrementAndGet();
+                String scope = app.getConfiguration().getVirtualHostName();
+                if (!_cacheMap.put(scope == null ? "" : scope, cacheKeyStr, wrapper)) {
+                    wrapper.evicted();
+                }
             }
         }
         // End 253010
@@ -1249,17 +1265,83 @@ public abstract class WebContainer extends BaseContainer {
 
     // end 272738    Duplicate CacheServletWrappers when url-rewriting is enabled    WAS.webcontainer: rewritten to prevent duplicates
 
+    /**
+     * Work out the key to cache the request's target under when templated path
+     * normalization is enabled. This is only done when the templated segments
+     * are all part of the path info of a path mapped servlet, and the web
+     * application has no servlet mapped below that servlet's path, so every URI
+     * with the same normalized form maps to the same servlet.
+     * 
+     * @return the normalized key, or null to cache under the request's own key
+     */
+    private static String getNormalizedCacheKey(HttpServletRequest req, WebApp app, String cacheKeyStr) {
+        if (req.getPathInfo() == null) {
+            return null;
+        }
+        int templated = InvocationCache.indexOfTemplated(cacheKeyStr);
+        if (templated == -1) {
+            return null;
+        }
+        String contextPath = app.getContextPath();
+        if (contextPath == null || contextPath.equals("/")) {
+            contextPath = "";
+        }
+        String servletPath = req.getServletPath();
+        String prefix = contextPath + servletPath;
+        int uriStart = cacheKeyStr.indexOf('/');
+        if (!cacheKeyStr.startsWith(prefix, uriStart) || uriStart + prefix.length() >= templated) {
+            return null;
+        }
+        Map<String, List<String>> mappings = app.getConfiguration().getServletMappings();
+        if (mappings != null) {
+            String below = servletPath + "/";
+            String own = servletPath + "/*";
+            for (List<String> patterns : mappings.values()) {
+                if (patterns != null) {
+                    for (String pattern : patterns) {
+                        if (pattern.startsWith(below) && !pattern.equals(own)) {
+                            return null;
+                        }
+                    }
+                }
+            }
+        }
+        return NORMALIZED_KEY_PREFIX + InvocationCache.normalize(cacheKeyStr, TEMPLATED_SEGMENT);
+    }
+
     public static CacheServletWrapper getFromCache(CharSequence key) {
-        return (CacheServletWrapper) _cacheMap.get(key.toString());
+        String keyStr = key.toString();
+        if (WCCustomProperties.INVOCATION_CACHE_NORMALIZE_PATHS) {
+            String normalized = InvocationCache.normalize(keyStr, TEMPLATED_SEGMENT);
+            if (normalized != keyStr) {
+                return _cacheMap.get(keyStr, NORMALIZED_KEY_PREFIX + normalized);
+            }
+        }
+        return _cacheMap.get(keyStr);
     }
 
     public static CacheServletWrapper removeFromCache(CharSequence key) {
-        CacheServletWrapper wrapper = (CacheServletWrapper) _cacheMap.remove(key.toString());
-        if (wrapper != null) {
-            _cacheSize.decrementAndGet();
-        }
+        return _cacheMap.remove(key.toString());
+    }
+
+    /**
+     * Remove the key from the cache only if it still maps to the given wrapper,
+     * not to one added after the wrapper was evicted.
+     */
+    public static boolean removeFromCache(CharSequence key, CacheServletWrapper wrapper) {
+        return _cacheMap.remove(key.toString(), wrapper);
+    }
+
+    public static long getInvocationCacheHitCount() {
+        return _cacheMap.getHitCount();
+    }
+
+    public static long getInvocationCacheMissCount() {
+        return _cacheMap.getMissCount();
+    }
 
-        return wrapper;
+    public static long getInvocationCacheEvictionCount() {
+        return _cacheMap.getEvictionCount();
     }
 
     public Integer getKeySize(String cipherSuite) {
@@ -1556,8 +1638,7 @@ public abstract class WebContainer extends BaseContainer {
 
     public static Iterator getCachedServletWrapperNames() {
         // return _cacheMap.keySet().iterator(); //316624
-        Set cacheSet = _cacheMap.keySet(); // 316624
-        List l = new ArrayList(cacheSet); // 316624
+        List l = _cacheMap.keys(); // 316624
         return l.listIterator(); // 316624
     }
 
@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,6 +52,7 @@ import com.ibm.ws.webcontainer.servlet.H2Handler;
 import com.ibm.ws.webcontainer.servlet.ServletWrapper;
 import com.ibm.ws.webcontainer.servlet.WsocHandler;
 import com.ibm.ws.webcontainer.srt.SRTServletRequest;
+import com.ibm.ws.webcontainer.util.URIPatternTrie;
 import com.ibm.ws.webcontainer.webapp.WebApp;
 import com.ibm.ws.webcontainer.webapp.WebApp.ANNOT_TYPE;
 import com.ibm.ws.webcontainer.webapp.WebAppConfiguration;
@@ -116,6 +118,9 @@ public class WebAppFilterManager implements com.ibm.wsspi.webcontainer.filter.We
         }
     });
 
+    /** Filter mappings compiled for each dispatcher type, rebuilt when mappings are added */
+    private final CompiledFilterMappings[] compiledFilterMappings = new CompiledFilterMappings[DispatcherType.values().length];
+
     public boolean _filtersDefined = false;
 
     static final int FMI_MAPPING_SINGLE_SLASH = 0;
@@ -703,6 +708,15 @@ public class WebAppFilterManager implements com.ibm.wsspi.webcontainer.filter.We
                 logger.logp(Level.FINE, CLASS_NAME, "getFilterChainContents", "strippedUri->" + strippedUri);
             }
 
+            // the compiled mappings give the chain unless both uri and servlet name mappings apply
+            fcc = getCompiledFilterMappings(dispatcherType).getFilterChainContents(strippedUri, reqServletName, servletIsInternal);
+            if (fcc != null) {
+                if (isTraceOn && logger.isLoggable(Level.FINE)) {
+                    logger.exiting(CLASS_NAME, "getFilterChainContents", "compiled mapping fcc->" + fcc);
+                }
+                return fcc;
+            }
+
             // 144464 end part 1
             // see if the chain has been previously constructed (look for a
             // filter contents object)
@@ -879,6 +893,150 @@ public class WebAppFilterManager implements com.ibm.wsspi.webcontainer.filter.We
         return fcc;
     }
 
+    private CompiledFilterMappings getCompiledFilterMappings(DispatcherType dispatcherType) {
+        List<IFilterMapping> uriFilterMappings = webAppConfig.getUriFilterMappings();
+        List<IFilterMapping> servletFilterMappings = webAppConfig.getServletFilterMappings();
+        int index = dispatcherType.ordinal();
+        CompiledFilterMappings compiled = compiledFilterMappings[index];
+        if (compiled == null || !compiled.isCurrent(uriFilterMappings, servletFilterMappings)) {
+            compiled = new CompiledFilterMappings(uriFilterMappings, servletFilterMappings, dispatcherType);
+            compiledFilterMappings[index] = compiled;
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+                logger.logp(Level.FINE, CLASS_NAME, "getCompiledFilterMappings", "compiled " + dispatcherType + " filter mappings, trie nodes->" + compiled.trie.getNodeCount());
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * The filter mappings of one dispatcher type. The url pattern mappings are
+     * compiled into a trie whose routes each keep their filter chain contents,
+     * and the servlet name mappings keep the chain contents of each servlet, so
+     * once the contents of a route are built a request gets them without
+     * walking the mapping lists.
+     */
+    private static class CompiledFilterMappings implements URIPatternTrie.RouteFactory<FilterChainContents> {
+        final List<IFilterMapping> uriFilterMappings;
+        final int uriMappingCount;
+        final List<IFilterMapping> servletFilterMappings;
+        final int servletMappingCount;
+        final IFilterMapping[] uriMappings;
+        final IFilterMapping[] servletMappings;
+        final DispatcherType dispatcherType;
+        final URIPatternTrie<FilterChainContents> trie;
+        // [0] for external servlets, [1] for internal ones
+        final Map<String, FilterChainContents[]> servletChains = new ConcurrentHashMap<String, FilterChainContents[]>();
+
+        CompiledFilterMappings(List<IFilterMapping> uriFilterMappings, List<IFilterMapping> servletFilterMappings, DispatcherType dispatcherType) {
+            this.uriFilterMappings = uriFilterMappings;
+            this.servletFilterMappings = servletFilterMappings;
+            this.uriMappings = (uriFilterMappings == null) ? new IFilterMapping[0] : uriFilterMappings.toArray(new IFilterMapping[0]);
+            this.servletMappings = (servletFilterMappings == null) ? new IFilterMapping[0] : servletFilterMappings.toArray(new IFilterMapping[0]);
+            this.uriMappingCount = this.uriMappings.length;
+            this.servletMappingCount = this.servletMappings.length;
+            this.dispatcherType = dispatcherType;
+
+            URIPatternTrie.Builder<FilterChainContents> builder = new URIPatternTrie.Builder<FilterChainContents>();
+            for (int i = 0; i < uriMappings.length; i++) {
+                IFilterMapping fmInfo = uriMappings[i];
+                if (!hasDispatchMode(fmInfo, dispatcherType)) {
+                    continue;
+                }
+                switch (fmInfo.getMappingType()) {
+                    case FMI_MAPPING_SINGLE_SLASH:
+                        builder.addExact("/", i);
+                        break;
+                    case FMI_MAPPING_PATH_MATCH:
+                        builder.addPath(fmInfo.getUrlPattern(), i);
+                        break;
+                    case FMI_MAPPING_EXTENSION_MATCH:
+                        builder.addExtension(fmInfo.getUrlPattern().substring(2), i);
+                        break;
+                    case FMI_MAPPING_EXACT_MATCH:
+                        builder.addExact(fmInfo.getUrlPattern(), i);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            this.trie = builder.build(this, 2);
+        }
+
+        static boolean hasDispatchMode(IFilterMapping fmInfo, DispatcherType dispatcherType) {
+            DispatcherType[] modes = fmInfo.getDispatchMode();
+            for (int i = 0; i < modes.length; i++) {
+                if (modes[i] == dispatcherType) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isCurrent(List<IFilterMapping> uriFilterMappings, List<IFilterMapping> servletFilterMappings) {
+            return uriFilterMappings == this.uriFilterMappings && servletFilterMappings == this.servletFilterMappings
+                   && (uriFilterMappings == null ? 0 : uriFilterMappings.size()) == uriMappingCount
+                   && (servletFilterMappings == null ? 0 : servletFilterMappings.size()) == servletMappingCount;
+        }
+
+        /**
+         * Builds the uri mapped part of the chain of a route.
+         */
+        public FilterChainContents create(int[] patternIds, int variant) {
+            FilterChainContents fcc = new FilterChainContents();
+            for (int i = 0; i < patternIds.length; i++) {
+                IFilterMapping fmInfo = uriMappings[patternIds[i]];
+                if (variant == 1 || !fmInfo.getFilterConfig().isInternal()) {
+                    fcc.addFilter(fmInfo.getFilterConfig().getFilterName());
+                }
+            }
+            return fcc;
+        }
+
+        private FilterChainContents getServletChain(String reqServletName, boolean servletIsInternal) {
+            FilterChainContents[] chains = servletChains.get(reqServletName);
+            if (chains == null) {
+                chains = new FilterChainContents[] { new FilterChainContents(), new FilterChainContents() };
+                for (int i = 0; i < servletMappings.length; i++) {
+                    IFilterMapping fmInfo = servletMappings[i];
+                    String filterServlet = fmInfo.getServletConfig().getServletName();
+                    boolean matches;
+                    if (reqServletName.equals(filterServlet)) {
+                        matches = hasDispatchMode(fmInfo, dispatcherType);
+                    } else if ("*".equals(filterServlet)) {
+                        // Servlet 2.5 SRV.6.2.5
+                        matches = (dispatcherType == DispatcherType.FORWARD || dispatcherType == DispatcherType.INCLUDE) && hasDispatchMode(fmInfo, dispatcherType);
+                    } else {
+                        matches = false;
+                    }
+                    if (matches) {
+                        if (!fmInfo.getFilterConfig().isInternal()) {
+                            chains[0].addFilter(fmInfo.getFilterConfig().getFilterName());
+                        }
+                        chains[1].addFilter(fmInfo.getFilterConfig().getFilterName());
+                    }
+                }
+                servletChains.put(reqServletName, chains);
+            }
+            return chains[servletIsInternal ? 1 : 0];
+        }
+
+        /**
+         * @return the chain contents, or null if both uri and servlet name
+         *         mappings apply to the request
+         */
+        FilterChainContents getFilterChainContents(String strippedUri, String reqServletName, boolean servletIsInternal) {
+            FilterChainContents uriChain = trie.get(strippedUri, servletIsInternal ? 1 : 0);
+            FilterChainContents servletChain = getServletChain(reqServletName, servletIsInternal);
+            if (!servletChain._hasFilters) {
+                return uriChain;
+            }
+            if (!uriChain._hasFilters) {
+                return servletChain;
+            }
+            return null;
+        }
+    }
+
     /**
      * Compares the request uri to the passed in filter uri to see if the filter
      * associated with the filter uri should filter the request uri
@@ -60,6 +60,12 @@ public class EntryServletWrapper extends FileServletWrapper {
         return entry.getLastModified();
     }
     
+    protected Object getCacheKey() {
+        // entries without a file of their own are keyed by the entry itself
+        String path = entry.getPhysicalPath();
+        return path != null ? path : entry;
+    }
+    
     // PM92967, added method
     protected long getFileSize(boolean update) {
         if (fileSize == -1 || update) {
@@ -49,6 +49,8 @@ protected final static Logger logger = LoggerFactory.getInstance().getLogger("co
     private String requestUri;
     
     private boolean invalidated = false;
+
+    private volatile boolean evicted = false;
 	/**
 	 * 
 	 */
@@ -151,7 +153,7 @@ protected final static Logger logger = LoggerFactory.getInstance().getLogger("co
         if (invalidated != true){
 			if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))  //306998.15
 				logger.logp(Level.FINE, CLASS_NAME,"invalidate", "first invalidate");
-			WebContainer.removeFromCache(cacheKeyStr);
+			WebContainer.removeFromCache(cacheKeyStr, this);
 
 			/* Avoid nulling things out so we can continue to handle requests in this wrapper
 	                     * while the app is being destroyed
@@ -168,6 +170,24 @@ protected final static Logger logger = LoggerFactory.getInstance().getLogger("co
 				logger.logp(Level.FINE, CLASS_NAME,"invalidate", "additional invalidate");
 		}
 	}
+	/**
+	 * Called when the invocation cache evicts this wrapper, or does not admit
+	 * it. The servlet wrapper drops its reference to an evicted wrapper the
+	 * next time it adds a listener.
+	 */
+	public void evicted()
+	{
+		evicted = true;
+	}
+
+	/**
+	 * @return true if this wrapper is no longer in the invocation cache
+	 */
+	public boolean isEvicted()
+	{
+		return evicted;
+	}
+
 	/**
 	 * @return
 	 */
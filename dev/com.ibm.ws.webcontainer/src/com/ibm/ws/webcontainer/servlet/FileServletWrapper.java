@@ -164,7 +164,15 @@ public abstract class FileServletWrapper implements IServletWrapper, IServletWra
     public void addServletReferenceListener(ServletReferenceListener wrapper) {
         if (listeners == null) {
       listeners = new ArrayList();
-    }
+        } else {
+            // drop the cache wrappers the invocation cache has evicted
+            for (int i = listeners.size() - 1; i >= 0; i--) {
+                Object listener = listeners.get(i);
+                if (listener instanceof CacheServletWrapper && ((CacheServletWrapper) listener).isEvicted()) {
+                    listeners.remove(i);
+                }
+            }
+        }
 
     listeners.add(wrapper);
   }
@@ -511,7 +519,7 @@ public abstract class FileServletWrapper implements IServletWrapper, IServletWra
                         }
                     }
 
-                    chainedResp.transferResponse(response);
+                    chainedResp.transferResponse(response, request);
                 } else {
 
                     service(request, response, invocationEvent);
@@ -882,7 +890,11 @@ public abstract class FileServletWrapper implements IServletWrapper, IServletWra
                             +" contentLength->"+getContentLength(false)+ ", fileSize->" + this.getFileSize(false) + ", isZip->"+isZip);      
       }
 
-            if (!isZip && os instanceof WSServletOutputStream) {
+            if (!isZip) {
+                isWritten = writeFromCache(request, resp, wasreq, os);
+            }
+
+            if (!isWritten && !isZip && os instanceof WSServletOutputStream) {
         WSServletOutputStream wsos = ((WSServletOutputStream) os);
         int bufferSize = wsos.getBufferSize();
         int totalWritten = ((WSServletOutputStream) os).getTotal();
@@ -984,6 +996,75 @@ public abstract class FileServletWrapper implements IServletWrapper, IServletWra
     }
   }
 
+    /**
+     * Serve the content from the static content cache, loading it on a miss.
+     * The cached content is written through the response's output stream like
+     * any other servlet output, so the stream's buffering, byte counts and
+     * content length checks apply to it.
+     * 
+     * @return true if the content was written
+     */
+    private boolean writeFromCache(HttpServletRequest request, HttpServletResponse resp, IExtendedRequest wasreq, ServletOutputStream os) throws IOException {
+        StaticContentCache cache = StaticContentCache.getInstance();
+        Object key = getCacheKey();
+        if (cache == null || key == null) {
+            return false;
+        }
+        WebAppDispatcherContext dispatchCtx = (WebAppDispatcherContext) wasreq.getWebAppDispatcherContext();
+        long fileSize = this.getFileSize(false);
+        if (dispatchCtx.isInclude() || !cache.isCacheable(fileSize)) {
+            return false;
+        }
+
+        long lastModified = getLastModified();
+        StaticContentCache.Content content = cache.get(key, lastModified, fileSize);
+        if (content == null) {
+            InputStream in = getInputStream();
+            try {
+                content = cache.load(key, lastModified, fileSize, in);
+            } finally {
+                in.close();
+            }
+            if (content == null) {
+                return false;
+            }
+        }
+
+        byte[] data = null;
+        ServletResponse wasres = ServletUtil.unwrapResponse(resp);
+        boolean outputWritten = wasres instanceof IExtendedResponse && ((IExtendedResponse) wasres).isOutputWritten();
+        // the encoding and length can only change while nothing else is in the body
+        if (cache.isGzipEnabled() && !outputWritten && !resp.isCommitted() && StaticContentCache.isCompressible(resp.getContentType())) {
+            resp.addHeader("Vary", "Accept-Encoding");
+            if (StaticContentCache.acceptsGzip(request) && !resp.containsHeader("Content-Encoding")) {
+                data = cache.getGzip(content);
+                if (data != null) {
+                    resp.setHeader("Content-Encoding", "gzip");
+                    resp.setContentLength(data.length);
+                }
+            }
+        }
+        if (data == null) {
+            data = content.getData();
+        }
+
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+            logger.logp(Level.FINE, CLASS_NAME, "writeFromCache", "writing cached content, key->" + key + ", length->" + data.length);
+        }
+        os.write(data, 0, data.length);
+        return true;
+    }
+
+    /**
+     * The key under which this resource's content is held in the static
+     * content cache, or null if the content must not be cached.
+     * 
+     * @return Object
+     */
+    protected Object getCacheKey() {
+        return null;
+    }
+
     private void writeByBytes(HttpServletResponse resp, ServletOutputStream os) throws IOException {
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
       logger.logp(Level.FINE, CLASS_NAME, "writeByBytes", "resp->" + resp + " os->" + os);
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.servlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.wsspi.webcontainer.logging.LoggerFactory;
+
+/**
+ * Reads form post data from a stream and decodes it into chunks of
+ * characters as it arrives. The body is never held as a whole, neither as
+ * bytes nor as one string, and no single array grows with the size of the
+ * body; the chunks are handed to RequestUtils.parseQueryString(char[][], String),
+ * which parses parameters that span chunks.
+ * <p>
+ * Multi-byte characters split between reads are kept by the decoder until
+ * the rest of their bytes arrive.
+ */
+class PostDataReader {
+    protected static Logger logger = LoggerFactory.getInstance().getLogger("com.ibm.ws.webcontainer.servlet");
+    private static final String CLASS_NAME = "com.ibm.ws.webcontainer.servlet.PostDataReader";
+
+    /** Bytes read from the stream at a time */
+    static final int READ_SIZE = 8 * 1024;
+    /** Characters in each decoded chunk */
+    static final int CHUNK_SIZE = 32 * 1024;
+
+    private final CharsetDecoder decoder;
+    private final int chunkSize;
+    private final List<char[]> chunks = new ArrayList<char[]>();
+    private CharBuffer chunk;
+    private long bytesRead = 0L;
+    private boolean nonAscii = false;
+
+    PostDataReader(String encoding) {
+        this(encoding, CHUNK_SIZE);
+    }
+
+    PostDataReader(String encoding, int chunkSize) {
+        Charset charset;
+        try {
+            charset = Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            // unsupported or illegal name, decode as new String(byte[]) would
+            com.ibm.wsspi.webcontainer.util.FFDCWrapper.processException(e, "com.ibm.ws.webcontainer.servlet.PostDataReader", "66");
+            charset = Charset.defaultCharset();
+        }
+        // malformed input becomes the replacement character, as it does for new String(byte[], String)
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chunkSize = chunkSize;
+        this.chunk = CharBuffer.allocate(chunkSize);
+    }
+
+    /**
+     * Read and decode the post data.
+     *
+     * @param in the stream to read from
+     * @param len the number of bytes to read, or -1 to read until the end of the stream
+     * @throws IOException if the stream ends before len bytes were read
+     */
+    void read(InputStream in, long len, String lessBytesMessage) throws IOException {
+        if (in == null)
+            throw new IllegalArgumentException("post data inputstream is null");
+        byte[] buf = new byte[READ_SIZE];
+        ByteBuffer bytes = ByteBuffer.wrap(buf);
+        while (len < 0 || this.bytesRead < len) {
+            int offset = bytes.position();
+            int want = buf.length - offset;
+            if (len >= 0 && want > len - this.bytesRead) {
+                want = (int) (len - this.bytesRead);
+            }
+            int read = in.read(buf, offset, want);
+            if (read < 0 || (read == 0 && len >= 0)) {
+                if (len >= 0) {
+                    throw new IOException(lessBytesMessage);
+                }
+                break;
+            }
+            for (int i = offset; i < offset + read && !this.nonAscii; i++) {
+                if (buf[i] < (byte) 0) {
+                    this.nonAscii = true;
+                }
+            }
+            this.bytesRead += read;
+            bytes.position(offset + read);
+            bytes.flip();
+            decode(bytes, false);
+            bytes.compact();
+        }
+        bytes.flip();
+        decode(bytes, true);
+        while (this.decoder.flush(this.chunk).isOverflow()) {
+            nextChunk();
+        }
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE))
+            logger.logp(Level.FINE, CLASS_NAME, "read", "finished reading [" + this.bytesRead + "] bytes into [" + (this.chunks.size() + 1) + "] chunks");
+    }
+
+    private void decode(ByteBuffer bytes, boolean endOfInput) {
+        while (this.decoder.decode(bytes, this.chunk, endOfInput).isOverflow()) {
+            nextChunk();
+        }
+    }
+
+    private void nextChunk() {
+        if (this.chunk.position() > 0) {
+            this.chunks.add(trim(this.chunk));
+        }
+        this.chunk = CharBuffer.allocate(this.chunkSize);
+    }
+
+    private static char[] trim(CharBuffer buffer) {
+        char[] chars = buffer.array();
+        return buffer.position() == chars.length ? chars : Arrays.copyOf(chars, buffer.position());
+    }
+
+    /**
+     * @return the decoded post data, at least one chunk even if the body is empty
+     */
+    char[][] getChunks() {
+        List<char[]> all = new ArrayList<char[]>(this.chunks);
+        if (this.chunk.position() > 0 || all.isEmpty()) {
+            all.add(trim(this.chunk));
+        }
+        return all.toArray(new char[all.size()][]);
+    }
+
+    /**
+     * @return the number of bytes read from the stream
+     */
+    long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /**
+     * @return whether any byte read was outside of the ASCII range
+     */
+    boolean hasNonAsciiBytes() {
+        return this.nonAscii;
+    }
+}
@@ -9,9 +9,7 @@
  *     IBM Corporation - initial API and implementation
  *******************************************************************************/
 package com.ibm.ws.webcontainer.servlet;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.security.AccessController;
 import java.util.Hashtable;
 import java.util.Locale;
@@ -84,8 +82,6 @@ protected static Logger logger = LoggerFactory.getInstance().getLogger("com.ibm.
     private static final String CP939_ENCODING = "Cp939";
     private static final String SJIS_ENCODING = "SJIS";
     
-    private static final int DEFAULT_BUFFER_SIZE = 2 * 1024;
-    
     public static String getClientEncoding(HttpServletRequest req)
     {
         String encoding = null;
@@ -276,38 +272,26 @@ protected static Logger logger = LoggerFactory.getInstance().getLogger("com.ibm.
         return sb.toString();
     }
     
-    private static String getPostBody(int len, ServletInputStream in, String encoding) /* 157338 add throws */ throws IOException
+    private static PostDataReader readPostData(long len, ServletInputStream in, String encoding) /* 157338 add throws */ throws IOException
     {
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
-			logger.logp(Level.FINE,CLASS_NAME,"getPostBody","len = " + len, ", encoding = " + encoding);
+			logger.logp(Level.FINE,CLASS_NAME,"readPostData","len = " + len + ", encoding = " + encoding);
         
-        int inputLen, offset;
-        byte[] postedBytes = null;
-        String postedBody;
-        if (len <= 0)
-            return null;
         if (in == null)
             throw new IllegalArgumentException("post data inputstream is null");
+        // XXX we shouldn't assume that the only kind of POST body
+        // is FORM data encoded using ASCII or ISO Latin/1 ... or
+        // that the body should always be treated as FORM data.
+        //
+        // The body is decoded as it is read, into chunks of chars that are parsed
+        // as one query string, so no copy of the whole body is ever made.
+        PostDataReader reader = new PostDataReader(encoding);
         try
         {
             //
             // Make sure we read the entire POSTed body.
             //
-            postedBytes = new byte[len];
-            offset = 0;
-            do
-            {
-                inputLen = in.read(postedBytes, offset, len - offset);
-                if (inputLen <= 0)
-                {
-                    String msg = nls.getString("post.body.contains.less.bytes.than.specified", "post body contains less bytes than specified by content-length");
-                    throw new IOException(msg);
-                }
-                logger.logp(Level.FINE, CLASS_NAME, "getPostBody","read of " +  inputLen + " bytes.");
-               offset += inputLen;
-            }
-            while ((len - offset) > 0);            
-            
+            reader.read(in, len, nls.getString("post.body.contains.less.bytes.than.specified", "post body contains less bytes than specified by content-length"));
         }
         catch (IOException e)
         {
@@ -317,37 +301,28 @@ protected static Logger logger = LoggerFactory.getInstance().getLogger("com.ibm.
             //return new Hashtable();
             // begin 157338
         }
-        // XXX we shouldn't assume that the only kind of POST body
-        // is FORM data encoded using ASCII or ISO Latin/1 ... or
-        // that the body should always be treated as FORM data.
-        //
-        try
-        {
-            postedBody = new String(postedBytes, encoding);
-        }
-        catch (UnsupportedEncodingException e)
-        {
-            com.ibm.wsspi.webcontainer.util.FFDCWrapper.processException(e, "com.ibm.ws.webcontainer.servlet.RequestUtils.parsePostData", "411");
-            postedBody = new String(postedBytes);
-        }
-        
-        if (WCCustomProperties.PARSE_UTF8_POST_DATA && encoding.equalsIgnoreCase("UTF-8")) {
-            for (byte nextByte : postedBytes) {
-            	if (nextByte < (byte)0 ) {
-            		encoding = "8859_1";            		
-                    if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
-            			logger.logp(Level.FINE, CLASS_NAME,"parsePostData","UTF8 post data, set encoing to 8859_1 to prevent futrther encoding");
-        	        break;
-            	}    	
-            }
+        return reader;
+    }
+    
+    private static Hashtable parsePostData(PostDataReader reader, String encoding)
+    {
+        if (WCCustomProperties.PARSE_UTF8_POST_DATA && encoding.equalsIgnoreCase("UTF-8") && reader.hasNonAsciiBytes()) {
+            encoding = "8859_1";            		
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
+                logger.logp(Level.FINE, CLASS_NAME,"parsePostData","UTF8 post data, set encoing to 8859_1 to prevent futrther encoding");
         }    
         
-       return postedBody;
+        return parseQueryString(reader.getChunks(), encoding);
     }
     
     public static Hashtable parsePostData(int len, ServletInputStream in, String encoding, boolean multireadPropertyEnabled) /* 157338 add throws */ throws IOException // MultiRead
     {    
-        String postedBody = getPostBody(len, in, encoding);
+        return parsePostDataLong(len, in, encoding, multireadPropertyEnabled);
+    }
+    
+    public static Hashtable parsePostDataLong(long len, ServletInputStream in, String encoding, boolean multireadPropertyEnabled) throws IOException // MultiRead
+    {
+        PostDataReader reader = readPostData(Math.max(len, 0L), in, encoding);
 
         // MultiRead Start
         if (multireadPropertyEnabled) {
@@ -355,136 +330,27 @@ protected static Logger logger = LoggerFactory.getInstance().getLogger("com.ibm.
         }
         // MultiRead End
 
-        return parseQueryString(postedBody, encoding);
-    }
-    
-    public static Hashtable parsePostDataLong(long len, ServletInputStream in, String encoding, boolean multireadPropertyEnabled) throws IOException // MultiRead
-    {
-        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
-            logger.logp(Level.FINE,CLASS_NAME,"parsePostDataLong","len = " + len, ", encoding = " + encoding);
-        
-        int MaxBufferSize = WCCustomProperties.SERVLET31_PRIVATE_BUFFERSIZE_FOR_LARGE_POST_DATA;
-        
-        if (len<=MaxBufferSize) {
-            return parsePostData((int)len,in,encoding, multireadPropertyEnabled); // MultiRead
-        } 
-        
-        long remaining = len;
-        
-        long arraySize = len/MaxBufferSize;
-        if (len%MaxBufferSize>0) arraySize++;
-        
-        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
-            logger.logp(Level.FINE,CLASS_NAME,"parsePostDataLong","buffer size in use = " + MaxBufferSize + ", arraySize required = " + Long.toString(arraySize));
-        
-        if(arraySize > Integer.MAX_VALUE) {
-             throw new IllegalArgumentException();   
-        }
-        char[][] paramData = new char[(int)arraySize][];
-        int readLen = MaxBufferSize;
-        String data=null;
-        int index = 0;
-        while (remaining>0) {
-            
-            // Check if we are near the end of the data
-            if (remaining>MaxBufferSize) {
-                readLen = MaxBufferSize;
-            } else {
-                readLen = (int)remaining;
-            }    
-            
-            data = getPostBody(readLen,in,encoding);
-            
-            paramData[index] = data.toCharArray(); 
-            index++;
-            remaining-=readLen;
-            
-            // MultiRead Start
-            if (multireadPropertyEnabled) {
-                in.close();
-            }
-            // MultiRead End
-            
-         }
-        
-         return  parseQueryString(paramData, encoding);
-                
+        return parsePostData(reader, encoding);
     }
     
     // begin 231634    Support posts with query parms in chunked body    WAS.webcontainer    
     public static Hashtable parsePostData(ServletInputStream in, String encoding, boolean multireadPropertyEnabled) /* 157338 add throws */ throws IOException
     {
-        int inputLen;
-        byte[] postedBytes = null;
-        String postedBody;
         if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
 			logger.logp(Level.FINE, CLASS_NAME,"parsePostData","parsing chunked post data. encoding = " + encoding);
 		
-        
-        if (in == null)
-            throw new IllegalArgumentException("post data inputstream is null");
-        try
-        {
-            //
-            // Make sure we read the entire POSTed body.
-            //
-            ByteArrayOutputStream byteOS = new ByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-            do
-            {
-            	byte [] readInBytes = new byte[DEFAULT_BUFFER_SIZE];
-            	inputLen = in.read(readInBytes, 0, DEFAULT_BUFFER_SIZE);
-            	if (inputLen > 0){
-            		byteOS.write(readInBytes,0,inputLen);
-            	}
-            }
-            while (inputLen != -1);
+        PostDataReader reader = readPostData(-1L, in, encoding);
             
-            // MultiRead Start
-            if (multireadPropertyEnabled) {
-                in.close();
-            }
-            // MultiRead End
-            
-            postedBytes = byteOS.toByteArray();
-            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
-    			logger.logp(Level.FINE, CLASS_NAME,"parsePostData","finished reading ["+postedBytes.length+"] bytes");
-    		
-        }
-        catch (IOException e)
-        {
-            com.ibm.wsspi.webcontainer.util.FFDCWrapper.processException(e, "com.ibm.ws.webcontainer.servlet.RequestUtils.parsePostData", "598");
-            // begin 157338
-            throw e;
-            //return new Hashtable();
-            // begin 157338
-        }
-        // XXX we shouldn't assume that the only kind of POST body
-        // is FORM data encoded using ASCII or ISO Latin/1 ... or
-        // that the body should always be treated as FORM data.
-        //
-        try
-        {
-            postedBody = new String(postedBytes, encoding);
-        }
-        catch (UnsupportedEncodingException e)
-        {
-            com.ibm.wsspi.webcontainer.util.FFDCWrapper.processException(e, "com.ibm.ws.webcontainer.servlet.RequestUtils.parsePostData", "618");
-            postedBody = new String(postedBytes);
+        // MultiRead Start
+        if (multireadPropertyEnabled) {
+            in.close();
         }
-        
-        if (WCCustomProperties.PARSE_UTF8_POST_DATA && encoding.equalsIgnoreCase("UTF-8")) {
-            for (byte nextByte : postedBytes) {
-            	if (nextByte < (byte)0 ) {
-            		encoding = "8859_1";            		
-                    if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
-            			logger.logp(Level.FINE, CLASS_NAME,"parsePostData","UTF8 post data, set encoing to 8859_1 to prevent futrther encoding");
-        	        break;
-            	}    	
-            }
-        }    
+        // MultiRead End
 
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled()&&logger.isLoggable (Level.FINE))
+			logger.logp(Level.FINE, CLASS_NAME,"parsePostData","finished reading ["+reader.getBytesRead()+"] bytes");
         
-        return parseQueryString(postedBody, encoding);
+        return parsePostData(reader, encoding);
     }
     // end 231634    Support posts with query parms in chunked body    WAS.webcontainer    
 
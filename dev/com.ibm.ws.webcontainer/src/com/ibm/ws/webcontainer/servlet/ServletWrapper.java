@@ -736,7 +736,7 @@ public abstract class ServletWrapper extends GenericServlet implements RequestPr
                     }
                 }
 
-                chainedResp.transferResponse(httpResponse);
+                chainedResp.transferResponse(httpResponse, httpRequest);
             } else {
 
                 servletCalled = true; // PK56247
@@ -1935,6 +1935,15 @@ public abstract class ServletWrapper extends GenericServlet implements RequestPr
     public void addServletReferenceListener(ServletReferenceListener listener) {
         if (this.cacheWrappers == null) {
             cacheWrappers = new ArrayList();
+        } else {
+            // drop the cache wrappers the invocation cache has evicted
+            Iterator i = cacheWrappers.iterator();
+            while (i.hasNext()) {
+                Object w = i.next();
+                if (w instanceof CacheServletWrapper && ((CacheServletWrapper) w).isEvicted()) {
+                    i.remove();
+                }
+            }
         }
         this.cacheWrappers.add(listener);
     }
@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.servlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.ibm.wsspi.bytebuffer.WsByteBuffer;
+import com.ibm.wsspi.channelfw.ChannelFrameworkFactory;
+import com.ibm.wsspi.http.channel.compression.GzipOutputHandler;
+import com.ibm.wsspi.webcontainer.WCCustomProperties;
+import com.ibm.wsspi.webcontainer.logging.LoggerFactory;
+
+/**
+ * Bounded cache of static file content shared by the file serving wrappers.
+ * Content is read once into a heap array, so the file is not held open or
+ * mapped and can be replaced or deleted while its content is cached. Entries
+ * are validated against the last modified time and size of the resource on
+ * every lookup and the least recently used entries are evicted once the total
+ * size of the cached content, including any gzip variants, passes the
+ * configured bound.
+ */
+public class StaticContentCache {
+    private static final Logger logger = LoggerFactory.getInstance().getLogger("com.ibm.ws.webcontainer.servlet");
+    private static final String CLASS_NAME = "com.ibm.ws.webcontainer.servlet.StaticContentCache";
+
+    private static StaticContentCache instance = null;
+    private static boolean initialized = false;
+
+    private final long maxSize;
+    private final int maxEntrySize;
+    private final boolean gzipEnabled;
+
+    /** Guarded by this */
+    private final LinkedHashMap<Object, Content> entries = new LinkedHashMap<Object, Content>(64, 0.75f, true);
+    private long currentSize = 0L;
+    private long hits = 0L;
+    private long misses = 0L;
+
+    /**
+     * @return the shared cache, or null if static content caching is disabled
+     */
+    public static synchronized StaticContentCache getInstance() {
+        if (!initialized) {
+            initialized = true;
+            if (WCCustomProperties.STATIC_CONTENT_CACHE_SIZE > 0) {
+                instance = new StaticContentCache(WCCustomProperties.STATIC_CONTENT_CACHE_SIZE,
+                                WCCustomProperties.STATIC_CONTENT_CACHE_MAX_ENTRY_SIZE,
+                                WCCustomProperties.STATIC_CONTENT_CACHE_GZIP);
+                if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+                    logger.logp(Level.FINE, CLASS_NAME, "getInstance", "created " + instance);
+                }
+            }
+        }
+        return instance;
+    }
+
+    StaticContentCache(long maxSize, int maxEntrySize, boolean gzipEnabled) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    /**
+     * @return whether gzip variants of the cached content may be served
+     */
+    public boolean isGzipEnabled() {
+        return this.gzipEnabled;
+    }
+
+    /**
+     * @param size
+     * @return whether content of the given size is allowed in the cache
+     */
+    public boolean isCacheable(long size) {
+        return size > 0 && size <= this.maxEntrySize && size <= this.maxSize;
+    }
+
+    /**
+     * Look up the cached content for the key. Content that no longer matches
+     * the given last modified time and size is dropped.
+     *
+     * @param key
+     * @param lastModified
+     * @param size
+     * @return the cached content, or null if there is no current copy
+     */
+    public synchronized Content get(Object key, long lastModified, long size) {
+        Content content = this.entries.get(key);
+        if (content != null) {
+            if (content.lastModified == lastModified && content.size == size) {
+                this.hits++;
+                return content;
+            }
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+                logger.logp(Level.FINE, CLASS_NAME, "get", "stale content for " + key);
+            }
+            remove(key);
+        }
+        this.misses++;
+        return null;
+    }
+
+    /**
+     * Read the content from the stream and add it to the cache. The caller
+     * remains responsible for closing the stream.
+     *
+     * @param key
+     * @param lastModified
+     * @param size
+     * @param in
+     * @return the cached content, or null if it could not be cached
+     * @throws IOException
+     */
+    public Content load(Object key, long lastModified, long size, InputStream in) throws IOException {
+        if (!isCacheable(size)) {
+            return null;
+        }
+        byte[] data = read(in, (int) size);
+        if (data == null) {
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+                logger.logp(Level.FINE, CLASS_NAME, "load", "size changed while reading " + key);
+            }
+            return null;
+        }
+        Content content = new Content(lastModified, size, data);
+        synchronized (this) {
+            remove(key);
+            content.cached = true;
+            this.entries.put(key, content);
+            this.currentSize += content.size;
+            evict();
+        }
+        if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+            logger.logp(Level.FINE, CLASS_NAME, "load", "cached " + key + " size->" + size);
+        }
+        return content;
+    }
+
+    /**
+     * Read exactly size bytes. A file that is truncated or grows while it is
+     * read is not cached.
+     *
+     * @return the content, or null if the stream did not hold size bytes
+     */
+    private static byte[] read(InputStream in, int size) throws IOException {
+        byte[] data = new byte[size];
+        int offset = 0;
+        int read;
+        while (offset < size && (read = in.read(data, offset, size - offset)) != -1) {
+            offset += read;
+        }
+        if (offset < size || in.read() != -1) {
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Get the gzip variant of the content, compressing it on first use.
+     *
+     * @param content
+     * @return the compressed content, which the caller must not modify, or
+     *         null if compression would not make it smaller
+     */
+    public byte[] getGzip(Content content) {
+        synchronized (content) {
+            if (!content.gzipAttempted) {
+                content.gzipAttempted = true;
+                byte[] gzip = compress(content.data);
+                if (gzip != null && gzip.length < content.size) {
+                    synchronized (this) {
+                        if (content.cached) {
+                            content.gzip = gzip;
+                            this.currentSize += gzip.length;
+                            evict();
+                        }
+                    }
+                }
+            }
+            return content.gzip;
+        }
+    }
+
+    /**
+     * Compress the content for its gzip variant.
+     *
+     * @param data
+     * @return byte[]
+     */
+    protected byte[] compress(byte[] data) {
+        return gzip(data);
+    }
+
+    /**
+     * Compress the data with the HTTP channel's gzip handler and gather the
+     * output into one array.
+     *
+     * @param data
+     * @return byte[]
+     */
+    public static byte[] gzip(byte[] data) {
+        GzipOutputHandler handler = new GzipOutputHandler(false);
+        WsByteBuffer input = ChannelFrameworkFactory.getBufferManager().wrap(data);
+        List<WsByteBuffer> output = new ArrayList<WsByteBuffer>();
+        try {
+            output.addAll(handler.compress(input));
+            output.addAll(handler.finish());
+            int total = 0;
+            for (WsByteBuffer buffer : output) {
+                total += buffer.remaining();
+            }
+            byte[] gzip = new byte[total];
+            int offset = 0;
+            for (WsByteBuffer buffer : output) {
+                int length = buffer.remaining();
+                buffer.get(gzip, offset, length);
+                offset += length;
+            }
+            return gzip;
+        } finally {
+            for (WsByteBuffer buffer : output) {
+                buffer.release();
+            }
+            input.release();
+        }
+    }
+
+    /**
+     * @return whether the Accept-Encoding header of the request allows gzip
+     */
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration values = request.getHeaders("Accept-Encoding");
+        while (values != null && values.hasMoreElements()) {
+            String[] codings = ((String) values.nextElement()).split(",");
+            for (String coding : codings) {
+                String[] params = coding.split(";");
+                if ("gzip".equalsIgnoreCase(params[0].trim())) {
+                    for (int i = 1; i < params.length; i++) {
+                        String param = params[i].trim();
+                        if (param.startsWith("q=")) {
+                            try {
+                                return Float.parseFloat(param.substring(2)) > 0;
+                            } catch (NumberFormatException nfe) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether content of the given type is worth compressing
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/") || type.contains("javascript") || type.contains("json")
+               || type.contains("xml") || type.startsWith("image/svg");
+    }
+
+    /**
+     * Remove the content for the key. Caller must hold the lock on this.
+     */
+    private void remove(Object key) {
+        Content old = this.entries.remove(key);
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    /**
+     * Drop least recently used content until the cache is within its bound.
+     * Caller must hold the lock on this.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Object, Content>> it = this.entries.entrySet().iterator();
+        while (this.currentSize > this.maxSize && it.hasNext()) {
+            Map.Entry<Object, Content> eldest = it.next();
+            it.remove();
+            release(eldest.getValue());
+            if (com.ibm.ejs.ras.TraceComponent.isAnyTracingEnabled() && logger.isLoggable(Level.FINE)) {
+                logger.logp(Level.FINE, CLASS_NAME, "evict", "evicted " + eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * Account for content leaving the cache. The arrays are left to be
+     * collected once no in-flight response still refers to them.
+     */
+    private void release(Content content) {
+        content.cached = false;
+        this.currentSize -= content.size;
+        if (content.gzip != null) {
+            this.currentSize -= content.gzip.length;
+        }
+    }
+
+    /**
+     * @return the number of lookups that found current content
+     */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of lookups that found no current content
+     */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /**
+     * @return the number of bytes held, including gzip variants
+     */
+    public synchronized long getCurrentSize() {
+        return this.currentSize;
+    }
+
+    /**
+     * @return the number of resources cached
+     */
+    public synchronized int getEntryCount() {
+        return this.entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "StaticContentCache[maxSize=" + this.maxSize + ", maxEntrySize=" + this.maxEntrySize
+               + ", gzip=" + this.gzipEnabled + "]";
+    }
+
+    /**
+     * The cached content of one static resource.
+     */
+    public static final class Content {
+        private final long lastModified;
+        private final long size;
+        private final byte[] data;
+        /** Set once compression has been tried, guarded by this content */
+        private boolean gzipAttempted = false;
+        private byte[] gzip = null;
+        /** Whether the content is still accounted in the cache, guarded by the cache */
+        private boolean cached = false;
+
+        Content(long lastModified, long size, byte[] data) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.data = data;
+        }
+
+        /**
+         * @return the content, which is shared and must not be modified
+         */
+        public byte[] getData() {
+            return this.data;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+    }
+}
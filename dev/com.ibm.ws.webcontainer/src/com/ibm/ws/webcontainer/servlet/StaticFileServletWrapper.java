@@ -54,6 +54,10 @@ public class StaticFileServletWrapper extends FileServletWrapper {
         return file.lastModified();
     }
     
+    protected Object getCacheKey() {
+        return file.getAbsolutePath();
+    }
+    
     // PM92967, added method
     protected long getFileSize(boolean update) {
         if (fileSize == -1 || update) {
@@ -0,0 +1,603 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of request URI to invocation target mappings.
+ * <p>
+ * Lookups go to a single concurrent map, but every entry belongs to a scope
+ * (the virtual host of the web application it maps to) and each scope has
+ * its own bounded W-TinyLFU policy: new entries go to a small LRU window,
+ * entries leaving the window compete with the least recently used entry of
+ * the main segmented LRU, and the one requested less often according to a
+ * count-min frequency sketch is evicted. One host receiving many distinct
+ * URIs, such as a crawler or a scan, therefore neither pushes the hot routes
+ * of its own applications out of the cache nor takes space from other hosts.
+ * <p>
+ * Reordering an entry on a hit only happens if the scope's lock is free, so
+ * a busy scope drops some of that bookkeeping rather than making requests
+ * wait on each other.
+ *
+ * @param <V> cached value
+ */
+public class InvocationCache<V> {
+
+    /**
+     * Notified of values that were evicted or not admitted to the cache.
+     *
+     * @param <V> cached value
+     */
+    public interface RemovalListener<V> {
+        void removed(String key, V value);
+    }
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    /** Entry of the cache and of its scope's access order queue */
+    private static final class Node<V> {
+        final String key;
+        final V value;
+        final Policy<V> policy;
+        int queue;
+        boolean linked;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(String key, V value, Policy<V> policy) {
+            this.key = key;
+            this.value = value;
+            this.policy = policy;
+        }
+    }
+
+    /** Doubly linked access order queue, most recently used first */
+    private static final class AccessQueue<V> {
+        Node<V> head;
+        Node<V> tail;
+        int size;
+
+        void addFirst(Node<V> node) {
+            node.prev = null;
+            node.next = this.head;
+            if (null == this.head) {
+                this.tail = node;
+            } else {
+                this.head.prev = node;
+            }
+            this.head = node;
+            this.size++;
+        }
+
+        void remove(Node<V> node) {
+            if (null == node.prev) {
+                this.head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (null == node.next) {
+                this.tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            this.size--;
+        }
+
+        void moveToFront(Node<V> node) {
+            if (this.head != node) {
+                remove(node);
+                addFirst(node);
+            }
+        }
+    }
+
+    /**
+     * 4-bit count-min sketch of how often keys are requested. All counters
+     * are halved once the sample size is reached, so the counts follow
+     * changes in the traffic.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEED = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int size = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+            this.table = new long[size];
+            this.tableMask = size - 1;
+            this.sampleSize = 10 * Math.max(16, maximumSize);
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEED[i]) * SEED[i];
+            h += (h >>> 32);
+            return ((int) h) & this.tableMask;
+        }
+
+        int frequency(int hash) {
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int count = (int) ((this.table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((this.table[index] & mask) != mask) {
+                    this.table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++this.additions == this.sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < this.table.length; i++) {
+                odd += Long.bitCount(this.table[i] & ONE_MASK);
+                this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+            }
+            this.additions = (this.additions - (odd >>> 2)) >>> 1;
+        }
+    }
+
+    /** Eviction policy of one scope, guarded by its lock */
+    private static final class Policy<V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final AccessQueue<V> window = new AccessQueue<V>();
+        final AccessQueue<V> probation = new AccessQueue<V>();
+        final AccessQueue<V> protectedQ = new AccessQueue<V>();
+        final FrequencySketch sketch;
+        final int maximumSize;
+        final int windowMaximum;
+        final int protectedMaximum;
+
+        Policy(int maximumSize) {
+            this.maximumSize = maximumSize;
+            this.windowMaximum = Math.max(1, maximumSize / 100);
+            this.protectedMaximum = (maximumSize - this.windowMaximum) * 8 / 10;
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+
+        AccessQueue<V> queue(Node<V> node) {
+            switch (node.queue) {
+                case WINDOW:
+                    return this.window;
+                case PROBATION:
+                    return this.probation;
+                default:
+                    return this.protectedQ;
+            }
+        }
+
+        int size() {
+            return this.window.size + this.probation.size + this.protectedQ.size;
+        }
+
+        void unlink(Node<V> node) {
+            if (node.linked) {
+                queue(node).remove(node);
+                node.linked = false;
+            }
+        }
+
+        void onHit(Node<V> node) {
+            this.sketch.increment(spread(node.key.hashCode()));
+            if (!node.linked) {
+                return;
+            }
+            if (WINDOW == node.queue) {
+                this.window.moveToFront(node);
+            } else if (PROBATION == node.queue) {
+                this.probation.remove(node);
+                node.queue = PROTECTED;
+                this.protectedQ.addFirst(node);
+                if (this.protectedQ.size > this.protectedMaximum) {
+                    Node<V> demoted = this.protectedQ.tail;
+                    this.protectedQ.remove(demoted);
+                    demoted.queue = PROBATION;
+                    this.probation.addFirst(demoted);
+                }
+            } else {
+                this.protectedQ.moveToFront(node);
+            }
+        }
+
+        /**
+         * Add the node to the window and evict down to the maximum size.
+         *
+         * @param node
+         * @param evicted nodes removed from the policy are added to this list
+         */
+        void onAdd(Node<V> node, List<Node<V>> evicted) {
+            this.sketch.increment(spread(node.key.hashCode()));
+            node.queue = WINDOW;
+            node.linked = true;
+            this.window.addFirst(node);
+
+            Node<V> candidate = null;
+            while (this.window.size > this.windowMaximum) {
+                candidate = this.window.tail;
+                this.window.remove(candidate);
+                candidate.queue = PROBATION;
+                this.probation.addFirst(candidate);
+            }
+            while (size() > this.maximumSize) {
+                Node<V> victim = this.probation.tail;
+                if (null == victim) {
+                    victim = (null != this.protectedQ.tail) ? this.protectedQ.tail : this.window.tail;
+                }
+                if (null != candidate && candidate != victim && candidate.linked && PROBATION == candidate.queue) {
+                    // the entry leaving the window is only admitted if it is
+                    // requested more often than the one it would replace
+                    if (this.sketch.frequency(spread(candidate.key.hashCode())) <= this.sketch.frequency(spread(victim.key.hashCode()))) {
+                        victim = candidate;
+                    }
+                }
+                if (victim == candidate) {
+                    candidate = null;
+                }
+                unlink(victim);
+                evicted.add(victim);
+            }
+        }
+    }
+
+    static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        hash *= 0xac4c1d6b;
+        hash ^= hash >>> 15;
+        return hash;
+    }
+
+    private final ConcurrentMap<String, Node<V>> map;
+    private final ConcurrentMap<String, Policy<V>> policies = new ConcurrentHashMap<String, Policy<V>>();
+    private final int maximumSize;
+    private final RemovalListener<V> removalListener;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a cache.
+     *
+     * @param maximumSize maximum number of entries of each scope
+     * @param removalListener notified of evicted entries, may be null
+     */
+    public InvocationCache(int maximumSize, RemovalListener<V> removalListener) {
+        this.maximumSize = Math.max(1, maximumSize);
+        this.removalListener = removalListener;
+        this.map = new ConcurrentHashMap<String, Node<V>>(Math.min(this.maximumSize, 1024));
+    }
+
+    /**
+     * Query the maximum number of entries of each scope.
+     *
+     * @return int
+     */
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    private Policy<V> policy(String scope) {
+        Policy<V> policy = this.policies.get(scope);
+        if (null == policy) {
+            policy = new Policy<V>(this.maximumSize);
+            Policy<V> existing = this.policies.putIfAbsent(scope, policy);
+            if (null != existing) {
+                policy = existing;
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * Look up the value cached for the key, counting a hit or a miss.
+     *
+     * @param key
+     * @return V, null if not cached
+     */
+    public V get(String key) {
+        return get(key, null);
+    }
+
+    /**
+     * Look up the value cached for the key, or if there is none, for the
+     * alternate key, counting one hit or miss.
+     *
+     * @param key
+     * @param alternateKey may be null
+     * @return V, null if neither is cached
+     */
+    public V get(String key, String alternateKey) {
+        Node<V> node = this.map.get(key);
+        if (null == node && null != alternateKey) {
+            node = this.map.get(alternateKey);
+        }
+        if (null == node) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.hits.incrementAndGet();
+        Policy<V> policy = node.policy;
+        if (policy.lock.tryLock()) {
+            try {
+                policy.onHit(node);
+            } finally {
+                policy.lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Query whether the key is cached, without counting it as a request.
+     *
+     * @param key
+     * @return boolean
+     */
+    public boolean containsKey(String key) {
+        return this.map.containsKey(key);
+    }
+
+    /**
+     * Add a value to the cache, evicting entries of the same scope if it is
+     * full. The new value itself may be the one evicted, if it is requested
+     * less often than the entries already cached; the removal listener is
+     * notified in that case as well.
+     *
+     * @param scope
+     * @param key
+     * @param value
+     * @return boolean, false if the key was already cached
+     */
+    public boolean put(String scope, String key, V value) {
+        Policy<V> policy = policy(scope);
+        Node<V> node = new Node<V>(key, value, policy);
+        List<Node<V>> evicted = new ArrayList<Node<V>>(2);
+        policy.lock.lock();
+        try {
+            if (null != this.map.putIfAbsent(key, node)) {
+                return false;
+            }
+            policy.onAdd(node, evicted);
+            for (Node<V> victim : evicted) {
+                this.map.remove(victim.key, victim);
+            }
+        } finally {
+            policy.lock.unlock();
+        }
+        if (!evicted.isEmpty()) {
+            this.evictions.addAndGet(evicted.size());
+            if (null != this.removalListener) {
+                for (Node<V> victim : evicted) {
+                    this.removalListener.removed(victim.key, victim.value);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void unlink(Node<V> node) {
+        Policy<V> policy = node.policy;
+        policy.lock.lock();
+        try {
+            policy.unlink(node);
+        } finally {
+            policy.lock.unlock();
+        }
+    }
+
+    /**
+     * Remove whatever value is cached for the key.
+     *
+     * @param key
+     * @return V removed value, null if none
+     */
+    public V remove(String key) {
+        Node<V> node = this.map.remove(key);
+        if (null == node) {
+            return null;
+        }
+        unlink(node);
+        return node.value;
+    }
+
+    /**
+     * Remove the key only if it is still mapped to the given value.
+     *
+     * @param key
+     * @param value
+     * @return boolean, true if removed
+     */
+    public boolean remove(String key, V value) {
+        Node<V> node = this.map.get(key);
+        if (null == node || node.value != value || !this.map.remove(key, node)) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Query the number of entries in the cache, over all scopes.
+     *
+     * @return int
+     */
+    public int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Snapshot of the cached keys.
+     *
+     * @return List<String>
+     */
+    public List<String> keys() {
+        return new ArrayList<String>(this.map.keySet());
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public void clear() {
+        Iterator<Node<V>> it = this.map.values().iterator();
+        while (it.hasNext()) {
+            Node<V> node = it.next();
+            it.remove();
+            unlink(node);
+        }
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Normalize templated path segments of a URI: segments that are decimal
+     * numbers, UUIDs, or hex strings of 16 or more digits, as used for
+     * resource IDs in REST style URIs, are replaced with the given
+     * placeholder. Only the part of the string from the first '/' on is
+     * examined.
+     *
+     * @param uri
+     * @param placeholder
+     * @return String, the same instance if there is nothing to normalize
+     */
+    public static String normalize(String uri, String placeholder) {
+        int start = uri.indexOf('/');
+        if (-1 == start) {
+            return uri;
+        }
+        StringBuilder sb = null;
+        int copied = 0;
+        int length = uri.length();
+        while (start < length) {
+            int segment = start + 1;
+            int end = uri.indexOf('/', segment);
+            if (-1 == end) {
+                end = length;
+            }
+            if (isTemplated(uri, segment, end)) {
+                if (null == sb) {
+                    sb = new StringBuilder(length);
+                }
+                sb.append(uri, copied, segment).append(placeholder);
+                copied = end;
+            }
+            start = end;
+        }
+        if (null == sb) {
+            return uri;
+        }
+        return sb.append(uri, copied, length).toString();
+    }
+
+    /**
+     * Find where the first templated path segment of the URI starts.
+     *
+     * @param uri
+     * @return int index, -1 if there is none
+     */
+    public static int indexOfTemplated(String uri) {
+        int start = uri.indexOf('/');
+        if (-1 == start) {
+            return -1;
+        }
+        int length = uri.length();
+        while (start < length) {
+            int segment = start + 1;
+            int end = uri.indexOf('/', segment);
+            if (-1 == end) {
+                end = length;
+            }
+            if (isTemplated(uri, segment, end)) {
+                return segment;
+            }
+            start = end;
+        }
+        return -1;
+    }
+
+    private static boolean isTemplated(String s, int start, int end) {
+        int length = end - start;
+        if (0 == length) {
+            return false;
+        }
+        boolean digits = true;
+        boolean hex = true;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                digits = false;
+                if ((c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                    hex = false;
+                    break;
+                }
+            }
+        }
+        if (digits || (hex && length >= 16)) {
+            return true;
+        }
+        if (36 != length) {
+            return false;
+        }
+        // UUID, 8-4-4-4-12 hex digits
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(start + i);
+            if (8 == i || 13 == i || 18 == i || 23 == i) {
+                if ('-' != c) {
+                    return false;
+                }
+            } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable character trie of URL patterns, compiled once from exact
+ * ("/a/b"), path ("/a/*", added as "/a") and extension ("*.jsp", added as
+ * "jsp") patterns, each identified by an int id.
+ * <p>
+ * A URI is matched with one walk down the trie, following the URI a
+ * character at a time, and one probe of the extension table. That walk ends
+ * on a route: the node reached, whether a path or exact pattern ends there,
+ * and the extension pattern matched. Every URI on the same route matches the
+ * same set of patterns, so the value built for a route by the RouteFactory is
+ * kept and returned for later URIs on that route without building it again;
+ * once a route's value exists, matching it allocates nothing.
+ * <p>
+ * Matching follows the filter mapping rules: a path pattern matches the URI
+ * equal to it and every URI under it, an extension pattern matches the URI
+ * whose text after its last '.' is the extension.
+ *
+ * @param <T> value built for each route
+ */
+public class URIPatternTrie<T> {
+
+    /**
+     * Builds the value for a route from the ids of the patterns it matches.
+     *
+     * @param <T>
+     */
+    public interface RouteFactory<T> {
+        /**
+         * @param patternIds ids of every matching pattern, in increasing order
+         * @param variant which of the trie's variants of the value to build
+         * @return the value, must not be null
+         */
+        T create(int[] patternIds, int variant);
+    }
+
+    private static final int[] NO_IDS = new int[0];
+
+    /** Sorted child characters of each node */
+    private final char[][] labels;
+    /** Child node index for each of the labels */
+    private final int[][] children;
+    /** Ids of the exact patterns ending at each node */
+    private final int[][] exactIds;
+    /** Ids of the path patterns ending at each node */
+    private final int[][] pathIds;
+    /** Ids of the path patterns of ancestors that match every URI through each node */
+    private final int[][] inheritedIds;
+
+    private final String[] extensions;
+    private final int[][] extensionIds;
+    /** Open addressing table of extension index + 1 */
+    private final int[] extensionTable;
+
+    private final RouteFactory<T> factory;
+    private final int variants;
+    private final int valuesPerNode;
+    /** Values built for the routes of each node, replaced on write */
+    private final AtomicReferenceArray<Object[]> values;
+
+    /**
+     * Collects the patterns to compile.
+     *
+     * @param <T>
+     */
+    public static class Builder<T> {
+        private final BuildNode root = new BuildNode();
+        private final Map<String, List<Integer>> extensions = new TreeMap<String, List<Integer>>();
+
+        private static final class BuildNode {
+            final TreeMap<Character, BuildNode> children = new TreeMap<Character, BuildNode>();
+            final List<Integer> exactIds = new ArrayList<Integer>(1);
+            final List<Integer> pathIds = new ArrayList<Integer>(1);
+            int index;
+        }
+
+        private BuildNode node(String path) {
+            BuildNode node = this.root;
+            for (int i = 0; i < path.length(); i++) {
+                Character c = Character.valueOf(path.charAt(i));
+                BuildNode child = node.children.get(c);
+                if (null == child) {
+                    child = new BuildNode();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        /**
+         * Add a pattern matching only the given path.
+         */
+        public Builder<T> addExact(String path, int id) {
+            node(path).exactIds.add(Integer.valueOf(id));
+            return this;
+        }
+
+        /**
+         * Add a pattern matching the given path and every path under it.
+         *
+         * @param path the pattern without its trailing "/*"
+         */
+        public Builder<T> addPath(String path, int id) {
+            node(path).pathIds.add(Integer.valueOf(id));
+            return this;
+        }
+
+        /**
+         * Add a pattern matching every path with the given extension.
+         *
+         * @param extension the pattern without its leading "*."
+         */
+        public Builder<T> addExtension(String extension, int id) {
+            List<Integer> ids = this.extensions.get(extension);
+            if (null == ids) {
+                ids = new ArrayList<Integer>(1);
+                this.extensions.put(extension, ids);
+            }
+            ids.add(Integer.valueOf(id));
+            return this;
+        }
+
+        /**
+         * Compile the patterns.
+         *
+         * @param factory builds the value of each route
+         * @param variants number of different values kept per route
+         * @return URIPatternTrie
+         */
+        public URIPatternTrie<T> build(RouteFactory<T> factory, int variants) {
+            return new URIPatternTrie<T>(this, factory, variants);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list.isEmpty()) {
+            return NO_IDS;
+        }
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i).intValue();
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (0 == a.length) {
+            return b;
+        }
+        if (0 == b.length) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        return (n == result.length) ? result : Arrays.copyOf(result, n);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    URIPatternTrie(Builder<T> builder, RouteFactory<T> factory, int variants) {
+        // number the nodes breadth first
+        List<Builder.BuildNode> nodes = new ArrayList<Builder.BuildNode>();
+        nodes.add(builder.root);
+        for (int i = 0; i < nodes.size(); i++) {
+            for (Builder.BuildNode child : nodes.get(i).children.values()) {
+                child.index = nodes.size();
+                nodes.add(child);
+            }
+        }
+        int count = nodes.size();
+        this.labels = new char[count][];
+        this.children = new int[count][];
+        this.exactIds = new int[count][];
+        this.pathIds = new int[count][];
+        this.inheritedIds = new int[count][];
+        this.inheritedIds[0] = NO_IDS;
+        for (int i = 0; i < count; i++) {
+            Builder.BuildNode node = nodes.get(i);
+            this.exactIds[i] = toArray(node.exactIds);
+            this.pathIds[i] = toArray(node.pathIds);
+            char[] nodeLabels = new char[node.children.size()];
+            int[] nodeChildren = new int[nodeLabels.length];
+            int c = 0;
+            for (Map.Entry<Character, Builder.BuildNode> entry : node.children.entrySet()) {
+                nodeLabels[c] = entry.getKey().charValue();
+                nodeChildren[c] = entry.getValue().index;
+                // a path pattern matches everything through a '/' right after it
+                this.inheritedIds[nodeChildren[c]] = ('/' == nodeLabels[c]) ? union(this.inheritedIds[i], this.pathIds[i]) : this.inheritedIds[i];
+                c++;
+            }
+            this.labels[i] = nodeLabels;
+            this.children[i] = nodeChildren;
+        }
+
+        int extensionCount = builder.extensions.size();
+        this.extensions = new String[extensionCount];
+        this.extensionIds = new int[extensionCount][];
+        this.extensionTable = new int[Math.max(2, Integer.highestOneBit(Math.max(1, extensionCount * 2 - 1)) << 1)];
+        int e = 0;
+        for (Map.Entry<String, List<Integer>> entry : builder.extensions.entrySet()) {
+            this.extensions[e] = entry.getKey();
+            this.extensionIds[e] = toArray(entry.getValue());
+            int slot = spread(entry.getKey().hashCode()) & (this.extensionTable.length - 1);
+            while (0 != this.extensionTable[slot]) {
+                slot = (slot + 1) & (this.extensionTable.length - 1);
+            }
+            this.extensionTable[slot] = e + 1;
+            e++;
+        }
+
+        this.factory = factory;
+        this.variants = variants;
+        this.valuesPerNode = 4 * (extensionCount + 1) * variants;
+        this.values = new AtomicReferenceArray<Object[]>(count);
+    }
+
+    /**
+     * Query the number of nodes in the trie.
+     *
+     * @return int
+     */
+    public int getNodeCount() {
+        return this.labels.length;
+    }
+
+    private int child(int node, char c) {
+        char[] nodeLabels = this.labels[node];
+        int index = (nodeLabels.length < 8) ? linearSearch(nodeLabels, c) : Arrays.binarySearch(nodeLabels, c);
+        return (index < 0) ? -1 : this.children[node][index];
+    }
+
+    private static int linearSearch(char[] array, char c) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return int extension index + 1, 0 if no extension pattern matches
+     */
+    private int extension(String uri) {
+        if (0 == this.extensions.length) {
+            return 0;
+        }
+        int dot = uri.lastIndexOf('.');
+        if (-1 == dot) {
+            return 0;
+        }
+        int length = uri.length() - dot - 1;
+        int hash = 0;
+        for (int i = dot + 1; i < uri.length(); i++) {
+            hash = 31 * hash + uri.charAt(i);
+        }
+        int mask = this.extensionTable.length - 1;
+        for (int slot = spread(hash) & mask; 0 != this.extensionTable[slot]; slot = (slot + 1) & mask) {
+            String extension = this.extensions[this.extensionTable[slot] - 1];
+            if (extension.length() == length && uri.regionMatches(dot + 1, extension, 0, length)) {
+                return this.extensionTable[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Walk the trie.
+     *
+     * @return long node index in the high half, path and exact flags in the low
+     */
+    private long walk(String uri) {
+        int node = 0;
+        int length = uri.length();
+        for (int i = 0; i < length; i++) {
+            char c = uri.charAt(i);
+            int child = child(node, c);
+            if (-1 == child) {
+                boolean path = ('/' == c) && 0 != this.pathIds[node].length;
+                return ((long) node << 32) | (path ? 1 : 0);
+            }
+            node = child;
+        }
+        return ((long) node << 32) | (0 != this.pathIds[node].length ? 1 : 0) | (0 != this.exactIds[node].length ? 2 : 0);
+    }
+
+    private int[] ids(int node, int flags, int extension) {
+        int[] ids = this.inheritedIds[node];
+        if (0 != (flags & 1)) {
+            ids = union(ids, this.pathIds[node]);
+        }
+        if (0 != (flags & 2)) {
+            ids = union(ids, this.exactIds[node]);
+        }
+        if (0 != extension) {
+            ids = union(ids, this.extensionIds[extension - 1]);
+        }
+        return ids;
+    }
+
+    /**
+     * Find the ids of every pattern matching the URI.
+     *
+     * @param uri
+     * @return int[] in increasing order
+     */
+    public int[] match(String uri) {
+        long route = walk(uri);
+        return ids((int) (route >>> 32), (int) route, extension(uri)).clone();
+    }
+
+    /**
+     * Get the value of the route the URI is on, building it if this is the
+     * first URI on that route.
+     *
+     * @param uri
+     * @param variant
+     * @return T
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String uri, int variant) {
+        long route = walk(uri);
+        int node = (int) (route >>> 32);
+        int flags = (int) route;
+        int extension = extension(uri);
+        int slot = ((extension << 2) | flags) * this.variants + variant;
+        Object[] nodeValues = this.values.get(node);
+        if (null != nodeValues && null != nodeValues[slot]) {
+            return (T) nodeValues[slot];
+        }
+        T value = this.factory.create(ids(node, flags, extension), variant);
+        while (true) {
+            Object[] current = this.values.get(node);
+            Object[] updated = (null == current) ? new Object[this.valuesPerNode] : current.clone();
+            if (null != updated[slot]) {
+                return (T) updated[slot];
+            }
+            updated[slot] = value;
+            if (this.values.compareAndSet(node, current, updated)) {
+                return value;
+            }
+        }
+    }
+}
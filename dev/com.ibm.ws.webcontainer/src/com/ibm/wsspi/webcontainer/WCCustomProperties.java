@@ -300,6 +300,13 @@ public class WCCustomProperties {
     public static boolean USE_MAXREQUESTSIZE_FOR_MULTIPART; //PI75528
 
     public static boolean ENABLE_MULTI_READ_OF_POST_DATA; //MultiRead
+
+    public static long STATIC_CONTENT_CACHE_SIZE;
+    public static int STATIC_CONTENT_CACHE_MAX_ENTRY_SIZE;
+    public static boolean STATIC_CONTENT_CACHE_GZIP;
+    public static boolean STORED_RESPONSE_GZIP;
+
+    public static boolean INVOCATION_CACHE_NORMALIZE_PATHS;
     
     static {
         setCustomPropertyVariables(); //initilizes all the variables
@@ -763,6 +770,13 @@ public class WCCustomProperties {
         
         ENABLE_MULTI_READ_OF_POST_DATA = Boolean.valueOf(WebContainer.getWebContainerProperties().getProperty("com.ibm.ws.webcontainer.enablemultireadofpostdata")).booleanValue(); // MultiRead
 
+        STATIC_CONTENT_CACHE_SIZE = Long.valueOf(customProps.getProperty("com.ibm.ws.webcontainer.staticcontentcachesize", "0")).longValue();
+        STATIC_CONTENT_CACHE_MAX_ENTRY_SIZE = Integer.valueOf(customProps.getProperty("com.ibm.ws.webcontainer.staticcontentcachemaxentrysize", "1048576")).intValue();
+        STATIC_CONTENT_CACHE_GZIP = Boolean.valueOf(customProps.getProperty("com.ibm.ws.webcontainer.staticcontentcachegzip")).booleanValue();
+        STORED_RESPONSE_GZIP = Boolean.valueOf(customProps.getProperty("com.ibm.ws.webcontainer.storedresponsegzip")).booleanValue();
+
+        INVOCATION_CACHE_NORMALIZE_PATHS = Boolean.valueOf(customProps.getProperty("com.ibm.ws.webcontainer.invocationcachenormalizepaths")).booleanValue();
+
   
     }
 
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.websphere.servlet.response;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wsspi.webcontainer.WCCustomProperties;
+
+public class StoredResponseTest {
+    private final Mockery mock = new JUnit4Mockery();
+
+    private boolean storedResponseGzip;
+    private int requests = 0;
+
+    @Before
+    public void setUp() {
+        storedResponseGzip = WCCustomProperties.STORED_RESPONSE_GZIP;
+        WCCustomProperties.STORED_RESPONSE_GZIP = true;
+    }
+
+    @After
+    public void tearDown() {
+        WCCustomProperties.STORED_RESPONSE_GZIP = storedResponseGzip;
+    }
+
+    /**
+     * Replay target that keeps the headers added to it, which a stored response
+     * that is not wrapping another response ignores.
+     */
+    private static class Target extends HttpServletResponseWrapper {
+        final StoredResponse stored;
+        String vary;
+
+        Target() {
+            this(new StoredResponse());
+        }
+
+        private Target(StoredResponse stored) {
+            super(stored);
+            this.stored = stored;
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("Vary".equals(name)) {
+                vary = value;
+            }
+            super.addHeader(name, value);
+        }
+    }
+
+    private static byte[] body() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("<p>line ").append(i).append("</p>\n");
+        }
+        return sb.toString().getBytes();
+    }
+
+    private static StoredResponse stored(byte[] body) throws IOException {
+        StoredResponse response = new StoredResponse();
+        response.setContentType("text/html");
+        response.setHeader("ETag", "\"1234\"");
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+        out.close();
+        return response;
+    }
+
+    private HttpServletRequest request(final String acceptEncoding) {
+        final HttpServletRequest request = mock.mock(HttpServletRequest.class, "request" + requests++);
+        mock.checking(new Expectations() {
+            {
+                allowing(request).getHeaders("Accept-Encoding");
+                will(returnValue(Collections.enumeration(acceptEncoding == null ? Collections.<String> emptyList() : Collections.singletonList(acceptEncoding))));
+            }
+        });
+        return request;
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[1024];
+        for (int n; (n = in.read(b)) != -1;) {
+            out.write(b, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testReplayIdentity() throws Exception {
+        byte[] body = body();
+        StoredResponse cached = stored(body);
+
+        Target target = new Target();
+        cached.transferResponse(target, request(null));
+
+        assertArrayEquals(body, target.stored.getOutputBuffer());
+        assertNull(target.getHeader("Content-Encoding"));
+        assertEquals("\"1234\"", target.getHeader("ETag"));
+        assertEquals("Accept-Encoding", target.vary);
+    }
+
+    @Test
+    public void testReplayGzip() throws Exception {
+        byte[] body = body();
+        StoredResponse cached = stored(body);
+
+        for (int i = 0; i < 2; i++) {
+            Target target = new Target();
+            cached.transferResponse(target, request("gzip, deflate"));
+
+            byte[] gzip = target.stored.getOutputBuffer();
+            assertEquals("gzip", target.getHeader("Content-Encoding"));
+            assertEquals("\"1234-gzip\"", target.getHeader("ETag"));
+            assertEquals("Accept-Encoding", target.vary);
+            assertArrayEquals(body, gunzip(gzip));
+        }
+
+        // the identity variant keeps the entity tag it was stored with
+        Target target = new Target();
+        cached.transferResponse(target, request("gzip;q=0"));
+        assertArrayEquals(body, target.stored.getOutputBuffer());
+        assertEquals("\"1234\"", target.getHeader("ETag"));
+    }
+
+    @Test
+    public void testGzipETag() {
+        assertEquals("\"abc-gzip\"", StoredResponse.gzipETag("\"abc\""));
+        assertEquals("W/\"abc-gzip\"", StoredResponse.gzipETag("W/\"abc\""));
+        assertEquals("abc-gzip", StoredResponse.gzipETag("abc"));
+    }
+}
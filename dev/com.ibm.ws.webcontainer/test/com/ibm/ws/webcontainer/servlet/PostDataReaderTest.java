@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public class PostDataReaderTest {
+
+    private static final String MESSAGE = "less bytes";
+
+    /**
+     * Returns at most a few bytes per read, so characters are split between reads.
+     */
+    private static InputStream trickle(byte[] data, final int maxRead) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, maxRead));
+            }
+        };
+    }
+
+    private static String join(char[][] chunks) {
+        StringBuilder sb = new StringBuilder();
+        for (char[] chunk : chunks) {
+            sb.append(chunk);
+        }
+        return sb.toString();
+    }
+
+    private static String body(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("k").append(i).append("=é€中&");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testReadContentLength() throws Exception {
+        byte[] data = "a=1&b=2".getBytes("ISO-8859-1");
+        PostDataReader reader = new PostDataReader("ISO-8859-1");
+        reader.read(new ByteArrayInputStream(data), data.length, MESSAGE);
+        char[][] chunks = reader.getChunks();
+        assertEquals(1, chunks.length);
+        assertEquals("a=1&b=2", new String(chunks[0]));
+        assertEquals(data.length, reader.getBytesRead());
+        assertFalse(reader.hasNonAsciiBytes());
+    }
+
+    @Test
+    public void testReadStopsAtContentLength() throws Exception {
+        byte[] data = "a=1&b=2".getBytes("ISO-8859-1");
+        PostDataReader reader = new PostDataReader("ISO-8859-1");
+        reader.read(new ByteArrayInputStream(data), 3, MESSAGE);
+        assertEquals("a=1", join(reader.getChunks()));
+        assertEquals(3, reader.getBytesRead());
+    }
+
+    @Test
+    public void testShortBody() throws Exception {
+        byte[] data = "a=1".getBytes("ISO-8859-1");
+        PostDataReader reader = new PostDataReader("ISO-8859-1");
+        try {
+            reader.read(new ByteArrayInputStream(data), 10, MESSAGE);
+            fail("read should fail when the body is shorter than its content length");
+        } catch (IOException e) {
+            assertEquals(MESSAGE, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEmptyBody() throws Exception {
+        PostDataReader reader = new PostDataReader("UTF-8");
+        reader.read(new ByteArrayInputStream(new byte[0]), -1, MESSAGE);
+        char[][] chunks = reader.getChunks();
+        assertEquals(1, chunks.length);
+        assertEquals(0, chunks[0].length);
+    }
+
+    @Test
+    public void testMultiByteCharactersAcrossReadsAndChunks() throws Exception {
+        String expected = body(5000);
+        byte[] data = expected.getBytes("UTF-8");
+        // chunks of 7 chars and reads of 2 bytes never line up with the 3 byte characters
+        PostDataReader reader = new PostDataReader("UTF-8", 7);
+        reader.read(trickle(data, 2), data.length, MESSAGE);
+        char[][] chunks = reader.getChunks();
+        assertTrue(chunks.length > 1);
+        for (char[] chunk : chunks) {
+            assertTrue(chunk.length > 0 && chunk.length <= 7);
+        }
+        assertEquals(expected, join(chunks));
+        assertTrue(reader.hasNonAsciiBytes());
+    }
+
+    @Test
+    public void testReadToEndOfStream() throws Exception {
+        String expected = body(PostDataReader.READ_SIZE * 3);
+        byte[] data = expected.getBytes("UTF-8");
+        PostDataReader reader = new PostDataReader("UTF-8");
+        reader.read(new ByteArrayInputStream(data), -1, MESSAGE);
+        assertEquals(expected, join(reader.getChunks()));
+        assertEquals(data.length, reader.getBytesRead());
+    }
+
+    @Test
+    public void testTruncatedCharacterIsReplaced() throws Exception {
+        byte[] euro = "€".getBytes("UTF-8");
+        byte[] data = new byte[] { 'a', '=', euro[0], euro[1] };
+        PostDataReader reader = new PostDataReader("UTF-8");
+        reader.read(new ByteArrayInputStream(data), -1, MESSAGE);
+        assertEquals(new String(data, "UTF-8"), join(reader.getChunks()));
+    }
+}
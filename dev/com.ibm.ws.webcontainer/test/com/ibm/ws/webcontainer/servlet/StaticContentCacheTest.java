@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.servlet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class StaticContentCacheTest {
+
+    private static byte[] content(int size) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) {
+            b[i] = (byte) i;
+        }
+        return b;
+    }
+
+    @Test
+    public void testLoadAndGet() throws Exception {
+        StaticContentCache cache = new StaticContentCache(10000, 1000, false);
+        byte[] data = content(100);
+        assertNull(cache.get("a", 1L, 100));
+        StaticContentCache.Content c = cache.load("a", 1L, 100, new ByteArrayInputStream(data));
+        assertNotNull(c);
+        assertSame(c, cache.get("a", 1L, 100));
+        assertArrayEquals(data, cache.get("a", 1L, 100).getData());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(100, cache.getCurrentSize());
+    }
+
+    @Test
+    public void testStaleContentIsDropped() throws Exception {
+        StaticContentCache cache = new StaticContentCache(10000, 1000, false);
+        cache.load("a", 1L, 100, new ByteArrayInputStream(content(100)));
+        assertNull(cache.get("a", 2L, 100));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getCurrentSize());
+
+        cache.load("a", 2L, 100, new ByteArrayInputStream(content(100)));
+        assertNull(cache.get("a", 2L, 101));
+        assertEquals(0, cache.getCurrentSize());
+    }
+
+    @Test
+    public void testSizeLimits() throws Exception {
+        StaticContentCache cache = new StaticContentCache(250, 100, false);
+        assertNull(cache.load("big", 1L, 101, new ByteArrayInputStream(content(101))));
+        assertNull(cache.load("empty", 1L, 0, new ByteArrayInputStream(new byte[0])));
+        // the stream did not match the expected size
+        assertNull(cache.load("short", 1L, 100, new ByteArrayInputStream(content(50))));
+        assertNull(cache.load("long", 1L, 50, new ByteArrayInputStream(content(100))));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        StaticContentCache cache = new StaticContentCache(250, 100, false);
+        cache.load("a", 1L, 100, new ByteArrayInputStream(content(100)));
+        cache.load("b", 1L, 100, new ByteArrayInputStream(content(100)));
+        assertNotNull(cache.get("a", 1L, 100));
+        cache.load("c", 1L, 100, new ByteArrayInputStream(content(100)));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(200, cache.getCurrentSize());
+        assertNull(cache.get("b", 1L, 100));
+        assertNotNull(cache.get("a", 1L, 100));
+        assertNotNull(cache.get("c", 1L, 100));
+    }
+
+    private static void write(File f, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(f);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testFileReleasedAfterLoad() throws Exception {
+        File f = File.createTempFile("StaticContentCacheTest", ".txt");
+        f.deleteOnExit();
+        byte[] data = content(100000);
+        write(f, data);
+
+        StaticContentCache cache = new StaticContentCache(1000000, 500000, false);
+        FileInputStream in = new FileInputStream(f);
+        StaticContentCache.Content c;
+        try {
+            c = cache.load(f.getAbsolutePath(), f.lastModified(), f.length(), in);
+        } finally {
+            in.close();
+        }
+        assertNotNull(c);
+        // the cached copy does not depend on the file once it is loaded
+        write(f, new byte[10]);
+        assertArrayEquals(data, c.getData());
+        assertTrue(f.delete());
+        assertArrayEquals(data, c.getData());
+    }
+
+    @Test
+    public void testFileTruncatedWhileLoading() throws Exception {
+        File f = File.createTempFile("StaticContentCacheTest", ".txt");
+        f.deleteOnExit();
+        write(f, content(100000));
+        long lastModified = f.lastModified();
+
+        StaticContentCache cache = new StaticContentCache(1000000, 500000, false);
+        FileInputStream in = new FileInputStream(f);
+        try {
+            // the size was taken before the file was replaced by a shorter one
+            write(f, content(1000));
+            assertNull(cache.load(f.getAbsolutePath(), lastModified, 100000, in));
+        } finally {
+            in.close();
+        }
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testGzipVariantIsAccounted() throws IOException {
+        StaticContentCache cache = new StaticContentCache(10000, 1000, true) {
+            @Override
+            protected byte[] compress(byte[] data) {
+                return new byte[data.length / 4];
+            }
+        };
+        StaticContentCache.Content c = cache.load("a", 1L, 400, new ByteArrayInputStream(content(400)));
+        assertEquals(100, cache.getGzip(c).length);
+        assertEquals(500, cache.getCurrentSize());
+        assertNull(cache.get("a", 2L, 400));
+        assertEquals(0, cache.getCurrentSize());
+    }
+}
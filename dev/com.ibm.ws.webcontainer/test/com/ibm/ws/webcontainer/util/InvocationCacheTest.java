@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class InvocationCacheTest {
+
+    private final List<String> removed = new ArrayList<String>();
+
+    private final InvocationCache.RemovalListener<String> listener = new InvocationCache.RemovalListener<String>() {
+        @Override
+        public void removed(String key, String value) {
+            removed.add(key);
+        }
+    };
+
+    /**
+     * Request the key, adding it on a miss, the way the web container does.
+     */
+    private static void request(InvocationCache<String> cache, String scope, String key) {
+        if (cache.get(key) == null) {
+            cache.put(scope, key, key);
+        }
+    }
+
+    @Test
+    public void testHotKeysSurviveScan() {
+        InvocationCache<String> cache = new InvocationCache<String>(100, listener);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                request(cache, "default_host", "host:80/app/hot/" + i);
+            }
+        }
+        for (int i = 0; i < 10000; i++) {
+            request(cache, "default_host", "host:80/app/scan/" + i);
+        }
+        assertTrue(cache.size() <= 100);
+        int cached = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.containsKey("host:80/app/hot/" + i)) {
+                cached++;
+            }
+        }
+        assertTrue("only " + cached + " hot keys cached", cached >= 45);
+        assertEquals(cache.getEvictionCount(), removed.size());
+        assertEquals(200, cache.getHitCount());
+        assertEquals(10050, cache.getMissCount());
+    }
+
+    @Test
+    public void testScopesAreBoundedSeparately() {
+        InvocationCache<String> cache = new InvocationCache<String>(50, listener);
+        for (int i = 0; i < 50; i++) {
+            request(cache, "admin_host", "admin:9060/console/" + i);
+        }
+        for (int i = 0; i < 5000; i++) {
+            request(cache, "default_host", "host:80/app/" + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertTrue(cache.containsKey("admin:9060/console/" + i));
+        }
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testRemove() {
+        InvocationCache<String> cache = new InvocationCache<String>(10, listener);
+        assertTrue(cache.put("default_host", "host:80/a", "first"));
+        assertFalse(cache.put("default_host", "host:80/a", "second"));
+        assertFalse(cache.remove("host:80/a", "second"));
+        assertSame("first", cache.get("host:80/a"));
+        assertTrue(cache.remove("host:80/a", "first"));
+        assertNull(cache.get("host:80/a"));
+
+        cache.put("default_host", "host:80/b", "b");
+        assertEquals("b", cache.remove("host:80/b"));
+        assertEquals(0, cache.size());
+        // removed entries are no longer counted against the scope
+        for (int i = 0; i < 10; i++) {
+            cache.put("default_host", "host:80/" + i, "v");
+        }
+        assertEquals(10, cache.size());
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("host:80/app/users/*/orders/*", InvocationCache.normalize("host:80/app/users/12345/orders/7", "*"));
+        assertEquals("host:80/app/items/*", InvocationCache.normalize("host:80/app/items/5b8f2d1e-0c3a-4e7b-9f6d-1a2b3c4d5e6f", "*"));
+        assertEquals("host:80/app/blob/*/raw", InvocationCache.normalize("host:80/app/blob/0123456789abcdef01/raw", "*"));
+        String unchanged = "host:80/app/v2/cafe/index.html";
+        assertSame(unchanged, InvocationCache.normalize(unchanged, "*"));
+        assertEquals(-1, InvocationCache.indexOfTemplated(unchanged));
+        assertEquals(18, InvocationCache.indexOfTemplated("host:80/app/users/42"));
+    }
+}
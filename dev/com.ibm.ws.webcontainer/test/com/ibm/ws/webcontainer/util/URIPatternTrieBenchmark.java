@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+
+/**
+ * Measures the time and the heap allocated to find the filter mappings of a
+ * request URI with 10, 100 and 1000 url pattern mappings, walking the mapping
+ * list the way the filter manager did on a chain cache miss, and with the
+ * compiled trie.
+ * Run the main method; this is not part of the unit test bucket.
+ */
+@Ignore
+public class URIPatternTrieBenchmark {
+
+    static final int WARMUP_SECONDS = 3;
+    static final int MEASURE_SECONDS = 5;
+
+    static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static final String[] WORDS = { "api", "v1", "v2", "users", "orders", "items", "cart", "admin", "reports", "static", "images", "search" };
+    static final String[] EXTENSIONS = { "jsp", "do", "json", "xml", "css", "js", "png", "faces" };
+
+    interface Matcher {
+        Object match(String uri);
+    }
+
+    static List<String> patterns(int count, Random random) {
+        List<String> patterns = new ArrayList<String>();
+        patterns.add("/*");
+        while (patterns.size() < count) {
+            StringBuilder sb = new StringBuilder();
+            int depth = 1 + random.nextInt(3);
+            for (int d = 0; d < depth; d++) {
+                sb.append('/').append(WORDS[random.nextInt(WORDS.length)]).append(patterns.size() % 7);
+            }
+            switch (random.nextInt(4)) {
+                case 0:
+                    patterns.add("*." + EXTENSIONS[random.nextInt(EXTENSIONS.length)] + patterns.size() % 5);
+                    break;
+                case 1:
+                    patterns.add(sb.toString());
+                    break;
+                default:
+                    patterns.add(sb.append("/*").toString());
+            }
+        }
+        return patterns;
+    }
+
+    static Matcher linear(final List<String> patterns) {
+        return new Matcher() {
+            @Override
+            public Object match(String uri) {
+                List<String> matched = new ArrayList<String>();
+                for (String pattern : patterns) {
+                    if (URIPatternTrieTest.matches(pattern, uri)) {
+                        matched.add(pattern);
+                    }
+                }
+                return matched;
+            }
+        };
+    }
+
+    static Matcher trie(List<String> patterns) {
+        final URIPatternTrie<String> trie = URIPatternTrieTest.compile(patterns, new URIPatternTrieTest.Factory());
+        return new Matcher() {
+            @Override
+            public Object match(String uri) {
+                return trie.get(uri, 0);
+            }
+        };
+    }
+
+    /**
+     * @return nanoseconds and allocated bytes per match
+     */
+    static double[] measure(Matcher matcher, String[] uris) {
+        long end = System.nanoTime() + WARMUP_SECONDS * 1000000000L;
+        while (System.nanoTime() < end) {
+            for (String uri : uris) {
+                matcher.match(uri);
+            }
+        }
+        long thread = Thread.currentThread().getId();
+        long ops = 0;
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        end = start + MEASURE_SECONDS * 1000000000L;
+        long now;
+        do {
+            for (String uri : uris) {
+                matcher.match(uri);
+            }
+            ops += uris.length;
+            now = System.nanoTime();
+        } while (now < end);
+        bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+        return new double[] { (now - start) / (double) ops, bytes / (double) ops };
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-8s %12s %12s%n", "mappings", "matcher", "ns/op", "bytes/op");
+        for (int count : new int[] { 10, 100, 1000 }) {
+            Random random = new Random(count);
+            List<String> patterns = patterns(count, random);
+            // request uris built from the same words, so many of them match
+            String[] uris = new String[256];
+            for (int i = 0; i < uris.length; i++) {
+                StringBuilder sb = new StringBuilder();
+                int depth = 1 + random.nextInt(4);
+                for (int d = 0; d < depth; d++) {
+                    sb.append('/').append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(7));
+                }
+                if (random.nextBoolean()) {
+                    sb.append("/page.").append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]).append(random.nextInt(5));
+                }
+                uris[i] = sb.toString();
+            }
+            double[] result = measure(linear(patterns), uris);
+            System.out.printf("%-10d %-8s %12.0f %12.0f%n", count, "linear", result[0], result[1]);
+            result = measure(trie(patterns), uris);
+            System.out.printf("%-10d %-8s %12.0f %12.0f%n", count, "trie", result[0], result[1]);
+        }
+    }
+}
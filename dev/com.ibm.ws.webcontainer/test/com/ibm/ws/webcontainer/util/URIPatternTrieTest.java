@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.ws.webcontainer.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class URIPatternTrieTest {
+
+    /**
+     * Lists the ids as a string, counting how many values are built.
+     */
+    static class Factory implements URIPatternTrie.RouteFactory<String> {
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public String create(int[] patternIds, int variant) {
+            created.incrementAndGet();
+            StringBuilder sb = new StringBuilder().append(variant).append(':');
+            for (int id : patternIds) {
+                sb.append(id).append(' ');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The url pattern rules of the filter manager, one pattern at a time.
+     */
+    static boolean matches(String pattern, String uri) {
+        if (pattern.equals("/")) {
+            return uri.equals("/");
+        }
+        if (pattern.endsWith("/*")) {
+            String path = pattern.substring(0, pattern.length() - 2);
+            return uri.startsWith(path + "/") || uri.equals(path);
+        }
+        if (pattern.startsWith("*.")) {
+            int dot = uri.lastIndexOf('.');
+            return dot != -1 && pattern.substring(2).equals(uri.substring(dot + 1));
+        }
+        return uri.equals(pattern);
+    }
+
+    static URIPatternTrie<String> compile(List<String> patterns, Factory factory) {
+        URIPatternTrie.Builder<String> builder = new URIPatternTrie.Builder<String>();
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            if (pattern.equals("/")) {
+                builder.addExact("/", i);
+            } else if (pattern.endsWith("/*")) {
+                builder.addPath(pattern.substring(0, pattern.length() - 2), i);
+            } else if (pattern.startsWith("*.")) {
+                builder.addExtension(pattern.substring(2), i);
+            } else {
+                builder.addExact(pattern, i);
+            }
+        }
+        return builder.build(factory, 2);
+    }
+
+    static int[] expected(List<String> patterns, String uri) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < patterns.size(); i++) {
+            if (matches(patterns.get(i), uri)) {
+                ids.add(i);
+            }
+        }
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testFilterMappingRules() {
+        List<String> patterns = new ArrayList<String>();
+        patterns.add("/*");
+        patterns.add("/api/*");
+        patterns.add("*.jsp");
+        patterns.add("/api/users");
+        patterns.add("/");
+        patterns.add("/api/users/*");
+        patterns.add("*.do");
+        patterns.add("/ap/*");
+        URIPatternTrie<String> trie = compile(patterns, new Factory());
+
+        assertArrayEquals(new int[] { 0, 1, 3, 5 }, trie.match("/api/users"));
+        assertArrayEquals(new int[] { 0, 1, 5 }, trie.match("/api/users/42"));
+        assertArrayEquals(new int[] { 0, 1 }, trie.match("/api/usersx"));
+        assertArrayEquals(new int[] { 0, 1, 2 }, trie.match("/api/index.jsp"));
+        assertArrayEquals(new int[] { 0, 4 }, trie.match("/"));
+        assertArrayEquals(new int[] { 0 }, trie.match("/apix/a.jspx"));
+        assertArrayEquals(new int[] { 0, 7 }, trie.match("/ap"));
+        // "/*" is stripped to "", which also matches the empty uri
+        assertArrayEquals(new int[] { 0 }, trie.match(""));
+    }
+
+    @Test
+    public void testRandomMappings() {
+        Random random = new Random(17);
+        String[] words = { "api", "app", "a", "users", "user", "orders", "v1", "v2", "static", "css" };
+        String[] extensions = { "jsp", "do", "js", "css", "jsf" };
+        List<String> patterns = new ArrayList<String>();
+        for (int i = 0; i < 60; i++) {
+            StringBuilder sb = new StringBuilder();
+            int depth = random.nextInt(3);
+            for (int d = 0; d <= depth; d++) {
+                sb.append('/').append(words[random.nextInt(words.length)]);
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    patterns.add(sb.append("/*").toString());
+                    break;
+                case 1:
+                    patterns.add(sb.toString());
+                    break;
+                default:
+                    patterns.add("*." + extensions[random.nextInt(extensions.length)]);
+            }
+        }
+        URIPatternTrie<String> trie = compile(patterns, new Factory());
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int depth = random.nextInt(4);
+            for (int d = 0; d <= depth; d++) {
+                sb.append('/').append(words[random.nextInt(words.length)]);
+            }
+            if (random.nextBoolean()) {
+                sb.append('.').append(extensions[random.nextInt(extensions.length)]);
+            }
+            if (random.nextInt(5) == 0) {
+                sb.append('/');
+            }
+            String uri = sb.toString();
+            assertArrayEquals(uri, expected(patterns, uri), trie.match(uri));
+        }
+    }
+
+    @Test
+    public void testRouteValuesAreKept() {
+        List<String> patterns = new ArrayList<String>();
+        patterns.add("/api/*");
+        patterns.add("*.json");
+        Factory factory = new Factory();
+        URIPatternTrie<String> trie = compile(patterns, factory);
+
+        String value = trie.get("/api/users/1.json", 0);
+        assertEquals("0:0 1 ", value);
+        // another uri on the same route gets the same value without building it
+        assertSame(value, trie.get("/api/orders/2.json", 0));
+        assertEquals(1, factory.created.get());
+        assertEquals("1:0 1 ", trie.get("/api/orders/2.json", 1));
+        assertEquals("0:0 ", trie.get("/api/orders/2", 0));
+        assertEquals("0:", trie.get("/other", 0));
+        assertEquals(4, factory.created.get());
+    }
+}